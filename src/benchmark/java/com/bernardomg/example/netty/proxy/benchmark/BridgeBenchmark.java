@@ -0,0 +1,403 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bernardomg.example.netty.proxy.cli.CliWriterProxyListener;
+import com.bernardomg.example.netty.proxy.client.ReactorNettyProxyClient;
+import com.bernardomg.example.netty.proxy.client.balance.BalanceStrategy;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.connect.ConnectSettings;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+import com.bernardomg.example.netty.proxy.metrics.NoOpProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.ProxyListener;
+import com.bernardomg.example.netty.proxy.server.ProxyRoute;
+import com.bernardomg.example.netty.proxy.server.ProxyServerSettings;
+import com.bernardomg.example.netty.proxy.server.ReactorNettyTcpProxyServer;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionController;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.BridgeSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.ProxyConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.event.AsyncProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.event.CaptureMode;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.OverflowPolicy;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import reactor.netty.DisposableServer;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * Benchmarks the proxy bridge, by sending messages through the proxy to an in-process echo backend.
+ * <p>
+ * Each operation sends a message through each of the connections, and waits until all of them are echoed back. So, with
+ * a single connection, the sample time is the latency of a proxied message.
+ * <h2>Buffer allocations</h2>
+ * <p>
+ * The buffer allocations benchmark counts the pooled buffers allocated for each proxied message. It runs with the
+ * Netty thread caches disabled, as allocations served from these caches are not counted by the pool. The echo backend
+ * uses unpooled buffers, so only the proxy allocations are counted.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BridgeBenchmark {
+
+    /**
+     * Bytes of each message sent to the listener.
+     */
+    private static final int           CAPTURE_BYTES  = 64;
+
+    /**
+     * Maximum number of events waiting for the listener.
+     */
+    private static final int           LISTENER_QUEUE = 65536;
+
+    /**
+     * Number of connections to the proxy.
+     */
+    @Param({ "1", "16" })
+    public int                         connections;
+
+    /**
+     * Size of each message.
+     */
+    @Param({ "64", "1024", "16384" })
+    public int                         messageSize;
+
+    /**
+     * Transport used by the proxy.
+     */
+    @Param({ "NIO" })
+    public TransportType               transport;
+
+    /**
+     * In-process echo backend.
+     */
+    private DisposableServer           backend;
+
+    /**
+     * Proxy client.
+     */
+    private ReactorNettyProxyClient    client;
+
+    /**
+     * Listener event dispatcher.
+     */
+    private AsyncProxyEventDispatcher  dispatcher;
+
+    /**
+     * Proxy event loops.
+     */
+    private ProxyLoopResources         loops;
+
+    /**
+     * Proxy server.
+     */
+    private ReactorNettyTcpProxyServer proxy;
+
+    /**
+     * Message sent on each connection.
+     */
+    private ByteBuffer                 request;
+
+    /**
+     * Buffer for the echoed messages.
+     */
+    private ByteBuffer                 response;
+
+    /**
+     * Connections to the proxy.
+     */
+    private SocketChannel[]            sockets;
+
+    /**
+     * Sends a message through each connection, counting the buffers allocated by the proxy.
+     *
+     * @param counters
+     *            buffer allocation counters
+     * @return the first byte of the last echoed message
+     * @throws IOException
+     *             if a connection fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Fork(value = 1, jvmArgsAppend = { "-Dio.netty.allocator.smallCacheSize=0",
+            "-Dio.netty.allocator.normalCacheSize=0" })
+    public byte bufferAllocations(final BufferCounters counters) throws IOException {
+        counters.messages += connections;
+
+        return roundTrip();
+    }
+
+    /**
+     * Sends a message through each connection, and waits for all of them to be echoed back.
+     *
+     * @return the first byte of the last echoed message
+     * @throws IOException
+     *             if a connection fails
+     */
+    @Benchmark
+    @BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+    public byte roundTrip() throws IOException {
+        for (final SocketChannel socket : sockets) {
+            request.clear();
+            while (request.hasRemaining()) {
+                socket.write(request);
+            }
+        }
+
+        for (final SocketChannel socket : sockets) {
+            response.clear();
+            while (response.hasRemaining()) {
+                if (socket.read(response) < 0) {
+                    throw new IOException("Connection closed by the proxy");
+                }
+            }
+        }
+
+        return response.get(0);
+    }
+
+    /**
+     * Starts the echo backend and the proxy, and opens the connections.
+     *
+     * @throws IOException
+     *             if a connection fails
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final List<Upstream>        upstreams;
+        final ChannelSettings       channelSettings;
+        final ProxyListener         listener;
+        final ProxyConnectionBridge bridge;
+        final HealthSettings        healthSettings;
+        final ConnectSettings       connectSettings;
+        final int                   port;
+
+        backend = TcpServer.create()
+            .host("localhost")
+            .port(0)
+            .childOption(ChannelOption.ALLOCATOR, UnpooledByteBufAllocator.DEFAULT)
+            .handle((in, out) -> out.send(in.receive()
+                .retain()))
+            .bindNow();
+
+        upstreams = List.of(new Upstream("localhost", backend.port()));
+        loops = new ProxyLoopResources(transport, 0, 0);
+        channelSettings = ChannelSettings.builder()
+            .transport(loops.getTransport())
+            .build();
+        // Health probes are disabled, as they would add noise
+        healthSettings = HealthSettings.builder()
+            .failureThreshold(3)
+            .ejectionTime(Duration.ofSeconds(10))
+            .maxEjectionTime(Duration.ofSeconds(10))
+            .probeInterval(Duration.ZERO)
+            .probeTimeout(Duration.ofSeconds(1))
+            .build();
+        connectSettings = ConnectSettings.builder()
+            .timeout(Duration.ofSeconds(5))
+            .build();
+        client = new ReactorNettyProxyClient(upstreams, BalanceStrategy.ROUND_ROBIN.createBalancer(upstreams),
+            healthSettings, connectSettings, loops, channelSettings, NoOpProxyMetrics.INSTANCE, false);
+
+        listener = new CliWriterProxyListener(0, upstreams,
+            new PrintWriter(OutputStream.nullOutputStream(), false, Charset.defaultCharset()));
+        dispatcher = new AsyncProxyEventDispatcher(listener, LISTENER_QUEUE, 256, OverflowPolicy.DROP);
+        bridge = new ProxyConnectionBridge(dispatcher, BridgeSettings.builder()
+            .capture(CaptureSettings.builder()
+                .mode(CaptureMode.TEXT)
+                .maxBytes(CAPTURE_BYTES)
+                .sampleRate(1)
+                .build())
+            .build());
+
+        port = findFreePort();
+        proxy = new ReactorNettyTcpProxyServer(ProxyServerSettings.builder()
+            .port(port)
+            .route(new ProxyRoute(new AdmissionController(AdmissionSettings.UNLIMITED, NoOpProxyMetrics.INSTANCE),
+                bridge, client))
+            .loops(loops)
+            .channelSettings(channelSettings)
+            .dispatcher(dispatcher)
+            .listener(listener)
+            .build());
+
+        dispatcher.start();
+        proxy.start();
+
+        sockets = new SocketChannel[connections];
+        for (int i = 0; i < connections; i++) {
+            sockets[i] = SocketChannel.open(new InetSocketAddress("localhost", port));
+            sockets[i].setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+
+        request = ByteBuffer.allocateDirect(messageSize);
+        while (request.hasRemaining()) {
+            request.put((byte) ('a' + (request.position() % 26)));
+        }
+        response = ByteBuffer.allocateDirect(messageSize);
+    }
+
+    /**
+     * Closes the connections, and stops the proxy and the echo backend.
+     *
+     * @throws IOException
+     *             if a connection fails to close
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (final SocketChannel socket : sockets) {
+            socket.close();
+        }
+
+        proxy.stop();
+        client.dispose();
+        loops.dispose();
+        dispatcher.stop();
+        backend.disposeNow();
+    }
+
+    /**
+     * Returns a free local port.
+     *
+     * @return a free port
+     * @throws IOException
+     *             if no port can be found
+     */
+    private final int findFreePort() throws IOException {
+        try (final ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Counts the pooled buffers allocated for each proxied message.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class BufferCounters {
+
+        /**
+         * Pooled buffer allocations when the iteration started.
+         */
+        private long allocations;
+
+        /**
+         * Messages proxied during the iteration.
+         */
+        private long messages;
+
+        /**
+         * Returns the pooled buffers allocated for each proxied message, during the current iteration. Each message is
+         * read from the client and the echo is read from the backend, so both directions are included.
+         *
+         * @return the buffer allocations for each message
+         */
+        public double buffersPerMessage() {
+            if (messages == 0) {
+                return 0;
+            }
+
+            return (double) (countAllocations() - allocations) / messages;
+        }
+
+        /**
+         * Resets the counters.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            allocations = countAllocations();
+            messages = 0;
+        }
+
+        /**
+         * Returns the total allocations made by the default pooled allocator.
+         *
+         * @return the total allocations
+         */
+        private final long countAllocations() {
+            final PooledByteBufAllocator allocator;
+            long                         total;
+
+            total = 0;
+            if (ByteBufAllocator.DEFAULT instanceof PooledByteBufAllocator) {
+                allocator = (PooledByteBufAllocator) ByteBufAllocator.DEFAULT;
+                for (final PoolArenaMetric arena : allocator.metric()
+                    .directArenas()) {
+                    total += arena.numAllocations();
+                }
+                for (final PoolArenaMetric arena : allocator.metric()
+                    .heapArenas()) {
+                    total += arena.numAllocations();
+                }
+            }
+
+            return total;
+        }
+
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.benchmark;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.bernardomg.example.netty.proxy.cli.CliWriterProxyListener;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.server.ProxyListener;
+import com.bernardomg.example.netty.proxy.server.event.AsyncProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.event.CaptureMode;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.OverflowPolicy;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+/**
+ * Benchmarks the cost of sending the proxied messages to the listener.
+ * <p>
+ * The dispatch benchmark measures what the event loop pays for each message, which is copying the captured bytes and
+ * queuing the event. With the drop policy this is only the producer side, while with the block policy the event loop
+ * waits for the listener, so it measures the whole pipeline. The listener benchmark measures the listener alone.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ListenerBenchmark {
+
+    /**
+     * Maximum number of events delivered on each batch.
+     */
+    private static final int          BATCH_SIZE     = 256;
+
+    /**
+     * Maximum number of events waiting for the listener.
+     */
+    private static final int          LISTENER_QUEUE = 65536;
+
+    /**
+     * Bytes of each message sent to the listener.
+     */
+    @Param({ "64", "1024", "4096" })
+    public int                        captureBytes;
+
+    /**
+     * How the listener shows the messages.
+     */
+    @Param({ "TEXT", "HEX", "SIZE" })
+    public CaptureMode                captureMode;
+
+    /**
+     * Size of each message.
+     */
+    @Param({ "4096" })
+    public int                        messageSize;
+
+    /**
+     * Policy for when the listener queue is full.
+     */
+    @Param({ "DROP", "BLOCK" })
+    public OverflowPolicy             overflowPolicy;
+
+    /**
+     * Capture settings, built from the parameters.
+     */
+    private CaptureSettings           capture;
+
+    /**
+     * Listener event dispatcher.
+     */
+    private AsyncProxyEventDispatcher dispatcher;
+
+    /**
+     * Event sent to the listener.
+     */
+    private ProxyEvent                event;
+
+    /**
+     * Proxy listener.
+     */
+    private ProxyListener             listener;
+
+    /**
+     * Proxied message.
+     */
+    private ByteBuf                   message;
+
+    /**
+     * Copies the captured bytes and queues the event, as the bridge does for each message.
+     */
+    @Benchmark
+    public void dispatch() {
+        final int    captured;
+        final byte[] payload;
+
+        captured = Math.min(message.readableBytes(), capture.getCapturedBytes());
+        payload = ByteBufUtil.getBytes(message, message.readerIndex(), captured);
+
+        dispatcher.dispatch(
+            new ProxyEvent("benchmark", Direction.REQUEST, message.readableBytes(), payload, System.currentTimeMillis()));
+    }
+
+    /**
+     * Sends the event to the listener.
+     */
+    @Benchmark
+    public void listener() {
+        listener.onRequest(event);
+    }
+
+    /**
+     * Creates the listener and starts the dispatcher.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        final byte[] content;
+
+        capture = CaptureSettings.builder()
+            .mode(captureMode)
+            .maxBytes(captureBytes)
+            .sampleRate(1)
+            .build();
+        listener = new CliWriterProxyListener(0, List.of(new Upstream("localhost", 0)),
+            new PrintWriter(OutputStream.nullOutputStream(), false, Charset.defaultCharset()), capture);
+        dispatcher = new AsyncProxyEventDispatcher(listener, LISTENER_QUEUE, BATCH_SIZE, overflowPolicy);
+
+        content = new byte[messageSize];
+        for (int i = 0; i < messageSize; i++) {
+            content[i] = (byte) ('a' + (i % 26));
+        }
+        message = Unpooled.wrappedBuffer(content);
+        event = new ProxyEvent("benchmark", Direction.REQUEST, messageSize,
+            ByteBufUtil.getBytes(message, 0, Math.min(messageSize, capture.getCapturedBytes())),
+            System.currentTimeMillis());
+
+        dispatcher.start();
+    }
+
+    /**
+     * Stops the dispatcher.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.stop();
+        message.release();
+    }
+
+}
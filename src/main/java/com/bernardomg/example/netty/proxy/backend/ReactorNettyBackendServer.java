@@ -0,0 +1,172 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.backend;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.reactivestreams.Publisher;
+
+import com.bernardomg.example.netty.proxy.server.Server;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableChannel;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * Backend server which echoes or discards all the data it receives. Meant to be the target of the proxy when measuring
+ * it, so there is no need of a real backend.
+ * <p>
+ * The data is never decoded or copied. When echoing, the received buffers are written back as they are.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ReactorNettyBackendServer implements Server {
+
+    /**
+     * Settings for the connection channels.
+     */
+    private final ChannelSettings channelSettings;
+
+    /**
+     * Event loop resources.
+     */
+    private final LoopResources   loops;
+
+    /**
+     * What to do with the data received.
+     */
+    private final BackendMode     mode;
+
+    /**
+     * Port which the server will listen to.
+     */
+    private final int             port;
+
+    /**
+     * Bytes received by all the connections.
+     */
+    private final LongAdder       received        = new LongAdder();
+
+    /**
+     * Disposable for closing the server port connection.
+     */
+    private DisposableChannel     server;
+
+    /**
+     * Constructs a backend server for the received port.
+     *
+     * @param prt
+     *            port to listen to
+     * @param md
+     *            what to do with the data received
+     * @param lps
+     *            event loop resources
+     * @param chnnlSettings
+     *            settings for the connection channels
+     */
+    public ReactorNettyBackendServer(final int prt, final BackendMode md, final LoopResources lps,
+            final ChannelSettings chnnlSettings) {
+        super();
+
+        port = prt;
+        mode = Objects.requireNonNull(md);
+        loops = Objects.requireNonNull(lps);
+        channelSettings = Objects.requireNonNull(chnnlSettings);
+    }
+
+    /**
+     * Returns the bytes received by all the connections.
+     *
+     * @return the bytes received
+     */
+    public final long getReceivedBytes() {
+        return received.sum();
+    }
+
+    @Override
+    public final void listen() {
+        log.trace("Starting backend listening");
+
+        server.onDispose()
+            .block();
+
+        log.trace("Stopped backend listening");
+    }
+
+    @Override
+    public final void start() {
+        log.debug("Binding {} backend to port {}", mode, port);
+
+        server = channelSettings.applyTo(TcpServer.create())
+            .handle(this::handle)
+            .runOn(loops)
+            .port(port)
+            .bindNow();
+    }
+
+    @Override
+    public final void stop() {
+        log.trace("Stopping backend");
+
+        server.dispose();
+
+        log.trace("Stopped backend");
+    }
+
+    /**
+     * Handles a connection, echoing or discarding the received data.
+     *
+     * @param inbound
+     *            connection inbound
+     * @param outbound
+     *            connection outbound
+     * @return the connection handling
+     */
+    private final Publisher<Void> handle(final NettyInbound inbound, final NettyOutbound outbound) {
+        final Mono<Void> handling;
+
+        if (mode == BackendMode.ECHO) {
+            handling = outbound.send(inbound.receive()
+                .retain()
+                .doOnNext(b -> received.add(b.readableBytes())))
+                .then();
+        } else {
+            handling = inbound.receive()
+                .doOnNext(b -> received.add(b.readableBytes()))
+                .then();
+        }
+
+        return handling;
+    }
+
+}
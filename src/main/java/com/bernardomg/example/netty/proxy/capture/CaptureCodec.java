@@ -0,0 +1,108 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.capture;
+
+import java.nio.ByteBuffer;
+
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+/**
+ * Encodes and decodes the captured messages for a capture file format.
+ * <p>
+ * Each segment file starts with a header, followed by the records. Writing a record should not allocate, as this is
+ * done for each proxied message.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public interface CaptureCodec {
+
+    /**
+     * Returns the number of bytes taken by the record for the event.
+     *
+     * @param event
+     *            event to write
+     * @param captured
+     *            bytes of the payload to write
+     * @return the size of the record
+     */
+    public int getRecordSize(final ProxyEvent event, final int captured);
+
+    /**
+     * Starts the records of a connection, accepted at the received proxy port. This is called before writing its
+     * records. By default it is ignored, as not all the formats store ports.
+     *
+     * @param connectionId
+     *            id of the accepted connection
+     * @param port
+     *            port of the proxy which accepted the connection
+     */
+    public default void startConnection(final String connectionId, final int port) {
+        // Ignored
+    }
+
+    /**
+     * Reads the segment header, and checks it is valid for this format.
+     *
+     * @param buffer
+     *            buffer to read from
+     * @throws IllegalArgumentException
+     *             if the header is not valid
+     */
+    public void readHeader(final ByteBuffer buffer);
+
+    /**
+     * Reads the next record. Returns {@code null} when there are no more records.
+     *
+     * @param buffer
+     *            buffer to read from
+     * @return the next event, or {@code null} if there are no more
+     */
+    public ProxyEvent readRecord(final ByteBuffer buffer);
+
+    /**
+     * Writes the segment header.
+     *
+     * @param buffer
+     *            buffer to write into
+     * @param snapLength
+     *            maximum number of payload bytes written for each message
+     */
+    public void writeHeader(final ByteBuffer buffer, final int snapLength);
+
+    /**
+     * Writes the record for the event. The buffer should have space for the size returned by
+     * {@link #getRecordSize(ProxyEvent, int)}.
+     *
+     * @param buffer
+     *            buffer to write into
+     * @param event
+     *            event to write
+     * @param captured
+     *            bytes of the payload to write
+     */
+    public void writeRecord(final ByteBuffer buffer, final ProxyEvent event, final int captured);
+
+}
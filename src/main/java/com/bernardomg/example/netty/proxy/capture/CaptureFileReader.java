@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.capture;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Reads the messages from a capture segment file, in the order they were written. The format is detected from the
+ * start of the file.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class CaptureFileReader implements Closeable {
+
+    /**
+     * File channel for the segment.
+     */
+    private final FileChannel      channel;
+
+    /**
+     * Codec for the file format.
+     */
+    private final CaptureCodec     codec;
+
+    /**
+     * File format.
+     */
+    private final CaptureFormat    format;
+
+    /**
+     * Segment, mapped into memory.
+     */
+    private final MappedByteBuffer segment;
+
+    /**
+     * Opens the received segment file.
+     *
+     * @param file
+     *            segment file to read
+     * @throws IOException
+     *             if the file can't be read
+     * @throws IllegalArgumentException
+     *             if the file is not a capture file
+     */
+    public CaptureFileReader(final Path file) throws IOException {
+        super();
+
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        try {
+            if (segment.remaining() < Integer.BYTES) {
+                throw new IllegalArgumentException("Not a capture file, it is empty");
+            }
+            format = CaptureFormat.fromMagic(segment.getInt(0));
+            codec = format.createCodec(0);
+            codec.readHeader(segment);
+        } catch (final RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public final void close() throws IOException {
+        PlatformDependent.freeDirectBuffer(segment);
+        channel.close();
+    }
+
+    /**
+     * Returns the format of the file.
+     *
+     * @return the file format
+     */
+    public final CaptureFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Reads the next message. Returns {@code null} when there are no more messages.
+     *
+     * @return the next message, or {@code null} if there are no more
+     */
+    public final ProxyEvent read() {
+        return codec.readRecord(segment);
+    }
+
+}
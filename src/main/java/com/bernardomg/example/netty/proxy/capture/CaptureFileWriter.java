@@ -0,0 +1,272 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.capture;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.util.internal.PlatformDependent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes the proxied messages into rotating memory-mapped segment files.
+ * <p>
+ * Each segment is created with its full size and mapped into memory, and the records are written straight into the
+ * mapped buffer. So writing a record is just copying bytes, and allocates nothing. When a record doesn't fit in the
+ * current segment, this is cut to the bytes written, and a new one is created. Optionally, only the last segments are
+ * kept.
+ * <p>
+ * This is not thread safe. It is meant to be used from a single thread, such as the one of an
+ * {@link com.bernardomg.example.netty.proxy.server.event.AsyncProxyEventDispatcher}, which keeps the disk away from the
+ * event loops.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class CaptureFileWriter {
+
+    /**
+     * Maximum number of bytes stored from each message. This is the usual limit for pcap files.
+     */
+    public static final int           MAX_SNAP_LENGTH  = 262144;
+
+    /**
+     * Minimum size of a segment. Any record fits into a segment of this size.
+     */
+    public static final int           MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * File channel for the current segment.
+     */
+    private FileChannel               channel;
+
+    /**
+     * Codec for the file format.
+     */
+    private final CaptureCodec        codec;
+
+    /**
+     * Index for the next segment.
+     */
+    private int                       nextIndex;
+
+    /**
+     * Number of records written.
+     */
+    private long                      records;
+
+    /**
+     * Current segment, mapped into memory.
+     */
+    private MappedByteBuffer          segment;
+
+    /**
+     * Segment files kept, from oldest to newest.
+     */
+    private final Deque<Path>         segments         = new ArrayDeque<>();
+
+    /**
+     * Capture file settings.
+     */
+    private final CaptureFileSettings settings;
+
+    /**
+     * Constructs a writer with the received settings.
+     *
+     * @param sttngs
+     *            capture file settings
+     * @param port
+     *            port of the proxy, for the formats which store it, used for the connections without a port
+     */
+    public CaptureFileWriter(final CaptureFileSettings sttngs, final int port) {
+        super();
+
+        settings = Objects.requireNonNull(sttngs);
+
+        if (settings.getSegmentSize() < MIN_SEGMENT_SIZE) {
+            throw new IllegalArgumentException(
+                String.format("Segment size should be at least %d, received %d", MIN_SEGMENT_SIZE,
+                    settings.getSegmentSize()));
+        }
+        if ((settings.getSnapLength() < 0) || (settings.getSnapLength() > MAX_SNAP_LENGTH)) {
+            throw new IllegalArgumentException(String.format("Snap length should be between 0 and %d, received %d",
+                MAX_SNAP_LENGTH, settings.getSnapLength()));
+        }
+
+        codec = settings.getFormat()
+            .createCodec(port);
+    }
+
+    /**
+     * Returns the number of records written.
+     *
+     * @return the number of records written
+     */
+    public final long getRecords() {
+        return records;
+    }
+
+    /**
+     * Creates the first segment.
+     *
+     * @throws UncheckedIOException
+     *             if the segment can't be created
+     */
+    public final void start() {
+        final Path parent;
+
+        parent = settings.getPath()
+            .toAbsolutePath()
+            .getParent();
+        try {
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        openSegment();
+    }
+
+    /**
+     * Closes the current segment, cutting it to the bytes written.
+     *
+     * @throws UncheckedIOException
+     *             if the segment can't be closed
+     */
+    public final void stop() {
+        if (segment != null) {
+            closeSegment();
+        }
+
+        log.debug("Stopped capture after {} records", records);
+    }
+
+    /**
+     * Starts the records of a connection, accepted at the received proxy port. The formats which store ports show it
+     * for the connection.
+     *
+     * @param connectionId
+     *            id of the accepted connection
+     * @param port
+     *            port of the proxy which accepted the connection
+     */
+    public final void startConnection(final String connectionId, final int port) {
+        codec.startConnection(connectionId, port);
+    }
+
+    /**
+     * Writes the event into the current segment, moving to a new segment if it doesn't fit.
+     *
+     * @param event
+     *            event to write
+     * @throws UncheckedIOException
+     *             if a new segment is needed and it can't be created
+     */
+    public final void write(final ProxyEvent event) {
+        final int captured;
+        final int size;
+
+        if (segment == null) {
+            throw new IllegalStateException("Capture not started");
+        }
+
+        captured = Math.min(event.getPayload().length, settings.getSnapLength());
+        size = codec.getRecordSize(event, captured);
+        if (size > segment.remaining()) {
+            closeSegment();
+            openSegment();
+        }
+
+        codec.writeRecord(segment, event, captured);
+        records++;
+    }
+
+    /**
+     * Closes the current segment, cutting it to the bytes written.
+     */
+    private final void closeSegment() {
+        final int written;
+
+        written = segment.position();
+        segment.force();
+        // Unmaps the segment now, instead of waiting for the garbage collector
+        PlatformDependent.freeDirectBuffer(segment);
+        segment = null;
+
+        try {
+            channel.truncate(written);
+            channel.close();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Creates a new segment, deleting the oldest one if there are too many.
+     */
+    private final void openSegment() {
+        final Path file;
+
+        file = settings.getPath()
+            .resolveSibling(String.format("%s-%06d.%s", settings.getPath()
+                .getFileName(), nextIndex,
+                settings.getFormat()
+                    .getExtension()));
+        nextIndex++;
+
+        try {
+            if ((settings.getMaxSegments() > 0) && (segments.size() >= settings.getMaxSegments())) {
+                Files.deleteIfExists(segments.removeFirst());
+            }
+
+            log.debug("Opening capture segment {}", file);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Mapping past the end of the file extends it to the full segment size
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, settings.getSegmentSize());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.addLast(file);
+
+        codec.writeHeader(segment, settings.getSnapLength());
+    }
+
+}
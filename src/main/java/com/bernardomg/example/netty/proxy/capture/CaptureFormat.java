@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.capture;
+
+/**
+ * Capture file formats.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public enum CaptureFormat {
+
+    /**
+     * Simple framed records, with the connection id, direction, timestamp and payload of each message. These can be
+     * dumped and replayed.
+     */
+    FRAMED {
+
+        @Override
+        public final CaptureCodec createCodec(final int port) {
+            return new FramedCaptureCodec();
+        }
+
+        @Override
+        public final String getExtension() {
+            return "cap";
+        }
+
+        @Override
+        public final int getMagic() {
+            return FramedCaptureCodec.MAGIC;
+        }
+
+    },
+    /**
+     * pcapng, which can be opened with Wireshark. Each message is stored as a TCP packet, with made up addresses, so
+     * the connections can be followed as TCP streams.
+     */
+    PCAPNG {
+
+        @Override
+        public final CaptureCodec createCodec(final int port) {
+            return new PcapngCaptureCodec(port);
+        }
+
+        @Override
+        public final String getExtension() {
+            return "pcapng";
+        }
+
+        @Override
+        public final int getMagic() {
+            return PcapngCaptureCodec.SECTION_HEADER_BLOCK;
+        }
+
+    };
+
+    /**
+     * Returns the format of a file starting with the received magic number.
+     *
+     * @param magic
+     *            first four bytes of the file
+     * @return the format for the file
+     * @throws IllegalArgumentException
+     *             if no format starts with the magic number
+     */
+    public static final CaptureFormat fromMagic(final int magic) {
+        for (final CaptureFormat format : values()) {
+            if (format.getMagic() == magic) {
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException(String.format("Not a capture file, starts with %08x", magic));
+    }
+
+    /**
+     * Creates a codec for this format.
+     *
+     * @param port
+     *            port of the proxy, for the formats which store it, used for the connections without a port
+     * @return a new codec
+     */
+    public abstract CaptureCodec createCodec(final int port);
+
+    /**
+     * Returns the extension for the files in this format.
+     *
+     * @return the file extension
+     */
+    public abstract String getExtension();
+
+    /**
+     * Returns the magic number at the start of each file in this format.
+     *
+     * @return the magic number
+     */
+    public abstract int getMagic();
+
+}
@@ -0,0 +1,125 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.capture;
+
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.Objects;
+
+import com.bernardomg.example.netty.proxy.server.ProxyListener;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Proxy listener which stores the proxied messages into capture files.
+ * <p>
+ * The capture writer is not started or stopped by the listener, as the events may still be delivered after the proxy
+ * stops. Its owner should stop it once all the events have been delivered.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class CaptureProxyListener implements ProxyListener {
+
+    /**
+     * Number of messages which couldn't be written.
+     */
+    private long                    failed;
+
+    /**
+     * Capture writer.
+     */
+    private final CaptureFileWriter writer;
+
+    /**
+     * Constructs a listener storing the messages with the received writer.
+     *
+     * @param writ
+     *            capture writer
+     */
+    public CaptureProxyListener(final CaptureFileWriter writ) {
+        super();
+
+        writer = Objects.requireNonNull(writ);
+    }
+
+    /**
+     * Returns the number of messages which couldn't be written.
+     *
+     * @return the number of failed messages
+     */
+    public final long getFailed() {
+        return failed;
+    }
+
+    @Override
+    public final void onConnection(final String connectionId, final ConnectionAddresses addresses) {
+        // Only the proxy port is stored, the addresses are made up
+        if (addresses.getDestination() instanceof InetSocketAddress) {
+            writer.startConnection(connectionId, ((InetSocketAddress) addresses.getDestination()).getPort());
+        }
+    }
+
+    @Override
+    public final void onRequest(final ProxyEvent event) {
+        write(event);
+    }
+
+    @Override
+    public final void onResponse(final ProxyEvent event) {
+        write(event);
+    }
+
+    @Override
+    public final void onStart() {
+        // The writer is started by its owner
+    }
+
+    @Override
+    public final void onStop() {
+        // The writer is stopped by its owner
+    }
+
+    /**
+     * Writes the event. Errors are logged only the first time, to avoid flooding the log when the disk is full.
+     *
+     * @param event
+     *            event to write
+     */
+    private final void write(final ProxyEvent event) {
+        try {
+            writer.write(event);
+        } catch (final UncheckedIOException | IllegalStateException e) {
+            if (failed == 0) {
+                log.error("Failed writing capture", e);
+            }
+            failed++;
+        }
+    }
+
+}
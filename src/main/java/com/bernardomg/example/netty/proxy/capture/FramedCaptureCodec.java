@@ -0,0 +1,178 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+/**
+ * Codec for the framed capture format. Each segment starts with the magic number and the format version, and then
+ * comes a record for each message:
+ * <ul>
+ * <li>record size, including this field (int)</li>
+ * <li>timestamp, in milliseconds since the epoch (long)</li>
+ * <li>direction ordinal (byte)</li>
+ * <li>connection id length (byte)</li>
+ * <li>connection id, in ASCII</li>
+ * <li>full message length (int)</li>
+ * <li>captured payload length (int)</li>
+ * <li>captured payload</li>
+ * </ul>
+ * <p>
+ * A record size of zero marks the end of the segment. All the values are big-endian.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+final class FramedCaptureCodec implements CaptureCodec {
+
+    /**
+     * Magic number at the start of each segment. It is "PRXC" in ASCII.
+     */
+    static final int                 MAGIC           = 0x50525843;
+
+    /**
+     * Directions, by ordinal.
+     */
+    private static final Direction[] DIRECTIONS      = Direction.values();
+
+    /**
+     * Size of the record fields, other than the connection id and the payload.
+     */
+    private static final int         RECORD_OVERHEAD = 22;
+
+    /**
+     * Format version.
+     */
+    private static final short       VERSION         = 1;
+
+    /**
+     * Default constructor.
+     */
+    FramedCaptureCodec() {
+        super();
+    }
+
+    @Override
+    public final int getRecordSize(final ProxyEvent event, final int captured) {
+        return RECORD_OVERHEAD + getIdLength(event.getConnectionId()) + captured;
+    }
+
+    @Override
+    public final void readHeader(final ByteBuffer buffer) {
+        final int   magic;
+        final short version;
+
+        magic = buffer.getInt();
+        version = buffer.getShort();
+        // Reserved
+        buffer.getShort();
+
+        if (magic != MAGIC) {
+            throw new IllegalArgumentException(String.format("Not a framed capture, starts with %08x", magic));
+        }
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported framed capture version " + version);
+        }
+    }
+
+    @Override
+    public final ProxyEvent readRecord(final ByteBuffer buffer) {
+        final int        size;
+        final long       timestamp;
+        final Direction  direction;
+        final byte[]     id;
+        final int        length;
+        final byte[]     payload;
+        final ProxyEvent event;
+
+        if (buffer.remaining() < Integer.BYTES) {
+            size = 0;
+        } else {
+            size = buffer.getInt();
+        }
+
+        if ((size < RECORD_OVERHEAD) || ((size - Integer.BYTES) > buffer.remaining())) {
+            // End of segment, or a record cut by a crash while writing
+            event = null;
+        } else {
+            timestamp = buffer.getLong();
+            direction = DIRECTIONS[buffer.get()];
+            id = new byte[buffer.get() & 0xff];
+            buffer.get(id);
+            length = buffer.getInt();
+            payload = new byte[buffer.getInt()];
+            buffer.get(payload);
+
+            event = new ProxyEvent(new String(id, StandardCharsets.US_ASCII), direction, length, payload, timestamp);
+        }
+
+        return event;
+    }
+
+    @Override
+    public final void writeHeader(final ByteBuffer buffer, final int snapLength) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        // Reserved
+        buffer.putShort((short) 0);
+    }
+
+    @Override
+    public final void writeRecord(final ByteBuffer buffer, final ProxyEvent event, final int captured) {
+        final String connectionId;
+        final int    idLength;
+
+        connectionId = event.getConnectionId();
+        idLength = getIdLength(connectionId);
+
+        buffer.putInt(getRecordSize(event, captured));
+        buffer.putLong(event.getTimestamp());
+        buffer.put((byte) event.getDirection()
+            .ordinal());
+        buffer.put((byte) idLength);
+        for (int i = 0; i < idLength; i++) {
+            buffer.put((byte) connectionId.charAt(i));
+        }
+        buffer.putInt(event.getLength());
+        buffer.putInt(captured);
+        buffer.put(event.getPayload(), 0, captured);
+    }
+
+    /**
+     * Returns the number of characters stored for the connection id. Ids longer than a byte can store are cut.
+     *
+     * @param connectionId
+     *            connection id
+     * @return the characters stored for the id
+     */
+    private final int getIdLength(final String connectionId) {
+        return Math.min(connectionId.length(), 0xff);
+    }
+
+}
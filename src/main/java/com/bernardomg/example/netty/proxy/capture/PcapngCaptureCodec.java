@@ -0,0 +1,616 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+/**
+ * Codec for pcapng files. Each segment is a section with a single raw IPv4 interface, and each message is stored as an
+ * enhanced packet block.
+ * <p>
+ * The proxy doesn't see the packets, only the TCP payloads, so the IPv4 and TCP headers are made up. The client is
+ * always at 10.0.0.1, and the proxy at 10.0.0.2. Each connection gets its own client port, and the sequence numbers
+ * follow the bytes sent, which allows Wireshark to follow the TCP streams. The proxy port is the one which accepted
+ * the connection, so the listeners can be told apart, or the port received on construction for the connections
+ * started without one. The connection id is kept as the packet
+ * comment. Messages too large for a single packet are split.
+ * <p>
+ * This codec reads the files written by itself, not any pcapng file.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+final class PcapngCaptureCodec implements CaptureCodec {
+
+    /**
+     * Section header block type. This is also the magic number of the file.
+     */
+    static final int                     SECTION_HEADER_BLOCK        = 0x0A0D0D0A;
+
+    /**
+     * Byte order magic number, for big-endian sections.
+     */
+    private static final int             BYTE_ORDER_MAGIC            = 0x1A2B3C4D;
+
+    /**
+     * Made up client address.
+     */
+    private static final int             CLIENT_ADDRESS              = 0x0A000001;
+
+    /**
+     * Enhanced packet block type.
+     */
+    private static final int             ENHANCED_PACKET_BLOCK       = 6;
+
+    /**
+     * Size of the enhanced packet block fields, other than the packet and the options.
+     */
+    private static final int             ENHANCED_PACKET_OVERHEAD    = 32;
+
+    /**
+     * First client port given to the connections.
+     */
+    private static final int             FIRST_CLIENT_PORT           = 1024;
+
+    /**
+     * Size of the IPv4 and TCP headers.
+     */
+    private static final int             HEADERS_SIZE                = 40;
+
+    /**
+     * Interface description block type.
+     */
+    private static final int             INTERFACE_DESCRIPTION_BLOCK = 1;
+
+    /**
+     * Link type for raw IP packets.
+     */
+    private static final short           LINKTYPE_RAW                = 101;
+
+    /**
+     * Maximum payload in a single packet.
+     */
+    private static final int             MAX_PACKET_PAYLOAD          = 0xffff - HEADERS_SIZE;
+
+    /**
+     * Maximum number of connections tracked. The least recently used one is forgotten after this, and will get a new
+     * client port if it appears again.
+     */
+    private static final int             MAX_STREAMS                 = 1 << 16;
+
+    /**
+     * Size of the smallest block, with only its type and length.
+     */
+    private static final int             MIN_BLOCK_SIZE              = 12;
+
+    /**
+     * Comment option code.
+     */
+    private static final short           OPTION_COMMENT              = 1;
+
+    /**
+     * Made up proxy address.
+     */
+    private static final int             SERVER_ADDRESS              = 0x0A000002;
+
+    /**
+     * Next client port to give.
+     */
+    private int                          nextClientPort              = FIRST_CLIENT_PORT;
+
+    /**
+     * Port shown for the proxy, for the connections started without one.
+     */
+    private final int                    serverPort;
+
+    /**
+     * TCP streams for the connections, by connection id.
+     */
+    private final Map<String, TcpStream> streams;
+
+    /**
+     * Constructs a codec showing the received port as the proxy port, for the connections started without one.
+     *
+     * @param port
+     *            port shown for the proxy
+     */
+    PcapngCaptureCodec(final int port) {
+        super();
+
+        serverPort = port;
+        streams = new LinkedHashMap<>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected final boolean removeEldestEntry(final Map.Entry<String, TcpStream> eldest) {
+                return size() > MAX_STREAMS;
+            }
+
+        };
+    }
+
+    @Override
+    public final int getRecordSize(final ProxyEvent event, final int captured) {
+        final int optionsSize;
+        int       size;
+        int       offset;
+
+        optionsSize = getOptionsSize(event.getConnectionId());
+        size = 0;
+        offset = 0;
+        do {
+            size += ENHANCED_PACKET_OVERHEAD + pad(HEADERS_SIZE + getPacketCaptured(captured, offset,
+                getPacketLength(event.getLength(), offset))) + optionsSize;
+            offset += MAX_PACKET_PAYLOAD;
+        } while (offset < event.getLength());
+
+        return size;
+    }
+
+    @Override
+    public final void readHeader(final ByteBuffer buffer) {
+        final int start;
+        final int type;
+        final int length;
+        final int byteOrder;
+
+        start = buffer.position();
+        type = buffer.getInt();
+        length = buffer.getInt();
+        byteOrder = buffer.getInt();
+
+        if (type != SECTION_HEADER_BLOCK) {
+            throw new IllegalArgumentException(String.format("Not a pcapng file, starts with %08x", type));
+        }
+        if (byteOrder != BYTE_ORDER_MAGIC) {
+            throw new IllegalArgumentException("Only big-endian pcapng files are supported");
+        }
+
+        buffer.position(start + length);
+    }
+
+    @Override
+    public final ProxyEvent readRecord(final ByteBuffer buffer) {
+        ProxyEvent event;
+        int        start;
+        int        type;
+        int        length;
+
+        event = null;
+        while ((event == null) && (buffer.remaining() >= MIN_BLOCK_SIZE)) {
+            start = buffer.position();
+            type = buffer.getInt();
+            length = buffer.getInt();
+            if ((length < MIN_BLOCK_SIZE) || (length > (buffer.limit() - start))) {
+                // End of segment, or a block cut by a crash while writing
+                buffer.position(buffer.limit());
+            } else {
+                if (type == ENHANCED_PACKET_BLOCK) {
+                    event = readPacket(buffer);
+                }
+                buffer.position(start + length);
+            }
+        }
+
+        return event;
+    }
+
+    @Override
+    public final void startConnection(final String connectionId, final int port) {
+        // A reused id starts a new stream
+        streams.put(connectionId, new TcpStream(takeClientPort(), port));
+    }
+
+    @Override
+    public final void writeHeader(final ByteBuffer buffer, final int snapLength) {
+        // Section header block
+        buffer.putInt(SECTION_HEADER_BLOCK);
+        buffer.putInt(28);
+        buffer.putInt(BYTE_ORDER_MAGIC);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0);
+        // Unknown section length
+        buffer.putLong(-1);
+        buffer.putInt(28);
+
+        // Interface description block, with microsecond timestamps as default
+        buffer.putInt(INTERFACE_DESCRIPTION_BLOCK);
+        buffer.putInt(20);
+        buffer.putShort(LINKTYPE_RAW);
+        buffer.putShort((short) 0);
+        buffer.putInt(HEADERS_SIZE + snapLength);
+        buffer.putInt(20);
+    }
+
+    @Override
+    public final void writeRecord(final ByteBuffer buffer, final ProxyEvent event, final int captured) {
+        final String    connectionId;
+        final long      micros;
+        final TcpStream stream;
+        int             offset;
+        int             packetLength;
+        int             packetCaptured;
+        int             blockSize;
+        int             sequence;
+        int             acknowledgement;
+
+        connectionId = event.getConnectionId();
+        micros = event.getTimestamp() * 1000;
+        stream = getStream(connectionId);
+
+        offset = 0;
+        do {
+            packetLength = getPacketLength(event.getLength(), offset);
+            packetCaptured = getPacketCaptured(captured, offset, packetLength);
+            blockSize = ENHANCED_PACKET_OVERHEAD + pad(HEADERS_SIZE + packetCaptured)
+                    + getOptionsSize(connectionId);
+            if (event.getDirection() == Direction.REQUEST) {
+                sequence = stream.requestSequence;
+                acknowledgement = stream.responseSequence;
+                stream.requestSequence += packetLength;
+            } else {
+                sequence = stream.responseSequence;
+                acknowledgement = stream.requestSequence;
+                stream.responseSequence += packetLength;
+            }
+
+            buffer.putInt(ENHANCED_PACKET_BLOCK);
+            buffer.putInt(blockSize);
+            // Interface id
+            buffer.putInt(0);
+            buffer.putInt((int) (micros >>> 32));
+            buffer.putInt((int) micros);
+            buffer.putInt(HEADERS_SIZE + packetCaptured);
+            buffer.putInt(HEADERS_SIZE + packetLength);
+            writeHeaders(buffer, event.getDirection(), stream, packetLength, sequence, acknowledgement);
+            if (packetCaptured > 0) {
+                buffer.put(event.getPayload(), offset, packetCaptured);
+            }
+            writePadding(buffer, HEADERS_SIZE + packetCaptured);
+            writeComment(buffer, connectionId);
+            buffer.putInt(blockSize);
+
+            offset += MAX_PACKET_PAYLOAD;
+        } while (offset < event.getLength());
+    }
+
+    /**
+     * Returns the number of characters stored for the connection id. Ids longer than an option can store are cut.
+     *
+     * @param connectionId
+     *            connection id
+     * @return the characters stored for the id
+     */
+    private final int getIdLength(final String connectionId) {
+        return Math.min(connectionId.length(), 0xffff);
+    }
+
+    /**
+     * Returns the size of the packet options, which are the connection id comment and the end of options.
+     *
+     * @param connectionId
+     *            connection id
+     * @return the size of the options
+     */
+    private final int getOptionsSize(final String connectionId) {
+        return 4 + pad(getIdLength(connectionId)) + 4;
+    }
+
+    /**
+     * Returns the captured bytes in the packet starting at the received offset.
+     *
+     * @param captured
+     *            bytes captured from the message
+     * @param offset
+     *            offset of the packet in the message
+     * @param packetLength
+     *            full length of the packet payload
+     * @return the captured bytes for the packet
+     */
+    private final int getPacketCaptured(final int captured, final int offset, final int packetLength) {
+        return Math.max(0, Math.min(captured - offset, packetLength));
+    }
+
+    /**
+     * Returns the payload length of the packet starting at the received offset.
+     *
+     * @param length
+     *            full message length
+     * @param offset
+     *            offset of the packet in the message
+     * @return the length of the packet payload
+     */
+    private final int getPacketLength(final int length, final int offset) {
+        return Math.max(0, Math.min(length - offset, MAX_PACKET_PAYLOAD));
+    }
+
+    /**
+     * Returns the TCP stream for the connection, creating it if needed.
+     *
+     * @param connectionId
+     *            connection id
+     * @return the TCP stream for the connection
+     */
+    private final TcpStream getStream(final String connectionId) {
+        TcpStream stream;
+
+        stream = streams.get(connectionId);
+        if (stream == null) {
+            stream = new TcpStream(takeClientPort(), serverPort);
+            streams.put(connectionId, stream);
+        }
+
+        return stream;
+    }
+
+    /**
+     * Returns the size padded to 32 bits.
+     *
+     * @param size
+     *            size to pad
+     * @return the padded size
+     */
+    private final int pad(final int size) {
+        return (size + 3) & ~3;
+    }
+
+    /**
+     * Reads the packet of an enhanced packet block. The buffer should be just after the block length.
+     *
+     * @param buffer
+     *            buffer to read from
+     * @return the event for the packet
+     */
+    private final ProxyEvent readPacket(final ByteBuffer buffer) {
+        final long      micros;
+        final int       capturedLength;
+        final int       originalLength;
+        final int       packetStart;
+        final int       ipHeaderLength;
+        final int       tcpHeaderLength;
+        final int       headersLength;
+        final Direction direction;
+        final int       clientPort;
+        final byte[]    payload;
+        String          connectionId;
+        short           optionCode;
+        int             optionLength;
+        byte[]          comment;
+
+        // Interface id
+        buffer.getInt();
+        micros = (((long) buffer.getInt()) << 32) | (buffer.getInt() & 0xffffffffL);
+        capturedLength = buffer.getInt();
+        originalLength = buffer.getInt();
+
+        packetStart = buffer.position();
+        ipHeaderLength = (buffer.get(packetStart) & 0xf) * 4;
+        tcpHeaderLength = ((buffer.get(packetStart + ipHeaderLength + 12) & 0xff) >>> 4) * 4;
+        headersLength = ipHeaderLength + tcpHeaderLength;
+        if (buffer.getInt(packetStart + 12) == CLIENT_ADDRESS) {
+            direction = Direction.REQUEST;
+            clientPort = buffer.getShort(packetStart + ipHeaderLength) & 0xffff;
+        } else {
+            direction = Direction.RESPONSE;
+            clientPort = buffer.getShort(packetStart + ipHeaderLength + 2) & 0xffff;
+        }
+
+        payload = new byte[capturedLength - headersLength];
+        buffer.position(packetStart + headersLength);
+        buffer.get(payload);
+        buffer.position(packetStart + pad(capturedLength));
+
+        // The connection id is in the comment, otherwise the client port is used
+        connectionId = String.valueOf(clientPort);
+        optionCode = OPTION_COMMENT;
+        while ((optionCode != 0) && (buffer.remaining() >= 4)) {
+            optionCode = buffer.getShort();
+            optionLength = buffer.getShort() & 0xffff;
+            if (optionCode == OPTION_COMMENT) {
+                comment = new byte[optionLength];
+                buffer.get(comment);
+                connectionId = new String(comment, StandardCharsets.US_ASCII);
+                buffer.position(buffer.position() + (pad(optionLength) - optionLength));
+            } else {
+                buffer.position(buffer.position() + pad(optionLength));
+            }
+        }
+
+        return new ProxyEvent(connectionId, direction, originalLength - headersLength, payload, micros / 1000);
+    }
+
+    /**
+     * Returns the next client port, and moves to the following one.
+     *
+     * @return the client port for a new stream
+     */
+    private final int takeClientPort() {
+        final int port;
+
+        port = nextClientPort;
+        if (nextClientPort == 0xffff) {
+            nextClientPort = FIRST_CLIENT_PORT;
+        } else {
+            nextClientPort++;
+        }
+
+        return port;
+    }
+
+    /**
+     * Writes the connection id comment, and the end of options.
+     *
+     * @param buffer
+     *            buffer to write into
+     * @param connectionId
+     *            connection id
+     */
+    private final void writeComment(final ByteBuffer buffer, final String connectionId) {
+        final int idLength;
+
+        idLength = getIdLength(connectionId);
+        buffer.putShort(OPTION_COMMENT);
+        buffer.putShort((short) idLength);
+        for (int i = 0; i < idLength; i++) {
+            buffer.put((byte) connectionId.charAt(i));
+        }
+        writePadding(buffer, idLength);
+
+        // End of options
+        buffer.putInt(0);
+    }
+
+    /**
+     * Writes the IPv4 and TCP headers for a packet.
+     *
+     * @param buffer
+     *            buffer to write into
+     * @param direction
+     *            message direction
+     * @param stream
+     *            TCP stream of the connection, with its ports
+     * @param length
+     *            payload length
+     * @param sequence
+     *            TCP sequence number
+     * @param acknowledgement
+     *            TCP acknowledgement number
+     */
+    private final void writeHeaders(final ByteBuffer buffer, final Direction direction, final TcpStream stream,
+            final int length, final int sequence, final int acknowledgement) {
+        final int   source;
+        final int   destination;
+        final short sourcePort;
+        final short destinationPort;
+        final int   totalLength;
+        int         checksum;
+
+        if (direction == Direction.REQUEST) {
+            source = CLIENT_ADDRESS;
+            destination = SERVER_ADDRESS;
+            sourcePort = (short) stream.clientPort;
+            destinationPort = (short) stream.serverPort;
+        } else {
+            source = SERVER_ADDRESS;
+            destination = CLIENT_ADDRESS;
+            sourcePort = (short) stream.serverPort;
+            destinationPort = (short) stream.clientPort;
+        }
+        totalLength = HEADERS_SIZE + length;
+
+        // IPv4 header checksum, over the 16 bit words of the header
+        checksum = 0x4500 + totalLength + 0x4000 + 0x4006 + (source >>> 16) + (source & 0xffff) + (destination >>> 16)
+                + (destination & 0xffff);
+        checksum = (checksum & 0xffff) + (checksum >>> 16);
+        checksum = (checksum & 0xffff) + (checksum >>> 16);
+
+        // IPv4, no options, don't fragment, TTL 64, TCP
+        buffer.put((byte) 0x45);
+        buffer.put((byte) 0);
+        buffer.putShort((short) totalLength);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0x4000);
+        buffer.put((byte) 64);
+        buffer.put((byte) 6);
+        buffer.putShort((short) ~checksum);
+        buffer.putInt(source);
+        buffer.putInt(destination);
+
+        // TCP, no options, PSH and ACK, no checksum
+        buffer.putShort(sourcePort);
+        buffer.putShort(destinationPort);
+        buffer.putInt(sequence);
+        buffer.putInt(acknowledgement);
+        buffer.put((byte) 0x50);
+        buffer.put((byte) 0x18);
+        buffer.putShort((short) 0xffff);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+    }
+
+    /**
+     * Writes zeros to pad the received size to 32 bits.
+     *
+     * @param buffer
+     *            buffer to write into
+     * @param size
+     *            size to pad
+     */
+    private final void writePadding(final ByteBuffer buffer, final int size) {
+        for (int i = size; i < pad(size); i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * Made up TCP stream for a connection.
+     */
+    private static final class TcpStream {
+
+        /**
+         * Client port.
+         */
+        private final int clientPort;
+
+        /**
+         * Next request sequence number.
+         */
+        private int requestSequence;
+
+        /**
+         * Next response sequence number.
+         */
+        private int responseSequence;
+
+        /**
+         * Proxy port.
+         */
+        private final int serverPort;
+
+        /**
+         * Constructs a stream for the received ports.
+         *
+         * @param clntPort
+         *            client port
+         * @param srvrPort
+         *            proxy port
+         */
+        private TcpStream(final int clntPort, final int srvrPort) {
+            super();
+
+            clientPort = clntPort;
+            serverPort = srvrPort;
+        }
+
+    }
+
+}
@@ -25,74 +25,225 @@
 package com.bernardomg.example.netty.proxy.cli;
 
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
 import com.bernardomg.example.netty.proxy.server.ProxyListener;
-
-import io.netty.buffer.ByteBuf;
+import com.bernardomg.example.netty.proxy.server.event.CaptureMode;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
 
 /**
  * Proxy listener which will write the context of each step into the CLI console.
+ * <h2>Capture modes</h2>
+ * <p>
+ * The captured bytes of each message are shown as set by the {@link CaptureMode}. These can be decoded as text, shown
+ * as a hex dump, or not shown at all, leaving only the message size.
+ * <p>
+ * Each message is written into a reusable buffer before printing it, and text is decoded into another reusable buffer.
+ * So showing a message allocates nothing, other than growing these buffers for the first large messages. This is
+ * possible as the listener is called by a single thread.
  *
  * @author Bernardo Mart&iacute;nez Garrido
  *
  */
 public final class CliWriterProxyListener implements ProxyListener {
 
+    /**
+     * Hex digits.
+     */
+    private static final char[]  HEX_DIGITS     = "0123456789abcdef".toCharArray();
+
+    /**
+     * Bytes shown on each hex dump row.
+     */
+    private static final int     HEX_ROW_BYTES  = 16;
+
+    /**
+     * Line after each request.
+     */
+    private static final String  REQUEST_END    = horizontalLine("RECEIVED REQUEST TO REDIRECT - END");
+
+    /**
+     * Line before each request.
+     */
+    private static final String  REQUEST_START  = horizontalLine("RECEIVED REQUEST TO REDIRECT - START");
+
+    /**
+     * Line after each response.
+     */
+    private static final String  RESPONSE_END   = horizontalLine("SENT PROXIED RESPONSE - END");
+
+    /**
+     * Line before each response.
+     */
+    private static final String  RESPONSE_START = horizontalLine("SENT PROXIED RESPONSE - START");
+
+    /**
+     * Reusable characters for printing the text.
+     */
+    private char[]               chars          = new char[1024];
+
+    /**
+     * Decoder for the captured bytes.
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * Reusable buffer for the decoded bytes.
+     */
+    private CharBuffer           decoded        = CharBuffer.allocate(1024);
+
+    /**
+     * Maximum number of bytes shown from each message.
+     */
+    private final int            maxBytes;
+
+    /**
+     * How the messages are shown.
+     */
+    private final CaptureMode    mode;
+
     /**
      * Port which the proxy will listen to.
      */
-    private final Integer     port;
+    private final Integer        port;
 
     /**
-     * Host to which the proxy will connect.
+     * Reusable buffer for building the text to print.
      */
-    private final String      targetHost;
+    private final StringBuilder  text           = new StringBuilder(1024);
 
     /**
-     * Port to which the proxy will connect.
+     * Servers to which the proxy will connect.
      */
-    private final Integer     targetPort;
+    private final List<Upstream> upstreams;
 
     /**
      * CLI writer, to print console messages.
      */
-    private final PrintWriter writer;
+    private final PrintWriter    writer;
 
-    public CliWriterProxyListener(final Integer prt, final String trgtHost, final Integer trgtPort,
-            final PrintWriter writ) {
+    /**
+     * Constructs a listener printing the captured bytes as text.
+     *
+     * @param prt
+     *            port which the proxy will listen to
+     * @param upstrms
+     *            servers to which the proxy will connect
+     * @param writ
+     *            CLI writer
+     */
+    public CliWriterProxyListener(final Integer prt, final List<Upstream> upstrms, final PrintWriter writ) {
+        this(prt, upstrms, writ, CaptureSettings.builder()
+            .mode(CaptureMode.TEXT)
+            .maxBytes(Integer.MAX_VALUE)
+            .build());
+    }
+
+    /**
+     * Constructs a listener printing the captured bytes as set by the capture settings. The sample rate is ignored, as
+     * sampling is done before the events are dispatched.
+     *
+     * @param prt
+     *            port which the proxy will listen to
+     * @param upstrms
+     *            servers to which the proxy will connect
+     * @param writ
+     *            CLI writer
+     * @param capture
+     *            how the messages are shown
+     */
+    public CliWriterProxyListener(final Integer prt, final List<Upstream> upstrms, final PrintWriter writ,
+            final CaptureSettings capture) {
         super();
 
         port = Objects.requireNonNull(prt);
-        targetHost = Objects.requireNonNull(trgtHost);
-        targetPort = Objects.requireNonNull(trgtPort);
+        upstreams = Objects.requireNonNull(upstrms);
         writer = Objects.requireNonNull(writ);
+        mode = capture.getMode();
+        maxBytes = capture.getCapturedBytes();
+        decoder = Charset.defaultCharset()
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
     }
 
-    @Override
-    public final void onRequest(final ByteBuf message) {
-        printHorizontalLine("RECEIVED REQUEST TO REDIRECT - START");
+    /**
+     * Returns a horizontal line with the received header in the middle.
+     *
+     * @param header
+     *            header to show in the line
+     * @return the horizontal line
+     */
+    private static final String horizontalLine(final String header) {
+        return String.format("-------------------- %s --------------------", header);
+    }
 
-        writer.printf("Received request to redirect from client: %s", message.toString(Charset.defaultCharset()));
-        writer.println();
+    @Override
+    public final void onConnection(final String connectionId, final ConnectionAddresses addresses) {
+        text.setLength(0);
+        text.append("Accepted connection ")
+            .append(connectionId)
+            .append(" from ")
+            .append(addresses.getSource())
+            .append(System.lineSeparator());
 
-        printHorizontalLine("RECEIVED REQUEST TO REDIRECT - END");
+        print();
     }
 
     @Override
-    public final void onResponse(final ByteBuf message) {
-        printHorizontalLine("SENT PROXIED RESPONSE - START");
+    public final void onRequest(final ProxyEvent event) {
+        text.setLength(0);
+        text.append(System.lineSeparator())
+            .append(REQUEST_START)
+            .append(System.lineSeparator())
+            .append(System.lineSeparator())
+            .append("Received request to redirect from client ")
+            .append(event.getConnectionId());
+        appendMessage(event);
+        text.append(System.lineSeparator())
+            .append(REQUEST_END)
+            .append(System.lineSeparator())
+            .append(System.lineSeparator());
 
-        writer.printf("Sent back response from proxied server: %s", message.toString(Charset.defaultCharset()));
-        writer.println();
+        print();
+    }
+
+    @Override
+    public final void onResponse(final ProxyEvent event) {
+        text.setLength(0);
+        text.append(System.lineSeparator())
+            .append(RESPONSE_START)
+            .append(System.lineSeparator())
+            .append(System.lineSeparator())
+            .append("Sent back response from proxied server to ")
+            .append(event.getConnectionId());
+        appendMessage(event);
+        text.append(System.lineSeparator())
+            .append(RESPONSE_END)
+            .append(System.lineSeparator())
+            .append(System.lineSeparator());
 
-        printHorizontalLine("SENT PROXIED RESPONSE - END");
+        print();
     }
 
     @Override
     public final void onStart() {
-        writer.printf("Redirecting port %d to %s:%d", port, targetHost, targetPort);
+        writer.printf("Redirecting port %d to %s", port, upstreams.stream()
+            .map(Upstream::toString)
+            .collect(Collectors.joining(", ")));
         writer.println();
     }
 
@@ -102,15 +253,139 @@ public final void onStop() {
     }
 
     /**
-     * Prints a horizontal line with the received header in the middle.
+     * Appends the payload as a hex dump. Each row shows the offset, the bytes in hex, and the printable ASCII
+     * characters.
      *
-     * @param header
-     *            header to print in the line
+     * @param payload
+     *            payload to dump
+     * @param length
+     *            bytes to dump
      */
-    private final void printHorizontalLine(final String header) {
-        writer.println();
-        writer.println(String.format("-------------------- %s --------------------", header));
-        writer.println();
+    private final void appendHexDump(final byte[] payload, final int length) {
+        int rowEnd;
+        int value;
+
+        for (int row = 0; row < length; row += HEX_ROW_BYTES) {
+            rowEnd = Math.min(row + HEX_ROW_BYTES, length);
+
+            text.append(System.lineSeparator());
+            appendHex(row, 8);
+            text.append("  ");
+            for (int i = row; i < (row + HEX_ROW_BYTES); i++) {
+                if (i < rowEnd) {
+                    appendHex(payload[i] & 0xff, 2);
+                    text.append(' ');
+                } else {
+                    text.append("   ");
+                }
+            }
+            text.append(" |");
+            for (int i = row; i < rowEnd; i++) {
+                value = payload[i] & 0xff;
+                if ((value >= 0x20) && (value < 0x7f)) {
+                    text.append((char) value);
+                } else {
+                    text.append('.');
+                }
+            }
+            text.append('|');
+        }
+    }
+
+    /**
+     * Appends the value in hex, padded with zeros to the received number of digits.
+     *
+     * @param value
+     *            value to append
+     * @param digits
+     *            number of digits
+     */
+    private final void appendHex(final int value, final int digits) {
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            text.append(HEX_DIGITS[(value >>> shift) & 0xf]);
+        }
+    }
+
+    /**
+     * Appends the message size and its payload, as set by the capture mode.
+     *
+     * @param event
+     *            event with the message
+     */
+    private final void appendMessage(final ProxyEvent event) {
+        final int shown;
+
+        shown = Math.min(event.getPayload().length, maxBytes);
+
+        text.append(" (")
+            .append(event.getLength())
+            .append(" bytes");
+        if (event.getPart() == FramePart.UNFRAMED) {
+            text.append(", unframed");
+        } else if (event.getPart() != FramePart.WHOLE) {
+            // Piece of a large frame
+            text.append(", frame ")
+                .append(event.getPart()
+                    .name()
+                    .toLowerCase(Locale.ROOT));
+        }
+        if (event.getLatency() != ProxyEvent.NO_LATENCY) {
+            // Response closing an exchange
+            text.append(", answered in ")
+                .append(TimeUnit.NANOSECONDS.toMicros(event.getLatency()))
+                .append(" us");
+        }
+        text.append(')');
+
+        if (mode == CaptureMode.TEXT) {
+            text.append(": ");
+            appendText(event.getPayload(), shown);
+        } else if (mode == CaptureMode.HEX) {
+            text.append(':');
+            appendHexDump(event.getPayload(), shown);
+        }
+
+        if ((event.getLength() > shown) && (mode != CaptureMode.SIZE)) {
+            text.append(" [truncated]");
+        }
+        text.append(System.lineSeparator());
+    }
+
+    /**
+     * Appends the payload decoded as text. The decoding is done into a reusable buffer.
+     *
+     * @param payload
+     *            payload to decode
+     * @param length
+     *            bytes to decode
+     */
+    private final void appendText(final byte[] payload, final int length) {
+        final int capacity;
+
+        capacity = (int) Math.ceil(length * (double) decoder.maxCharsPerByte());
+        if (decoded.capacity() < capacity) {
+            decoded = CharBuffer.allocate(capacity);
+        }
+
+        decoded.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(payload, 0, length), decoded, true);
+        decoder.flush(decoded);
+        decoded.flip();
+
+        text.append(decoded);
+    }
+
+    /**
+     * Prints the text built for the last event.
+     */
+    private final void print() {
+        if (chars.length < text.length()) {
+            chars = new char[text.length()];
+        }
+        text.getChars(0, text.length(), chars, 0);
+        writer.write(chars, 0, text.length());
+        writer.flush();
     }
 
 }
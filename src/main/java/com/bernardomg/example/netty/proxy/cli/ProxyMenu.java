@@ -24,6 +24,10 @@
 
 package com.bernardomg.example.netty.proxy.cli;
 
+import com.bernardomg.example.netty.proxy.cli.command.DumpCaptureCommand;
+import com.bernardomg.example.netty.proxy.cli.command.LoadCommand;
+import com.bernardomg.example.netty.proxy.cli.command.ReplayCommand;
+import com.bernardomg.example.netty.proxy.cli.command.StartBackendCommand;
 import com.bernardomg.example.netty.proxy.cli.command.StartProxyCommand;
 import com.bernardomg.example.netty.proxy.cli.version.ManifestVersionProvider;
 
@@ -35,8 +39,10 @@
  * @author Bernardo Mart&iacute;nez Garrido
  *
  */
-@Command(description = "Proxy", subcommands = { StartProxyCommand.class }, mixinStandardHelpOptions = true,
-        versionProvider = ManifestVersionProvider.class)
+@Command(description = "Proxy",
+        subcommands = { StartProxyCommand.class, StartBackendCommand.class, LoadCommand.class,
+                DumpCaptureCommand.class, ReplayCommand.class },
+        mixinStandardHelpOptions = true, versionProvider = ManifestVersionProvider.class)
 public class ProxyMenu {
 
     /**
@@ -0,0 +1,135 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.bernardomg.example.netty.proxy.capture.CaptureFileReader;
+import com.bernardomg.example.netty.proxy.cli.CliWriterProxyListener;
+import com.bernardomg.example.netty.proxy.cli.version.ManifestVersionProvider;
+import com.bernardomg.example.netty.proxy.server.event.CaptureMode;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+/**
+ * Dump capture command. Prints the messages stored in capture files, in the same way the proxy prints them.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Command(name = "dump", description = "Prints the messages stored in capture files", mixinStandardHelpOptions = true,
+        versionProvider = ManifestVersionProvider.class)
+public final class DumpCaptureCommand implements Runnable {
+
+    /**
+     * Maximum number of bytes of each message printed.
+     */
+    @Option(names = { "--captureBytes" }, paramLabel = "bytes",
+            description = "Maximum number of bytes of each message printed.", defaultValue = "4096",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int         captureBytes;
+
+    /**
+     * How the messages are printed.
+     */
+    @Option(names = { "--captureMode" }, paramLabel = "mode",
+            description = "How the messages are printed. Valid values: ${COMPLETION-CANDIDATES}.", defaultValue = "TEXT",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private CaptureMode captureMode;
+
+    /**
+     * Capture files to read.
+     */
+    @Parameters(paramLabel = "file", arity = "1..*", description = "Capture files, read in the order received.")
+    private List<Path>  files;
+
+    /**
+     * Command specification. Used to get the line output.
+     */
+    @Spec
+    private CommandSpec spec;
+
+    /**
+     * Default constructor.
+     */
+    public DumpCaptureCommand() {
+        super();
+    }
+
+    @Override
+    public final void run() {
+        final PrintWriter            writer;
+        final CliWriterProxyListener listener;
+        ProxyEvent                   event;
+        long                         messages;
+
+        writer = spec.commandLine()
+            .getOut();
+        listener = new CliWriterProxyListener(0, List.of(), writer, CaptureSettings.builder()
+            .mode(captureMode)
+            .maxBytes(captureBytes)
+            .sampleRate(1)
+            .build());
+
+        for (final Path file : files) {
+            try (final CaptureFileReader reader = new CaptureFileReader(file)) {
+                writer.printf("Reading %s capture %s", reader.getFormat(), file);
+                writer.println();
+
+                messages = 0;
+                event = reader.read();
+                while (event != null) {
+                    if (event.getDirection() == Direction.REQUEST) {
+                        listener.onRequest(event);
+                    } else {
+                        listener.onResponse(event);
+                    }
+                    messages++;
+                    event = reader.read();
+                }
+
+                writer.printf("Read %d messages from %s", messages, file);
+                writer.println();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        writer.close();
+    }
+
+}
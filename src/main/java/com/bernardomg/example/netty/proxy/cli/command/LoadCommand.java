@@ -0,0 +1,227 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command;
+
+import java.io.PrintWriter;
+import java.time.Duration;
+
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import com.bernardomg.example.netty.proxy.cli.version.ManifestVersionProvider;
+import com.bernardomg.example.netty.proxy.load.LoadReport;
+import com.bernardomg.example.netty.proxy.load.LoadSettings;
+import com.bernardomg.example.netty.proxy.load.ReactorNettyLoadGenerator;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Load command. Sends traffic through the proxy to an echo backend, and prints the throughput and latency.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Command(name = "load", description = "Sends load through a TCP proxy to an echo server",
+        mixinStandardHelpOptions = true, versionProvider = ManifestVersionProvider.class)
+public final class LoadCommand implements Runnable {
+
+    /**
+     * Latency percentiles printed.
+     */
+    private static final double[] PERCENTILES   = { 50, 90, 99, 99.9, 99.99 };
+
+    /**
+     * Number of concurrent connections.
+     */
+    @Option(names = { "-c", "--connections" }, paramLabel = "count", description = "Concurrent connections.",
+            defaultValue = "16", showDefaultValue = Help.Visibility.ALWAYS)
+    private int                   connections;
+
+    /**
+     * Debug flag. Shows debug logs.
+     */
+    @Option(names = { "--debug" }, paramLabel = "flag", description = "Enable debug logs.", defaultValue = "false")
+    private boolean               debug;
+
+    /**
+     * Measured time, in seconds.
+     */
+    @Option(names = { "-d", "--duration" }, paramLabel = "seconds", description = "Measured time, in seconds.",
+            defaultValue = "10", showDefaultValue = Help.Visibility.ALWAYS)
+    private long                  duration;
+
+    /**
+     * Messages per second sent by all the connections.
+     */
+    @Option(names = { "-r", "--rate" }, paramLabel = "count",
+            description = "Messages per second sent by all the connections. If not positive, each connection sends a message as soon as the previous one is echoed.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int                   rate;
+
+    /**
+     * Size of each message.
+     */
+    @Option(names = { "-s", "--size" }, paramLabel = "bytes", description = "Size of each message.",
+            defaultValue = "64", showDefaultValue = Help.Visibility.ALWAYS)
+    private int                   size;
+
+    /**
+     * Command specification. Used to get the line output.
+     */
+    @Spec
+    private CommandSpec           spec;
+
+    /**
+     * Host to connect to.
+     */
+    @Option(names = { "-th", "--targetHost" }, paramLabel = "targetHost", description = "Target host.",
+            defaultValue = "localhost", showDefaultValue = Help.Visibility.ALWAYS)
+    private String                targetHost;
+
+    /**
+     * Port to connect to.
+     */
+    @Option(names = { "-tp", "--targetPort" }, paramLabel = "targetPort", description = "Target port.",
+            required = true)
+    private int                   targetPort;
+
+    /**
+     * Preferred transport.
+     */
+    @Option(names = { "--transport" }, paramLabel = "transport",
+            description = "Preferred transport, falls back to an available one. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "NIO", showDefaultValue = Help.Visibility.ALWAYS)
+    private TransportType         transport;
+
+    /**
+     * Unmeasured time before the measured one, in seconds.
+     */
+    @Option(names = { "-w", "--warmup" }, paramLabel = "seconds",
+            description = "Time sending traffic before measuring, in seconds.", defaultValue = "2",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long                  warmup;
+
+    /**
+     * Number of threads handling connections.
+     */
+    @Option(names = { "--workerThreads" }, paramLabel = "count",
+            description = "Threads handling connections. If not positive, the Reactor Netty default is used.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int                   workerThreads;
+
+    /**
+     * Default constructor.
+     */
+    public LoadCommand() {
+        super();
+    }
+
+    @Override
+    public final void run() {
+        final PrintWriter               writer;
+        final ProxyLoopResources        loops;
+        final LoadSettings              settings;
+        final ReactorNettyLoadGenerator generator;
+        final LoadReport                report;
+
+        if (debug) {
+            Configurator.setLevel("com.bernardomg.example", Level.DEBUG);
+        }
+
+        writer = spec.commandLine()
+            .getOut();
+
+        settings = LoadSettings.builder()
+            .connections(connections)
+            .messageSize(size)
+            .rate(rate)
+            .warmup(Duration.ofSeconds(warmup))
+            .duration(Duration.ofSeconds(duration))
+            .build();
+        loops = new ProxyLoopResources(transport, 0, workerThreads);
+        generator = new ReactorNettyLoadGenerator(targetHost, targetPort, settings, loops, ChannelSettings.builder()
+            .transport(loops.getTransport())
+            .build());
+
+        if (settings.isFixedRate()) {
+            writer.printf("Sending %d messages per second of %d bytes through %d connections to %s:%d", rate, size,
+                connections, targetHost, targetPort);
+        } else {
+            writer.printf("Sending messages of %d bytes in a closed loop through %d connections to %s:%d", size,
+                connections, targetHost, targetPort);
+        }
+        writer.println();
+        writer.flush();
+
+        report = generator.run();
+        loops.dispose();
+
+        writer.printf("Completed %d messages in %d ms: %.1f messages/s, %.2f MiB/s", report.getCompleted(),
+            report.getDuration()
+                .toMillis(),
+            report.getMessagesPerSecond(), report.getBytesPerSecond() / (1024 * 1024));
+        writer.println();
+        if (settings.isFixedRate()) {
+            printLatency(writer, "Latency, corrected for coordinated omission (us)", report.getLatency());
+        }
+        printLatency(writer, "Service time (us)", report.getServiceTime());
+        if ((report.getErrors() > 0) || (report.getSkipped() > 0)) {
+            writer.printf("Errors: %d connections failed, %d messages skipped", report.getErrors(),
+                report.getSkipped());
+            writer.println();
+        }
+
+        writer.close();
+    }
+
+    /**
+     * Prints the latency percentiles, in microseconds.
+     *
+     * @param writer
+     *            writer to print into
+     * @param title
+     *            title for the percentiles
+     * @param histogram
+     *            latency histogram, in nanoseconds
+     */
+    private final void printLatency(final PrintWriter writer, final String title, final Histogram histogram) {
+        writer.println(title);
+        for (final double percentile : PERCENTILES) {
+            writer.printf("  p%-6s %10.1f", percentile, histogram.getValueAtPercentile(percentile) / 1000d);
+            writer.println();
+        }
+        writer.printf("  %-7s %10.1f", "max", histogram.getMaxValue() / 1000d);
+        writer.println();
+    }
+
+}
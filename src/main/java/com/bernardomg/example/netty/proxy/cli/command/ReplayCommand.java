@@ -0,0 +1,259 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.HdrHistogram.Histogram;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import com.bernardomg.example.netty.proxy.cli.version.ManifestVersionProvider;
+import com.bernardomg.example.netty.proxy.client.ReactorNettyProxyClient;
+import com.bernardomg.example.netty.proxy.client.balance.BalanceStrategy;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.connect.ConnectSettings;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+import com.bernardomg.example.netty.proxy.metrics.NoOpProxyMetrics;
+import com.bernardomg.example.netty.proxy.replay.CapturedTraffic;
+import com.bernardomg.example.netty.proxy.replay.ReactorNettyReplayer;
+import com.bernardomg.example.netty.proxy.replay.ReplayReport;
+import com.bernardomg.example.netty.proxy.replay.ReplaySettings;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+/**
+ * Replay command. Sends the requests stored in capture files to a target, and prints the response latency next to the
+ * captured one.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Command(name = "replay", description = "Replays the requests stored in capture files against a TCP server",
+        mixinStandardHelpOptions = true, versionProvider = ManifestVersionProvider.class)
+public final class ReplayCommand implements Runnable {
+
+    /**
+     * Latency percentiles printed.
+     */
+    private static final double[] PERCENTILES     = { 50, 90, 99, 99.9 };
+
+    /**
+     * Maximum time to connect to the target, in milliseconds.
+     */
+    @Option(names = { "--connectTimeout" }, paramLabel = "millis",
+            description = "Maximum time to connect to the target, in milliseconds.", defaultValue = "5000",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long                  connectTimeout;
+
+    /**
+     * Debug flag. Shows debug logs.
+     */
+    @Option(names = { "--debug" }, paramLabel = "flag", description = "Enable debug logs.", defaultValue = "false")
+    private boolean               debug;
+
+    /**
+     * Capture files to replay.
+     */
+    @Parameters(paramLabel = "file", arity = "1..*",
+            description = "Capture files, in the order they were written.")
+    private List<Path>            files;
+
+    /**
+     * Maximum time waiting for the responses after the last request of a connection, in milliseconds.
+     */
+    @Option(names = { "--responseTimeout" }, paramLabel = "millis",
+            description = "Maximum time waiting for the responses after the last request of a connection, in milliseconds.",
+            defaultValue = "5000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long                  responseTimeout;
+
+    /**
+     * Speed compared to the captured traffic.
+     */
+    @Option(names = { "--speed" }, paramLabel = "multiplier",
+            description = "Speed compared to the captured traffic. 1 keeps the original timing, 2 doubles the speed, and so on. If not positive, sends as fast as possible.",
+            defaultValue = "1", showDefaultValue = Help.Visibility.ALWAYS)
+    private double                speed;
+
+    /**
+     * Command specification. Used to get the line output.
+     */
+    @Spec
+    private CommandSpec           spec;
+
+    /**
+     * Host to connect to.
+     */
+    @Option(names = { "-th", "--targetHost" }, paramLabel = "targetHost", description = "Target host.",
+            defaultValue = "localhost", showDefaultValue = Help.Visibility.ALWAYS)
+    private String                targetHost;
+
+    /**
+     * Port to connect to.
+     */
+    @Option(names = { "-tp", "--targetPort" }, paramLabel = "targetPort", description = "Target port.",
+            required = true)
+    private int                   targetPort;
+
+    /**
+     * Preferred transport.
+     */
+    @Option(names = { "--transport" }, paramLabel = "transport",
+            description = "Preferred transport, falls back to an available one. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "NIO", showDefaultValue = Help.Visibility.ALWAYS)
+    private TransportType         transport;
+
+    /**
+     * Number of threads handling connections.
+     */
+    @Option(names = { "--workerThreads" }, paramLabel = "count",
+            description = "Threads handling connections. If not positive, the Reactor Netty default is used.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int                   workerThreads;
+
+    /**
+     * Default constructor.
+     */
+    public ReplayCommand() {
+        super();
+    }
+
+    @Override
+    public final void run() {
+        final PrintWriter             writer;
+        final CapturedTraffic         traffic;
+        final List<Upstream>          upstreams;
+        final ProxyLoopResources      loops;
+        final ReactorNettyProxyClient client;
+        final ReplaySettings          settings;
+        final ReplayReport            report;
+
+        if (debug) {
+            Configurator.setLevel("com.bernardomg.example", Level.DEBUG);
+        }
+
+        writer = spec.commandLine()
+            .getOut();
+
+        try {
+            traffic = CapturedTraffic.read(files);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writer.printf("Read %d requests in %d connections", traffic.getRequests(), traffic.getSessions()
+            .size());
+        writer.println();
+        if (traffic.getSkipped() > 0) {
+            writer.printf("Skipped %d connections with truncated requests, capture with a larger snap length to replay them",
+                traffic.getSkipped());
+            writer.println();
+        }
+
+        upstreams = List.of(new Upstream(targetHost, targetPort));
+        loops = new ProxyLoopResources(transport, 0, workerThreads);
+        // A single target, which is never ejected
+        client = new ReactorNettyProxyClient(upstreams, BalanceStrategy.ROUND_ROBIN.createBalancer(upstreams),
+            HealthSettings.builder()
+                .failureThreshold(Integer.MAX_VALUE)
+                .ejectionTime(Duration.ZERO)
+                .maxEjectionTime(Duration.ZERO)
+                .probeInterval(Duration.ZERO)
+                .probeTimeout(Duration.ZERO)
+                .build(),
+            ConnectSettings.builder()
+                .timeout(Duration.ofMillis(connectTimeout))
+                .build(),
+            loops, ChannelSettings.builder()
+                .transport(loops.getTransport())
+                .build(),
+            NoOpProxyMetrics.INSTANCE, debug);
+        settings = ReplaySettings.builder()
+            .speed(speed)
+            .responseTimeout(Duration.ofMillis(responseTimeout))
+            .build();
+
+        if (settings.isMaxSpeed()) {
+            writer.printf("Replaying as fast as possible to %s:%d", targetHost, targetPort);
+        } else {
+            writer.printf("Replaying at %.2fx speed to %s:%d", speed, targetHost, targetPort);
+        }
+        writer.println();
+        writer.flush();
+
+        report = new ReactorNettyReplayer(client, settings).run(traffic);
+        client.dispose();
+        loops.dispose();
+
+        writer.printf("Sent %d requests, %d bytes, in %d ms. %d answered, %d unanswered", report.getSent(),
+            report.getBytes(), report.getDuration()
+                .toMillis(),
+            report.getAnswered(), report.getUnanswered());
+        writer.println();
+        if (report.getErrors() > 0) {
+            writer.printf("Errors: %d connections failed or closed early", report.getErrors());
+            writer.println();
+        }
+        printLatency(writer, report.getLatency(), traffic.getLatency());
+
+        writer.close();
+    }
+
+    /**
+     * Prints the replayed latency percentiles next to the captured ones, in milliseconds.
+     *
+     * @param writer
+     *            writer to print into
+     * @param replayed
+     *            replayed latency histogram, in nanoseconds
+     * @param captured
+     *            captured latency histogram, in nanoseconds
+     */
+    private final void printLatency(final PrintWriter writer, final Histogram replayed, final Histogram captured) {
+        writer.printf("%-10s %12s %12s", "Latency", "replay (ms)", "capture (ms)");
+        writer.println();
+        for (final double percentile : PERCENTILES) {
+            writer.printf("  p%-7s %12.3f %12.3f", percentile, replayed.getValueAtPercentile(percentile) / 1_000_000d,
+                captured.getValueAtPercentile(percentile) / 1_000_000d);
+            writer.println();
+        }
+        writer.printf("  %-8s %12.3f %12.3f", "max", replayed.getMaxValue() / 1_000_000d,
+            captured.getMaxValue() / 1_000_000d);
+        writer.println();
+    }
+
+}
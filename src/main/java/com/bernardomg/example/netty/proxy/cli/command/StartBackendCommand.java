@@ -0,0 +1,137 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command;
+
+import java.io.PrintWriter;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import com.bernardomg.example.netty.proxy.backend.BackendMode;
+import com.bernardomg.example.netty.proxy.backend.ReactorNettyBackendServer;
+import com.bernardomg.example.netty.proxy.cli.version.ManifestVersionProvider;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Spec;
+
+/**
+ * Start backend command. Starts a server which echoes or discards all the data received, to serve as the proxy target.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Command(name = "backend", description = "Starts an echo or sink TCP server", mixinStandardHelpOptions = true,
+        versionProvider = ManifestVersionProvider.class)
+public final class StartBackendCommand implements Runnable {
+
+    /**
+     * Debug flag. Shows debug logs.
+     */
+    @Option(names = { "--debug" }, paramLabel = "flag", description = "Enable debug logs.", defaultValue = "false")
+    private boolean       debug;
+
+    /**
+     * What to do with the data received.
+     */
+    @Option(names = { "--mode" }, paramLabel = "mode",
+            description = "What to do with the data received. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "ECHO", showDefaultValue = Help.Visibility.ALWAYS)
+    private BackendMode   mode;
+
+    /**
+     * Port to listen.
+     */
+    @Option(names = { "-p", "--port" }, paramLabel = "port", description = "Backend server port to listen.",
+            required = true)
+    private int           port;
+
+    /**
+     * Command specification. Used to get the line output.
+     */
+    @Spec
+    private CommandSpec   spec;
+
+    /**
+     * Preferred transport.
+     */
+    @Option(names = { "--transport" }, paramLabel = "transport",
+            description = "Preferred transport, falls back to an available one. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "NIO", showDefaultValue = Help.Visibility.ALWAYS)
+    private TransportType transport;
+
+    /**
+     * Number of threads handling connections.
+     */
+    @Option(names = { "--workerThreads" }, paramLabel = "count",
+            description = "Threads handling connections. If not positive, the Reactor Netty default is used.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int           workerThreads;
+
+    /**
+     * Default constructor.
+     */
+    public StartBackendCommand() {
+        super();
+    }
+
+    @Override
+    public final void run() {
+        final PrintWriter               writer;
+        final ProxyLoopResources        loops;
+        final ReactorNettyBackendServer backend;
+
+        if (debug) {
+            Configurator.setLevel("com.bernardomg.example", Level.DEBUG);
+        }
+
+        writer = spec.commandLine()
+            .getOut();
+
+        loops = new ProxyLoopResources(transport, 1, workerThreads);
+        backend = new ReactorNettyBackendServer(port, mode, loops, ChannelSettings.builder()
+            .transport(loops.getTransport())
+            .build());
+
+        backend.start();
+        writer.printf("Started %s backend at port %d, using %s transport", mode, port, loops.getTransport());
+        writer.println();
+        writer.flush();
+        backend.listen();
+
+        backend.stop();
+        loops.dispose();
+
+        writer.printf("Received %d bytes", backend.getReceivedBytes());
+        writer.println();
+        writer.close();
+    }
+
+}
@@ -22,28 +22,83 @@
  * SOFTWARE.
  */
 
+
 package com.bernardomg.example.netty.proxy.cli.command;
 
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.charset.Charset;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.config.Configurator;
 
+import com.bernardomg.example.netty.proxy.capture.CaptureFileSettings;
+import com.bernardomg.example.netty.proxy.capture.CaptureFileWriter;
+import com.bernardomg.example.netty.proxy.capture.CaptureProxyListener;
 import com.bernardomg.example.netty.proxy.cli.CliWriterProxyListener;
+import com.bernardomg.example.netty.proxy.cli.command.option.AdmissionOptions;
+import com.bernardomg.example.netty.proxy.cli.command.option.CaptureOptions;
+import com.bernardomg.example.netty.proxy.cli.command.option.FramingOptions;
+import com.bernardomg.example.netty.proxy.cli.command.option.ListenerOptions;
+import com.bernardomg.example.netty.proxy.cli.command.option.TlsOptions;
+import com.bernardomg.example.netty.proxy.cli.command.option.TrafficOptions;
+import com.bernardomg.example.netty.proxy.cli.command.option.TransportOptions;
+import com.bernardomg.example.netty.proxy.cli.command.option.UpstreamOptions;
 import com.bernardomg.example.netty.proxy.cli.version.ManifestVersionProvider;
+import com.bernardomg.example.netty.proxy.client.ReactorNettyProxyClient;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.health.UpstreamHealthStatus;
+import com.bernardomg.example.netty.proxy.client.pool.ConnectionPoolSettings;
+import com.bernardomg.example.netty.proxy.client.pool.ConnectionPoolStats;
+import com.bernardomg.example.netty.proxy.config.AdmissionFactory;
+import com.bernardomg.example.netty.proxy.config.BridgeFactory;
+import com.bernardomg.example.netty.proxy.config.ClientFactory;
+import com.bernardomg.example.netty.proxy.config.ConfigurationWatcher;
+import com.bernardomg.example.netty.proxy.config.ConfiguredProxyServer;
+import com.bernardomg.example.netty.proxy.config.ListenerSettings;
+import com.bernardomg.example.netty.proxy.config.ProxyConfiguration;
+import com.bernardomg.example.netty.proxy.config.RouteFactory;
+import com.bernardomg.example.netty.proxy.metrics.MetricsEndpoint;
+import com.bernardomg.example.netty.proxy.metrics.MicrometerProxyMetrics;
+import com.bernardomg.example.netty.proxy.metrics.NoOpProxyMetrics;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.CompositeProxyListener;
 import com.bernardomg.example.netty.proxy.server.ProxyListener;
-import com.bernardomg.example.netty.proxy.server.ReactorNettyTcpProxyServer;
+import com.bernardomg.example.netty.proxy.server.ProxyRoute;
+import com.bernardomg.example.netty.proxy.server.admission.RejectReason;
+import com.bernardomg.example.netty.proxy.server.bridge.BridgeSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.BackpressureStats;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.GlobalBufferLimit;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FramingSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FramingType;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.BandwidthShaper;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.ShapingSettings;
+import com.bernardomg.example.netty.proxy.server.event.AsyncProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.event.CaptureMode;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+import com.bernardomg.example.netty.proxy.transport.tls.ReloadableSslContext;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsContexts;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.netty.handler.ssl.SslContext;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Help;
+import picocli.CommandLine.Mixin;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Spec;
 
 /**
- * Start server command.
+ * Start server command. The options are split into groups, each one creating the settings for a part of the proxy.
  *
  * @author Bernardo Mart&iacute;nez Garrido
  *
@@ -52,43 +107,102 @@
         versionProvider = ManifestVersionProvider.class)
 public final class StartProxyCommand implements Runnable {
 
+    /**
+     * Admission options.
+     */
+    @Mixin
+    private AdmissionOptions admissionOptions;
+
+    /**
+     * Capture options.
+     */
+    @Mixin
+    private CaptureOptions   captureOptions;
+
     /**
      * Debug flag. Shows debug logs.
      */
     @Option(names = { "--debug" }, paramLabel = "flag", description = "Enable debug logs.", defaultValue = "false")
-    private boolean     debug;
+    private boolean          debug;
+
+    /**
+     * Maximum time to wait for the connections to close when stopping.
+     */
+    @Option(names = { "--drainTimeout" }, paramLabel = "millis",
+            description = "Maximum time to wait for the open connections to close when stopping, in milliseconds. Then they are closed.",
+            defaultValue = "30000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long             drainTimeout;
 
     /**
-     * Server port.
+     * Framing options.
      */
-    @Option(names = { "-p", "--port" }, paramLabel = "port", description = "Proxy server port to listen.",
-            required = true)
-    private Integer     port;
+    @Mixin
+    private FramingOptions   framingOptions;
+
+    /**
+     * Listener options.
+     */
+    @Mixin
+    private ListenerOptions  listenerOptions;
+
+    /**
+     * Metrics flag. Serves the proxy metrics for Prometheus.
+     */
+    @Option(names = { "--metrics" }, paramLabel = "flag",
+            description = "Serve the proxy metrics in the Prometheus format.", defaultValue = "false")
+    private boolean          metrics;
+
+    /**
+     * Host for the metrics endpoint.
+     */
+    @Option(names = { "--metricsHost" }, paramLabel = "host",
+            description = "Host to serve the metrics. Use 0.0.0.0 to serve them in all the interfaces.",
+            defaultValue = "127.0.0.1", showDefaultValue = Help.Visibility.ALWAYS)
+    private String           metricsHost;
+
+    /**
+     * Port for the metrics endpoint.
+     */
+    @Option(names = { "--metricsPort" }, paramLabel = "port", description = "Port to serve the metrics.",
+            defaultValue = "9091", showDefaultValue = Help.Visibility.ALWAYS)
+    private int              metricsPort;
 
     /**
      * Command specification. Used to get the line output.
      */
     @Spec
-    private CommandSpec spec;
+    private CommandSpec      spec;
 
     /**
-     * Target host.
+     * TLS options.
      */
-    @Option(names = { "-th", "--targetHost" }, paramLabel = "targetHost", description = "Target host.", required = true)
-    private String      targetHost;
+    @Mixin
+    private TlsOptions       tlsOptions;
 
     /**
-     * Target port.
+     * Traffic options.
      */
-    @Option(names = { "-tp", "--targetPort" }, paramLabel = "targetPort", description = "Target port.", required = true)
-    private Integer     targetPort;
+    @Mixin
+    private TrafficOptions   trafficOptions;
+
+    /**
+     * Transport options.
+     */
+    @Mixin
+    private TransportOptions transportOptions;
+
+    /**
+     * Upstream options.
+     */
+    @Mixin
+    private UpstreamOptions  upstreamOptions;
 
     /**
      * Verbose mode. If active prints info into the console. Active by default.
      */
     @Option(names = { "--verbose" }, paramLabel = "flag", description = "Print information to console.",
             defaultValue = "true", showDefaultValue = Help.Visibility.ALWAYS)
-    private boolean     verbose;
+    private boolean          verbose;
 
     /**
      * Default constructor.
@@ -99,33 +213,276 @@ public StartProxyCommand() {
 
     @Override
     public final void run() {
-        final PrintWriter                writer;
-        final ReactorNettyTcpProxyServer proxy;
-        final ProxyListener              listener;
+        final PrintWriter               writer;
+        final ConfiguredProxyServer     proxy;
+        final ProxyListener             listener;
+        final ListenerSettings          defaults;
+        final ProxyConfiguration        configuration;
+        final ConfigurationWatcher      watcher;
+        final Thread                    runner;
+        final Map<String, ProxyRoute>   routes;
+        final RouteFactory              routeFactory;
+        final ProxyLoopResources        loops;
+        final AsyncProxyEventDispatcher dispatcher;
+        final BackpressureStats         backpressureStats;
+        final CaptureSettings           capture;
+        final CaptureSettings           bridgeCapture;
+        final CaptureFileSettings       captureFileSettings;
+        final CaptureFileWriter         captureWriter;
+        final CaptureProxyListener      captureListener;
+        final ProxyListener             cliListener;
+        final ChannelSettings           channelSettings;
+        final ShapingSettings           shaping;
+        final FramingSettings           framingSettings;
+        final ConnectionPoolSettings    poolSettings;
+        final boolean                   spliced;
+        final ListenerSettings          first;
+        final List<Upstream>            upstreams;
+        final ProxyMetrics              proxyMetrics;
+        final MicrometerProxyMetrics    micrometerMetrics;
+        final PrometheusMeterRegistry   registry;
+        final MetricsEndpoint           metricsEndpoint;
+        final ReloadableSslContext      serverTls;
+        final SslContext                upstreamTlsContext;
+        ConnectionPoolStats             poolStats;
+        long                            rejected;
 
         if (debug) {
             activateDebugLog();
         }
 
+        defaults = listenerOptions.createDefaults();
+        configuration = listenerOptions.readConfiguration(defaults);
+        first = configuration.getListeners()
+            .get(0);
+        upstreams = configuration.getListeners()
+            .stream()
+            .flatMap(l -> l.getUpstreams()
+                .stream())
+            .collect(Collectors.toList());
+
         if (verbose) {
             // Prints to console
             writer = spec.commandLine()
                 .getOut();
+            capture = captureOptions.createPrintSettings();
         } else {
             // Prints nothing
             writer = new PrintWriter(OutputStream.nullOutputStream(), false, Charset.defaultCharset());
+            capture = CaptureSettings.SIZE_ONLY;
+        }
+
+        // Create event loops
+        loops = transportOptions.createLoops();
+        writer.printf("Using %s transport", loops.getTransport());
+        writer.println();
+
+        // Splicing hides the messages from the listener
+        shaping = trafficOptions.createShapingSettings(defaults);
+        framingSettings = framingOptions.createFramingSettings();
+        captureFileSettings = captureOptions.createFileSettings();
+        // Creating the TLS contexts checks the TLS options
+        serverTls = tlsOptions.createServerTls();
+        upstreamTlsContext = tlsOptions.createUpstreamTls(configuration);
+        spliced = trafficOptions.isSplice() && !verbose && (captureFileSettings == null) && !shaping.isEnabled()
+                && (serverTls == null) && (upstreamTlsContext == null)
+                && (framingSettings.getType() == FramingType.NONE);
+        if (trafficOptions.isSplice() && !spliced) {
+            writer.println(
+                "Splicing disabled, as verbose mode, capture files, byte rates, TLS and framing need to read the messages");
+        }
+        channelSettings = transportOptions.createChannelSettings(loops, spliced, metrics);
+
+        // Create metrics
+        if (metrics) {
+            registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            // Reactor Netty registers its metrics into the global registry
+            Metrics.addRegistry(registry);
+            micrometerMetrics = new MicrometerProxyMetrics(registry, upstreams);
+            micrometerMetrics.bindEventLoops(loops.getWorkerGroup());
+            proxyMetrics = micrometerMetrics;
+            metricsEndpoint = new MetricsEndpoint(registry, metricsHost, metricsPort);
+            metricsEndpoint.start();
+            writer.printf("Serving metrics at %s:%d", metricsHost, metricsPort);
+            writer.println();
+        } else {
+            registry = null;
+            micrometerMetrics = null;
+            proxyMetrics = NoOpProxyMetrics.INSTANCE;
+            metricsEndpoint = null;
+        }
+
+        // A single upstream context is shared by all the clients, so they resume each other's sessions
+        if ((serverTls != null) || (upstreamTlsContext != null)) {
+            writer.printf("Using %s TLS", TlsContexts.getProvider());
+            writer.println();
+        }
+
+        // Create capture files
+        cliListener = new CliWriterProxyListener(first.getPort(), upstreams, writer, capture);
+        if (captureFileSettings == null) {
+            captureWriter = null;
+            captureListener = null;
+            listener = cliListener;
+            bridgeCapture = capture;
+        } else {
+            // Each connection is stored with the port of its listener, this is for those whose port is unknown
+            captureWriter = new CaptureFileWriter(captureFileSettings, first.getPort());
+            captureWriter.start();
+            captureListener = new CaptureProxyListener(captureWriter);
+            listener = new CompositeProxyListener(List.of(cliListener, captureListener));
+            // Every message is stored, so the bridge copies all of them, up to the largest size needed
+            // The mode only matters to the console, which keeps its own settings
+            bridgeCapture = CaptureSettings.builder()
+                .mode(CaptureMode.TEXT)
+                .maxBytes(Math.max(captureFileSettings.getSnapLength(), capture.getCapturedBytes()))
+                .sampleRate(1)
+                .build();
+            if (capture.getSampleRate() > 1) {
+                writer.println("Sampling disabled, as the capture files store every message");
+            }
+            writer.printf("Storing %s capture into %s", captureFileSettings.getFormat(),
+                captureFileSettings.getPath());
+            writer.println();
         }
 
         // Create server
-        listener = new CliWriterProxyListener(port, targetHost, targetPort, writer);
-        proxy = new ReactorNettyTcpProxyServer(port, targetHost, targetPort, listener, debug);
+        // The listeners share the event loops, buffer limit and total byte rates
+        dispatcher = captureOptions.createDispatcher(listener);
+        backpressureStats = new BackpressureStats();
+        poolSettings = upstreamOptions.createPoolSettings();
+        if (spliced && (poolSettings != null)) {
+            writer.println("Pooled connections are not spliced, as they don't run on the event loop of their client");
+        }
+        routeFactory = new RouteFactory(
+            new AdmissionFactory(admissionOptions.createSettings(defaults), proxyMetrics), BridgeFactory.builder()
+                .dispatcher(dispatcher)
+                .settings(BridgeSettings.builder()
+                    .capture(bridgeCapture)
+                    .requestFlush(trafficOptions.createRequestFlushSettings())
+                    .responseFlush(trafficOptions.createResponseFlushSettings())
+                    .bufferLimit(new GlobalBufferLimit(trafficOptions.getMaxBufferedBytes()))
+                    .backpressureStats(backpressureStats)
+                    .timeouts(trafficOptions.createTimeoutSettings(defaults))
+                    .shaper(new BandwidthShaper(shaping))
+                    .framing(framingSettings)
+                    .correlation(framingOptions.createCorrelationSettings())
+                    .metrics(proxyMetrics)
+                    .build())
+                .spliced(spliced)
+                .build(),
+            new ClientFactory(upstreamOptions.createHealthSettings(),
+                upstreamOptions.createConnectSettings(defaults, upstreamTlsContext, tlsOptions.isVerifyHostname()),
+                poolSettings, loops, channelSettings, proxyMetrics, debug));
+        proxy = new ConfiguredProxyServer(configuration, routeFactory, dispatcher,
+            l -> new CliWriterProxyListener(l.getPort(), l.getUpstreams(), writer, capture), loops, channelSettings,
+            tlsOptions.createSniSettings(), serverTls, proxyMetrics, debug);
 
         // Start server
+        dispatcher.start();
         proxy.start();
+        if (serverTls != null) {
+            serverTls.start();
+        }
+        if (listenerOptions.getConfig() == null) {
+            watcher = null;
+        } else {
+            watcher = new ConfigurationWatcher(listenerOptions.getConfig(), defaults, configuration, proxy::apply);
+            watcher.start();
+            writer.printf("Watching %s for changes", listenerOptions.getConfig());
+            writer.println();
+        }
+
+        // Drain on shutdown, such as on SIGTERM
+        // The hook waits for this thread, so the stats are printed before exiting
+        runner = Thread.currentThread();
+        Runtime.getRuntime()
+            .addShutdownHook(new Thread(() -> drain(proxy, writer, runner), "proxy-shutdown"));
         proxy.listen();
 
         // Stop server
-        proxy.stop();
+        // The server was already stopped by the shutdown hook
+        if (watcher != null) {
+            watcher.stop();
+        }
+        if (serverTls != null) {
+            serverTls.stop();
+        }
+        dispatcher.stop();
+
+        if (dispatcher.getDropped() > 0) {
+            writer.printf("Dropped %d events, as the listener couldn't keep up", dispatcher.getDropped());
+            writer.println();
+        }
+
+        if (captureWriter != null) {
+            captureWriter.stop();
+            writer.printf("Stored %d messages into the capture files", captureWriter.getRecords());
+            writer.println();
+            if (captureListener.getFailed() > 0) {
+                writer.printf("Failed storing %d messages", captureListener.getFailed());
+                writer.println();
+            }
+        }
+
+        routes = proxy.getRoutes();
+        for (final RejectReason reason : RejectReason.values()) {
+            rejected = 0;
+            for (final ProxyRoute route : routes.values()) {
+                rejected += route.getAdmission()
+                    .getRejected(reason);
+            }
+            if (rejected > 0) {
+                writer.printf("Rejected %d connections, reason: %s", rejected, reason);
+                writer.println();
+            }
+        }
+
+        for (final Direction direction : Direction.values()) {
+            if (backpressureStats.getPauses(direction) > 0) {
+                writer.printf("Paused %s reads %d times, for %d ms in total", direction,
+                    backpressureStats.getPauses(direction), backpressureStats.getPausedTime(direction)
+                        .toMillis());
+                writer.println();
+            }
+            if (backpressureStats.getThrottles(direction) > 0) {
+                writer.printf("Throttled %s reads %d times, for %d ms in total", direction,
+                    backpressureStats.getThrottles(direction), backpressureStats.getThrottledTime(direction)
+                        .toMillis());
+                writer.println();
+            }
+        }
+
+        for (final String name : routes.keySet()) {
+            for (final Map.Entry<String, ReactorNettyProxyClient> client : routeFactory.getClients(name)
+                .entrySet()) {
+                for (final UpstreamHealthStatus health : client.getValue()
+                    .getHealth()) {
+                    if (!health.isHealthy()) {
+                        writer.printf("Target %s ejected for %d ms, after %d consecutive ejections",
+                            health.getUpstream(), health.getEjectedFor()
+                                .toMillis(),
+                            health.getEjections());
+                        writer.println();
+                    }
+                }
+
+                if (poolSettings != null) {
+                    poolStats = client.getValue()
+                        .getPoolStats();
+                    writer.printf("Connection pool for %s: %d active, %d idle, %d pending", client.getKey(),
+                        poolStats.getActive(), poolStats.getIdle(), poolStats.getPending());
+                    writer.println();
+                }
+            }
+        }
+        loops.dispose();
+
+        if (metrics) {
+            metricsEndpoint.stop();
+            Metrics.removeRegistry(registry);
+            registry.close();
+        }
 
         // Close writer
         writer.close();
@@ -139,4 +496,38 @@ private final void activateDebugLog() {
         Configurator.setLevel("reactor.netty.tcp", Level.DEBUG);
     }
 
+    /**
+     * Drains and stops the proxy. The connections still open after the drain timeout are closed. Then waits for the
+     * received thread to finish, which prints the final stats.
+     *
+     * @param proxy
+     *            proxy to drain
+     * @param writer
+     *            writer for the drain progress
+     * @param runner
+     *            thread running the proxy
+     */
+    private final void drain(final ConfiguredProxyServer proxy, final PrintWriter writer, final Thread runner) {
+        final boolean drained;
+
+        writer.printf("Stopping, waiting up to %d ms for the connections to close", drainTimeout);
+        writer.println();
+        drained = proxy.drain(Duration.ofMillis(drainTimeout), active -> {
+            writer.printf("Waiting for %d connections to close", active);
+            writer.println();
+        });
+        if (!drained) {
+            writer.printf("Closing %d connections, as the drain timeout was reached", proxy.getActive());
+            writer.println();
+        }
+        proxy.stop();
+
+        try {
+            runner.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+
 }
@@ -0,0 +1,99 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import com.bernardomg.example.netty.proxy.config.ListenerSettings;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionSettings;
+
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Option;
+
+/**
+ * Admission options. These are the rates each client is limited to.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class AdmissionOptions {
+
+    /**
+     * Bytes each client can send above its byte rate at once.
+     */
+    @Option(names = { "--clientByteBurst" }, paramLabel = "bytes",
+            description = "Bytes each client can send above its byte rate at once. If not positive, a second of the byte rate.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long   clientByteBurst;
+
+    /**
+     * Bytes each client can send per second.
+     */
+    @Option(names = { "--clientByteRate" }, paramLabel = "bytes",
+            description = "Bytes per second each client can send, in all its connections. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long   clientByteRate;
+
+    /**
+     * Connections each client can open above its connection rate at once.
+     */
+    @Option(names = { "--clientConnectionBurst" }, paramLabel = "count",
+            description = "Connections each client can open above its connection rate at once. If not positive, a second of the connection rate.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int    clientConnectionBurst;
+
+    /**
+     * New connections each client can open per second.
+     */
+    @Option(names = { "--clientConnectionRate" }, paramLabel = "count",
+            description = "New connections per second each client can open. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private double clientConnectionRate;
+
+    /**
+     * Default constructor.
+     */
+    public AdmissionOptions() {
+        super();
+    }
+
+    /**
+     * Creates the admission settings. The connection limits are taken from the listener defaults, each listener
+     * replaces them with its own.
+     *
+     * @param defaults
+     *            listener defaults
+     * @return the admission settings
+     */
+    public final AdmissionSettings createSettings(final ListenerSettings defaults) {
+        return AdmissionSettings.builder()
+            .maxConnections(defaults.getMaxConnections())
+            .maxClientConnections(defaults.getMaxClientConnections())
+            .clientConnectionRate(clientConnectionRate)
+            .clientConnectionBurst(clientConnectionBurst)
+            .clientByteRate(clientByteRate)
+            .clientByteBurst(clientByteBurst)
+            .build();
+    }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import java.nio.file.Path;
+
+import com.bernardomg.example.netty.proxy.capture.CaptureFileSettings;
+import com.bernardomg.example.netty.proxy.capture.CaptureFormat;
+import com.bernardomg.example.netty.proxy.server.ProxyListener;
+import com.bernardomg.example.netty.proxy.server.event.AsyncProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.event.CaptureMode;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.OverflowPolicy;
+
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Option;
+
+/**
+ * Capture options. These are how the messages are printed and stored, and how they are handed to the listener.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class CaptureOptions {
+
+    /**
+     * Maximum number of bytes of each message sent to the listener.
+     */
+    @Option(names = { "--captureBytes" }, paramLabel = "bytes",
+            description = "Maximum number of bytes of each message printed.", defaultValue = "4096",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int            captureBytes;
+
+    /**
+     * Path and name prefix for the capture files.
+     */
+    @Option(names = { "--captureFile" }, paramLabel = "path",
+            description = "Store the messages into files starting with this path. Each file adds an index and an extension to it.")
+    private Path           captureFile;
+
+    /**
+     * Format for the capture files.
+     */
+    @Option(names = { "--captureFormat" }, paramLabel = "format",
+            description = "Format for the capture files. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "FRAMED", showDefaultValue = Help.Visibility.ALWAYS)
+    private CaptureFormat  captureFormat;
+
+    /**
+     * How the messages are printed.
+     */
+    @Option(names = { "--captureMode" }, paramLabel = "mode",
+            description = "How the messages are printed. Valid values: ${COMPLETION-CANDIDATES}.", defaultValue = "TEXT",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private CaptureMode    captureMode;
+
+    /**
+     * Maximum number of capture files kept.
+     */
+    @Option(names = { "--captureSegments" }, paramLabel = "count",
+            description = "Maximum number of capture files kept, deleting the oldest ones. If not positive, all are kept.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int            captureSegments;
+
+    /**
+     * Size of each capture file.
+     */
+    @Option(names = { "--captureSegmentSize" }, paramLabel = "bytes", description = "Size of each capture file.",
+            defaultValue = "67108864", showDefaultValue = Help.Visibility.ALWAYS)
+    private int            captureSegmentSize;
+
+    /**
+     * Maximum number of events delivered to the listener at once.
+     */
+    @Option(names = { "--listenerBatchSize" }, paramLabel = "count",
+            description = "Maximum number of events delivered to the listener at once.", defaultValue = "128",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int            listenerBatchSize;
+
+    /**
+     * What to do when the listener queue is full.
+     */
+    @Option(names = { "--listenerOverflow" }, paramLabel = "policy",
+            description = "What to do with events when the listener queue is full. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "DROP", showDefaultValue = Help.Visibility.ALWAYS)
+    private OverflowPolicy listenerOverflow;
+
+    /**
+     * Maximum number of events waiting for the listener.
+     */
+    @Option(names = { "--listenerQueueSize" }, paramLabel = "count",
+            description = "Maximum number of events waiting for the listener.", defaultValue = "8192",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int            listenerQueueSize;
+
+    /**
+     * Only one message out of this number is printed.
+     */
+    @Option(names = { "--sampleRate" }, paramLabel = "count",
+            description = "Print only one message out of this number, for each connection and direction.",
+            defaultValue = "1", showDefaultValue = Help.Visibility.ALWAYS)
+    private int            sampleRate;
+
+    /**
+     * Maximum number of bytes of each message stored into the capture files.
+     */
+    @Option(names = { "--snapLength" }, paramLabel = "bytes",
+            description = "Maximum number of bytes of each message stored into the capture files.",
+            defaultValue = "65536", showDefaultValue = Help.Visibility.ALWAYS)
+    private int            snapLength;
+
+    /**
+     * Default constructor.
+     */
+    public CaptureOptions() {
+        super();
+    }
+
+    /**
+     * Creates the dispatcher handing the events to the listener.
+     *
+     * @param listener
+     *            listener receiving the events
+     * @return the event dispatcher
+     */
+    public final AsyncProxyEventDispatcher createDispatcher(final ProxyListener listener) {
+        return new AsyncProxyEventDispatcher(listener, listenerQueueSize, listenerBatchSize, listenerOverflow);
+    }
+
+    /**
+     * Creates the settings for the capture files, if there is a capture file.
+     *
+     * @return the capture file settings, or {@code null} if the messages are not stored
+     */
+    public final CaptureFileSettings createFileSettings() {
+        final CaptureFileSettings settings;
+
+        if (captureFile == null) {
+            settings = null;
+        } else {
+            settings = CaptureFileSettings.builder()
+                .format(captureFormat)
+                .path(captureFile)
+                .segmentSize(captureSegmentSize)
+                .maxSegments(captureSegments)
+                .snapLength(snapLength)
+                .build();
+        }
+
+        return settings;
+    }
+
+    /**
+     * Creates the settings for printing the messages.
+     *
+     * @return the capture settings for the console
+     */
+    public final CaptureSettings createPrintSettings() {
+        return CaptureSettings.builder()
+            .mode(captureMode)
+            .maxBytes(captureBytes)
+            .sampleRate(sampleRate)
+            .build();
+    }
+
+}
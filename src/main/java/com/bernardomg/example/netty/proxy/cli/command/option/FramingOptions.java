@@ -0,0 +1,223 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import java.time.Duration;
+
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.CorrelationMode;
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.CorrelationSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.DelimiterFramer;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FramingSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FramingType;
+
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+/**
+ * Framing options. These are how the messages are split into frames, and how the request frames are paired with their
+ * responses.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class FramingOptions {
+
+    /**
+     * How the responses are paired with their requests.
+     */
+    @Option(names = { "--correlation" }, paramLabel = "mode",
+            description = "Pair each request frame with its response, to measure the latency of each exchange. Requires framing. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "NONE", showDefaultValue = Help.Visibility.ALWAYS)
+    private CorrelationMode correlation;
+
+    /**
+     * Size of the id field.
+     */
+    @Option(names = { "--correlationIdBytes" }, paramLabel = "bytes",
+            description = "Size of the big endian id field, for the ID correlation. Between 1 and 8.", defaultValue = "4",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int             correlationIdBytes;
+
+    /**
+     * Position of the id field.
+     */
+    @Option(names = { "--correlationIdOffset" }, paramLabel = "bytes",
+            description = "Position of the id field in the requests and responses, for the ID correlation.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             correlationIdOffset;
+
+    /**
+     * Maximum time a request waits for its response.
+     */
+    @Option(names = { "--exchangeTimeout" }, paramLabel = "millis",
+            description = "Maximum time a request waits for its response, when correlating them. If not positive, there is no limit.",
+            defaultValue = "30000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long            exchangeTimeout;
+
+    /**
+     * Delimiter at the end of each frame.
+     */
+    @Option(names = { "--frameDelimiter" }, paramLabel = "delimiter",
+            description = "Delimiter at the end of each frame, for the DELIMITER framing. Accepts the \\n, \\r, \\t, \\\\ and \\xHH escapes.",
+            defaultValue = DelimiterFramer.LINE, showDefaultValue = Help.Visibility.ALWAYS)
+    private String          frameDelimiter;
+
+    /**
+     * Value added to the frame length.
+     */
+    @Option(names = { "--frameLengthAdjustment" }, paramLabel = "bytes",
+            description = "Value added to the frame length, for the LENGTH_FIELD framing. Negative if the length field counts the header.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             frameLengthAdjustment;
+
+    /**
+     * Size of the length field.
+     */
+    @Option(names = { "--frameLengthBytes" }, paramLabel = "bytes",
+            description = "Size of the big endian length field, for the LENGTH_FIELD framing. Can be 1, 2, 3, 4 or 8.",
+            defaultValue = "4", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             frameLengthBytes;
+
+    /**
+     * Position of the length field.
+     */
+    @Option(names = { "--frameLengthOffset" }, paramLabel = "bytes",
+            description = "Position of the length field in the frame header, for the LENGTH_FIELD framing.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             frameLengthOffset;
+
+    /**
+     * Size of each frame.
+     */
+    @Option(names = { "--frameSize" }, paramLabel = "bytes", description = "Size of each frame, for the FIXED framing.",
+            defaultValue = "0")
+    private int             frameSize;
+
+    /**
+     * Name of the custom framer.
+     */
+    @Option(names = { "--framer" }, paramLabel = "name",
+            description = "Name of the framer provider, for the CUSTOM framing. Providers are loaded from the classpath.")
+    private String          framer;
+
+    /**
+     * How the messages are split into frames.
+     */
+    @Option(names = { "--framing" }, paramLabel = "type",
+            description = "Split the messages into the frames of their protocol, which are shown instead of the messages as read. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "NONE", showDefaultValue = Help.Visibility.ALWAYS)
+    private FramingType     framing;
+
+    /**
+     * Frames over this size are streamed.
+     */
+    @Option(names = { "--maxFrameBytes" }, paramLabel = "bytes",
+            description = "Frames over this size are shown in pieces, as they are read, instead of held until complete.",
+            defaultValue = "65536", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             maxFrameBytes;
+
+    /**
+     * Maximum number of requests waiting for a response on each connection.
+     */
+    @Option(names = { "--maxPendingExchanges" }, paramLabel = "count",
+            description = "Maximum number of requests waiting for a response on each connection, when correlating them.",
+            defaultValue = "1024", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             maxPendingExchanges;
+
+    /**
+     * Command specification. Used to report invalid options.
+     */
+    @Spec(Spec.Target.MIXEE)
+    private CommandSpec     spec;
+
+    /**
+     * Default constructor.
+     */
+    public FramingOptions() {
+        super();
+    }
+
+    /**
+     * Creates the correlation settings, checking they are valid. The route is set for each listener.
+     *
+     * @return the correlation settings
+     */
+    public final CorrelationSettings createCorrelationSettings() {
+        final CorrelationSettings settings;
+
+        if ((correlation != CorrelationMode.NONE) && (framing == FramingType.NONE)) {
+            throw new ParameterException(spec.commandLine(),
+                "Correlating the exchanges requires framing the messages, set with --framing");
+        }
+
+        settings = CorrelationSettings.builder()
+            .mode(correlation)
+            .idBytes(correlationIdBytes)
+            .idOffset(correlationIdOffset)
+            .maxPending(maxPendingExchanges)
+            .route("")
+            .timeout(Duration.ofMillis(exchangeTimeout))
+            .build();
+        try {
+            settings.validate();
+        } catch (final IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+        }
+
+        return settings;
+    }
+
+    /**
+     * Creates the framing settings, checking they are valid.
+     *
+     * @return the framing settings
+     */
+    public final FramingSettings createFramingSettings() {
+        final FramingSettings settings;
+
+        settings = FramingSettings.builder()
+            .type(framing)
+            .customFramer(framer)
+            .delimiter(frameDelimiter)
+            .frameSize(frameSize)
+            .lengthAdjustment(frameLengthAdjustment)
+            .lengthFieldBytes(frameLengthBytes)
+            .lengthFieldOffset(frameLengthOffset)
+            .maxFrameBytes(maxFrameBytes)
+            .build();
+        try {
+            // Validates the settings
+            settings.createFramer();
+        } catch (final IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+        }
+
+        return settings;
+    }
+
+}
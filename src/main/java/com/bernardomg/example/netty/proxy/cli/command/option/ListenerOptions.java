@@ -0,0 +1,349 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bernardomg.example.netty.proxy.client.balance.BalanceStrategy;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.config.ListenerSettings;
+import com.bernardomg.example.netty.proxy.config.ProxyConfiguration;
+import com.bernardomg.example.netty.proxy.server.sni.SniRoutingTable;
+
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+/**
+ * Listener options. These are the port and targets, or the configuration file with the listeners, and the defaults
+ * for all the listeners.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class ListenerOptions {
+
+    /**
+     * Load balancing strategy between the targets.
+     */
+    @Option(names = { "--balance" }, paramLabel = "strategy",
+            description = "How to choose the target for each connection. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "ROUND_ROBIN", showDefaultValue = Help.Visibility.ALWAYS)
+    private BalanceStrategy balance;
+
+    /**
+     * Configuration file with the listeners.
+     */
+    @Option(names = { "--config" }, paramLabel = "path",
+            description = "YAML or JSON file with the listeners to serve, reloaded when it changes. The other options are the defaults for all the listeners.")
+    private Path            config;
+
+    /**
+     * Maximum time to connect to a target, in milliseconds.
+     */
+    @Option(names = { "--connectTimeout" }, paramLabel = "millis",
+            description = "Maximum time to connect to a target, in milliseconds.", defaultValue = "3000",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long            connectTimeout;
+
+    /**
+     * Maximum time a bridged connection can go without traffic, in milliseconds.
+     */
+    @Option(names = { "--idleTimeout" }, paramLabel = "millis",
+            description = "Maximum time a connection can go without traffic in any direction, in milliseconds. If not positive, there is no limit.",
+            defaultValue = "3600000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long            idleTimeout;
+
+    /**
+     * Maximum open connections for each client.
+     */
+    @Option(names = { "--maxClientConnections" }, paramLabel = "count",
+            description = "Maximum open connections for each client IP. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             maxClientConnections;
+
+    /**
+     * Maximum open connections.
+     */
+    @Option(names = { "--maxConnections" }, paramLabel = "count",
+            description = "Maximum open connections for all the clients. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int             maxConnections;
+
+    /**
+     * Server port.
+     */
+    @Option(names = { "-p", "--port" }, paramLabel = "port",
+            description = "Proxy server port to listen. Required unless there is a configuration file.")
+    private Integer         port;
+
+    /**
+     * PROXY protocol flag. Reads the original client address from a header at the start of each connection.
+     */
+    @Option(names = { "--proxyProtocol" }, paramLabel = "flag",
+            description = "Read a PROXY protocol header, v1 or v2, at the start of each connection, with the original client address.",
+            defaultValue = "false")
+    private boolean         proxyProtocol;
+
+    /**
+     * Request bytes per second for each connection.
+     */
+    @Option(names = { "--requestRate" }, paramLabel = "bytes",
+            description = "Request bytes per second for each connection. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long            requestRate;
+
+    /**
+     * Response bytes per second for each connection.
+     */
+    @Option(names = { "--responseRate" }, paramLabel = "bytes",
+            description = "Response bytes per second for each connection. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long            responseRate;
+
+    /**
+     * Number of times a failed connection is retried on another target.
+     */
+    @Option(names = { "--retries" }, paramLabel = "count",
+            description = "Times a failed connection is retried, each time on another target.", defaultValue = "2",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int             retries;
+
+    /**
+     * Targets for each server name.
+     */
+    @Option(names = { "--sniRoute" }, paramLabel = "name=host:port,...",
+            description = "Targets for a server name, or a wildcard such as *.example.com, sent in the TLS ClientHello. Can be repeated. Other names go to the default targets.")
+    private List<String>    sniRoutes = new ArrayList<>();
+
+    /**
+     * Command specification. Used to report invalid options.
+     */
+    @Spec(Spec.Target.MIXEE)
+    private CommandSpec     spec;
+
+    /**
+     * Additional targets.
+     */
+    @Option(names = { "-t", "--target" }, paramLabel = "host:port",
+            description = "Target, in host:port format. Can be repeated, to balance between multiple targets.")
+    private List<String>    targets   = new ArrayList<>();
+
+    /**
+     * Target host.
+     */
+    @Option(names = { "-th", "--targetHost" }, paramLabel = "targetHost", description = "Target host.")
+    private String          targetHost;
+
+    /**
+     * Target port.
+     */
+    @Option(names = { "-tp", "--targetPort" }, paramLabel = "targetPort", description = "Target port.")
+    private Integer         targetPort;
+
+    /**
+     * Upstream PROXY protocol flag. Sends the original client address to the targets.
+     */
+    @Option(names = { "--upstreamProxyProtocol" }, paramLabel = "flag",
+            description = "Send a PROXY protocol v2 header at the start of each connection to the targets, with the original client address.",
+            defaultValue = "false")
+    private boolean         upstreamProxyProtocol;
+
+    /**
+     * Default constructor.
+     */
+    public ListenerOptions() {
+        super();
+    }
+
+    /**
+     * Creates the defaults for the listeners, from the options received.
+     *
+     * @return the listener defaults
+     */
+    public final ListenerSettings createDefaults() {
+        return ListenerSettings.builder()
+            .name("default")
+            .port(0)
+            .targets(List.of())
+            .sniRoutes(Map.of())
+            .balance(balance)
+            .connectTimeout(Duration.ofMillis(connectTimeout))
+            .retries(retries)
+            .idleTimeout(Duration.ofMillis(idleTimeout))
+            .maxConnections(maxConnections)
+            .maxClientConnections(maxClientConnections)
+            .requestRate(requestRate)
+            .responseRate(responseRate)
+            .proxyProtocol(proxyProtocol)
+            .upstreamProxyProtocol(upstreamProxyProtocol)
+            .build();
+    }
+
+    /**
+     * Returns the configuration file with the listeners.
+     *
+     * @return the configuration file, or {@code null} if the listener is set with the options
+     */
+    public final Path getConfig() {
+        return config;
+    }
+
+    /**
+     * Returns the configuration to serve. This is read from the configuration file, if there is one, otherwise it is a
+     * single listener with the port and targets received as arguments.
+     *
+     * @param defaults
+     *            defaults for the listener options
+     * @return the configuration to serve
+     */
+    public final ProxyConfiguration readConfiguration(final ListenerSettings defaults) {
+        final ProxyConfiguration configuration;
+        final List<String>       values;
+
+        if (config == null) {
+            if (port == null) {
+                throw new ParameterException(spec.commandLine(), "Missing port, set it or use a configuration file");
+            }
+            values = new ArrayList<>();
+            for (final Upstream upstream : getUpstreams()) {
+                values.add(upstream.toString());
+            }
+            configuration = new ProxyConfiguration(List.of(defaults.toBuilder()
+                .name(String.valueOf(port))
+                .port(port)
+                .targets(values)
+                .sniRoutes(getSniRoutes())
+                .build()));
+        } else {
+            if ((port != null) || (targetHost != null) || (targetPort != null) || !targets.isEmpty()
+                    || !sniRoutes.isEmpty()) {
+                throw new ParameterException(spec.commandLine(),
+                    "The port and targets are read from the configuration file, and can't be set as arguments");
+            }
+            try {
+                configuration = ProxyConfiguration.read(config, defaults);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (final IllegalArgumentException e) {
+                throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+            }
+        }
+
+        return configuration;
+    }
+
+    /**
+     * Returns the server name routes received as arguments.
+     *
+     * @return the targets for each server name
+     */
+    private final Map<String, List<String>> getSniRoutes() {
+        final Map<String, List<String>> routes;
+        List<String>                    routeTargets;
+        int                             separator;
+
+        routes = new LinkedHashMap<>();
+        for (final String route : sniRoutes) {
+            separator = route.indexOf('=');
+            if (separator <= 0) {
+                throw new ParameterException(spec.commandLine(),
+                    "Invalid SNI route " + route + ", should be name=host:port,host:port");
+            }
+            routeTargets = new ArrayList<>();
+            for (final String target : route.substring(separator + 1)
+                .split(",")) {
+                routeTargets.add(parseTarget(target.trim()).toString());
+            }
+            routes.put(route.substring(0, separator), routeTargets);
+        }
+
+        try {
+            // Validates the names
+            new SniRoutingTable<>(routes);
+        } catch (final IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+        }
+
+        return routes;
+    }
+
+    /**
+     * Returns the targets received as arguments. The target host and port are the first one, followed by the target
+     * list. Without SNI routes, there should be at least one.
+     *
+     * @return the targets
+     */
+    private final List<Upstream> getUpstreams() {
+        final List<Upstream> upstreams;
+
+        upstreams = new ArrayList<>();
+        if ((targetHost != null) || (targetPort != null)) {
+            if ((targetHost == null) || (targetPort == null)) {
+                throw new ParameterException(spec.commandLine(), "Target host and port should be set together");
+            }
+            upstreams.add(new Upstream(targetHost, targetPort));
+        }
+        for (final String target : targets) {
+            upstreams.add(parseTarget(target));
+        }
+
+        if (upstreams.isEmpty() && sniRoutes.isEmpty()) {
+            throw new ParameterException(spec.commandLine(),
+                "Missing target, set the target host and port, or at least one target");
+        }
+
+        return upstreams;
+    }
+
+    /**
+     * Parses a target in {@code host:port} format.
+     *
+     * @param target
+     *            target to parse
+     * @return the upstream for the target
+     */
+    private final Upstream parseTarget(final String target) {
+        final Upstream upstream;
+
+        try {
+            upstream = Upstream.parse(target);
+        } catch (final IllegalArgumentException e) {
+            throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+        }
+
+        return upstream;
+    }
+
+}
@@ -0,0 +1,227 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import com.bernardomg.example.netty.proxy.config.ListenerSettings;
+import com.bernardomg.example.netty.proxy.config.ProxyConfiguration;
+import com.bernardomg.example.netty.proxy.server.sni.SniSettings;
+import com.bernardomg.example.netty.proxy.transport.tls.ReloadableSslContext;
+import com.bernardomg.example.netty.proxy.transport.tls.ServerTlsSettings;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsContexts;
+import com.bernardomg.example.netty.proxy.transport.tls.UpstreamTlsSettings;
+
+import io.netty.handler.ssl.SslContext;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+/**
+ * TLS options. These are the TLS terminated on the accepted connections, the TLS to the targets, and the ClientHello
+ * read for routing by server name.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class TlsOptions {
+
+    /**
+     * Maximum time to receive the TLS ClientHello, in milliseconds.
+     */
+    @Option(names = { "--sniHelloTimeout" }, paramLabel = "millis",
+            description = "Maximum time to receive the TLS ClientHello, when routing by server name.",
+            defaultValue = "10000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long        sniHelloTimeout;
+
+    /**
+     * Maximum size of the TLS ClientHello.
+     */
+    @Option(names = { "--sniMaxHelloBytes" }, paramLabel = "bytes",
+            description = "Maximum size of the TLS ClientHello, when routing by server name. Larger hellos close the connection.",
+            defaultValue = "16384", showDefaultValue = Help.Visibility.ALWAYS)
+    private int         sniMaxHelloBytes;
+
+    /**
+     * Command specification. Used to report invalid options.
+     */
+    @Spec(Spec.Target.MIXEE)
+    private CommandSpec spec;
+
+    /**
+     * Certificate chain file for terminating TLS.
+     */
+    @Option(names = { "--tlsCertificate" }, paramLabel = "path",
+            description = "Certificate chain PEM file. Terminates TLS on the accepted connections, along the key.")
+    private Path        tlsCertificate;
+
+    /**
+     * Private key file for terminating TLS.
+     */
+    @Option(names = { "--tlsKey" }, paramLabel = "path",
+            description = "Private key PKCS#8 PEM file, for the certificate.")
+    private Path        tlsKey;
+
+    /**
+     * Time between checks for a new certificate, in milliseconds.
+     */
+    @Option(names = { "--tlsReloadInterval" }, paramLabel = "millis",
+            description = "Time between checks for changes in the certificate and key files, which are reloaded without restarting.",
+            defaultValue = "10000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long        tlsReloadInterval;
+
+    /**
+     * Maximum TLS sessions kept for resumption.
+     */
+    @Option(names = { "--tlsSessionCacheSize" }, paramLabel = "count",
+            description = "Maximum TLS sessions kept for resumption, on each side. If not positive, the TLS provider default is used.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long        tlsSessionCacheSize;
+
+    /**
+     * Time a TLS session can be resumed, in milliseconds.
+     */
+    @Option(names = { "--tlsSessionTimeout" }, paramLabel = "millis",
+            description = "Time a TLS session can be resumed, in milliseconds.", defaultValue = "300000",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long        tlsSessionTimeout;
+
+    /**
+     * Upstream TLS flag. Connects to the targets with TLS.
+     */
+    @Option(names = { "--upstreamTls" }, paramLabel = "flag", description = "Connect to the targets with TLS.",
+            defaultValue = "false")
+    private boolean     upstreamTls;
+
+    /**
+     * Insecure upstream TLS flag. Trusts any target certificate.
+     */
+    @Option(names = { "--upstreamTlsInsecure" }, paramLabel = "flag",
+            description = "Trust any target certificate, without checking it. Only for testing.", defaultValue = "false")
+    private boolean     upstreamTlsInsecure;
+
+    /**
+     * Certificates trusted for the targets.
+     */
+    @Option(names = { "--upstreamTlsTrust" }, paramLabel = "path",
+            description = "PEM file with the certificates trusted for the targets. If not set, the system ones are trusted.")
+    private Path        upstreamTlsTrust;
+
+    /**
+     * Default constructor.
+     */
+    public TlsOptions() {
+        super();
+    }
+
+    /**
+     * Creates the TLS context for terminating TLS, if there is a certificate.
+     *
+     * @return the server TLS context, or {@code null} if TLS is not terminated
+     */
+    public final ReloadableSslContext createServerTls() {
+        final ReloadableSslContext context;
+
+        if ((tlsCertificate == null) && (tlsKey == null)) {
+            context = null;
+        } else if ((tlsCertificate == null) || (tlsKey == null)) {
+            throw new ParameterException(spec.commandLine(), "TLS certificate and key should be set together");
+        } else {
+            try {
+                context = new ReloadableSslContext(ServerTlsSettings.builder()
+                    .certificate(tlsCertificate)
+                    .key(tlsKey)
+                    .reloadInterval(Duration.ofMillis(tlsReloadInterval))
+                    .sessionCacheSize(Math.max(0, tlsSessionCacheSize))
+                    .sessionTimeout(Duration.ofMillis(tlsSessionTimeout))
+                    .build());
+            } catch (final IllegalArgumentException e) {
+                throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+            }
+        }
+
+        return context;
+    }
+
+    /**
+     * Creates the settings for reading the TLS ClientHello.
+     *
+     * @return the SNI settings
+     */
+    public final SniSettings createSniSettings() {
+        return SniSettings.builder()
+            .helloTimeout(Duration.ofMillis(sniHelloTimeout))
+            .maxHelloBytes(sniMaxHelloBytes)
+            .build();
+    }
+
+    /**
+     * Creates the TLS context for connecting to the targets, if upstream TLS is active.
+     *
+     * @param configuration
+     *            proxy configuration, to check the listeners can use TLS
+     * @return the upstream TLS context, or {@code null} if the targets are connected with plain TCP
+     */
+    public final SslContext createUpstreamTls(final ProxyConfiguration configuration) {
+        final SslContext context;
+
+        if (upstreamTls) {
+            for (final ListenerSettings listener : configuration.getListeners()) {
+                // The header would go after the handshake
+                if (listener.isUpstreamProxyProtocol()) {
+                    throw new ParameterException(spec.commandLine(),
+                        "The upstream PROXY protocol can't be used along upstream TLS");
+                }
+            }
+            try {
+                context = TlsContexts.forUpstream(UpstreamTlsSettings.builder()
+                    .insecure(upstreamTlsInsecure)
+                    .trustCertificates(upstreamTlsTrust)
+                    .sessionCacheSize(Math.max(0, tlsSessionCacheSize))
+                    .sessionTimeout(Duration.ofMillis(tlsSessionTimeout))
+                    .build());
+            } catch (final IllegalArgumentException e) {
+                throw new ParameterException(spec.commandLine(), e.getMessage(), e);
+            }
+        } else {
+            context = null;
+        }
+
+        return context;
+    }
+
+    /**
+     * Returns if the target certificates should be for the target hosts. This is disabled along insecure upstream TLS.
+     *
+     * @return {@code true} if the target hostnames are verified, {@code false} otherwise
+     */
+    public final boolean isVerifyHostname() {
+        return !upstreamTlsInsecure;
+    }
+
+}
@@ -0,0 +1,254 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import com.bernardomg.example.netty.proxy.config.ListenerSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.flush.FlushMode;
+import com.bernardomg.example.netty.proxy.server.bridge.flush.FlushSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.ShapingSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.timeout.TimeoutSettings;
+
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Option;
+
+/**
+ * Traffic options. These are how the bridged messages are flushed, timed out and limited.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class TrafficOptions {
+
+    /**
+     * Pending bytes which force a flush, for the threshold flush mode.
+     */
+    @Option(names = { "--flushBytes" }, paramLabel = "bytes",
+            description = "Pending bytes which force a flush, in THRESHOLD flush mode.", defaultValue = "16384",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int       flushBytes;
+
+    /**
+     * Maximum time a message waits for a flush, in microseconds, for the threshold flush mode.
+     */
+    @Option(names = { "--flushDelay" }, paramLabel = "micros",
+            description = "Maximum time a message waits for a flush, in microseconds, in THRESHOLD flush mode.",
+            defaultValue = "200", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      flushDelay;
+
+    /**
+     * Pending messages which force a flush, for the threshold flush mode.
+     */
+    @Option(names = { "--flushMessages" }, paramLabel = "count",
+            description = "Pending messages which force a flush, in THRESHOLD flush mode.", defaultValue = "32",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int       flushMessages;
+
+    /**
+     * Maximum bytes being written by all the connections together.
+     */
+    @Option(names = { "--maxBufferedBytes" }, paramLabel = "bytes",
+            description = "Maximum bytes being written by all the connections. If not positive, there is no limit.",
+            defaultValue = "67108864", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      maxBufferedBytes;
+
+    /**
+     * Time of traffic at the full rate which can go through at once, in milliseconds.
+     */
+    @Option(names = { "--rateBurst" }, paramLabel = "millis",
+            description = "Time of traffic at the full byte rate which can go through at once after being idle, in milliseconds.",
+            defaultValue = "100", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      rateBurst;
+
+    /**
+     * Flush mode for requests.
+     */
+    @Option(names = { "--requestFlush" }, paramLabel = "mode",
+            description = "When requests are flushed to the target. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "MESSAGE", showDefaultValue = Help.Visibility.ALWAYS)
+    private FlushMode requestFlush;
+
+    /**
+     * Maximum time without receiving requests from the client, in milliseconds.
+     */
+    @Option(names = { "--requestReadTimeout" }, paramLabel = "millis",
+            description = "Maximum time without receiving anything from the client, in milliseconds. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      requestReadTimeout;
+
+    /**
+     * Maximum time for a request to be written into the target, in milliseconds.
+     */
+    @Option(names = { "--requestWriteTimeout" }, paramLabel = "millis",
+            description = "Maximum time for a request to be sent to the target, in milliseconds. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      requestWriteTimeout;
+
+    /**
+     * Flush mode for responses.
+     */
+    @Option(names = { "--responseFlush" }, paramLabel = "mode",
+            description = "When responses are flushed to the client. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "MESSAGE", showDefaultValue = Help.Visibility.ALWAYS)
+    private FlushMode responseFlush;
+
+    /**
+     * Maximum time without receiving responses from the target, in milliseconds.
+     */
+    @Option(names = { "--responseReadTimeout" }, paramLabel = "millis",
+            description = "Maximum time without receiving anything from the target, in milliseconds. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      responseReadTimeout;
+
+    /**
+     * Maximum time for a response to be written into the client, in milliseconds.
+     */
+    @Option(names = { "--responseWriteTimeout" }, paramLabel = "millis",
+            description = "Maximum time for a response to be sent to the client, in milliseconds. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      responseWriteTimeout;
+
+    /**
+     * Splice flag. Uses kernel splicing when possible.
+     */
+    @Option(names = { "--splice" }, paramLabel = "flag",
+            description = "Move bytes between sockets with kernel splicing. Requires the EPOLL transport, and verbose mode off.",
+            defaultValue = "false")
+    private boolean   splice;
+
+    /**
+     * Request bytes per second for all the connections.
+     */
+    @Option(names = { "--totalRequestRate" }, paramLabel = "bytes",
+            description = "Request bytes per second for all the connections together. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      totalRequestRate;
+
+    /**
+     * Response bytes per second for all the connections.
+     */
+    @Option(names = { "--totalResponseRate" }, paramLabel = "bytes",
+            description = "Response bytes per second for all the connections together. If not positive, there is no limit.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private long      totalResponseRate;
+
+    /**
+     * Default constructor.
+     */
+    public TrafficOptions() {
+        super();
+    }
+
+    /**
+     * Creates the flush settings for the requests.
+     *
+     * @return the request flush settings
+     */
+    public final FlushSettings createRequestFlushSettings() {
+        return createFlushSettings(requestFlush);
+    }
+
+    /**
+     * Creates the flush settings for the responses.
+     *
+     * @return the response flush settings
+     */
+    public final FlushSettings createResponseFlushSettings() {
+        return createFlushSettings(responseFlush);
+    }
+
+    /**
+     * Creates the shaping settings. The byte rates for each connection are taken from the listener defaults, each
+     * listener replaces them with its own.
+     *
+     * @param defaults
+     *            listener defaults
+     * @return the shaping settings
+     */
+    public final ShapingSettings createShapingSettings(final ListenerSettings defaults) {
+        return ShapingSettings.builder()
+            .requestRate(defaults.getRequestRate())
+            .responseRate(defaults.getResponseRate())
+            .totalRequestRate(totalRequestRate)
+            .totalResponseRate(totalResponseRate)
+            .burst(Duration.ofMillis(rateBurst))
+            .build();
+    }
+
+    /**
+     * Creates the timeout settings for the bridged connections. The idle timeout is taken from the listener defaults,
+     * each listener replaces it with its own.
+     *
+     * @param defaults
+     *            listener defaults
+     * @return the timeout settings
+     */
+    public final TimeoutSettings createTimeoutSettings(final ListenerSettings defaults) {
+        return TimeoutSettings.builder()
+            .idle(defaults.getIdleTimeout())
+            .requestRead(Duration.ofMillis(requestReadTimeout))
+            .requestWrite(Duration.ofMillis(requestWriteTimeout))
+            .responseRead(Duration.ofMillis(responseReadTimeout))
+            .responseWrite(Duration.ofMillis(responseWriteTimeout))
+            .build();
+    }
+
+    /**
+     * Returns the maximum bytes being written by all the connections together.
+     *
+     * @return the maximum buffered bytes
+     */
+    public final long getMaxBufferedBytes() {
+        return maxBufferedBytes;
+    }
+
+    /**
+     * Returns if kernel splicing was requested. It is only used if nothing needs to read the messages.
+     *
+     * @return {@code true} if splicing was requested, {@code false} otherwise
+     */
+    public final boolean isSplice() {
+        return splice;
+    }
+
+    /**
+     * Creates the flush settings for the received mode, using the flush thresholds.
+     *
+     * @param mode
+     *            flush mode
+     * @return the flush settings
+     */
+    private final FlushSettings createFlushSettings(final FlushMode mode) {
+        return FlushSettings.builder()
+            .mode(mode)
+            .maxBytes(flushBytes)
+            .maxMessages(flushMessages)
+            .maxDelay(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(flushDelay)))
+            .build();
+    }
+
+}
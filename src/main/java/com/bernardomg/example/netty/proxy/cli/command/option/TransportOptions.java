@@ -0,0 +1,122 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Option;
+
+/**
+ * Transport options. These are the event loops and the socket buffers.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class TransportOptions {
+
+    /**
+     * Number of threads accepting connections.
+     */
+    @Option(names = { "--selectorThreads" }, paramLabel = "count",
+            description = "Threads accepting connections. If not positive, the worker threads accept them.",
+            defaultValue = "1", showDefaultValue = Help.Visibility.ALWAYS)
+    private int           selectorThreads;
+
+    /**
+     * Preferred transport.
+     */
+    @Option(names = { "--transport" }, paramLabel = "transport",
+            description = "Preferred transport, falls back to an available one. Valid values: ${COMPLETION-CANDIDATES}.",
+            defaultValue = "NIO", showDefaultValue = Help.Visibility.ALWAYS)
+    private TransportType transport;
+
+    /**
+     * Number of threads handling connections.
+     */
+    @Option(names = { "--workerThreads" }, paramLabel = "count",
+            description = "Threads handling connections. If not positive, the Reactor Netty default is used.",
+            defaultValue = "0", showDefaultValue = Help.Visibility.ALWAYS)
+    private int           workerThreads;
+
+    /**
+     * Pending write bytes above which a connection stops reading from its peer.
+     */
+    @Option(names = { "--writeBufferHigh" }, paramLabel = "bytes",
+            description = "Pending write bytes above which the peer connection stops being read.",
+            defaultValue = "65536", showDefaultValue = Help.Visibility.ALWAYS)
+    private int           writeBufferHigh;
+
+    /**
+     * Pending write bytes below which a connection resumes reading from its peer.
+     */
+    @Option(names = { "--writeBufferLow" }, paramLabel = "bytes",
+            description = "Pending write bytes below which the peer connection is read again.", defaultValue = "32768",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int           writeBufferLow;
+
+    /**
+     * Default constructor.
+     */
+    public TransportOptions() {
+        super();
+    }
+
+    /**
+     * Creates the settings for the channels of the received event loops.
+     *
+     * @param loops
+     *            event loops for the channels
+     * @param spliced
+     *            splicing flag, spliced channels are level triggered and can't half-close
+     * @param metrics
+     *            metrics flag
+     * @return the channel settings
+     */
+    public final ChannelSettings createChannelSettings(final ProxyLoopResources loops, final boolean spliced,
+            final boolean metrics) {
+        return ChannelSettings.builder()
+            .transport(loops.getTransport())
+            .levelTriggered(spliced)
+            // Spliced channels can't pass a half-closure along
+            .halfClosure(!spliced)
+            .writeBufferHighWaterMark(writeBufferHigh)
+            .writeBufferLowWaterMark(writeBufferLow)
+            .metrics(metrics)
+            .build();
+    }
+
+    /**
+     * Creates the event loops, for the preferred transport or the one available.
+     *
+     * @return the event loops
+     */
+    public final ProxyLoopResources createLoops() {
+        return new ProxyLoopResources(transport, selectorThreads, workerThreads);
+    }
+
+}
@@ -0,0 +1,219 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.cli.command.option;
+
+import java.time.Duration;
+
+import com.bernardomg.example.netty.proxy.client.connect.ConnectSettings;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+import com.bernardomg.example.netty.proxy.client.pool.ConnectionPoolSettings;
+import com.bernardomg.example.netty.proxy.config.ListenerSettings;
+
+import io.netty.handler.ssl.SslContext;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Option;
+
+/**
+ * Upstream options. These are the target health checks, the hedged connections and the connection pool.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class UpstreamOptions {
+
+    /**
+     * Consecutive failures which eject a target.
+     */
+    @Option(names = { "--ejectionFailures" }, paramLabel = "count",
+            description = "Consecutive failures which eject a target.", defaultValue = "3",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int     ejectionFailures;
+
+    /**
+     * Time a failing target is ejected the first time, in milliseconds.
+     */
+    @Option(names = { "--ejectionTime" }, paramLabel = "millis",
+            description = "Time a failing target is ejected the first time, in milliseconds. Doubles with each consecutive ejection.",
+            defaultValue = "10000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long    ejectionTime;
+
+    /**
+     * Time between target health probes, in milliseconds.
+     */
+    @Option(names = { "--healthCheckInterval" }, paramLabel = "millis",
+            description = "Time between target health probes, in milliseconds. If not positive, there are no probes.",
+            defaultValue = "5000", showDefaultValue = Help.Visibility.ALWAYS)
+    private long    healthCheckInterval;
+
+    /**
+     * Maximum time for a health probe to connect, in milliseconds.
+     */
+    @Option(names = { "--healthCheckTimeout" }, paramLabel = "millis",
+            description = "Maximum time for a health probe to connect, in milliseconds.", defaultValue = "1000",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long    healthCheckTimeout;
+
+    /**
+     * Hedge flag. Starts a second connection to another target when a connection is slow.
+     */
+    @Option(names = { "--hedge" }, paramLabel = "flag",
+            description = "Start a second connection to another target when a connection is slower than usual.",
+            defaultValue = "false")
+    private boolean hedge;
+
+    /**
+     * Connect latency percentile after which a hedged connection is started.
+     */
+    @Option(names = { "--hedgePercentile" }, paramLabel = "percentile",
+            description = "Connect latency percentile after which a hedged connection is started.",
+            defaultValue = "95", showDefaultValue = Help.Visibility.ALWAYS)
+    private double  hedgePercentile;
+
+    /**
+     * Maximum time a failing target is ejected, in milliseconds.
+     */
+    @Option(names = { "--maxEjectionTime" }, paramLabel = "millis",
+            description = "Maximum time a failing target is ejected, in milliseconds.", defaultValue = "300000",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long    maxEjectionTime;
+
+    /**
+     * Pool flag. Keeps a pool of connections to the target.
+     */
+    @Option(names = { "--pool" }, paramLabel = "flag",
+            description = "Keep a pool of pre-established connections to the target.", defaultValue = "false")
+    private boolean pool;
+
+    /**
+     * Maximum time to wait for a pooled connection, in milliseconds.
+     */
+    @Option(names = { "--poolAcquireTimeout" }, paramLabel = "millis",
+            description = "Maximum time to wait for a pooled connection, in milliseconds.", defaultValue = "5000",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long    poolAcquireTimeout;
+
+    /**
+     * Maximum time a pooled connection can be idle, in milliseconds.
+     */
+    @Option(names = { "--poolMaxIdleTime" }, paramLabel = "millis",
+            description = "Maximum time a pooled connection can be idle, in milliseconds.", defaultValue = "60000",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private long    poolMaxIdleTime;
+
+    /**
+     * Maximum number of requests waiting for a pooled connection.
+     */
+    @Option(names = { "--poolMaxPending" }, paramLabel = "count",
+            description = "Maximum number of requests waiting for a pooled connection. Negative for no limit.",
+            defaultValue = "1000", showDefaultValue = Help.Visibility.ALWAYS)
+    private int     poolMaxPending;
+
+    /**
+     * Maximum number of pooled connections.
+     */
+    @Option(names = { "--poolMaxSize" }, paramLabel = "count",
+            description = "Maximum number of connections to the target, idle or in use.", defaultValue = "500",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int     poolMaxSize;
+
+    /**
+     * Number of idle connections kept ready.
+     */
+    @Option(names = { "--poolMinIdle" }, paramLabel = "count",
+            description = "Number of idle connections to the target kept ready.", defaultValue = "4",
+            showDefaultValue = Help.Visibility.ALWAYS)
+    private int     poolMinIdle;
+
+    /**
+     * Default constructor.
+     */
+    public UpstreamOptions() {
+        super();
+    }
+
+    /**
+     * Creates the settings for connecting to the targets. The timeout, retries and PROXY protocol are taken from the
+     * listener defaults, each listener replaces them with its own.
+     *
+     * @param defaults
+     *            listener defaults
+     * @param tls
+     *            TLS context for the connections, if null they are plain TCP
+     * @param verifyHostname
+     *            hostname verification flag, for TLS
+     * @return the connect settings
+     */
+    public final ConnectSettings createConnectSettings(final ListenerSettings defaults, final SslContext tls,
+            final boolean verifyHostname) {
+        return ConnectSettings.builder()
+            .timeout(defaults.getConnectTimeout())
+            .retries(defaults.getRetries())
+            .proxyProtocol(defaults.isUpstreamProxyProtocol())
+            .hedge(hedge)
+            .hedgePercentile(hedgePercentile)
+            .tls(tls)
+            .verifyHostname(verifyHostname)
+            .build();
+    }
+
+    /**
+     * Creates the settings for the target health checks.
+     *
+     * @return the health settings
+     */
+    public final HealthSettings createHealthSettings() {
+        return HealthSettings.builder()
+            .failureThreshold(ejectionFailures)
+            .ejectionTime(Duration.ofMillis(ejectionTime))
+            .maxEjectionTime(Duration.ofMillis(maxEjectionTime))
+            .probeInterval(Duration.ofMillis(healthCheckInterval))
+            .probeTimeout(Duration.ofMillis(healthCheckTimeout))
+            .build();
+    }
+
+    /**
+     * Creates the settings for the connection pool, if the pool flag is active.
+     *
+     * @return the pool settings, or {@code null} if the connections are not pooled
+     */
+    public final ConnectionPoolSettings createPoolSettings() {
+        final ConnectionPoolSettings settings;
+
+        if (pool) {
+            settings = ConnectionPoolSettings.builder()
+                .minIdle(poolMinIdle)
+                .maxSize(poolMaxSize)
+                .maxIdleTime(Duration.ofMillis(poolMaxIdleTime))
+                .acquireTimeout(Duration.ofMillis(poolAcquireTimeout))
+                .maxPending(poolMaxPending)
+                .build();
+        } else {
+            settings = null;
+        }
+
+        return settings;
+    }
+
+}
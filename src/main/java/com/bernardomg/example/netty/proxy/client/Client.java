@@ -24,6 +24,8 @@
 
 package com.bernardomg.example.netty.proxy.client;
 
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
 import reactor.core.publisher.Mono;
 import reactor.netty.Connection;
 
@@ -39,8 +41,20 @@ public interface Client {
      * Create and return a new connection. Said connection will come in a {@code Mono}, to allow subscribing
      * asynchronously.
      *
+     * @param addresses
+     *            original addresses of the connection which will use the client connection
      * @return a {@code Mono} for the client connection
      */
-    public Mono<? extends Connection> connect();
+    public Mono<? extends Connection> connect(final ConnectionAddresses addresses);
+
+    /**
+     * Releases all the resources held by the client, such as pooled connections.
+     */
+    public void dispose();
+
+    /**
+     * Prepares the client for the first connections. This may involve opening connections in advance.
+     */
+    public void warmup();
 
 }
@@ -0,0 +1,68 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client;
+
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+/**
+ * Client without targets, which fails every connection. Used as the default client of a route which only has targets
+ * for some server names, so the connections for other names are closed.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class NoTargetClient implements Client {
+
+    /**
+     * Single instance, as there is no state.
+     */
+    public static final Client INSTANCE = new NoTargetClient();
+
+    /**
+     * Default constructor.
+     */
+    private NoTargetClient() {
+        super();
+    }
+
+    @Override
+    public final Mono<? extends Connection> connect(final ConnectionAddresses addresses) {
+        return Mono.error(new IllegalStateException("No target for the connection"));
+    }
+
+    @Override
+    public final void dispose() {
+        // Nothing to release
+    }
+
+    @Override
+    public final void warmup() {
+        // Nothing to prepare
+    }
+
+}
@@ -24,16 +24,88 @@
 
 package com.bernardomg.example.netty.proxy.client;
 
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+
+import com.bernardomg.example.netty.proxy.client.balance.LoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.connect.ConnectSettings;
+import com.bernardomg.example.netty.proxy.client.connect.LatencyWindow;
+import com.bernardomg.example.netty.proxy.client.health.HealthMonitor;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+import com.bernardomg.example.netty.proxy.client.health.UpstreamHealthStatus;
+import com.bernardomg.example.netty.proxy.client.pool.ConnectionPoolSettings;
+import com.bernardomg.example.netty.proxy.client.pool.ConnectionPoolStats;
+import com.bernardomg.example.netty.proxy.client.pool.UpstreamConnectionPool;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ProxyProtocolWriter;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsHandshakeRecorder;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsSide;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslHandler;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
 import reactor.netty.Connection;
+import reactor.netty.resources.LoopResources;
 import reactor.netty.tcp.TcpClient;
 
 /**
- * Client for the proxy. This can create as many connections to the target server as needed. These are created
+ * Client for the proxy. This can create as many connections to the target servers as needed. These are created
  * asynchronously, and returned inside a {@code Mono}.
+ * <h2>Load balancing</h2>
+ * <p>
+ * There may be any number of target servers, the {@link Upstream upstreams}. For each new connection the
+ * {@link LoadBalancer} chooses one of them. The client keeps track of the connections and connect latency of each
+ * upstream, which some balancers take into account.
+ * <h2>Health</h2>
+ * <p>
+ * Failed connections, and connections reset by the upstream, are recorded into a {@link HealthMonitor}, which also
+ * probes the upstreams periodically. Only healthy upstreams are given to the balancer. If there is none, the
+ * connection fails at once, instead of waiting for a connection which will most likely fail.
+ * <h2>Failover</h2>
+ * <p>
+ * Connections fail after the connect timeout. Then they are retried a number of times, each time on an upstream not
+ * tried yet.
+ * <p>
+ * With hedging, if a connection takes longer than a percentile of the latest connect latencies, a second connection
+ * is started to another upstream. The first one to connect is used, and the other one is closed. This cuts the tail
+ * latency when an upstream stalls, such as during restarts, at the cost of a few additional connections.
+ * <h2>Metrics</h2>
+ * <p>
+ * The connect latency and errors of each upstream are recorded into the {@link ProxyMetrics}.
+ * <h2>Pooling</h2>
+ * <p>
+ * By default each call to {@link #connect(ConnectionAddresses)} opens a new connection. If pool settings are received, then
+ * connections are taken from an {@link UpstreamConnectionPool}, which keeps spare connections already open, so clients
+ * don't have to wait for the connection handshake. The pool keeps separate connections for each upstream.
+ * <h2>PROXY protocol</h2>
+ * <p>
+ * Optionally, each connection starts with a PROXY protocol v2 header, so the upstream knows the original client address.
+ * As pooled connections are given to a single client, they can send it too.
+ * <h2>TLS</h2>
+ * <p>
+ * Optionally, the connections use TLS, and are returned once the handshake ends. The TLS context keeps the sessions of
+ * each upstream, so the next connections resume them, saving most of the handshake. Health probes stay plain TCP, as
+ * they only check the upstream accepts connections.
+ * <p>
+ * TLS can't be used along the PROXY protocol, as the header should be sent before the handshake.
  *
  * @author Bernardo Mart&iacute;nez Garrido
  *
@@ -42,51 +114,487 @@
 public final class ReactorNettyProxyClient implements Client {
 
     /**
-     * Host to which the proxy will connect.
+     * Name for the failure handler in the pipeline.
+     */
+    private static final String                    FAILURE_HANDLER_NAME = "proxy.upstreamFailure";
+
+    /**
+     * Load balancer, chooses the upstream for each connection.
+     */
+    private final LoadBalancer                     balancer;
+
+    /**
+     * Connect settings.
+     */
+    private final ConnectSettings                  connectSettings;
+
+    /**
+     * Reactor Netty client for each upstream, which creates the connections.
+     */
+    private final Map<Upstream, TcpClient>         clients              = new HashMap<>();
+
+    /**
+     * Latest connect latencies, to decide when to hedge.
+     */
+    private final LatencyWindow                    latencies;
+
+    /**
+     * Upstream health monitor.
+     */
+    private final HealthMonitor                    healthMonitor;
+
+    /**
+     * Proxy metrics.
+     */
+    private final ProxyMetrics                     metrics;
+
+    /**
+     * Connection pool. Empty if connections are not pooled.
+     */
+    private final Optional<UpstreamConnectionPool> pool;
+
+    /**
+     * Reactor Netty client for probing each upstream. These never take connections from the pool.
      */
-    private final String  host;
+    private final Map<Upstream, TcpClient>         probeClients         = new HashMap<>();
 
     /**
-     * Port to which the proxy will connect.
+     * Reactor Netty client with the settings shared by all the upstreams.
      */
-    private final Integer port;
+    private final TcpClient                        tcpClient;
 
     /**
-     * Wiretap flag. Activates Reactor Netty wiretap logging.
+     * Servers to which the proxy will connect.
      */
-    private final boolean wiretap;
+    private final List<Upstream>                   upstreams;
 
     /**
-     * Constructs a client for the received host and port.
+     * Constructs a client for the received upstreams.
      *
-     * @param hst
-     *            host to connect to
-     * @param prt
-     *            port to connect to
+     * @param upstrms
+     *            servers to connect to
+     * @param blncr
+     *            load balancer for the upstreams
+     * @param healthSettings
+     *            upstream health check settings
+     * @param cnnctSettings
+     *            connect settings
+     * @param loops
+     *            event loop resources
+     * @param channelSettings
+     *            settings for the client channels
+     * @param mtrcs
+     *            proxy metrics
      * @param wtap
      *            wiretap flag
      */
-    public ReactorNettyProxyClient(final String hst, final Integer prt, final boolean wtap) {
+    public ReactorNettyProxyClient(final List<Upstream> upstrms, final LoadBalancer blncr,
+            final HealthSettings healthSettings, final ConnectSettings cnnctSettings, final LoopResources loops,
+            final ChannelSettings channelSettings, final ProxyMetrics mtrcs, final boolean wtap) {
+        this(upstrms, blncr, healthSettings, cnnctSettings, Optional.empty(), loops, channelSettings, mtrcs, wtap);
+    }
+
+    /**
+     * Constructs a client for the received upstreams, which will take connections from a pool.
+     *
+     * @param upstrms
+     *            servers to connect to
+     * @param blncr
+     *            load balancer for the upstreams
+     * @param healthSettings
+     *            upstream health check settings
+     * @param cnnctSettings
+     *            connect settings
+     * @param poolSettings
+     *            connection pool settings
+     * @param loops
+     *            event loop resources
+     * @param channelSettings
+     *            settings for the client channels
+     * @param mtrcs
+     *            proxy metrics
+     * @param wtap
+     *            wiretap flag
+     */
+    public ReactorNettyProxyClient(final List<Upstream> upstrms, final LoadBalancer blncr,
+            final HealthSettings healthSettings, final ConnectSettings cnnctSettings,
+            final ConnectionPoolSettings poolSettings, final LoopResources loops, final ChannelSettings channelSettings,
+            final ProxyMetrics mtrcs, final boolean wtap) {
+        this(upstrms, blncr, healthSettings, cnnctSettings,
+            Optional.of(new UpstreamConnectionPool("proxy-client", poolSettings)), loops, channelSettings, mtrcs, wtap);
+    }
+
+    private ReactorNettyProxyClient(final List<Upstream> upstrms, final LoadBalancer blncr,
+            final HealthSettings healthSettings, final ConnectSettings cnnctSettings,
+            final Optional<UpstreamConnectionPool> pl, final LoopResources loops, final ChannelSettings channelSettings,
+            final ProxyMetrics mtrcs, final boolean wtap) {
         super();
 
-        host = Objects.requireNonNull(hst);
-        port = Objects.requireNonNull(prt);
-        wiretap = Objects.requireNonNull(wtap);
+        final TcpClient plainClient;
+
+        upstreams = List.copyOf(upstrms);
+        if (upstreams.isEmpty()) {
+            throw new IllegalArgumentException("At least one upstream is required");
+        }
+        balancer = Objects.requireNonNull(blncr);
+        healthMonitor = new HealthMonitor(upstreams, healthSettings);
+        connectSettings = Objects.requireNonNull(cnnctSettings);
+        metrics = Objects.requireNonNull(mtrcs);
+        pool = pl;
+
+        if (connectSettings.isHedge()) {
+            latencies = new LatencyWindow(connectSettings.getHedgePercentile());
+        } else {
+            latencies = null;
+        }
+        if (connectSettings.isProxyProtocol() && (connectSettings.getTls() != null)) {
+            throw new IllegalArgumentException("The PROXY protocol can't be used along TLS");
+        }
+
+        plainClient = channelSettings.applyTo(pool.map(UpstreamConnectionPool::getProvider)
+            .map(TcpClient::create)
+            // Without pool, a new connection each time
+            .orElseGet(TcpClient::newConnection))
+            // Event loops
+            .runOn(Objects.requireNonNull(loops))
+            // Wiretap
+            .wiretap(wtap)
+            // Connect timeout
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, getConnectTimeoutMillis());
+        if (connectSettings.getTls() == null) {
+            tcpClient = plainClient;
+        } else {
+            tcpClient = plainClient.secure(spec -> spec.sslContext(connectSettings.getTls())
+                .handlerConfigurator(this::configureTls))
+                // Handshake metrics
+                .doOnChannelInit((observer, channel, address) -> TlsHandshakeRecorder.install(channel, TlsSide.UPSTREAM,
+                    metrics));
+        }
+
+        for (final Upstream upstream : upstreams) {
+            // Connect to target
+            clients.put(upstream, tcpClient.host(upstream.getHost())
+                .port(upstream.getPort()));
+            // Probes never use the pool
+            probeClients.put(upstream, channelSettings.applyTo(TcpClient.newConnection())
+                .runOn(loops)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, getConnectTimeoutMillis())
+                .host(upstream.getHost())
+                .port(upstream.getPort()));
+        }
     }
 
     @Override
-    public final Mono<? extends Connection> connect() {
+    public final Mono<? extends Connection> connect(final ConnectionAddresses addresses) {
+        final Mono<? extends Connection> connection;
+        final Mono<? extends Connection> selected;
+
         log.trace("Starting proxy client");
 
-        log.debug("Connecting to {}:{}", host, port);
+        selected = connect(addresses.getSource(), ConcurrentHashMap.newKeySet(), connectSettings.getRetries());
+        if (connectSettings.isProxyProtocol()) {
+            // Only the connection finally used sends the header
+            connection = selected.doOnNext(c -> ProxyProtocolWriter.write(c.channel(), addresses));
+        } else {
+            connection = selected;
+        }
+
+        return connection;
+    }
+
+    @Override
+    public final void dispose() {
+        healthMonitor.stop();
+        pool.ifPresent(UpstreamConnectionPool::dispose);
+    }
+
+    /**
+     * Returns the current health of all the upstreams.
+     *
+     * @return the upstreams health
+     */
+    public final List<UpstreamHealthStatus> getHealth() {
+        return healthMonitor.getStatus();
+    }
+
+    /**
+     * Returns the current state of the connection pool. If there is no pool, then all the stats are zero.
+     *
+     * @return the connection pool stats
+     */
+    public final ConnectionPoolStats getPoolStats() {
+        return pool.map(UpstreamConnectionPool::getStats)
+            .orElse(ConnectionPoolStats.EMPTY);
+    }
+
+    /**
+     * Returns the servers to which the proxy connects.
+     *
+     * @return the upstreams
+     */
+    public final List<Upstream> getUpstreams() {
+        return upstreams;
+    }
+
+    @Override
+    public final void warmup() {
+        log.debug("Warming up client");
+
+        tcpClient.warmup()
+            .block();
+
+        if (pool.isPresent()) {
+            // The first acquisition makes the pool open the spare connections
+            // The acquired one is not needed
+            for (final Upstream upstream : upstreams) {
+                connect(upstream).subscribe(c -> c.channel()
+                    .close(), e -> log.warn("Failed warming up the connection pool for {}: {}", upstream,
+                        e.getMessage()));
+            }
+        }
+
+        healthMonitor.start(this::probe);
+    }
+
+    /**
+     * Sets up the TLS handler of a new connection. This checks the upstream certificate is for its host, if required.
+     *
+     * @param handler
+     *            TLS handler to set up
+     */
+    private final void configureTls(final SslHandler handler) {
+        final SSLEngine     engine;
+        final SSLParameters parameters;
+
+        if (connectSettings.isVerifyHostname()) {
+            engine = handler.engine();
+            parameters = engine.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            engine.setSSLParameters(parameters);
+        }
+    }
+
+    /**
+     * Connects to one of the healthy upstreams not tried yet. If it fails, this is retried until there are no retries
+     * left, or no upstream left to try.
+     *
+     * @param clientAddress
+     *            address of the client which will use the connection
+     * @param tried
+     *            upstreams already tried
+     * @param retries
+     *            retries left
+     * @return a {@code Mono} for the upstream connection
+     */
+    private final Mono<? extends Connection> connect(final SocketAddress clientAddress, final Set<Upstream> tried,
+            final int retries) {
+        return Mono.<Connection> defer(() -> {
+            final List<Upstream>             candidates;
+            final Upstream                   upstream;
+            final Mono<? extends Connection> connection;
+
+            candidates = getCandidates(tried);
+            if (candidates.isEmpty()) {
+                // Fail fast
+                connection = Mono.error(new IllegalStateException("No healthy upstream"));
+            } else {
+                upstream = balancer.select(candidates, clientAddress);
+                tried.add(upstream);
+                if (connectSettings.isHedge()) {
+                    connection = hedgedConnect(upstream, clientAddress, tried);
+                } else {
+                    connection = connect(upstream);
+                }
+            }
+
+            return connection;
+        })
+            .onErrorResume(e -> (retries > 0) && !getCandidates(tried).isEmpty(), e -> {
+                log.debug("Retrying connection, {} retries left, after failing: {}", retries, e.getMessage());
+                return connect(clientAddress, tried, retries - 1);
+            });
+    }
+
+    /**
+     * Connects to the received upstream, keeping track of its connections.
+     *
+     * @param upstream
+     *            upstream to connect to
+     * @return a {@code Mono} for the upstream connection
+     */
+    private final Mono<? extends Connection> connect(final Upstream upstream) {
+        return Mono.defer(() -> {
+            final long start;
+
+            log.debug("Connecting to {}", upstream);
+
+            start = System.nanoTime();
+            upstream.onConnecting();
+            return clients.get(upstream)
+                .connect()
+                .doOnNext(c -> {
+                    final long latency;
+
+                    latency = System.nanoTime() - start;
+                    upstream.onConnected(latency);
+                    if (latencies != null) {
+                        latencies.record(latency);
+                    }
+                    healthMonitor.recordSuccess(upstream);
+                    metrics.onConnected(upstream, latency);
+                    c.onDispose(upstream::onClosed);
+                    c.addHandlerLast(FAILURE_HANDLER_NAME, new UpstreamFailureHandler(upstream));
+                })
+                .doOnError(e -> {
+                    upstream.onConnectFailed();
+                    healthMonitor.recordFailure(upstream, e);
+                    metrics.onConnectFailed(upstream);
+                })
+                .doFinally(s -> upstream.onConnectFinished());
+        });
+    }
+
+    /**
+     * Returns the connect timeout, in milliseconds, as expected by the channel option.
+     *
+     * @return the connect timeout in milliseconds
+     */
+    private final int getConnectTimeoutMillis() {
+        return (int) Math.min(Integer.MAX_VALUE, connectSettings.getTimeout()
+            .toMillis());
+    }
+
+    /**
+     * Returns the healthy upstreams not tried yet.
+     *
+     * @param tried
+     *            upstreams already tried
+     * @return the upstreams which can be tried
+     */
+    private final List<Upstream> getCandidates(final Set<Upstream> tried) {
+        final List<Upstream> candidates;
+
+        candidates = healthMonitor.getHealthy(upstreams);
+        candidates.removeAll(tried);
+
+        return candidates;
+    }
+
+    /**
+     * Connects to the received upstream, and if it takes longer than the hedge threshold, to another upstream too. The
+     * first connection established is returned, and the other one closed.
+     * <p>
+     * Until there are enough latencies to know the threshold, or if there is no other upstream, this is a plain
+     * connection.
+     *
+     * @param upstream
+     *            first upstream to connect to
+     * @param clientAddress
+     *            address of the client which will use the connection
+     * @param tried
+     *            upstreams already tried
+     * @return a {@code Mono} for the first upstream connection
+     */
+    private final Mono<? extends Connection> hedgedConnect(final Upstream upstream, final SocketAddress clientAddress,
+            final Set<Upstream> tried) {
+        final Optional<Duration>          threshold;
+        final List<Upstream>              candidates;
+        final Upstream                    hedged;
+        final AtomicReference<Connection> winner;
+        final Mono<? extends Connection>  connection;
+
+        threshold = latencies.getPercentile();
+        candidates = getCandidates(tried);
+        if (threshold.isEmpty() || candidates.isEmpty()) {
+            connection = connect(upstream);
+        } else {
+            hedged = balancer.select(candidates, clientAddress);
+            winner = new AtomicReference<>();
+
+            connection = Mono.firstWithValue(keepIfFirst(connect(upstream), winner),
+                Mono.delay(threshold.get())
+                    .then(Mono.defer(() -> {
+                        log.debug("Hedging connection to {} with {}, after {} ms", upstream, hedged, threshold.get()
+                            .toMillis());
+                        tried.add(hedged);
+                        return keepIfFirst(connect(hedged), winner);
+                    })));
+        }
+
+        return connection;
+    }
+
+    /**
+     * Lets the connection through only if it is the first one established. Otherwise it is closed.
+     *
+     * @param connection
+     *            connection to check
+     * @param winner
+     *            first connection established
+     * @return a {@code Mono} with the connection, if it is the first one, or empty otherwise
+     */
+    private final Mono<Connection> keepIfFirst(final Mono<? extends Connection> connection,
+            final AtomicReference<Connection> winner) {
+        return connection.cast(Connection.class)
+            .filter(c -> {
+                final boolean first;
+
+                first = winner.compareAndSet(null, c);
+                if (!first) {
+                    log.debug("Closing slower hedged connection");
+                    c.dispose();
+                }
+
+                return first;
+            });
+    }
+
+    /**
+     * Probes the upstream, by opening a connection and closing it.
+     *
+     * @param upstream
+     *            upstream to probe
+     * @return a {@code Mono} which completes once connected
+     */
+    private final Mono<?> probe(final Upstream upstream) {
+        log.trace("Probing {}", upstream);
+
+        return probeClients.get(upstream)
+            .connect()
+            .doOnNext(Connection::dispose);
+    }
+
+    /**
+     * Records into the health monitor the connections reset by the upstream.
+     */
+    private final class UpstreamFailureHandler extends ChannelInboundHandlerAdapter {
+
+        /**
+         * Upstream of the connection.
+         */
+        private final Upstream upstream;
+
+        /**
+         * Constructs a handler for a connection to the received upstream.
+         *
+         * @param upstrm
+         *            upstream of the connection
+         */
+        public UpstreamFailureHandler(final Upstream upstrm) {
+            super();
+
+            upstream = upstrm;
+        }
+
+        @Override
+        public final void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+            if (cause instanceof IOException) {
+                healthMonitor.recordFailure(upstream, cause);
+                metrics.onUpstreamError(upstream);
+            }
+            ctx.fireExceptionCaught(cause);
+        }
 
-        return TcpClient.create()
-            // Wiretap
-            .wiretap(wiretap)
-            // Connect to target
-            .host(host)
-            .port(port)
-            .connect();
     }
 
 }
@@ -0,0 +1,91 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.balance;
+
+import java.util.List;
+
+/**
+ * Load balancing strategies.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public enum BalanceStrategy {
+
+    /**
+     * Hashes the client host, so each client always goes to the same upstream.
+     */
+    CONSISTENT_HASH {
+
+        @Override
+        public final LoadBalancer createBalancer(final List<Upstream> upstreams) {
+            return new ConsistentHashLoadBalancer(upstreams);
+        }
+
+    },
+    /**
+     * Chooses the upstream with fewer connections.
+     */
+    LEAST_ACTIVE {
+
+        @Override
+        public final LoadBalancer createBalancer(final List<Upstream> upstreams) {
+            return new LeastActiveLoadBalancer();
+        }
+
+    },
+    /**
+     * Chooses the least loaded of two random upstreams, and the fastest to connect on ties.
+     */
+    POWER_OF_TWO {
+
+        @Override
+        public final LoadBalancer createBalancer(final List<Upstream> upstreams) {
+            return new PowerOfTwoChoicesLoadBalancer();
+        }
+
+    },
+    /**
+     * Chooses each upstream in turn.
+     */
+    ROUND_ROBIN {
+
+        @Override
+        public final LoadBalancer createBalancer(final List<Upstream> upstreams) {
+            return new RoundRobinLoadBalancer();
+        }
+
+    };
+
+    /**
+     * Creates a load balancer for the received upstreams.
+     *
+     * @param upstreams
+     *            upstreams to balance
+     * @return a load balancer for the upstreams
+     */
+    public abstract LoadBalancer createBalancer(final List<Upstream> upstreams);
+
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.balance;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Chooses the upstream by hashing the client host, so the connections from the same client go to the same upstream.
+ * The client port is not hashed, as it changes with each connection.
+ * <h2>Hash ring</h2>
+ * <p>
+ * Each upstream is placed in a ring many times, as virtual nodes, which spreads the clients evenly. A client goes to
+ * the first upstream found in the ring after its hash. If that upstream is not a candidate, the search continues
+ * along the ring, so only the clients of the missing upstream are moved, and they are spread among the other ones.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class ConsistentHashLoadBalancer implements LoadBalancer {
+
+    /**
+     * FNV-1a 64 bits offset basis.
+     */
+    private static final long                  FNV_OFFSET    = 0xcbf29ce484222325L;
+
+    /**
+     * FNV-1a 64 bits prime.
+     */
+    private static final long                  FNV_PRIME     = 0x100000001b3L;
+
+    /**
+     * Number of times each upstream is placed in the ring.
+     */
+    private static final int                   VIRTUAL_NODES = 160;
+
+    /**
+     * Hash ring.
+     */
+    private final NavigableMap<Long, Upstream> ring          = new TreeMap<>();
+
+    /**
+     * Constructs a balancer for the received upstreams. Only these upstreams will ever be chosen.
+     *
+     * @param upstreams
+     *            upstreams to place in the ring
+     */
+    public ConsistentHashLoadBalancer(final List<Upstream> upstreams) {
+        super();
+
+        for (final Upstream upstream : upstreams) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(upstream + "#" + i), upstream);
+            }
+        }
+    }
+
+    /**
+     * Hashes the received text. Uses FNV-1a, with a final mix so similar texts, such as close IP addresses, end in
+     * distant points of the ring.
+     *
+     * @param text
+     *            text to hash
+     * @return the hash
+     */
+    private static final long hash(final String text) {
+        long hash;
+
+        hash = FNV_OFFSET;
+        for (final byte b : text.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+
+        // Murmur3 finalizer
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    @Override
+    public final Upstream select(final List<Upstream> candidates, final SocketAddress clientAddress) {
+        final long key;
+        Upstream   selected;
+
+        key = hash(getClientHost(clientAddress));
+
+        selected = null;
+        for (final Entry<Long, Upstream> node : ring.tailMap(key, true)
+            .entrySet()) {
+            if (candidates.contains(node.getValue())) {
+                selected = node.getValue();
+                break;
+            }
+        }
+        if (selected == null) {
+            // Wraps around the ring
+            for (final Entry<Long, Upstream> node : ring.headMap(key, false)
+                .entrySet()) {
+                if (candidates.contains(node.getValue())) {
+                    selected = node.getValue();
+                    break;
+                }
+            }
+        }
+        if (selected == null) {
+            // Candidate not in the ring
+            selected = candidates.get(0);
+        }
+
+        return selected;
+    }
+
+    /**
+     * Returns the host part of the client address.
+     *
+     * @param clientAddress
+     *            client address
+     * @return the client host
+     */
+    private final String getClientHost(final SocketAddress clientAddress) {
+        final String host;
+
+        if ((clientAddress instanceof InetSocketAddress) && !((InetSocketAddress) clientAddress).isUnresolved()) {
+            host = ((InetSocketAddress) clientAddress).getAddress()
+                .getHostAddress();
+        } else {
+            host = String.valueOf(clientAddress);
+        }
+
+        return host;
+    }
+
+}
@@ -0,0 +1,75 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.balance;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the candidate with the fewest connections. Connections being established are counted too, otherwise a burst
+ * of clients would all go to the same upstream.
+ * <p>
+ * Each selection starts looking at a different candidate, so ties are spread among all of them.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class LeastActiveLoadBalancer implements LoadBalancer {
+
+    /**
+     * Selection counter, to choose the first candidate checked.
+     */
+    private final AtomicInteger counter = new AtomicInteger();
+
+    /**
+     * Default constructor.
+     */
+    public LeastActiveLoadBalancer() {
+        super();
+    }
+
+    @Override
+    public final Upstream select(final List<Upstream> candidates, final SocketAddress clientAddress) {
+        final int start;
+        Upstream  selected;
+        Upstream  candidate;
+        int       load;
+
+        start = Math.floorMod(counter.getAndIncrement(), candidates.size());
+        selected = candidates.get(start);
+        load = selected.getLoad();
+        for (int i = 1; i < candidates.size(); i++) {
+            candidate = candidates.get((start + i) % candidates.size());
+            if (candidate.getLoad() < load) {
+                selected = candidate;
+                load = candidate.getLoad();
+            }
+        }
+
+        return selected;
+    }
+
+}
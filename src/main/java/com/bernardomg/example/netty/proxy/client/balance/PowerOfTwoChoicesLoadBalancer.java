@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.balance;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks two random candidates, and chooses the one with the fewest connections. Ties are resolved by the connect
+ * latency.
+ * <p>
+ * Comparing only two candidates avoids sending all the new connections to the single least loaded upstream, while
+ * still moving most of the load away from busy upstreams.
+ * <h2>Unknown latency</h2>
+ * <p>
+ * Upstreams with no connection yet have no latency. These are taken as the slowest ones, as an upstream which only
+ * failed to connect also has none. They still get new connections, as the load is compared first, and an upstream
+ * without connections wins against any other with them.
+ * <p>
+ * Failed connects make the latency worse, see {@link Upstream#onConnectFailed()}, so an upstream refusing connections
+ * quickly doesn't look like the fastest one.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class PowerOfTwoChoicesLoadBalancer implements LoadBalancer {
+
+    /**
+     * Default constructor.
+     */
+    public PowerOfTwoChoicesLoadBalancer() {
+        super();
+    }
+
+    @Override
+    public final Upstream select(final List<Upstream> candidates, final SocketAddress clientAddress) {
+        final ThreadLocalRandom random;
+        final Upstream          first;
+        final Upstream          second;
+        final int               firstIndex;
+        final int               firstLoad;
+        final int               secondLoad;
+        final Upstream          selected;
+        int                     secondIndex;
+
+        if (candidates.size() == 1) {
+            selected = candidates.get(0);
+        } else {
+            random = ThreadLocalRandom.current();
+
+            // Two different candidates
+            firstIndex = random.nextInt(candidates.size());
+            secondIndex = random.nextInt(candidates.size() - 1);
+            if (secondIndex >= firstIndex) {
+                secondIndex++;
+            }
+            first = candidates.get(firstIndex);
+            second = candidates.get(secondIndex);
+
+            firstLoad = first.getLoad();
+            secondLoad = second.getLoad();
+            if (firstLoad < secondLoad) {
+                selected = first;
+            } else if (firstLoad > secondLoad) {
+                selected = second;
+            } else if (getLatency(first) <= getLatency(second)) {
+                selected = first;
+            } else {
+                selected = second;
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * Returns the upstream connect latency, taking an unknown latency as the worst one.
+     *
+     * @param upstream
+     *            upstream to check
+     * @return the connect latency, in nanoseconds
+     */
+    private final long getLatency(final Upstream upstream) {
+        final long latency;
+
+        if (upstream.getConnectLatency()
+            .isZero()) {
+            latency = Long.MAX_VALUE;
+        } else {
+            latency = upstream.getConnectLatency()
+                .toNanos();
+        }
+
+        return latency;
+    }
+
+}
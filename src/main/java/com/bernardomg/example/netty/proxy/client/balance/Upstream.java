@@ -0,0 +1,215 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.balance;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * Server to which the proxy connects. Along with its address, this keeps what the proxy has observed about it, which
+ * is used by the load balancers.
+ * <h2>Connect latency</h2>
+ * <p>
+ * The latency is an exponentially weighted moving average of the time taken by the last connections. This way it
+ * follows changes in the server performance, without jumping on each single slow connection.
+ * <p>
+ * Each failed connect doubles the latency, as the time taken to fail says nothing about the server. A refused
+ * connection fails right away, and would otherwise make the server look fast.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class Upstream {
+
+    /**
+     * Weight of the last connection in the latency average.
+     */
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    /**
+     * Established connections.
+     */
+    private final AtomicInteger active         = new AtomicInteger();
+
+    /**
+     * Average connect latency, in nanoseconds. Zero until the first connection.
+     */
+    private final AtomicLong    connectLatency = new AtomicLong();
+
+    /**
+     * Server host.
+     */
+    @Getter
+    private final String        host;
+
+    /**
+     * Connections being established.
+     */
+    private final AtomicInteger pending        = new AtomicInteger();
+
+    /**
+     * Server port.
+     */
+    @Getter
+    private final int           port;
+
+    /**
+     * Constructs an upstream for the received address.
+     *
+     * @param hst
+     *            server host
+     * @param prt
+     *            server port
+     */
+    public Upstream(final String hst, final int prt) {
+        super();
+
+        host = Objects.requireNonNull(hst);
+        port = prt;
+    }
+
+    /**
+     * Parses an upstream in {@code host:port} format.
+     *
+     * @param address
+     *            address to parse
+     * @return the upstream for the address
+     * @throws IllegalArgumentException
+     *             if the address is not in {@code host:port} format
+     */
+    public static final Upstream parse(final String address) {
+        final int separator;
+        final int prt;
+
+        separator = address.lastIndexOf(':');
+        if ((separator <= 0) || (separator == (address.length() - 1))) {
+            throw new IllegalArgumentException(String.format("Invalid target %s, expected host:port", address));
+        }
+
+        try {
+            prt = Integer.parseInt(address.substring(separator + 1));
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid port in target %s", address), e);
+        }
+
+        return new Upstream(address.substring(0, separator), prt);
+    }
+
+    /**
+     * Returns the number of established connections.
+     *
+     * @return the number of established connections
+     */
+    public final int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Returns the average connect latency. Zero if there has been no connection yet.
+     *
+     * @return the average connect latency
+     */
+    public final Duration getConnectLatency() {
+        return Duration.ofNanos(connectLatency.get());
+    }
+
+    /**
+     * Returns the number of connections, both established and being established.
+     *
+     * @return the current number of connections
+     */
+    public final int getLoad() {
+        return active.get() + pending.get();
+    }
+
+    /**
+     * Records that a connection was closed.
+     */
+    public final void onClosed() {
+        active.decrementAndGet();
+    }
+
+    /**
+     * Records that a connection was established.
+     *
+     * @param nanos
+     *            time taken to connect, in nanoseconds
+     */
+    public final void onConnected(final long nanos) {
+        active.incrementAndGet();
+        connectLatency.updateAndGet(l -> {
+            final long average;
+
+            if (l == 0) {
+                average = nanos;
+            } else {
+                average = (long) ((LATENCY_WEIGHT * nanos) + ((1 - LATENCY_WEIGHT) * l));
+            }
+
+            return average;
+        });
+    }
+
+    /**
+     * Records that a connection attempt failed. This doubles the average latency, if there is one.
+     */
+    public final void onConnectFailed() {
+        connectLatency.updateAndGet(l -> {
+            final long average;
+
+            if (l > (Long.MAX_VALUE / 2)) {
+                average = Long.MAX_VALUE;
+            } else {
+                average = l * 2;
+            }
+
+            return average;
+        });
+    }
+
+    /**
+     * Records that a connection attempt finished, whatever the result.
+     */
+    public final void onConnectFinished() {
+        pending.decrementAndGet();
+    }
+
+    /**
+     * Records that a connection attempt started.
+     */
+    public final void onConnecting() {
+        pending.incrementAndGet();
+    }
+
+    @Override
+    public final String toString() {
+        return host + ":" + port;
+    }
+
+}
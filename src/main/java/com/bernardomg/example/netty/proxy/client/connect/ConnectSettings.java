@@ -0,0 +1,83 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.connect;
+
+import java.time.Duration;
+
+import io.netty.handler.ssl.SslContext;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for connecting to the upstreams.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public final class ConnectSettings {
+
+    /**
+     * Hedge flag. If active, a second connection to another upstream is started when the first one is slower than
+     * usual, and the first one to connect is used.
+     */
+    private final boolean    hedge;
+
+    /**
+     * Connect latency percentile after which the hedged connection starts.
+     */
+    private final double     hedgePercentile;
+
+    /**
+     * PROXY protocol flag. If active, each connection starts with a PROXY protocol v2 header, with the original client
+     * address.
+     */
+    private final boolean    proxyProtocol;
+
+    /**
+     * Number of times a failed connection is retried, each time on a different upstream.
+     */
+    private final int        retries;
+
+    /**
+     * Maximum time to connect to an upstream.
+     */
+    @NonNull
+    private final Duration   timeout;
+
+    /**
+     * TLS context for the connections. If null, they are plain TCP. Should be shared by all the clients, so they can
+     * resume the sessions of each upstream.
+     */
+    private final SslContext tls;
+
+    /**
+     * Hostname verification flag. If active, the upstream certificate should be for the upstream host.
+     */
+    private final boolean    verifyHostname;
+
+}
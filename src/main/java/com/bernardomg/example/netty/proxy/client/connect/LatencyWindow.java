@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.connect;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the last latencies, to find out a percentile among them. Thread safe.
+ * <p>
+ * The percentile requires sorting the window, so it is only computed again after a number of new samples. Until there
+ * are enough samples, there is no percentile.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class LatencyWindow {
+
+    /**
+     * Samples required before computing the percentile.
+     */
+    private static final int      MIN_SAMPLES     = 32;
+
+    /**
+     * New samples after which the percentile is computed again.
+     */
+    private static final int      REFRESH         = 64;
+
+    /**
+     * Number of samples kept. Power of two, so the position is a mask of the count.
+     */
+    private static final int      SIZE            = 1024;
+
+    /**
+     * Number of samples recorded.
+     */
+    private final AtomicLong      count           = new AtomicLong();
+
+    /**
+     * Percentile to compute, between 0 and 100.
+     */
+    private final double          percentile;
+
+    /**
+     * Sample count when the percentile was computed.
+     */
+    private volatile long         percentileCount;
+
+    /**
+     * Last computed percentile value, in nanoseconds.
+     */
+    private volatile long         percentileNanos;
+
+    /**
+     * Latency samples, in nanoseconds.
+     */
+    private final AtomicLongArray samples         = new AtomicLongArray(SIZE);
+
+    /**
+     * Constructs a window for the received percentile.
+     *
+     * @param prcntl
+     *            percentile to compute, between 0 and 100
+     */
+    public LatencyWindow(final double prcntl) {
+        super();
+
+        if ((prcntl <= 0) || (prcntl > 100)) {
+            throw new IllegalArgumentException("Percentile should be between 0 and 100, received " + prcntl);
+        }
+
+        percentile = prcntl;
+    }
+
+    /**
+     * Returns the latency percentile. Empty until there are enough samples.
+     *
+     * @return the latency percentile
+     */
+    public final Optional<Duration> getPercentile() {
+        final long               recorded;
+        final Optional<Duration> result;
+
+        recorded = count.get();
+        if (recorded < MIN_SAMPLES) {
+            result = Optional.empty();
+        } else {
+            if (((recorded - percentileCount) >= REFRESH) || (percentileNanos == 0)) {
+                percentileNanos = computePercentile(recorded);
+                percentileCount = recorded;
+            }
+            result = Optional.of(Duration.ofNanos(percentileNanos));
+        }
+
+        return result;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos
+     *            latency in nanoseconds
+     */
+    public final void record(final long nanos) {
+        samples.set((int) (count.getAndIncrement() & (SIZE - 1)), nanos);
+    }
+
+    /**
+     * Computes the percentile over the current samples.
+     *
+     * @param recorded
+     *            number of samples recorded
+     * @return the percentile value, in nanoseconds
+     */
+    private final long computePercentile(final long recorded) {
+        final long[] sorted;
+        final int    index;
+
+        sorted = new long[(int) Math.min(recorded, SIZE)];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+
+        index = (int) Math.ceil((percentile / 100) * sorted.length) - 1;
+
+        return sorted[Math.max(0, index)];
+    }
+
+}
@@ -0,0 +1,211 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.health;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps track of the health of the upstreams, and ejects those which keep failing.
+ * <h2>Passive checks</h2>
+ * <p>
+ * The client records the result of each connection to an upstream, and of each connection reset by it. Consecutive
+ * failures eject the upstream, for a time which grows exponentially if it keeps failing.
+ * <h2>Active checks</h2>
+ * <p>
+ * If there is a probe interval, all the upstreams are probed periodically. So dead upstreams are found before a client
+ * is sent to them, and upstreams without traffic are known to have recovered.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class HealthMonitor {
+
+    /**
+     * Health of each upstream.
+     */
+    private final Map<Upstream, UpstreamHealth> health   = new LinkedHashMap<>();
+
+    /**
+     * Active probes subscription.
+     */
+    private final Disposable.Swap               probes   = Disposables.swap();
+
+    /**
+     * Health settings.
+     */
+    private final HealthSettings                settings;
+
+    /**
+     * Constructs a monitor for the received upstreams.
+     *
+     * @param upstreams
+     *            upstreams to monitor
+     * @param sttngs
+     *            health settings
+     */
+    public HealthMonitor(final List<Upstream> upstreams, final HealthSettings sttngs) {
+        super();
+
+        settings = Objects.requireNonNull(sttngs);
+
+        for (final Upstream upstream : upstreams) {
+            health.put(upstream, new UpstreamHealth(upstream, settings));
+        }
+    }
+
+    /**
+     * Returns the healthy upstreams among the received ones.
+     *
+     * @param upstreams
+     *            upstreams to filter
+     * @return the healthy upstreams
+     */
+    public final List<Upstream> getHealthy(final List<Upstream> upstreams) {
+        final List<Upstream> healthy;
+        final long           now;
+
+        now = System.nanoTime();
+        healthy = new ArrayList<>(upstreams.size());
+        for (final Upstream upstream : upstreams) {
+            if (health.get(upstream)
+                .isHealthy(now)) {
+                healthy.add(upstream);
+            }
+        }
+
+        return healthy;
+    }
+
+    /**
+     * Returns a snapshot of the health of all the upstreams.
+     *
+     * @return the health of all the upstreams
+     */
+    public final List<UpstreamHealthStatus> getStatus() {
+        final List<UpstreamHealthStatus> status;
+        final long                       now;
+
+        now = System.nanoTime();
+        status = new ArrayList<>(health.size());
+        for (final UpstreamHealth upstreamHealth : health.values()) {
+            status.add(upstreamHealth.getStatus(now));
+        }
+
+        return status;
+    }
+
+    /**
+     * Records a failure in the upstream, such as a failed connection or a reset.
+     *
+     * @param upstream
+     *            failed upstream
+     * @param cause
+     *            failure cause
+     */
+    public final void recordFailure(final Upstream upstream, final Throwable cause) {
+        final Duration ejectionTime;
+
+        log.debug("Failure in {}: {}", upstream, cause.getMessage());
+
+        ejectionTime = health.get(upstream)
+            .recordFailure(System.nanoTime());
+        if (!ejectionTime.isZero()) {
+            log.warn("Ejected {} for {} ms", upstream, ejectionTime.toMillis());
+        }
+    }
+
+    /**
+     * Records a success in the upstream, such as an established connection.
+     *
+     * @param upstream
+     *            upstream which succeeded
+     */
+    public final void recordSuccess(final Upstream upstream) {
+        health.get(upstream)
+            .recordSuccess(System.nanoTime());
+    }
+
+    /**
+     * Starts probing the upstreams periodically. Does nothing if there is no probe interval.
+     *
+     * @param probe
+     *            probe for an upstream, which completes once the probe succeeds
+     */
+    public final void start(final Function<Upstream, Mono<?>> probe) {
+        if (settings.getProbeInterval()
+            .compareTo(Duration.ZERO) > 0) {
+            log.debug("Probing upstreams every {} ms", settings.getProbeInterval()
+                .toMillis());
+
+            probes.update(Flux.interval(settings.getProbeInterval())
+                .onBackpressureDrop()
+                .concatMap(t -> Flux.fromIterable(health.keySet())
+                    .flatMap(u -> probe(u, probe)))
+                .subscribe());
+        }
+    }
+
+    /**
+     * Stops probing the upstreams.
+     */
+    public final void stop() {
+        probes.dispose();
+    }
+
+    /**
+     * Probes the upstream, recording the result.
+     *
+     * @param upstream
+     *            upstream to probe
+     * @param probe
+     *            probe for the upstream
+     * @return a {@code Mono} which completes after the probe
+     */
+    private final Mono<?> probe(final Upstream upstream, final Function<Upstream, Mono<?>> probe) {
+        return probe.apply(upstream)
+            .timeout(settings.getProbeTimeout())
+            .doOnSuccess(r -> recordSuccess(upstream))
+            .onErrorResume(e -> {
+                recordFailure(upstream, e);
+                return Mono.empty();
+            });
+    }
+
+}
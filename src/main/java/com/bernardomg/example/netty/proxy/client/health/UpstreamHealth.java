@@ -0,0 +1,197 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.health;
+
+import java.time.Duration;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+/**
+ * Health of a single upstream. Ejects the upstream after a number of consecutive failures, for a time which doubles
+ * with each consecutive ejection.
+ * <p>
+ * Once the ejection ends, a single failure ejects the upstream again, until a success resets the failures. The
+ * ejections are forgotten after the upstream stays available for the maximum ejection time.
+ * <p>
+ * Failures received while ejected are ignored, as they are expected. Successes are recorded, but don't end the
+ * ejection.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class UpstreamHealth {
+
+    /**
+     * Consecutive failures since the last success.
+     */
+    private int                  consecutiveFailures;
+
+    /**
+     * Ejected flag. Kept after the ejection ends, until the first success.
+     */
+    private boolean              ejected;
+
+    /**
+     * Time, from {@link System#nanoTime()}, when the current ejection ends.
+     */
+    private long                 ejectedUntil;
+
+    /**
+     * Consecutive ejections.
+     */
+    private int                  ejections;
+
+    /**
+     * Health settings.
+     */
+    private final HealthSettings settings;
+
+    /**
+     * Upstream for this health.
+     */
+    private final Upstream       upstream;
+
+    /**
+     * Constructs the health for the received upstream.
+     *
+     * @param upstrm
+     *            upstream
+     * @param sttngs
+     *            health settings
+     */
+    public UpstreamHealth(final Upstream upstrm, final HealthSettings sttngs) {
+        super();
+
+        upstream = upstrm;
+        settings = sttngs;
+    }
+
+    /**
+     * Returns a snapshot of the health.
+     *
+     * @param now
+     *            current time, from {@link System#nanoTime()}
+     * @return the health status
+     */
+    public final synchronized UpstreamHealthStatus getStatus(final long now) {
+        final Duration ejectedFor;
+
+        if (isEjected(now)) {
+            ejectedFor = Duration.ofNanos(ejectedUntil - now);
+        } else {
+            ejectedFor = Duration.ZERO;
+        }
+
+        return new UpstreamHealthStatus(consecutiveFailures, ejectedFor, ejections, !isEjected(now), upstream);
+    }
+
+    /**
+     * Indicates if the upstream can be chosen for new connections.
+     *
+     * @param now
+     *            current time, from {@link System#nanoTime()}
+     * @return {@code true} if the upstream is healthy, {@code false} otherwise
+     */
+    public final synchronized boolean isHealthy(final long now) {
+        return !isEjected(now);
+    }
+
+    /**
+     * Records a failure. Returns the ejection time if this failure ejected the upstream.
+     *
+     * @param now
+     *            current time, from {@link System#nanoTime()}
+     * @return the ejection time, or zero if the upstream was not ejected
+     */
+    public final synchronized Duration recordFailure(final long now) {
+        final Duration ejectionTime;
+
+        if (isEjected(now)) {
+            ejectionTime = Duration.ZERO;
+        } else {
+            consecutiveFailures++;
+            if ((consecutiveFailures >= settings.getFailureThreshold()) || ejected) {
+                ejectionTime = getNextEjectionTime();
+                ejections++;
+                ejected = true;
+                ejectedUntil = now + ejectionTime.toNanos();
+            } else {
+                ejectionTime = Duration.ZERO;
+            }
+        }
+
+        return ejectionTime;
+    }
+
+    /**
+     * Records a success.
+     *
+     * @param now
+     *            current time, from {@link System#nanoTime()}
+     */
+    public final synchronized void recordSuccess(final long now) {
+        consecutiveFailures = 0;
+        if (!isEjected(now)) {
+            ejected = false;
+            if ((ejections > 0) && ((now - ejectedUntil) >= settings.getMaxEjectionTime()
+                .toNanos())) {
+                // Available for long enough
+                ejections = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the time for the next ejection.
+     *
+     * @return the next ejection time
+     */
+    private final Duration getNextEjectionTime() {
+        Duration time;
+
+        time = settings.getEjectionTime();
+        for (int i = 0; (i < ejections) && (time.compareTo(settings.getMaxEjectionTime()) < 0); i++) {
+            time = time.multipliedBy(2);
+        }
+
+        if (time.compareTo(settings.getMaxEjectionTime()) > 0) {
+            time = settings.getMaxEjectionTime();
+        }
+
+        return time;
+    }
+
+    /**
+     * Indicates if the upstream is currently ejected.
+     *
+     * @param now
+     *            current time, from {@link System#nanoTime()}
+     * @return {@code true} if the upstream is ejected, {@code false} otherwise
+     */
+    private final boolean isEjected(final long now) {
+        return ejected && ((now - ejectedUntil) < 0);
+    }
+
+}
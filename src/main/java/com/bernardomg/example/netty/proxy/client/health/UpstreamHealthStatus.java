@@ -0,0 +1,67 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.health;
+
+import java.time.Duration;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+import lombok.Value;
+
+/**
+ * Snapshot of the health of an upstream.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+public final class UpstreamHealthStatus {
+
+    /**
+     * Consecutive failures since the last success.
+     */
+    private final int      consecutiveFailures;
+
+    /**
+     * Time until the current ejection ends. Zero if not ejected.
+     */
+    private final Duration ejectedFor;
+
+    /**
+     * Consecutive ejections, which decide the next ejection time.
+     */
+    private final int      ejections;
+
+    /**
+     * Healthy flag. Unhealthy upstreams are not chosen for new connections.
+     */
+    private final boolean  healthy;
+
+    /**
+     * Upstream for this status.
+     */
+    private final Upstream upstream;
+
+}
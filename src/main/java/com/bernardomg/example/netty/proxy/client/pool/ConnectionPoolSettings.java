@@ -0,0 +1,71 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.pool;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for the pool of pre-established connections to the proxied server.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder
+public final class ConnectionPoolSettings {
+
+    /**
+     * Maximum time to wait for a connection from the pool.
+     */
+    @NonNull
+    private final Duration acquireTimeout;
+
+    /**
+     * Maximum time a connection can stay idle in the pool before being closed.
+     */
+    @NonNull
+    private final Duration maxIdleTime;
+
+    /**
+     * Maximum number of acquisitions which can be waiting for a connection. A negative value means no limit.
+     */
+    private final int      maxPending;
+
+    /**
+     * Maximum number of connections, both idle and in use, kept by the pool.
+     */
+    private final int      maxSize;
+
+    /**
+     * Number of idle connections the pool tries to keep open and ready to be used. What the server sends before a
+     * client takes them is lost.
+     */
+    private final int      minIdle;
+
+}
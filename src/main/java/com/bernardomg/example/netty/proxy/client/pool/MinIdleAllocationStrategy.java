@@ -0,0 +1,151 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.pool;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import reactor.netty.resources.ConnectionProvider.AllocationStrategy;
+
+/**
+ * Allocation strategy which keeps a number of spare connections ready for use. The pool only asks for new permits when
+ * there are no idle connections, so every time it is asked for a connection this strategy grants as many additional
+ * permits as the minimum idle size. These are used by the pool to open connections in the background, which will be
+ * waiting for the next acquisitions.
+ * <p>
+ * The total number of permits is still bounded by the maximum size.
+ * <p>
+ * The spare connections sit idle until a client takes them, so they lose anything the server sends first.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class MinIdleAllocationStrategy implements AllocationStrategy<MinIdleAllocationStrategy> {
+
+    /**
+     * Maximum number of permits.
+     */
+    private final int           maxSize;
+
+    /**
+     * Number of idle connections to keep.
+     */
+    private final int           minIdle;
+
+    /**
+     * Permits still available.
+     */
+    private final AtomicInteger permits;
+
+    /**
+     * Constructs a strategy with the received limits.
+     *
+     * @param minIdl
+     *            number of idle connections to keep
+     * @param maxSz
+     *            maximum number of permits
+     */
+    public MinIdleAllocationStrategy(final int minIdl, final int maxSz) {
+        super();
+
+        if (maxSz < 1) {
+            throw new IllegalArgumentException("Pool max size should be positive, received " + maxSz);
+        }
+        if ((minIdl < 0) || (minIdl > maxSz)) {
+            throw new IllegalArgumentException(
+                String.format("Pool min idle should be between 0 and %d, received %d", maxSz, minIdl));
+        }
+
+        minIdle = minIdl;
+        maxSize = maxSz;
+        permits = new AtomicInteger(maxSz);
+    }
+
+    @Override
+    public final MinIdleAllocationStrategy copy() {
+        return new MinIdleAllocationStrategy(minIdle, maxSize);
+    }
+
+    @Override
+    public final int estimatePermitCount() {
+        return permits.get();
+    }
+
+    @Override
+    public final int getPermits(final int desired) {
+        int available;
+        int toGrant;
+
+        if (desired < 0) {
+            return 0;
+        }
+
+        do {
+            available = permits.get();
+            if (desired == 0) {
+                // Warmup, only up to the minimum
+                toGrant = Math.max(0, minIdle - (maxSize - available));
+            } else {
+                // Acquisition with no idle connections, adds the spare ones
+                toGrant = desired + minIdle;
+            }
+            toGrant = Math.min(toGrant, available);
+        } while ((toGrant > 0) && !permits.compareAndSet(available, available - toGrant));
+
+        return toGrant;
+    }
+
+    @Override
+    public final int permitGranted() {
+        return maxSize - permits.get();
+    }
+
+    @Override
+    public final int permitMaximum() {
+        return maxSize;
+    }
+
+    @Override
+    public final int permitMinimum() {
+        return minIdle;
+    }
+
+    @Override
+    public final void returnPermits(final int returned) {
+        final int total;
+
+        total = permits.addAndGet(returned);
+        if (total > maxSize) {
+            throw new IllegalArgumentException(
+                String.format("Too many permits returned: returned %d, now %d, max %d", returned, total, maxSize));
+        }
+    }
+
+    @Override
+    public final String toString() {
+        return String.format("MinIdleAllocationStrategy[minIdle=%d, maxSize=%d, permits=%d]", minIdle, maxSize,
+            permits.get());
+    }
+
+}
@@ -0,0 +1,161 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.client.pool;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.ConnectionProvider.MeterRegistrar;
+
+/**
+ * Pool of connections to the proxied server. Wraps a Reactor Netty {@code ConnectionProvider}, which will keep a
+ * bounded number of connections, and open spare ones in advance so they are ready when a new client arrives.
+ * <h2>Connection reuse</h2>
+ * <p>
+ * A pooled connection is given to a single bridge. Once the bridge closes it the connection is removed from the pool,
+ * as the proxied protocol state can't be shared between clients. What the pool saves is the connection handshake, not
+ * the connection itself.
+ * <h2>Limitations</h2>
+ * <p>
+ * Spare connections are opened before there is a client for them. Anything the server sends before a client takes
+ * the connection is lost, so the pool doesn't work for protocols where the server speaks first, such as the greeting
+ * of most databases.
+ * <p>
+ * Pooled connections don't run on the event loop of the client taking them, so they are never spliced.
+ * <h2>Stats</h2>
+ * <p>
+ * The provider registers the metrics of each of its inner pools, one for each remote address. These are kept to
+ * return a snapshot of the pool state through {@link #getStats()}.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class UpstreamConnectionPool {
+
+    /**
+     * Metrics of each inner pool, by pool id.
+     */
+    private final Map<String, ConnectionPoolMetrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Reactor Netty connection provider.
+     */
+    private final ConnectionProvider                 provider;
+
+    /**
+     * Constructs a pool with the received settings.
+     *
+     * @param name
+     *            pool name
+     * @param settings
+     *            pool settings
+     */
+    public UpstreamConnectionPool(final String name, final ConnectionPoolSettings settings) {
+        super();
+
+        Objects.requireNonNull(settings);
+
+        provider = ConnectionProvider.builder(Objects.requireNonNull(name))
+            // Size
+            .allocationStrategy(new MinIdleAllocationStrategy(settings.getMinIdle(), settings.getMaxSize()))
+            // Acquisition
+            .pendingAcquireMaxCount(settings.getMaxPending())
+            .pendingAcquireTimeout(settings.getAcquireTimeout())
+            // Eviction
+            .maxIdleTime(settings.getMaxIdleTime())
+            .evictInBackground(settings.getMaxIdleTime())
+            // Stats
+            .metrics(true, PoolMetricsRegistrar::new)
+            .build();
+    }
+
+    /**
+     * Closes all the pooled connections.
+     */
+    public final void dispose() {
+        log.debug("Disposing connection pool {}", provider.name());
+
+        provider.dispose();
+    }
+
+    /**
+     * Returns the connection provider backing this pool.
+     *
+     * @return the connection provider
+     */
+    public final ConnectionProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * Returns a snapshot of the pool state. This adds up the stats of all the inner pools.
+     *
+     * @return the current pool stats
+     */
+    public final ConnectionPoolStats getStats() {
+        int active;
+        int idle;
+        int pending;
+
+        active = 0;
+        idle = 0;
+        pending = 0;
+        for (final ConnectionPoolMetrics poolMetrics : metrics.values()) {
+            active += poolMetrics.acquiredSize();
+            idle += poolMetrics.idleSize();
+            pending += poolMetrics.pendingAcquireSize();
+        }
+
+        return new ConnectionPoolStats(active, idle, pending);
+    }
+
+    /**
+     * Registrar which keeps the inner pool metrics.
+     */
+    private final class PoolMetricsRegistrar implements MeterRegistrar {
+
+        @Override
+        public final void deRegisterMetrics(final String poolName, final String id,
+                final SocketAddress remoteAddress) {
+            metrics.remove(id);
+        }
+
+        @Override
+        public final void registerMetrics(final String poolName, final String id, final SocketAddress remoteAddress,
+                final ConnectionPoolMetrics poolMetrics) {
+            log.debug("Registered pool {} for {}", id, remoteAddress);
+
+            metrics.put(id, poolMetrics);
+        }
+
+    }
+
+}
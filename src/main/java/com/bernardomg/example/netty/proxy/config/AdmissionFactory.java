@@ -0,0 +1,107 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionController;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionSettings;
+
+/**
+ * Creates the admission control for each listener. The client rates are shared by all the listeners, while the
+ * connection limits are taken from each listener.
+ * <p>
+ * When a listener is updated, its new admission control is created from the last one, with the new limits. So the
+ * connections still open count towards them, and the clients keep their buckets. Otherwise, each reload would let the
+ * listener go over its limits until the previous connections close.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class AdmissionFactory {
+
+    /**
+     * Last admission control created for each listener, by listener name.
+     */
+    private final Map<String, AdmissionController> controllers = new ConcurrentHashMap<>();
+
+    /**
+     * Proxy metrics.
+     */
+    private final ProxyMetrics                     metrics;
+
+    /**
+     * Admission settings, with the client rates.
+     */
+    private final AdmissionSettings                settings;
+
+    /**
+     * Constructs a factory for the received settings.
+     *
+     * @param sttngs
+     *            admission settings, with the client rates
+     * @param mtrcs
+     *            proxy metrics
+     */
+    public AdmissionFactory(final AdmissionSettings sttngs, final ProxyMetrics mtrcs) {
+        super();
+
+        settings = Objects.requireNonNull(sttngs);
+        metrics = Objects.requireNonNull(mtrcs);
+    }
+
+    /**
+     * Creates the admission control for a listener. If the listener already has one, the new one carries over its
+     * state.
+     *
+     * @param listener
+     *            listener settings
+     * @return the admission control
+     */
+    public final AdmissionController create(final ListenerSettings listener) {
+        final AdmissionSettings limits;
+
+        limits = settings.toBuilder()
+            .maxConnections(listener.getMaxConnections())
+            .maxClientConnections(listener.getMaxClientConnections())
+            .build();
+
+        return controllers.compute(listener.getName(), (name, previous) -> {
+            final AdmissionController controller;
+
+            if (previous == null) {
+                controller = new AdmissionController(limits, metrics);
+            } else {
+                controller = previous.update(limits);
+            }
+
+            return controller;
+        });
+    }
+
+}
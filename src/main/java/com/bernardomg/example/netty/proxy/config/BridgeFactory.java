@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import com.bernardomg.example.netty.proxy.server.bridge.BridgeSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.ConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.bridge.ProxyConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.bridge.SpliceConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEventDispatcher;
+
+import lombok.Builder;
+import lombok.NonNull;
+
+/**
+ * Creates the connection bridge for each listener. The dispatcher, buffer limit, backpressure stats and total byte
+ * rates are shared by all the listeners, while the idle timeout, byte rates for each connection and route name are
+ * taken from each listener.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Builder
+public final class BridgeFactory {
+
+    /**
+     * Event dispatcher, shared by all the listeners.
+     */
+    @NonNull
+    private final ProxyEventDispatcher dispatcher;
+
+    /**
+     * Settings for the bridges. The idle timeout, connection rates and correlation route are set for each listener.
+     */
+    @NonNull
+    private final BridgeSettings       settings;
+
+    /**
+     * Splicing flag. If active, the listeners which don't need to read the messages splice them.
+     */
+    private final boolean              spliced;
+
+    /**
+     * Creates the connection bridge for a listener. Splicing is only used if the listener has no byte rates, no PROXY
+     * protocol and no server name routes.
+     *
+     * @param listener
+     *            listener settings
+     * @return the connection bridge
+     */
+    public final ConnectionBridge create(final ListenerSettings listener) {
+        final ProxyConnectionBridge reactorBridge;
+        final ConnectionBridge      bridge;
+
+        reactorBridge = new ProxyConnectionBridge(dispatcher, settings.toBuilder()
+            .timeouts(settings.getTimeouts()
+                .toBuilder()
+                .idle(listener.getIdleTimeout())
+                .build())
+            .shaper(settings.getShaper()
+                .withConnectionRates(listener.getRequestRate(), listener.getResponseRate()))
+            .correlation(settings.getCorrelation()
+                .toBuilder()
+                .route(listener.getName())
+                .build())
+            .build());
+        // Splicing is only for the bare streams, without byte rates, PROXY protocol headers or peeked ClientHellos
+        // TLS and framing already disabled it
+        if (spliced && (listener.getRequestRate() <= 0) && (listener.getResponseRate() <= 0)
+                && !listener.isProxyProtocol() && !listener.isUpstreamProxyProtocol() && listener.getSniRoutes()
+                    .isEmpty()) {
+            bridge = new SpliceConnectionBridge(reactorBridge, settings.getMetrics());
+        } else {
+            bridge = reactorBridge;
+        }
+
+        return bridge;
+    }
+
+}
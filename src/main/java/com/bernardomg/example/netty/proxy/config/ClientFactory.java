@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.bernardomg.example.netty.proxy.client.ReactorNettyProxyClient;
+import com.bernardomg.example.netty.proxy.client.balance.LoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.connect.ConnectSettings;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+import com.bernardomg.example.netty.proxy.client.pool.ConnectionPoolSettings;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+
+/**
+ * Creates the proxy clients for the listeners. The event loops, health checks, pool and TLS are shared by all the
+ * listeners, while the connect timeout, retries, PROXY protocol and balancing are taken from each listener.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class ClientFactory {
+
+    /**
+     * Settings for the client channels.
+     */
+    private final ChannelSettings        channelSettings;
+
+    /**
+     * Settings for connecting to the targets.
+     */
+    private final ConnectSettings        connectSettings;
+
+    /**
+     * Settings for the target health checks.
+     */
+    private final HealthSettings         healthSettings;
+
+    /**
+     * Event loop resources.
+     */
+    private final ProxyLoopResources     loops;
+
+    /**
+     * Proxy metrics.
+     */
+    private final ProxyMetrics           metrics;
+
+    /**
+     * Settings for the connection pool. If null, the connections are not pooled.
+     */
+    private final ConnectionPoolSettings poolSettings;
+
+    /**
+     * Wiretap flag. Logs the traffic of the client connections.
+     */
+    private final boolean                wiretap;
+
+    /**
+     * Constructs a factory for the received settings.
+     *
+     * @param health
+     *            settings for the target health checks
+     * @param connect
+     *            settings for connecting to the targets
+     * @param pool
+     *            settings for the connection pool, if null the connections are not pooled
+     * @param lps
+     *            event loop resources
+     * @param channel
+     *            settings for the client channels
+     * @param mtrcs
+     *            proxy metrics
+     * @param wtap
+     *            wiretap flag
+     */
+    public ClientFactory(final HealthSettings health, final ConnectSettings connect,
+            final ConnectionPoolSettings pool, final ProxyLoopResources lps, final ChannelSettings channel,
+            final ProxyMetrics mtrcs, final boolean wtap) {
+        super();
+
+        healthSettings = Objects.requireNonNull(health);
+        connectSettings = Objects.requireNonNull(connect);
+        poolSettings = pool;
+        loops = Objects.requireNonNull(lps);
+        channelSettings = Objects.requireNonNull(channel);
+        metrics = Objects.requireNonNull(mtrcs);
+        wiretap = wtap;
+    }
+
+    /**
+     * Creates a proxy client for a listener, connecting to the received targets.
+     *
+     * @param listener
+     *            listener settings
+     * @param targets
+     *            targets for the client, in {@code host:port} format
+     * @return the proxy client
+     */
+    public final ReactorNettyProxyClient create(final ListenerSettings listener, final List<String> targets) {
+        final ReactorNettyProxyClient client;
+        final LoadBalancer            balancer;
+        final ConnectSettings         connect;
+        final List<Upstream>          upstreams;
+
+        upstreams = new ArrayList<>();
+        for (final String target : targets) {
+            upstreams.add(Upstream.parse(target));
+        }
+        balancer = listener.getBalance()
+            .createBalancer(upstreams);
+        connect = connectSettings.toBuilder()
+            .timeout(listener.getConnectTimeout())
+            .retries(listener.getRetries())
+            .proxyProtocol(listener.isUpstreamProxyProtocol())
+            .build();
+
+        if (poolSettings == null) {
+            client = new ReactorNettyProxyClient(upstreams, balancer, healthSettings, connect, loops, channelSettings,
+                metrics, wiretap);
+        } else {
+            client = new ReactorNettyProxyClient(upstreams, balancer, healthSettings, connect, poolSettings, loops,
+                channelSettings, metrics, wiretap);
+        }
+
+        return client;
+    }
+
+}
@@ -0,0 +1,227 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches a configuration file, and sends the new configuration each time the file changes.
+ * <p>
+ * The whole directory is watched, as some tools replace the file instead of writing into it, for example by moving a
+ * symbolic link. Any change in the directory rereads the file, but only a configuration different from the last one is
+ * sent. An invalid file is logged and ignored, keeping the last valid configuration.
+ * <p>
+ * Editors often write a file in several steps, so the file is read after the changes settle down for a short time.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ConfigurationWatcher {
+
+    /**
+     * Time without changes before the file is read, in milliseconds.
+     */
+    private static final long                  SETTLE_MILLIS = 200;
+
+    /**
+     * Last configuration sent.
+     */
+    private ProxyConfiguration                 current;
+
+    /**
+     * Defaults for the options missing in the file.
+     */
+    private final ListenerSettings             defaults;
+
+    /**
+     * Configuration file.
+     */
+    private final Path                         file;
+
+    /**
+     * Receives each new configuration.
+     */
+    private final Consumer<ProxyConfiguration> onChange;
+
+    /**
+     * Running flag.
+     */
+    private volatile boolean                   running;
+
+    /**
+     * Watch service for the file directory.
+     */
+    private WatchService                       service;
+
+    /**
+     * Thread waiting for changes.
+     */
+    private Thread                             watcher;
+
+    /**
+     * Constructs a watcher for the received file.
+     *
+     * @param fl
+     *            configuration file
+     * @param dflts
+     *            defaults for the options missing in the file
+     * @param initial
+     *            configuration already read from the file
+     * @param chng
+     *            receives each new configuration
+     */
+    public ConfigurationWatcher(final Path fl, final ListenerSettings dflts, final ProxyConfiguration initial,
+            final Consumer<ProxyConfiguration> chng) {
+        super();
+
+        file = fl.toAbsolutePath();
+        defaults = Objects.requireNonNull(dflts);
+        current = Objects.requireNonNull(initial);
+        onChange = Objects.requireNonNull(chng);
+    }
+
+    /**
+     * Starts watching the file.
+     */
+    public final void start() {
+        log.debug("Watching configuration file {}", file);
+
+        try {
+            service = file.getFileSystem()
+                .newWatchService();
+            file.getParent()
+                .register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        running = true;
+        watcher = new Thread(this::watch, "proxy-config");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    public final void stop() {
+        log.debug("Stopping configuration watcher");
+
+        running = false;
+        if (service != null) {
+            try {
+                // Wakes up the watcher thread
+                service.close();
+                watcher.join();
+            } catch (final IOException e) {
+                log.warn("Failed closing the configuration watcher: {}", e.getMessage());
+            } catch (final InterruptedException e) {
+                Thread.currentThread()
+                    .interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads the file, and sends the configuration if it changed.
+     */
+    private final void reload() {
+        ProxyConfiguration configuration;
+
+        try {
+            configuration = ProxyConfiguration.read(file, defaults);
+        } catch (final IOException | IllegalArgumentException e) {
+            log.warn("Ignoring configuration file change, keeping the last valid configuration: {}", e.getMessage());
+            configuration = null;
+        }
+
+        if (configuration == null) {
+            log.debug("Kept configuration");
+        } else if (configuration.equals(current)) {
+            log.debug("Configuration file changed, but not its configuration");
+        } else {
+            log.info("Reloading configuration from {}", file);
+            current = configuration;
+            try {
+                onChange.accept(configuration);
+            } catch (final RuntimeException e) {
+                log.error("Failed applying the configuration", e);
+            }
+        }
+    }
+
+    /**
+     * Waits until the changes stop for the settle time, discarding them.
+     *
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private final void settle() throws InterruptedException {
+        WatchKey key;
+
+        do {
+            Thread.sleep(SETTLE_MILLIS);
+            key = service.poll();
+            if (key != null) {
+                key.pollEvents();
+                key.reset();
+            }
+        } while (key != null);
+    }
+
+    /**
+     * Watcher loop. Reloads the file after each change, until stopped.
+     */
+    private final void watch() {
+        WatchKey key;
+
+        try {
+            while (running) {
+                key = service.take();
+                key.pollEvents();
+                key.reset();
+                settle();
+                reload();
+            }
+        } catch (final ClosedWatchServiceException e) {
+            log.debug("Configuration watcher closed");
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+
+}
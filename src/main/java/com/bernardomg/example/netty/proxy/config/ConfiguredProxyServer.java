@@ -0,0 +1,509 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.ProxyListener;
+import com.bernardomg.example.netty.proxy.server.ProxyRoute;
+import com.bernardomg.example.netty.proxy.server.ProxyServerSettings;
+import com.bernardomg.example.netty.proxy.server.ReactorNettyTcpProxyServer;
+import com.bernardomg.example.netty.proxy.server.Server;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.sni.SniSettings;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+
+import io.netty.handler.ssl.SslContext;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Serves all the listeners in a configuration from a single process. Each listener is a
+ * {@link ReactorNettyTcpProxyServer}, and all of them share the event loops.
+ * <h2>Reloading</h2>
+ * <p>
+ * A new configuration can be applied while running, without dropping the established connections:
+ * <ul>
+ * <li>New listeners are bound.</li>
+ * <li>Removed listeners stop accepting connections, and drain. Their connections go on until they close.</li>
+ * <li>Listeners with new settings, but the same port, change their route. Only the connections accepted after that use
+ * the new settings, such as the new targets.</li>
+ * <li>Listeners which change their port, or PROXY protocol flag, are removed and bound again.</li>
+ * </ul>
+ * <p>
+ * The routes left behind are disposed once all their connections close.
+ * <h2>Stopping</h2>
+ * <p>
+ * The server can be stopped gracefully, by draining it first. This stops accepting connections, and waits for the open
+ * ones to close, up to a deadline. Stopping closes any connection still open. Once draining starts no configuration is
+ * applied, as it would bind the listeners again.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ConfiguredProxyServer implements Server {
+
+    /**
+     * Time between checks for drained routes.
+     */
+    private static final Duration                           DRAIN_CHECK_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * Settings for the connection channels.
+     */
+    private final ChannelSettings                           channelSettings;
+
+    /**
+     * Current configuration.
+     */
+    private ProxyConfiguration                              configuration;
+
+    /**
+     * Periodic check for drained routes.
+     */
+    private Disposable                                      drainCheck;
+
+    /**
+     * Routes which are not used for new connections, waiting for their connections to close.
+     */
+    private final List<ProxyRoute>                          draining             = new ArrayList<>();
+
+    /**
+     * Event dispatcher, shared by all the listeners. Will receive the accepted connections.
+     */
+    private final ProxyEventDispatcher                      dispatcher;
+
+    /**
+     * Creates the lifecycle listener for each listener.
+     */
+    private final Function<ListenerSettings, ProxyListener> listeners;
+
+    /**
+     * Event loop resources, shared by all the listeners.
+     */
+    private final LoopResources                             loops;
+
+    /**
+     * Proxy metrics.
+     */
+    private final ProxyMetrics                              metrics;
+
+    /**
+     * Creates the route for each listener.
+     */
+    private final Function<ListenerSettings, ProxyRoute>    routes;
+
+    /**
+     * Servers for the listeners, by listener name.
+     */
+    private final Map<String, ReactorNettyTcpProxyServer>   servers              = new LinkedHashMap<>();
+
+    /**
+     * Settings of the running listeners, by listener name.
+     */
+    private final Map<String, ListenerSettings>             settings             = new HashMap<>();
+
+    /**
+     * Limits for reading the ClientHello, for the listeners routing by server name.
+     */
+    private final SniSettings                               sniSettings;
+
+    /**
+     * Stopping flag. Set once draining or stopping starts.
+     */
+    private boolean                                         stopping;
+
+    /**
+     * Released when the server stops.
+     */
+    private final CountDownLatch                            stopped              = new CountDownLatch(1);
+
+    /**
+     * TLS context for the connections accepted by all the listeners. If null, they are plain TCP.
+     */
+    private final SslContext                                tls;
+
+    /**
+     * Wiretap flag. Activates Reactor Netty wiretap logging.
+     */
+    private final boolean                                   wiretap;
+
+    /**
+     * Constructs a server for the listeners in the received configuration.
+     *
+     * @param cnfg
+     *            initial configuration
+     * @param rts
+     *            creates the route for each listener
+     * @param dsptchr
+     *            event dispatcher, receiving the accepted connections
+     * @param lstnrs
+     *            creates the lifecycle listener for each listener
+     * @param lps
+     *            event loop resources, should be the same used by the route clients
+     * @param chnnlSettings
+     *            settings for the connection channels
+     * @param snSettings
+     *            limits for reading the ClientHello, for the listeners routing by server name
+     * @param tlsContext
+     *            TLS context for the accepted connections, if null they are plain TCP
+     * @param mtrcs
+     *            proxy metrics
+     * @param wtap
+     *            wiretap flag
+     */
+    public ConfiguredProxyServer(final ProxyConfiguration cnfg, final Function<ListenerSettings, ProxyRoute> rts,
+            final ProxyEventDispatcher dsptchr, final Function<ListenerSettings, ProxyListener> lstnrs,
+            final LoopResources lps, final ChannelSettings chnnlSettings, final SniSettings snSettings,
+            final SslContext tlsContext, final ProxyMetrics mtrcs, final boolean wtap) {
+        super();
+
+        configuration = Objects.requireNonNull(cnfg);
+        routes = Objects.requireNonNull(rts);
+        dispatcher = Objects.requireNonNull(dsptchr);
+        listeners = Objects.requireNonNull(lstnrs);
+        loops = Objects.requireNonNull(lps);
+        channelSettings = Objects.requireNonNull(chnnlSettings);
+        sniSettings = Objects.requireNonNull(snSettings);
+        tls = tlsContext;
+        metrics = Objects.requireNonNull(mtrcs);
+        wiretap = wtap;
+    }
+
+    /**
+     * Applies a new configuration. Only the listeners whose settings changed are touched. A listener which fails to
+     * start is logged and skipped, so it doesn't stop the others.
+     * <p>
+     * The configuration is ignored if the server is stopping.
+     *
+     * @param cnfg
+     *            configuration to apply
+     */
+    public final synchronized void apply(final ProxyConfiguration cnfg) {
+        if (stopping) {
+            log.warn("Ignoring the configuration, as the server is stopping");
+        } else {
+            applyListeners(cnfg);
+            configuration = cnfg;
+        }
+    }
+
+    /**
+     * Stops accepting connections, and waits for the open ones to close. Stops waiting once the timeout is reached, or
+     * if interrupted, and then the connections still open can be closed by stopping the server.
+     * <p>
+     * While waiting, the connections still open are reported periodically.
+     *
+     * @param timeout
+     *            maximum time to wait for the connections to close
+     * @param progress
+     *            receives the number of connections still open
+     * @return {@code true} if all the connections closed, {@code false} otherwise
+     */
+    public final boolean drain(final Duration timeout, final IntConsumer progress) {
+        final long deadline;
+        long       remaining;
+        int        active;
+        boolean    interrupted;
+
+        log.debug("Draining listeners");
+
+        synchronized (this) {
+            stopping = true;
+            for (final ReactorNettyTcpProxyServer server : servers.values()) {
+                server.stop();
+            }
+        }
+
+        deadline = System.nanoTime() + timeout.toNanos();
+        remaining = timeout.toNanos();
+        active = getActive();
+        interrupted = false;
+        while ((active > 0) && (remaining > 0) && !interrupted) {
+            progress.accept(active);
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.min(remaining, DRAIN_CHECK_INTERVAL.toNanos()));
+            } catch (final InterruptedException e) {
+                Thread.currentThread()
+                    .interrupt();
+                interrupted = true;
+            }
+            remaining = deadline - System.nanoTime();
+            active = getActive();
+        }
+
+        log.debug("Drained listeners, {} connections still open", active);
+
+        return active == 0;
+    }
+
+    /**
+     * Returns the number of connections open, in all the routes. This includes the routes draining.
+     *
+     * @return the number of connections open
+     */
+    public final synchronized int getActive() {
+        int active;
+
+        active = 0;
+        for (final ProxyRoute route : getRoutes().values()) {
+            active += route.getAdmission()
+                .getActive();
+        }
+        for (final ProxyRoute route : draining) {
+            active += route.getAdmission()
+                .getActive();
+        }
+
+        return active;
+    }
+
+    /**
+     * Returns the configuration applied.
+     *
+     * @return the current configuration
+     */
+    public final synchronized ProxyConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the routes used for new connections, by listener name.
+     *
+     * @return the current routes
+     */
+    public final synchronized Map<String, ProxyRoute> getRoutes() {
+        final Map<String, ProxyRoute> current;
+
+        current = new LinkedHashMap<>();
+        for (final Map.Entry<String, ReactorNettyTcpProxyServer> entry : servers.entrySet()) {
+            current.put(entry.getKey(), entry.getValue()
+                .getRoute());
+        }
+
+        return current;
+    }
+
+    @Override
+    public final void listen() {
+        log.trace("Starting server listening");
+
+        try {
+            stopped.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+
+        log.trace("Stopped server listening");
+    }
+
+    @Override
+    public final synchronized void start() {
+        log.trace("Starting listeners");
+
+        for (final ListenerSettings listener : configuration.getListeners()) {
+            startListener(listener);
+        }
+
+        drainCheck = Flux.interval(DRAIN_CHECK_INTERVAL)
+            .subscribe(t -> disposeDrained());
+
+        log.trace("Started listeners");
+    }
+
+    @Override
+    public final synchronized void stop() {
+        log.trace("Stopping listeners");
+
+        stopping = true;
+        if (drainCheck != null) {
+            drainCheck.dispose();
+        }
+        for (final ReactorNettyTcpProxyServer server : servers.values()) {
+            server.stop();
+            server.getRoute()
+                .close();
+            server.getRoute()
+                .dispose();
+        }
+        // The servers are kept, so their routes can be queried after stopping
+        for (final ProxyRoute route : draining) {
+            route.close();
+            route.dispose();
+        }
+        draining.clear();
+
+        stopped.countDown();
+
+        log.trace("Stopped listeners");
+    }
+
+    /**
+     * Applies the listeners in the received configuration.
+     *
+     * @param cnfg
+     *            configuration to apply
+     */
+    private final void applyListeners(final ProxyConfiguration cnfg) {
+        final Map<String, ListenerSettings> updated;
+        final Set<String>                   names;
+        ListenerSettings                    current;
+
+        updated = new LinkedHashMap<>();
+        for (final ListenerSettings listener : cnfg.getListeners()) {
+            updated.put(listener.getName(), listener);
+        }
+
+        // Ports are released first, as another listener may take them
+        names = new HashSet<>(servers.keySet());
+        for (final String name : names) {
+            current = settings.get(name);
+            if (!updated.containsKey(name) || isRebound(current, updated.get(name))) {
+                log.info("Removing listener {} at port {}", name, current.getPort());
+                stopListener(name);
+            }
+        }
+
+        for (final ListenerSettings listener : updated.values()) {
+            current = settings.get(listener.getName());
+            if (current == null) {
+                log.info("Adding listener {} at port {}", listener.getName(), listener.getPort());
+                try {
+                    startListener(listener);
+                } catch (final RuntimeException e) {
+                    log.error("Failed starting listener {} at port {}: {}", listener.getName(), listener.getPort(),
+                        e.getMessage());
+                }
+            } else if (!current.equals(listener)) {
+                log.info("Updating listener {} at port {}, redirecting to {}", listener.getName(), listener.getPort(),
+                    listener.getTargets());
+                draining.add(servers.get(listener.getName())
+                    .reroute(routes.apply(listener)));
+                settings.put(listener.getName(), listener);
+            }
+        }
+    }
+
+    /**
+     * Disposes the routes with no connections left.
+     */
+    private final synchronized void disposeDrained() {
+        final Iterator<ProxyRoute> itr;
+        ProxyRoute                 route;
+
+        itr = draining.iterator();
+        while (itr.hasNext()) {
+            route = itr.next();
+            if (route.isDrained()) {
+                log.debug("Disposing drained route");
+                route.dispose();
+                itr.remove();
+            }
+        }
+    }
+
+    /**
+     * Checks if the listener has to be bound again to apply the new settings. This happens when the settings applied
+     * on binding change.
+     *
+     * @param current
+     *            current listener settings
+     * @param listener
+     *            new listener settings
+     * @return {@code true} if the listener has to be bound again, {@code false} otherwise
+     */
+    private final boolean isRebound(final ListenerSettings current, final ListenerSettings listener) {
+        return (current.getPort() != listener.getPort()) || (current.isProxyProtocol() != listener.isProxyProtocol());
+    }
+
+    /**
+     * Binds a listener.
+     *
+     * @param listener
+     *            settings for the listener
+     */
+    private final void startListener(final ListenerSettings listener) {
+        final ReactorNettyTcpProxyServer server;
+        final ProxyRoute                 route;
+
+        route = routes.apply(listener);
+        server = new ReactorNettyTcpProxyServer(ProxyServerSettings.builder()
+            .port(listener.getPort())
+            .route(route)
+            .loops(loops)
+            .channelSettings(channelSettings)
+            .dispatcher(dispatcher)
+            .listener(listeners.apply(listener))
+            .proxyProtocol(listener.isProxyProtocol())
+            .sniSettings(sniSettings)
+            .tls(tls)
+            .metrics(metrics)
+            .wiretap(wiretap)
+            .build());
+        try {
+            server.start();
+        } catch (final RuntimeException e) {
+            route.dispose();
+            throw e;
+        }
+
+        servers.put(listener.getName(), server);
+        settings.put(listener.getName(), listener);
+    }
+
+    /**
+     * Unbinds a listener. Its connections go on, and its route is disposed once they close.
+     *
+     * @param name
+     *            listener name
+     */
+    private final void stopListener(final String name) {
+        final ReactorNettyTcpProxyServer server;
+
+        server = servers.remove(name);
+        settings.remove(name);
+        server.stop();
+        draining.add(server.getRoute());
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.bernardomg.example.netty.proxy.client.balance.BalanceStrategy;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for a single listener. A listener is a port redirected to a group of targets, with its own options for the
+ * connections accepted in it.
+ * <p>
+ * Two listeners with equal settings are the same listener, so a reload only touches the listeners whose settings
+ * changed.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public final class ListenerSettings {
+
+    /**
+     * Load balancing strategy between the targets.
+     */
+    @NonNull
+    private final BalanceStrategy           balance;
+
+    /**
+     * Maximum time to connect to a target.
+     */
+    @NonNull
+    private final Duration                  connectTimeout;
+
+    /**
+     * Maximum time a connection can go without traffic in any direction. If not positive, there is no limit.
+     */
+    @NonNull
+    private final Duration                  idleTimeout;
+
+    /**
+     * Maximum open connections for each client. If not positive, there is no limit.
+     */
+    private final int                       maxClientConnections;
+
+    /**
+     * Maximum open connections for all the clients. If not positive, there is no limit.
+     */
+    private final int                       maxConnections;
+
+    /**
+     * Listener name. Identifies the listener between reloads.
+     */
+    @NonNull
+    private final String                    name;
+
+    /**
+     * Port to listen to.
+     */
+    private final int                       port;
+
+    /**
+     * PROXY protocol flag. If active, each connection should start with a PROXY protocol header, with the original
+     * client address.
+     */
+    private final boolean                   proxyProtocol;
+
+    /**
+     * Request bytes per second for each connection. If not positive, there is no limit.
+     */
+    private final long                      requestRate;
+
+    /**
+     * Response bytes per second for each connection. If not positive, there is no limit.
+     */
+    private final long                      responseRate;
+
+    /**
+     * Times a failed connection is retried, each time on another target.
+     */
+    private final int                       retries;
+
+    /**
+     * Targets for each server name, in {@code host:port} format. The names may be wildcards, such as
+     * {@code *.example.com}. Connections for other names go to the default targets.
+     */
+    @NonNull
+    private final Map<String, List<String>> sniRoutes;
+
+    /**
+     * Default targets, in {@code host:port} format. May be empty if there are server name routes.
+     */
+    @NonNull
+    private final List<String>              targets;
+
+    /**
+     * Upstream PROXY protocol flag. If active, each connection to the targets starts with a PROXY protocol v2 header,
+     * with the original client address.
+     */
+    private final boolean                   upstreamProxyProtocol;
+
+    /**
+     * Returns all the targets of this listener. These are the default targets, followed by the server name targets.
+     *
+     * @return all the listener targets
+     */
+    public final List<Upstream> getUpstreams() {
+        final List<Upstream> upstreams;
+
+        upstreams = new ArrayList<>();
+        for (final String target : targets) {
+            upstreams.add(Upstream.parse(target));
+        }
+        for (final List<String> routeTargets : sniRoutes.values()) {
+            for (final String target : routeTargets) {
+                upstreams.add(Upstream.parse(target));
+            }
+        }
+
+        return upstreams;
+    }
+
+}
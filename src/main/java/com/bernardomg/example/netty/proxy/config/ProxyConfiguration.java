@@ -0,0 +1,383 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import org.yaml.snakeyaml.error.YAMLException;
+
+import com.bernardomg.example.netty.proxy.client.balance.BalanceStrategy;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.server.sni.SniRoutingTable;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Proxy configuration, read from a YAML file. As YAML is a superset of JSON, JSON files can be read too.
+ * <p>
+ * The file contains a list of listeners, each one with its port and targets. The other options are optional, and
+ * default to the ones received when reading the file:
+ *
+ * <pre>
+ * listeners:
+ *   - name: web
+ *     port: 9090
+ *     targets: [ "localhost:8080", "localhost:8081" ]
+ *     balance: LEAST_CONNECTIONS
+ *     connectTimeout: 3000
+ *     retries: 2
+ *     idleTimeout: 60000
+ *     maxConnections: 10000
+ *     maxClientConnections: 100
+ *     proxyProtocol: false
+ *     upstreamProxyProtocol: false
+ *     requestRate: 0
+ *     responseRate: 1000000
+ *   - name: tls
+ *     port: 443
+ *     sniRoutes:
+ *       "api.example.com": [ "localhost:8443" ]
+ *       "*.example.com": [ "localhost:9443", "localhost:9444" ]
+ * </pre>
+ * <p>
+ * The SNI routes send each TLS connection to the targets for the server name in its ClientHello, without terminating
+ * TLS. Connections for other names go to the default targets, which are optional when there are SNI routes.
+ * <p>
+ * Times are in milliseconds, and rates in bytes per second. The name defaults to the port, and identifies the
+ * listener between reloads. Unknown options are rejected, so a typo is not silently ignored.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+public final class ProxyConfiguration {
+
+    /**
+     * Options accepted for each listener.
+     */
+    private static final Set<String>     OPTIONS   = Set.of("balance", "connectTimeout", "idleTimeout",
+        "maxClientConnections", "maxConnections", "name", "port", "proxyProtocol", "requestRate", "responseRate", "retries",
+        "sniRoutes", "targets", "upstreamProxyProtocol");
+
+    /**
+     * Reads the configuration stored in the received file.
+     *
+     * @param file
+     *            configuration file
+     * @param defaults
+     *            defaults for the options missing in the file. Its name, port and targets are ignored
+     * @return the configuration in the file
+     * @throws IOException
+     *             if the file can't be read
+     * @throws IllegalArgumentException
+     *             if the file is not a valid configuration
+     */
+    public static final ProxyConfiguration read(final Path file, final ListenerSettings defaults)
+            throws IOException {
+        final Yaml                   yaml;
+        final Object                 root;
+        final Object                 entries;
+        final List<ListenerSettings> listeners;
+        final Set<String>            names;
+        final Set<Integer>           ports;
+        ListenerSettings             listener;
+
+        yaml = new Yaml(new SafeConstructor(new LoaderOptions()));
+        try (final Reader reader = Files.newBufferedReader(file)) {
+            root = yaml.load(reader);
+        } catch (final YAMLException e) {
+            throw new IllegalArgumentException(String.format("Invalid configuration file %s: %s", file,
+                e.getMessage()), e);
+        }
+
+        if (!(root instanceof Map)) {
+            throw new IllegalArgumentException("The configuration should contain a listeners list");
+        }
+        entries = ((Map<?, ?>) root).get("listeners");
+        if (!(entries instanceof List) || ((List<?>) entries).isEmpty()) {
+            throw new IllegalArgumentException("The configuration should contain a listeners list");
+        }
+
+        listeners = new ArrayList<>();
+        names = new HashSet<>();
+        ports = new HashSet<>();
+        for (final Object entry : (List<?>) entries) {
+            if (!(entry instanceof Map)) {
+                throw new IllegalArgumentException("Each listener should be a map of options, found " + entry);
+            }
+            listener = readListener((Map<?, ?>) entry, defaults);
+            if (!names.add(listener.getName())) {
+                throw new IllegalArgumentException("Repeated listener name " + listener.getName());
+            }
+            if (!ports.add(listener.getPort())) {
+                throw new IllegalArgumentException("Repeated listener port " + listener.getPort());
+            }
+            listeners.add(listener);
+        }
+
+        return new ProxyConfiguration(listeners);
+    }
+
+    /**
+     * Returns the value of an option as a flag.
+     *
+     * @param name
+     *            listener name
+     * @param option
+     *            option name
+     * @param value
+     *            option value
+     * @return the value as a flag
+     */
+    private static final boolean getFlag(final String name, final String option, final Object value) {
+        if (!(value instanceof Boolean)) {
+            throw new IllegalArgumentException(String.format("Listener %s: %s should be true or false, found %s", name,
+                option, value));
+        }
+
+        return (Boolean) value;
+    }
+
+    /**
+     * Returns the value of an option as a duration in milliseconds.
+     *
+     * @param name
+     *            listener name
+     * @param option
+     *            option name
+     * @param value
+     *            option value
+     * @return the duration for the value
+     */
+    private static final Duration getMillis(final String name, final String option, final Object value) {
+        return Duration.ofMillis(getNumber(name, option, value).longValue());
+    }
+
+    /**
+     * Returns the value of an option as a number.
+     *
+     * @param name
+     *            listener name
+     * @param option
+     *            option name
+     * @param value
+     *            option value
+     * @return the value as a number
+     */
+    private static final Number getNumber(final String name, final String option, final Object value) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(String.format("Listener %s: %s should be a number, found %s", name,
+                option, value));
+        }
+
+        return (Number) value;
+    }
+
+    /**
+     * Returns the value of an option as the targets for each server name.
+     *
+     * @param name
+     *            listener name
+     * @param value
+     *            option value
+     * @return the targets for each server name
+     */
+    private static final Map<String, List<String>> getSniRoutes(final String name, final Object value) {
+        final Map<String, List<String>> routes;
+
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException(String.format(
+                "Listener %s: sniRoutes should be a map of server names to targets", name));
+        }
+
+        routes = new LinkedHashMap<>();
+        for (final Map.Entry<?, ?> route : ((Map<?, ?>) value).entrySet()) {
+            routes.put(String.valueOf(route.getKey()), getTargets(name, "sniRoutes", route.getValue()));
+        }
+
+        try {
+            // Validates the names
+            new SniRoutingTable<>(routes);
+        } catch (final IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Listener %s: %s", name, e.getMessage()), e);
+        }
+
+        return routes;
+    }
+
+    /**
+     * Returns the value of an option as a list of targets.
+     *
+     * @param name
+     *            listener name
+     * @param option
+     *            option name
+     * @param value
+     *            option value
+     * @return the targets for the value
+     */
+    private static final List<String> getTargets(final String name, final String option, final Object value) {
+        final List<String> targets;
+        String             target;
+
+        if (!(value instanceof List) || ((List<?>) value).isEmpty()) {
+            throw new IllegalArgumentException(String.format("Listener %s: %s should be a list of host:port", name,
+                option));
+        }
+
+        targets = new ArrayList<>();
+        for (final Object entry : (List<?>) value) {
+            target = String.valueOf(entry);
+            try {
+                Upstream.parse(target);
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Listener %s: %s", name, e.getMessage()), e);
+            }
+            targets.add(target);
+        }
+
+        return targets;
+    }
+
+    /**
+     * Reads the settings of a single listener.
+     *
+     * @param values
+     *            listener options
+     * @param defaults
+     *            defaults for the options missing
+     * @return the listener settings
+     */
+    private static final ListenerSettings readListener(final Map<?, ?> values, final ListenerSettings defaults) {
+        final ListenerSettings.ListenerSettingsBuilder builder;
+        final Object                                   port;
+        final String                                   name;
+        final int                                      portNumber;
+        Object                                         value;
+
+        port = values.get("port");
+        if (values.containsKey("name")) {
+            name = String.valueOf(values.get("name"));
+        } else {
+            name = String.valueOf(port);
+        }
+
+        for (final Object option : values.keySet()) {
+            if (!OPTIONS.contains(String.valueOf(option))) {
+                throw new IllegalArgumentException(String.format("Listener %s: unknown option %s", name, option));
+            }
+        }
+
+        portNumber = getNumber(name, "port", port).intValue();
+        if ((portNumber <= 0) || (portNumber > 0xffff)) {
+            throw new IllegalArgumentException(String.format("Listener %s: invalid port %s", name, port));
+        }
+
+        builder = defaults.toBuilder()
+            .name(name)
+            .port(portNumber)
+            .sniRoutes(Map.of())
+            .targets(List.of());
+
+        value = values.get("sniRoutes");
+        if (value != null) {
+            builder.sniRoutes(getSniRoutes(name, value));
+        }
+        // Without SNI routes, all the connections go to the default targets
+        value = values.get("targets");
+        if ((value != null) || !values.containsKey("sniRoutes")) {
+            builder.targets(getTargets(name, "targets", value));
+        }
+
+        value = values.get("balance");
+        if (value != null) {
+            try {
+                builder.balance(BalanceStrategy.valueOf(String.valueOf(value)));
+            } catch (final IllegalArgumentException e) {
+                throw new IllegalArgumentException(String.format("Listener %s: unknown balance strategy %s", name,
+                    value), e);
+            }
+        }
+        value = values.get("connectTimeout");
+        if (value != null) {
+            builder.connectTimeout(getMillis(name, "connectTimeout", value));
+        }
+        value = values.get("idleTimeout");
+        if (value != null) {
+            builder.idleTimeout(getMillis(name, "idleTimeout", value));
+        }
+        value = values.get("maxClientConnections");
+        if (value != null) {
+            builder.maxClientConnections(getNumber(name, "maxClientConnections", value).intValue());
+        }
+        value = values.get("maxConnections");
+        if (value != null) {
+            builder.maxConnections(getNumber(name, "maxConnections", value).intValue());
+        }
+        value = values.get("proxyProtocol");
+        if (value != null) {
+            builder.proxyProtocol(getFlag(name, "proxyProtocol", value));
+        }
+        value = values.get("requestRate");
+        if (value != null) {
+            builder.requestRate(getNumber(name, "requestRate", value).longValue());
+        }
+        value = values.get("responseRate");
+        if (value != null) {
+            builder.responseRate(getNumber(name, "responseRate", value).longValue());
+        }
+        value = values.get("retries");
+        if (value != null) {
+            builder.retries(getNumber(name, "retries", value).intValue());
+        }
+        value = values.get("upstreamProxyProtocol");
+        if (value != null) {
+            builder.upstreamProxyProtocol(getFlag(name, "upstreamProxyProtocol", value));
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Listeners, in the order they appear in the file.
+     */
+    @NonNull
+    private final List<ListenerSettings> listeners;
+
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.config;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.bernardomg.example.netty.proxy.client.Client;
+import com.bernardomg.example.netty.proxy.client.NoTargetClient;
+import com.bernardomg.example.netty.proxy.client.ReactorNettyProxyClient;
+import com.bernardomg.example.netty.proxy.server.ProxyRoute;
+import com.bernardomg.example.netty.proxy.server.sni.SniRoutingTable;
+
+/**
+ * Creates the route for each listener, with its admission control, bridge and clients. The clients created for the
+ * last route of each listener are kept, to report on them once stopped.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class RouteFactory implements Function<ListenerSettings, ProxyRoute> {
+
+    /**
+     * Admission control factory.
+     */
+    private final AdmissionFactory                                  admissionFactory;
+
+    /**
+     * Connection bridge factory.
+     */
+    private final BridgeFactory                                     bridgeFactory;
+
+    /**
+     * Proxy client factory.
+     */
+    private final ClientFactory                                     clientFactory;
+
+    /**
+     * Clients of each listener, by listener name. Each listener client is named after the listener, and the server
+     * name it serves, if any.
+     */
+    private final Map<String, Map<String, ReactorNettyProxyClient>> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a factory with the received factories.
+     *
+     * @param admission
+     *            admission control factory
+     * @param bridge
+     *            connection bridge factory
+     * @param client
+     *            proxy client factory
+     */
+    public RouteFactory(final AdmissionFactory admission, final BridgeFactory bridge, final ClientFactory client) {
+        super();
+
+        admissionFactory = Objects.requireNonNull(admission);
+        bridgeFactory = Objects.requireNonNull(bridge);
+        clientFactory = Objects.requireNonNull(client);
+    }
+
+    @Override
+    public final ProxyRoute apply(final ListenerSettings listener) {
+        final Map<String, ReactorNettyProxyClient> listenerClients;
+        final Map<String, Client>                  sniClients;
+        final Client                               client;
+        ReactorNettyProxyClient                    targetClient;
+
+        // Clients by name, for the final stats
+        listenerClients = new LinkedHashMap<>();
+        if (listener.getTargets()
+            .isEmpty()) {
+            // Only the server names have targets
+            client = NoTargetClient.INSTANCE;
+        } else {
+            targetClient = clientFactory.create(listener, listener.getTargets());
+            listenerClients.put(listener.getName(), targetClient);
+            client = targetClient;
+        }
+        sniClients = new LinkedHashMap<>();
+        for (final Map.Entry<String, List<String>> sniRoute : listener.getSniRoutes()
+            .entrySet()) {
+            targetClient = clientFactory.create(listener, sniRoute.getValue());
+            listenerClients.put(String.format("%s for %s", listener.getName(), sniRoute.getKey()), targetClient);
+            sniClients.put(sniRoute.getKey(), targetClient);
+        }
+        clients.put(listener.getName(), listenerClients);
+
+        return new ProxyRoute(admissionFactory.create(listener), bridgeFactory.create(listener), client,
+            new SniRoutingTable<>(sniClients));
+    }
+
+    /**
+     * Returns the clients of the last route created for a listener.
+     *
+     * @param listener
+     *            name of the listener
+     * @return the listener clients, by name
+     */
+    public final Map<String, ReactorNettyProxyClient> getClients(final String listener) {
+        return clients.getOrDefault(listener, Map.of());
+    }
+
+}
@@ -0,0 +1,309 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.load;
+
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.Connection;
+
+/**
+ * Sends messages through a single connection, and records their latency when they are echoed back.
+ * <p>
+ * All the sending and receiving happens in the connection event loop, so the state is not shared.
+ * <h2>Fixed rate</h2>
+ * <p>
+ * With a fixed rate each message has a time when it should be sent, which doesn't depend on how long the previous
+ * messages took. The latency is measured from this time, so when the connection stalls all the messages scheduled
+ * during the stall are delayed, and this shows in the latency. Otherwise the stall would count as a single slow message,
+ * which is known as coordinated omission.
+ * <p>
+ * The messages are sent by a timer, which won't tick more often than {@link #MIN_TICK_NANOS}. On each tick all the
+ * messages due are sent.
+ * <h2>Closed loop</h2>
+ * <p>
+ * Otherwise, a message is sent as soon as the previous one is echoed back. The latency can't be corrected in this case,
+ * as there is no schedule to compare with.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+final class LoadConnection {
+
+    /**
+     * Initial capacity of the outstanding messages queue.
+     */
+    private static final int   INITIAL_CAPACITY = 16;
+
+    /**
+     * Maximum number of messages waiting for the echo. Once reached, the messages due are skipped.
+     */
+    private static final int   MAX_OUTSTANDING  = 4096;
+
+    /**
+     * Minimum time between sending ticks.
+     */
+    private static final long  MIN_TICK_NANOS   = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Bytes received which don't complete a message yet.
+     */
+    private long               buffered;
+
+    /**
+     * Connection channel.
+     */
+    private final Channel      channel;
+
+    /**
+     * Connection sending the messages.
+     */
+    private final Connection   connection;
+
+    /**
+     * Time when each outstanding message should have been sent.
+     */
+    private long[]             intended         = new long[INITIAL_CAPACITY];
+
+    /**
+     * Time between messages. Zero for a closed loop.
+     */
+    private final long         interval;
+
+    /**
+     * Time when the next message should be sent.
+     */
+    private long               nextIntended;
+
+    /**
+     * Number of outstanding messages.
+     */
+    private int                outstanding;
+
+    /**
+     * Position of the first outstanding message.
+     */
+    private int                outstandingHead;
+
+    /**
+     * Message content. Shared by all the connections, so it is never modified.
+     */
+    private final ByteBuf      payload;
+
+    /**
+     * Load recorder.
+     */
+    private final LoadRecorder recorder;
+
+    /**
+     * Running flag. Once stopped, no more messages are sent, and closing the connection is not an error.
+     */
+    private volatile boolean   running;
+
+    /**
+     * Time when each outstanding message was actually sent.
+     */
+    private long[]             sent             = new long[INITIAL_CAPACITY];
+
+    /**
+     * Sending timer, for the fixed rate.
+     */
+    private ScheduledFuture<?> tick;
+
+    /**
+     * Constructs a load connection.
+     *
+     * @param conn
+     *            connection to send the messages
+     * @param pyld
+     *            message content
+     * @param intrvl
+     *            time between messages, in nanoseconds, or zero for a closed loop
+     * @param rcrdr
+     *            load recorder
+     */
+    public LoadConnection(final Connection conn, final ByteBuf pyld, final long intrvl, final LoadRecorder rcrdr) {
+        super();
+
+        connection = Objects.requireNonNull(conn);
+        channel = conn.channel();
+        payload = Objects.requireNonNull(pyld);
+        interval = intrvl;
+        recorder = Objects.requireNonNull(rcrdr);
+    }
+
+    /**
+     * Starts sending messages.
+     *
+     * @param offset
+     *            delay before the first message, to spread the connections over the interval
+     */
+    public final void start(final long offset) {
+        final long tickNanos;
+
+        running = true;
+
+        connection.inbound()
+            .receive()
+            .subscribe(b -> onReceived(b.readableBytes()), e -> log.debug("Load connection failed", e));
+        connection.onDispose(this::onClosed);
+
+        if (interval > 0) {
+            tickNanos = Math.max(interval, MIN_TICK_NANOS);
+            channel.eventLoop()
+                .execute(() -> nextIntended = System.nanoTime() + offset);
+            tick = channel.eventLoop()
+                .scheduleAtFixedRate(this::sendDue, offset, tickNanos, TimeUnit.NANOSECONDS);
+        } else {
+            channel.eventLoop()
+                .execute(() -> {
+                    final long now;
+
+                    now = System.nanoTime();
+                    send(now, now);
+                    channel.flush();
+                });
+        }
+    }
+
+    /**
+     * Stops sending messages.
+     */
+    public final void stop() {
+        running = false;
+        if (tick != null) {
+            tick.cancel(false);
+        }
+    }
+
+    /**
+     * Doubles the capacity of the outstanding messages queue.
+     */
+    private final void grow() {
+        final long[] grownIntended;
+        final long[] grownSent;
+
+        grownIntended = new long[intended.length * 2];
+        grownSent = new long[sent.length * 2];
+        for (int i = 0; i < outstanding; i++) {
+            grownIntended[i] = intended[(outstandingHead + i) % intended.length];
+            grownSent[i] = sent[(outstandingHead + i) % sent.length];
+        }
+        intended = grownIntended;
+        sent = grownSent;
+        outstandingHead = 0;
+    }
+
+    /**
+     * Records the connection closing as an error, unless the load was stopped.
+     */
+    private final void onClosed() {
+        if (running) {
+            log.debug("Load connection closed before the end of the run");
+            recorder.recordError();
+        }
+    }
+
+    /**
+     * Completes the messages echoed back with the received bytes.
+     *
+     * @param length
+     *            number of bytes received
+     */
+    private final void onReceived(final int length) {
+        final int  size;
+        final long now;
+        int        completed;
+
+        size = payload.readableBytes();
+        now = System.nanoTime();
+        buffered += length;
+        completed = 0;
+        while ((buffered >= size) && (outstanding > 0)) {
+            buffered -= size;
+            recorder.recordCompleted(intended[outstandingHead], sent[outstandingHead], now);
+            outstandingHead = (outstandingHead + 1) % intended.length;
+            outstanding--;
+            completed++;
+        }
+
+        if ((interval == 0) && running && (completed > 0)) {
+            // Closed loop, each echo sends a new message
+            for (int i = 0; i < completed; i++) {
+                send(now, now);
+            }
+            channel.flush();
+        }
+    }
+
+    /**
+     * Sends a message, keeping it as outstanding until echoed back.
+     *
+     * @param intendedTime
+     *            time when the message should have been sent
+     * @param sentTime
+     *            time when the message is sent
+     */
+    private final void send(final long intendedTime, final long sentTime) {
+        final int position;
+
+        if (outstanding == intended.length) {
+            if (outstanding == MAX_OUTSTANDING) {
+                recorder.recordSkipped();
+                return;
+            }
+            grow();
+        }
+
+        position = (outstandingHead + outstanding) % intended.length;
+        intended[position] = intendedTime;
+        sent[position] = sentTime;
+        outstanding++;
+
+        channel.write(payload.duplicate(), channel.voidPromise());
+    }
+
+    /**
+     * Sends all the messages due until now.
+     */
+    private final void sendDue() {
+        final long now;
+
+        if (running) {
+            now = System.nanoTime();
+            while (nextIntended <= now) {
+                send(nextIntended, now);
+                nextIntended += interval;
+            }
+            channel.flush();
+        }
+    }
+
+}
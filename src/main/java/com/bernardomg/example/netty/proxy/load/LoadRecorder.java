@@ -0,0 +1,140 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.load;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records the results of all the load connections. Recording is wait-free, so it can be done from any event loop.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class LoadRecorder {
+
+    /**
+     * Significant digits kept by the histograms.
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Messages echoed back.
+     */
+    private final LongAdder  completed          = new LongAdder();
+
+    /**
+     * Connections closed or failed.
+     */
+    private final LongAdder  errors             = new LongAdder();
+
+    /**
+     * Latency from the time each message should have been sent.
+     */
+    private final Recorder   latency            = new Recorder(SIGNIFICANT_DIGITS);
+
+    /**
+     * Latency from the time each message was actually sent.
+     */
+    private final Recorder   serviceTime        = new Recorder(SIGNIFICANT_DIGITS);
+
+    /**
+     * Messages not sent.
+     */
+    private final LongAdder  skipped            = new LongAdder();
+
+    /**
+     * Time when the recording started, in nanoseconds.
+     */
+    private volatile long    start              = System.nanoTime();
+
+    /**
+     * Default constructor.
+     */
+    public LoadRecorder() {
+        super();
+    }
+
+    /**
+     * Returns the report for the traffic recorded since the last reset.
+     *
+     * @param messageSize
+     *            size of each message
+     * @return the load report
+     */
+    public final LoadReport getReport(final int messageSize) {
+        final Duration duration;
+
+        duration = Duration.ofNanos(System.nanoTime() - start);
+
+        return new LoadReport(completed.sum(), duration, errors.sum(), latency.getIntervalHistogram(), messageSize,
+            serviceTime.getIntervalHistogram(), skipped.sum());
+    }
+
+    /**
+     * Records a message echoed back.
+     *
+     * @param intended
+     *            time when the message should have been sent, in nanoseconds
+     * @param sent
+     *            time when the message was sent, in nanoseconds
+     * @param received
+     *            time when the echo was received, in nanoseconds
+     */
+    public final void recordCompleted(final long intended, final long sent, final long received) {
+        latency.recordValue(received - intended);
+        serviceTime.recordValue(received - sent);
+        completed.increment();
+    }
+
+    /**
+     * Records a connection closed or failed.
+     */
+    public final void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Records a message not sent.
+     */
+    public final void recordSkipped() {
+        skipped.increment();
+    }
+
+    /**
+     * Discards everything recorded until now.
+     */
+    public final void reset() {
+        latency.reset();
+        serviceTime.reset();
+        completed.reset();
+        errors.reset();
+        skipped.reset();
+        start = System.nanoTime();
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.load;
+
+import java.time.Duration;
+
+import org.HdrHistogram.Histogram;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Results of a load run. Only the traffic after the warmup is included.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+public final class LoadReport {
+
+    /**
+     * Messages echoed back.
+     */
+    private final long      completed;
+
+    /**
+     * Measured time.
+     */
+    @NonNull
+    private final Duration  duration;
+
+    /**
+     * Connections closed or failed before the end of the run.
+     */
+    private final long      errors;
+
+    /**
+     * Latency of each message, in nanoseconds, from the time it should have been sent. With a fixed rate this is
+     * corrected for coordinated omission, as a stalled connection delays the messages scheduled after it.
+     */
+    @NonNull
+    private final Histogram latency;
+
+    /**
+     * Size of each message.
+     */
+    private final int       messageSize;
+
+    /**
+     * Latency of each message, in nanoseconds, from the time it was actually sent.
+     */
+    @NonNull
+    private final Histogram serviceTime;
+
+    /**
+     * Messages not sent, as their connection had too many messages waiting for the echo.
+     */
+    private final long      skipped;
+
+    /**
+     * Returns the bytes echoed back per second.
+     *
+     * @return the bytes per second
+     */
+    public final double getBytesPerSecond() {
+        return getMessagesPerSecond() * messageSize;
+    }
+
+    /**
+     * Returns the messages echoed back per second.
+     *
+     * @return the messages per second
+     */
+    public final double getMessagesPerSecond() {
+        return completed / (duration.toNanos() / 1_000_000_000d);
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.load;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for the load generator.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder
+public final class LoadSettings {
+
+    /**
+     * Number of concurrent connections.
+     */
+    private final int      connections;
+
+    /**
+     * Time during which the traffic is measured, after the warmup.
+     */
+    @NonNull
+    private final Duration duration;
+
+    /**
+     * Size of each message.
+     */
+    private final int      messageSize;
+
+    /**
+     * Messages per second sent by all the connections together. If not positive, each connection sends a new message as
+     * soon as the previous one is echoed back.
+     */
+    private final int      rate;
+
+    /**
+     * Time during which the traffic is sent but not measured.
+     */
+    @NonNull
+    private final Duration warmup;
+
+    /**
+     * Indicates if the messages are sent at a fixed rate.
+     *
+     * @return {@code true} for a fixed rate, {@code false} for a closed loop
+     */
+    public final boolean isFixedRate() {
+        return rate > 0;
+    }
+
+}
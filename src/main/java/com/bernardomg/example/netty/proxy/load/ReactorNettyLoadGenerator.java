@@ -0,0 +1,202 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.netty.Connection;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
+
+/**
+ * Load generator which sends messages through a number of concurrent connections, and measures how long they take to be
+ * echoed back. It is meant to be run through the proxy, against an echo backend.
+ * <p>
+ * All the connections are opened before the run starts, so connecting is not measured. Then the traffic is sent during
+ * the warmup, which is discarded, and during the measured duration.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ReactorNettyLoadGenerator {
+
+    /**
+     * Maximum number of connections being opened at the same time.
+     */
+    private static final int      CONNECT_CONCURRENCY = 64;
+
+    /**
+     * Settings for the connection channels.
+     */
+    private final ChannelSettings channelSettings;
+
+    /**
+     * Host to connect to.
+     */
+    private final String          host;
+
+    /**
+     * Event loop resources.
+     */
+    private final LoopResources   loops;
+
+    /**
+     * Port to connect to.
+     */
+    private final int             port;
+
+    /**
+     * Load settings.
+     */
+    private final LoadSettings    settings;
+
+    /**
+     * Constructs a load generator for the received address.
+     *
+     * @param hst
+     *            host to connect to
+     * @param prt
+     *            port to connect to
+     * @param sttngs
+     *            load settings
+     * @param lps
+     *            event loop resources
+     * @param chnnlSettings
+     *            settings for the connection channels
+     */
+    public ReactorNettyLoadGenerator(final String hst, final int prt, final LoadSettings sttngs,
+            final LoopResources lps, final ChannelSettings chnnlSettings) {
+        super();
+
+        host = Objects.requireNonNull(hst);
+        port = prt;
+        settings = Objects.requireNonNull(sttngs);
+        loops = Objects.requireNonNull(lps);
+        channelSettings = Objects.requireNonNull(chnnlSettings);
+
+        if (settings.getConnections() < 1) {
+            throw new IllegalArgumentException(
+                "Number of connections should be positive, received " + settings.getConnections());
+        }
+        if (settings.getMessageSize() < 1) {
+            throw new IllegalArgumentException(
+                "Message size should be positive, received " + settings.getMessageSize());
+        }
+    }
+
+    /**
+     * Runs the load, blocking until it finishes.
+     *
+     * @return the report for the measured traffic
+     */
+    public final LoadReport run() {
+        final LoadRecorder         recorder;
+        final ByteBuf              payload;
+        final TcpClient            client;
+        final List<Connection>     connections;
+        final List<LoadConnection> loads;
+        final long                 interval;
+        final LoadReport           report;
+
+        recorder = new LoadRecorder();
+        payload = Unpooled.unreleasableBuffer(Unpooled.directBuffer(settings.getMessageSize()));
+        for (int i = 0; i < settings.getMessageSize(); i++) {
+            payload.writeByte('a' + (i % 26));
+        }
+
+        if (settings.isFixedRate()) {
+            // Each connection sends its share of the rate
+            interval = (1_000_000_000L * settings.getConnections()) / settings.getRate();
+        } else {
+            interval = 0;
+        }
+
+        log.debug("Opening {} connections to {}:{}", settings.getConnections(), host, port);
+        client = channelSettings.applyTo(TcpClient.newConnection())
+            .host(host)
+            .port(port)
+            .runOn(loops);
+        connections = Flux.range(0, settings.getConnections())
+            .<Connection> flatMap(i -> client.connect(), CONNECT_CONCURRENCY)
+            .collectList()
+            .block();
+
+        loads = new ArrayList<>(connections.size());
+        for (final Connection connection : connections) {
+            loads.add(new LoadConnection(connection, payload, interval, recorder));
+        }
+        for (int i = 0; i < loads.size(); i++) {
+            // Spreads the connections over the interval, so they don't send all at once
+            loads.get(i)
+                .start((interval * i) / loads.size());
+        }
+
+        log.debug("Warming up for {} ms", settings.getWarmup()
+            .toMillis());
+        sleep(settings.getWarmup()
+            .toMillis());
+        recorder.reset();
+
+        log.debug("Measuring for {} ms", settings.getDuration()
+            .toMillis());
+        sleep(settings.getDuration()
+            .toMillis());
+        report = recorder.getReport(settings.getMessageSize());
+
+        for (final LoadConnection load : loads) {
+            load.stop();
+        }
+        for (final Connection connection : connections) {
+            connection.disposeNow();
+        }
+
+        return report;
+    }
+
+    /**
+     * Waits for the received time.
+     *
+     * @param millis
+     *            milliseconds to wait
+     */
+    private final void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+
+}
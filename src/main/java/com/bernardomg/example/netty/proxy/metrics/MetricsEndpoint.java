@@ -0,0 +1,156 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Small HTTP server which returns the metrics in Prometheus text format, at the {@code /metrics} path. Uses the JDK
+ * HTTP server, with a single thread, as it only serves the occasional scrape.
+ * <p>
+ * By default it only listens to the loopback address, so the metrics aren't exposed to the network unless asked for.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class MetricsEndpoint {
+
+    /**
+     * Path for the metrics.
+     */
+    private static final String           PATH     = "/metrics";
+
+    /**
+     * Host to listen to.
+     */
+    private final String                  host;
+
+    /**
+     * Port to listen to.
+     */
+    private final int                     port;
+
+    /**
+     * Registry with the metrics to return.
+     */
+    private final PrometheusMeterRegistry registry;
+
+    /**
+     * HTTP server. Null until started.
+     */
+    private HttpServer                    server;
+
+    /**
+     * Constructs an endpoint for the received registry, listening to the loopback address.
+     *
+     * @param rgstry
+     *            registry with the metrics to return
+     * @param prt
+     *            port to listen to
+     */
+    public MetricsEndpoint(final PrometheusMeterRegistry rgstry, final int prt) {
+        this(rgstry, InetAddress.getLoopbackAddress()
+            .getHostAddress(), prt);
+    }
+
+    /**
+     * Constructs an endpoint for the received registry.
+     *
+     * @param rgstry
+     *            registry with the metrics to return
+     * @param hst
+     *            host to listen to
+     * @param prt
+     *            port to listen to
+     */
+    public MetricsEndpoint(final PrometheusMeterRegistry rgstry, final String hst, final int prt) {
+        super();
+
+        registry = Objects.requireNonNull(rgstry);
+        host = Objects.requireNonNull(hst);
+        port = prt;
+    }
+
+    /**
+     * Starts listening for scrapes.
+     */
+    public final void start() {
+        log.debug("Serving metrics at {}:{}", host, port);
+
+        try {
+            server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext(PATH, this::scrape);
+        server.start();
+    }
+
+    /**
+     * Stops listening.
+     */
+    public final void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Returns the metrics.
+     *
+     * @param exchange
+     *            scrape request
+     * @throws IOException
+     *             if the response can't be written
+     */
+    private final void scrape(final HttpExchange exchange) throws IOException {
+        final byte[] body;
+
+        body = registry.scrape()
+            .getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders()
+            .set("Content-Type", TextFormat.CONTENT_TYPE_004);
+        exchange.sendResponseHeaders(200, body.length);
+        try (final OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+}
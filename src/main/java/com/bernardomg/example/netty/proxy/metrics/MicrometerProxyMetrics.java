@@ -0,0 +1,404 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.metrics;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.server.admission.RejectReason;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsSide;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+/**
+ * Proxy metrics stored into a Micrometer registry.
+ * <h2>Cost</h2>
+ * <p>
+ * All the meters are created in advance, one for each direction and upstream, so recording a measurement only looks
+ * up the meter and updates it. Nothing is allocated for each message. Upstreams added later, when reloading the
+ * configuration, and the exchange latency of each route, get their meters on first use.
+ * <h2>Meters</h2>
+ * <ul>
+ * <li>{@code proxy.connections.active}: open bridges</li>
+ * <li>{@code proxy.connections.total}: bridges opened</li>
+ * <li>{@code proxy.connections.rejected}: connections rejected by the admission control, by reason</li>
+ * <li>{@code proxy.bridge.lifetime}: time each bridge stayed open</li>
+ * <li>{@code proxy.bytes}: proxied bytes, by direction</li>
+ * <li>{@code proxy.messages}: proxied messages, by direction</li>
+ * <li>{@code proxy.exchange.latency}: time from the end of each request to the end of its response, by route</li>
+ * <li>{@code proxy.bridge.throttled}: time each bridge was throttled by its rate limits, by direction</li>
+ * <li>{@code proxy.upstream.connect}: connect latency, by upstream</li>
+ * <li>{@code proxy.upstream.errors}: failed connections and connection errors, by upstream and type</li>
+ * <li>{@code proxy.tls.handshakes}: finished TLS handshakes, by side and whether the session was resumed</li>
+ * <li>{@code proxy.tls.resumption.ratio}: resumed TLS handshakes over all of them, by side</li>
+ * <li>{@code proxy.eventloop.pending.tasks}: tasks waiting in each event loop</li>
+ * </ul>
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class MicrometerProxyMetrics implements ProxyMetrics {
+
+    /**
+     * Open bridges.
+     */
+    private final AtomicInteger              active           = new AtomicInteger();
+
+    /**
+     * Bridge lifetime timer.
+     */
+    private final Timer                      bridgeLifetime;
+
+    /**
+     * Proxied bytes counter for each direction.
+     */
+    private final Map<Direction, Counter>    bytes            = new EnumMap<>(Direction.class);
+
+    /**
+     * Connect failures counter for each upstream.
+     */
+    private final Map<Upstream, Counter>     connectFailures  = new ConcurrentHashMap<>();
+
+    /**
+     * Connect latency timer for each upstream.
+     */
+    private final Map<Upstream, Timer>       connectLatency   = new ConcurrentHashMap<>();
+
+    /**
+     * Connection errors counter for each upstream.
+     */
+    private final Map<Upstream, Counter>     connectionErrors = new ConcurrentHashMap<>();
+
+    /**
+     * Exchange latency timer for each route.
+     */
+    private final Map<String, Timer>         exchangeLatency  = new ConcurrentHashMap<>();
+
+    /**
+     * Proxied messages counter for each direction.
+     */
+    private final Map<Direction, Counter>    messages         = new EnumMap<>(Direction.class);
+
+    /**
+     * Meter registry.
+     */
+    private final MeterRegistry              registry;
+
+    /**
+     * Rejected connections counter for each reason.
+     */
+    private final Map<RejectReason, Counter> rejected         = new EnumMap<>(RejectReason.class);
+
+    /**
+     * Throttled time timer for each direction.
+     */
+    private final Map<Direction, Timer>      throttled        = new EnumMap<>(Direction.class);
+
+    /**
+     * Full TLS handshakes counter for each side.
+     */
+    private final Map<TlsSide, Counter>      tlsFull          = new EnumMap<>(TlsSide.class);
+
+    /**
+     * Resumed TLS handshakes counter for each side.
+     */
+    private final Map<TlsSide, Counter>      tlsResumed       = new EnumMap<>(TlsSide.class);
+
+    /**
+     * Opened bridges counter.
+     */
+    private final Counter                    total;
+
+    /**
+     * Constructs metrics for the received upstreams, stored into the received registry.
+     *
+     * @param rgstry
+     *            meter registry
+     * @param upstreams
+     *            upstreams to measure
+     */
+    public MicrometerProxyMetrics(final MeterRegistry rgstry, final List<Upstream> upstreams) {
+        super();
+
+        registry = Objects.requireNonNull(rgstry);
+
+        Gauge.builder("proxy.connections.active", active, AtomicInteger::get)
+            .description("Open bridges")
+            .register(registry);
+        total = Counter.builder("proxy.connections.total")
+            .description("Bridges opened")
+            .register(registry);
+        bridgeLifetime = Timer.builder("proxy.bridge.lifetime")
+            .description("Time each bridge stayed open")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofHours(1))
+            .register(registry);
+        for (final RejectReason reason : RejectReason.values()) {
+            rejected.put(reason, Counter.builder("proxy.connections.rejected")
+                .description("Connections rejected by the admission control")
+                .tag("reason", reason.name()
+                    .toLowerCase(Locale.ROOT))
+                .register(registry));
+        }
+
+        for (final Direction direction : Direction.values()) {
+            bytes.put(direction, Counter.builder("proxy.bytes")
+                .description("Proxied bytes")
+                .baseUnit("bytes")
+                .tag("direction", direction.name()
+                    .toLowerCase(Locale.ROOT))
+                .register(registry));
+            messages.put(direction, Counter.builder("proxy.messages")
+                .description("Proxied messages")
+                .tag("direction", direction.name()
+                    .toLowerCase(Locale.ROOT))
+                .register(registry));
+            throttled.put(direction, Timer.builder("proxy.bridge.throttled")
+                .description("Time each bridge was throttled by its rate limits")
+                .tag("direction", direction.name()
+                    .toLowerCase(Locale.ROOT))
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofHours(1))
+                .register(registry));
+        }
+
+        for (final TlsSide side : TlsSide.values()) {
+            tlsFull.put(side, createHandshakes(side, false));
+            tlsResumed.put(side, createHandshakes(side, true));
+            Gauge.builder("proxy.tls.resumption.ratio", side, this::getResumptionRatio)
+                .description("Resumed TLS handshakes over all of them")
+                .tag("side", side.name()
+                    .toLowerCase(Locale.ROOT))
+                .register(registry);
+        }
+
+        for (final Upstream upstream : upstreams) {
+            connectLatency.put(upstream, createConnectLatency(upstream));
+            connectFailures.put(upstream, createErrors(upstream, "connect"));
+            connectionErrors.put(upstream, createErrors(upstream, "connection"));
+        }
+    }
+
+    /**
+     * Registers a gauge with the pending tasks of each event loop in the group.
+     *
+     * @param group
+     *            event loop group to measure
+     */
+    public final void bindEventLoops(final EventLoopGroup group) {
+        int index;
+
+        index = 0;
+        for (final EventExecutor executor : group) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                Gauge.builder("proxy.eventloop.pending.tasks", (SingleThreadEventExecutor) executor,
+                    SingleThreadEventExecutor::pendingTasks)
+                    .description("Tasks waiting in the event loop")
+                    .tag("loop", String.valueOf(index))
+                    .register(registry);
+            }
+            index++;
+        }
+    }
+
+    @Override
+    public final void onBridgeClosed(final long nanos) {
+        active.decrementAndGet();
+        bridgeLifetime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void onBridgeOpened() {
+        active.incrementAndGet();
+        total.increment();
+    }
+
+    @Override
+    public final void onConnected(final Upstream upstream, final long nanos) {
+        connectLatency.computeIfAbsent(upstream, this::createConnectLatency)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void onConnectionRejected(final RejectReason reason) {
+        rejected.get(reason)
+            .increment();
+    }
+
+    @Override
+    public final void onConnectFailed(final Upstream upstream) {
+        connectFailures.computeIfAbsent(upstream, u -> createErrors(u, "connect"))
+            .increment();
+    }
+
+    @Override
+    public final void onExchange(final String route, final long nanos) {
+        exchangeLatency.computeIfAbsent(route, this::createExchangeLatency)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void onMessage(final Direction direction, final int length) {
+        bytes.get(direction)
+            .increment(length);
+        messages.get(direction)
+            .increment();
+    }
+
+    @Override
+    public final void onThrottled(final Direction direction, final long nanos) {
+        throttled.get(direction)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void onTlsHandshake(final TlsSide side, final boolean resumed) {
+        if (resumed) {
+            tlsResumed.get(side)
+                .increment();
+        } else {
+            tlsFull.get(side)
+                .increment();
+        }
+    }
+
+    @Override
+    public final void onUpstreamError(final Upstream upstream) {
+        connectionErrors.computeIfAbsent(upstream, u -> createErrors(u, "connection"))
+            .increment();
+    }
+
+    /**
+     * Creates the connect latency timer for an upstream.
+     *
+     * @param upstream
+     *            upstream to measure
+     * @return the connect latency timer
+     */
+    private final Timer createConnectLatency(final Upstream upstream) {
+        return Timer.builder("proxy.upstream.connect")
+            .description("Time to connect to the upstream")
+            .tag("upstream", upstream.toString())
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(10)))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(registry);
+    }
+
+    /**
+     * Creates an errors counter for an upstream.
+     *
+     * @param upstream
+     *            upstream to measure
+     * @param type
+     *            error type
+     * @return the errors counter
+     */
+    private final Counter createErrors(final Upstream upstream, final String type) {
+        return Counter.builder("proxy.upstream.errors")
+            .description("Upstream errors")
+            .tag("upstream", upstream.toString())
+            .tag("type", type)
+            .register(registry);
+    }
+
+    /**
+     * Creates the exchange latency timer for a route.
+     *
+     * @param route
+     *            route to measure
+     * @return the exchange latency timer
+     */
+    private final Timer createExchangeLatency(final String route) {
+        return Timer.builder("proxy.exchange.latency")
+            .description("Time from the end of each request to the end of its response")
+            .tag("route", route)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(10)))
+            .maximumExpectedValue(Duration.ofSeconds(60))
+            .register(registry);
+    }
+
+    /**
+     * Creates the TLS handshakes counter for a side.
+     *
+     * @param side
+     *            side to measure
+     * @param resumed
+     *            if it counts the resumed handshakes, or the full ones
+     * @return the TLS handshakes counter
+     */
+    private final Counter createHandshakes(final TlsSide side, final boolean resumed) {
+        return Counter.builder("proxy.tls.handshakes")
+            .description("Finished TLS handshakes")
+            .tag("side", side.name()
+                .toLowerCase(Locale.ROOT))
+            .tag("resumed", String.valueOf(resumed))
+            .register(registry);
+    }
+
+    /**
+     * Returns the ratio of resumed TLS handshakes for a side. Zero until the first handshake.
+     *
+     * @param side
+     *            side to measure
+     * @return the TLS resumption ratio
+     */
+    private final double getResumptionRatio(final TlsSide side) {
+        final double resumed;
+        final double handshakes;
+        final double ratio;
+
+        resumed = tlsResumed.get(side)
+            .count();
+        handshakes = resumed + tlsFull.get(side)
+            .count();
+        if (handshakes == 0) {
+            ratio = 0;
+        } else {
+            ratio = resumed / handshakes;
+        }
+
+        return ratio;
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.metrics;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.server.admission.RejectReason;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsSide;
+
+/**
+ * Proxy metrics which ignore all the measurements. Used when metrics are disabled.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class NoOpProxyMetrics implements ProxyMetrics {
+
+    /**
+     * Single instance, as there is no state.
+     */
+    public static final ProxyMetrics INSTANCE = new NoOpProxyMetrics();
+
+    /**
+     * Default constructor.
+     */
+    private NoOpProxyMetrics() {
+        super();
+    }
+
+    @Override
+    public final void onBridgeClosed(final long nanos) {
+        // Ignored
+    }
+
+    @Override
+    public final void onBridgeOpened() {
+        // Ignored
+    }
+
+    @Override
+    public final void onConnected(final Upstream upstream, final long nanos) {
+        // Ignored
+    }
+
+    @Override
+    public final void onConnectionRejected(final RejectReason reason) {
+        // Ignored
+    }
+
+    @Override
+    public final void onConnectFailed(final Upstream upstream) {
+        // Ignored
+    }
+
+    @Override
+    public final void onExchange(final String route, final long nanos) {
+        // Ignored
+    }
+
+    @Override
+    public final void onMessage(final Direction direction, final int bytes) {
+        // Ignored
+    }
+
+    @Override
+    public final void onThrottled(final Direction direction, final long nanos) {
+        // Ignored
+    }
+
+    @Override
+    public final void onTlsHandshake(final TlsSide side, final boolean resumed) {
+        // Ignored
+    }
+
+    @Override
+    public final void onUpstreamError(final Upstream upstream) {
+        // Ignored
+    }
+
+}
@@ -0,0 +1,128 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.metrics;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.server.admission.RejectReason;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsSide;
+
+/**
+ * Receives the measurements of the proxy. These methods are called from the event loops, for each connection and
+ * message, so they should be cheap, and never block.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public interface ProxyMetrics {
+
+    /**
+     * Records that a bridge was closed.
+     *
+     * @param nanos
+     *            bridge lifetime, in nanoseconds
+     */
+    public void onBridgeClosed(final long nanos);
+
+    /**
+     * Records that a bridge was opened.
+     */
+    public void onBridgeOpened();
+
+    /**
+     * Records a connection to an upstream.
+     *
+     * @param upstream
+     *            upstream connected to
+     * @param nanos
+     *            time taken to connect, in nanoseconds
+     */
+    public void onConnected(final Upstream upstream, final long nanos);
+
+    /**
+     * Records a connection rejected by the admission control.
+     *
+     * @param reason
+     *            reason for rejecting the connection
+     */
+    public void onConnectionRejected(final RejectReason reason);
+
+    /**
+     * Records a failed connection to an upstream.
+     *
+     * @param upstream
+     *            upstream which failed
+     */
+    public void onConnectFailed(final Upstream upstream);
+
+    /**
+     * Records a finished exchange, from the end of a request to the end of its response.
+     *
+     * @param route
+     *            name of the route which proxied the exchange
+     * @param nanos
+     *            exchange latency, in nanoseconds
+     */
+    public void onExchange(final String route, final long nanos);
+
+    /**
+     * Records a proxied message.
+     *
+     * @param direction
+     *            message direction
+     * @param bytes
+     *            message size
+     */
+    public void onMessage(final Direction direction, final int bytes);
+
+    /**
+     * Records the time a closed bridge direction was throttled by its rate limits.
+     *
+     * @param direction
+     *            throttled direction
+     * @param nanos
+     *            time throttled, in nanoseconds
+     */
+    public void onThrottled(final Direction direction, final long nanos);
+
+    /**
+     * Records a finished TLS handshake.
+     *
+     * @param side
+     *            side of the proxy where the handshake took place
+     * @param resumed
+     *            {@code true} if a previous session was resumed, {@code false} for a full handshake
+     */
+    public void onTlsHandshake(final TlsSide side, final boolean resumed);
+
+    /**
+     * Records an error in an established connection to an upstream, such as a reset.
+     *
+     * @param upstream
+     *            upstream which failed
+     */
+    public void onUpstreamError(final Upstream upstream);
+
+}
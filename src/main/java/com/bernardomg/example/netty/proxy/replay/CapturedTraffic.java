@@ -0,0 +1,160 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.replay;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.HdrHistogram.Histogram;
+
+import com.bernardomg.example.netty.proxy.capture.CaptureFileReader;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Traffic read from capture files, split into the sessions to replay.
+ * <p>
+ * A request can only be replayed if all its bytes were captured. Connections with truncated requests are skipped, as
+ * replaying part of them would send a different byte stream.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+public final class CapturedTraffic {
+
+    /**
+     * Significant digits kept by the histograms.
+     */
+    private static final int          SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Reads the traffic stored in the received capture files. These should be in the order they were written.
+     *
+     * @param files
+     *            capture files to read
+     * @return the captured traffic
+     * @throws IOException
+     *             if a file can't be read
+     */
+    public static final CapturedTraffic read(final List<Path> files) throws IOException {
+        final Map<String, List<ProxyEvent>> requests;
+        final Map<String, Long>             pendingSince;
+        final Set<String>                   truncated;
+        final Histogram                     latency;
+        final List<ReplaySession>           sessions;
+        ProxyEvent                          event;
+        Long                                since;
+
+        requests = new LinkedHashMap<>();
+        pendingSince = new HashMap<>();
+        truncated = new HashSet<>();
+        latency = new Histogram(SIGNIFICANT_DIGITS);
+        for (final Path file : files) {
+            try (final CaptureFileReader reader = new CaptureFileReader(file)) {
+                event = reader.read();
+                while (event != null) {
+                    if (event.getDirection() == Direction.REQUEST) {
+                        if (event.isTruncated()) {
+                            truncated.add(event.getConnectionId());
+                        }
+                        requests.computeIfAbsent(event.getConnectionId(), k -> new ArrayList<>())
+                            .add(event);
+                        pendingSince.putIfAbsent(event.getConnectionId(), event.getTimestamp());
+                    } else {
+                        // The first response after a request answers it
+                        since = pendingSince.remove(event.getConnectionId());
+                        if (since != null) {
+                            latency.recordValue(Math.max(0, event.getTimestamp() - since) * 1_000_000);
+                        }
+                    }
+                    event = reader.read();
+                }
+            }
+        }
+
+        sessions = new ArrayList<>(requests.size());
+        for (final Map.Entry<String, List<ProxyEvent>> entry : requests.entrySet()) {
+            if (!truncated.contains(entry.getKey())) {
+                sessions.add(new ReplaySession(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        return new CapturedTraffic(latency, truncated.size(), sessions);
+    }
+
+    /**
+     * Captured latency, in nanoseconds, from each request to the first response after it. The capture timestamps are in
+     * milliseconds, so this is not more precise than that.
+     */
+    @NonNull
+    private final Histogram           latency;
+
+    /**
+     * Connections skipped, as some of their requests were truncated.
+     */
+    private final int                 skipped;
+
+    /**
+     * Sessions to replay, in the order they started.
+     */
+    @NonNull
+    private final List<ReplaySession> sessions;
+
+    /**
+     * Returns the number of requests to replay.
+     *
+     * @return the number of requests
+     */
+    public final long getRequests() {
+        return sessions.stream()
+            .mapToLong(s -> s.getRequests()
+                .size())
+            .sum();
+    }
+
+    /**
+     * Returns the time of the first request, in milliseconds since the epoch. This is zero if there are no sessions.
+     *
+     * @return the time of the first request
+     */
+    public final long getStart() {
+        return sessions.stream()
+            .mapToLong(ReplaySession::getStart)
+            .min()
+            .orElse(0);
+    }
+
+}
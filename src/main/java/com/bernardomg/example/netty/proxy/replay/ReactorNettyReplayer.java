@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.replay;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+
+import com.bernardomg.example.netty.proxy.client.Client;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Replays captured traffic against a target. Each captured connection is replayed through its own connection, opened
+ * with the proxy client, so the target is chosen in the same way the proxy does.
+ * <p>
+ * The sessions start at their captured time relative to the start of the capture, divided by the speed, and the
+ * requests of each session keep their order. At max speed all the sessions start at once.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ReactorNettyReplayer {
+
+    /**
+     * Client opening the connections.
+     */
+    private final Client         client;
+
+    /**
+     * Replay settings.
+     */
+    private final ReplaySettings settings;
+
+    /**
+     * Constructs a replayer opening the connections with the received client.
+     *
+     * @param clnt
+     *            client opening the connections
+     * @param sttngs
+     *            replay settings
+     */
+    public ReactorNettyReplayer(final Client clnt, final ReplaySettings sttngs) {
+        super();
+
+        client = Objects.requireNonNull(clnt);
+        settings = Objects.requireNonNull(sttngs);
+    }
+
+    /**
+     * Replays the traffic, blocking until all the sessions finish.
+     *
+     * @param traffic
+     *            traffic to replay
+     * @return the report for the replay
+     */
+    public final ReplayReport run(final CapturedTraffic traffic) {
+        final ReplayRecorder recorder;
+        final CountDownLatch finished;
+        final long           start;
+        final long           trafficStart;
+
+        recorder = new ReplayRecorder();
+        finished = new CountDownLatch(traffic.getSessions()
+            .size());
+        trafficStart = traffic.getStart();
+
+        log.debug("Replaying {} sessions", traffic.getSessions()
+            .size());
+        start = System.nanoTime();
+        for (final ReplaySession session : traffic.getSessions()) {
+            Mono.delay(getDelay(session, trafficStart))
+                // The connection id as client address, so balancing by client keeps each session in the same target
+                .then(client.connect(getAddresses(session)))
+                .subscribe(c -> new ReplayConnection(c, session, settings, start, trafficStart, recorder,
+                    finished::countDown).start(), e -> {
+                        log.debug("Failed connecting session {}: {}", session.getConnectionId(), e.getMessage());
+                        recorder.recordError();
+                        recorder.recordUnanswered(session.getRequests()
+                            .size());
+                        finished.countDown();
+                    });
+        }
+
+        try {
+            finished.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+
+        return recorder.getReport();
+    }
+
+    /**
+     * Returns the addresses for the session connection. These are made up, as the captures don't store addresses, using
+     * the connection id as client address.
+     *
+     * @param session
+     *            session to replay
+     * @return the addresses for the session
+     */
+    private final ConnectionAddresses getAddresses(final ReplaySession session) {
+        return new ConnectionAddresses(InetSocketAddress.createUnresolved("localhost", 0),
+            InetSocketAddress.createUnresolved(session.getConnectionId(), 0));
+    }
+
+    /**
+     * Returns the time from the start of the replay until the session starts.
+     *
+     * @param session
+     *            session to start
+     * @param trafficStart
+     *            time of the first captured request, in milliseconds since the epoch
+     * @return the delay before the session starts
+     */
+    private final Duration getDelay(final ReplaySession session, final long trafficStart) {
+        final Duration delay;
+
+        if (settings.isMaxSpeed()) {
+            delay = Duration.ZERO;
+        } else {
+            delay = Duration.ofNanos((long) (((session.getStart() - trafficStart) * 1_000_000d) / settings.getSpeed()));
+        }
+
+        return delay;
+    }
+
+}
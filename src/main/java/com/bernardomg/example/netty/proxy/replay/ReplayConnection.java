@@ -0,0 +1,261 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.replay;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.Connection;
+
+/**
+ * Replays a session through a single connection, keeping the order of its requests.
+ * <p>
+ * Each request is sent when due, which is its captured time relative to the start of the capture, divided by the
+ * speed. At max speed all of them are due at once. Responses are not parsed, the first bytes received after a request
+ * answer it. Once all the requests are sent and answered, or the response timeout passes, the connection is closed.
+ * <p>
+ * All the sending and receiving happens in the connection event loop, so the state is not shared.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+final class ReplayConnection {
+
+    /**
+     * Connection channel.
+     */
+    private final Channel          channel;
+
+    /**
+     * Connection replaying the session.
+     */
+    private final Connection       connection;
+
+    /**
+     * Called once the session finishes.
+     */
+    private final Runnable         done;
+
+    /**
+     * Finished flag.
+     */
+    private boolean                finished;
+
+    /**
+     * Index of the next request to send.
+     */
+    private int                    next;
+
+    /**
+     * Requests sent and not answered yet.
+     */
+    private int                    pending;
+
+    /**
+     * Time when the first request not answered yet was sent, in nanoseconds.
+     */
+    private long                   pendingSince;
+
+    /**
+     * Replay recorder.
+     */
+    private final ReplayRecorder   recorder;
+
+    /**
+     * Requests to replay.
+     */
+    private final List<ProxyEvent> requests;
+
+    /**
+     * Replay settings.
+     */
+    private final ReplaySettings   settings;
+
+    /**
+     * Time when the replay started, in nanoseconds.
+     */
+    private final long             start;
+
+    /**
+     * Response timeout timer.
+     */
+    private ScheduledFuture<?>     timeout;
+
+    /**
+     * Time of the first captured request, in milliseconds since the epoch.
+     */
+    private final long             trafficStart;
+
+    /**
+     * Constructs a replay connection.
+     *
+     * @param conn
+     *            connection to send the requests
+     * @param session
+     *            session to replay
+     * @param sttngs
+     *            replay settings
+     * @param strt
+     *            time when the replay started, in nanoseconds
+     * @param trffcStart
+     *            time of the first captured request, in milliseconds since the epoch
+     * @param rcrdr
+     *            replay recorder
+     * @param dn
+     *            called once the session finishes
+     */
+    public ReplayConnection(final Connection conn, final ReplaySession session, final ReplaySettings sttngs,
+            final long strt, final long trffcStart, final ReplayRecorder rcrdr, final Runnable dn) {
+        super();
+
+        connection = Objects.requireNonNull(conn);
+        channel = conn.channel();
+        requests = session.getRequests();
+        settings = Objects.requireNonNull(sttngs);
+        start = strt;
+        trafficStart = trffcStart;
+        recorder = Objects.requireNonNull(rcrdr);
+        done = Objects.requireNonNull(dn);
+    }
+
+    /**
+     * Starts replaying the session.
+     */
+    public final void start() {
+        connection.inbound()
+            .receive()
+            .subscribe(b -> onReceived(), e -> log.debug("Replay connection failed", e));
+        connection.onDispose(() -> channel.eventLoop()
+            .execute(this::onClosed));
+
+        channel.eventLoop()
+            .execute(this::sendDue);
+    }
+
+    /**
+     * Finishes the session, closing the connection. The requests not answered are recorded.
+     */
+    private final void finish() {
+        if (!finished) {
+            finished = true;
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            recorder.recordUnanswered(pending + (requests.size() - next));
+            connection.dispose();
+            done.run();
+        }
+    }
+
+    /**
+     * Returns the time when the request should be sent.
+     *
+     * @param index
+     *            index of the request
+     * @return the time when the request is due, in nanoseconds
+     */
+    private final long getDue(final int index) {
+        final long offset;
+        final long due;
+
+        if (settings.isMaxSpeed()) {
+            due = start;
+        } else {
+            offset = requests.get(index)
+                .getTimestamp() - trafficStart;
+            due = start + (long) ((offset * 1_000_000d) / settings.getSpeed());
+        }
+
+        return due;
+    }
+
+    /**
+     * Records the connection closing as an error, unless the session already finished.
+     */
+    private final void onClosed() {
+        if (!finished) {
+            log.debug("Replay connection closed before the end of the session");
+            recorder.recordError();
+            finish();
+        }
+    }
+
+    /**
+     * Answers the requests pending, and finishes the session if all the requests are sent and answered.
+     */
+    private final void onReceived() {
+        if (pending > 0) {
+            recorder.recordAnswered(pending, System.nanoTime() - pendingSince);
+            pending = 0;
+        }
+
+        if (next == requests.size()) {
+            finish();
+        }
+    }
+
+    /**
+     * Sends all the requests due until now, and schedules the next ones.
+     */
+    private final void sendDue() {
+        final long now;
+        ProxyEvent request;
+
+        if (finished) {
+            return;
+        }
+
+        now = System.nanoTime();
+        while ((next < requests.size()) && (getDue(next) <= now)) {
+            request = requests.get(next);
+            if (pending == 0) {
+                pendingSince = now;
+            }
+            pending++;
+            next++;
+            channel.write(Unpooled.wrappedBuffer(request.getPayload()), channel.voidPromise());
+            recorder.recordSent(request.getLength());
+        }
+        channel.flush();
+
+        if (next < requests.size()) {
+            channel.eventLoop()
+                .schedule(this::sendDue, getDue(next) - now, TimeUnit.NANOSECONDS);
+        } else {
+            timeout = channel.eventLoop()
+                .schedule(this::finish, settings.getResponseTimeout()
+                    .toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+}
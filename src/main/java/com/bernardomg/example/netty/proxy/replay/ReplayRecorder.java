@@ -0,0 +1,142 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.replay;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records the results of all the replayed connections. Recording is wait-free, so it can be done from any event loop.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+final class ReplayRecorder {
+
+    /**
+     * Significant digits kept by the histograms.
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Requests answered.
+     */
+    private final LongAdder  answered           = new LongAdder();
+
+    /**
+     * Bytes sent.
+     */
+    private final LongAdder  bytes              = new LongAdder();
+
+    /**
+     * Connections failed or closed early.
+     */
+    private final LongAdder  errors             = new LongAdder();
+
+    /**
+     * Latency from each request to the first response after it.
+     */
+    private final Recorder   latency            = new Recorder(SIGNIFICANT_DIGITS);
+
+    /**
+     * Requests sent.
+     */
+    private final LongAdder  sent               = new LongAdder();
+
+    /**
+     * Time when the recording started, in nanoseconds.
+     */
+    private final long       start              = System.nanoTime();
+
+    /**
+     * Requests not answered.
+     */
+    private final LongAdder  unanswered         = new LongAdder();
+
+    /**
+     * Default constructor.
+     */
+    public ReplayRecorder() {
+        super();
+    }
+
+    /**
+     * Returns the report for all the traffic recorded.
+     *
+     * @return the replay report
+     */
+    public final ReplayReport getReport() {
+        final Duration duration;
+
+        duration = Duration.ofNanos(System.nanoTime() - start);
+
+        return new ReplayReport(answered.sum(), bytes.sum(), duration, errors.sum(), latency.getIntervalHistogram(),
+            sent.sum(), unanswered.sum());
+    }
+
+    /**
+     * Records requests answered by a response.
+     *
+     * @param requests
+     *            number of requests answered
+     * @param nanos
+     *            time from the first of the requests to the response
+     */
+    public final void recordAnswered(final int requests, final long nanos) {
+        latency.recordValue(nanos);
+        answered.add(requests);
+    }
+
+    /**
+     * Records a connection failed or closed early.
+     */
+    public final void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Records a request sent.
+     *
+     * @param length
+     *            request length
+     */
+    public final void recordSent(final int length) {
+        sent.increment();
+        bytes.add(length);
+    }
+
+    /**
+     * Records requests not answered.
+     *
+     * @param requests
+     *            number of requests not answered
+     */
+    public final void recordUnanswered(final int requests) {
+        unanswered.add(requests);
+    }
+
+}
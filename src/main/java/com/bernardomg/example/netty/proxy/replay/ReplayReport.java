@@ -0,0 +1,81 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.replay;
+
+import java.time.Duration;
+
+import org.HdrHistogram.Histogram;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Results of a replay.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+public final class ReplayReport {
+
+    /**
+     * Requests answered by the target.
+     */
+    private final long      answered;
+
+    /**
+     * Bytes sent.
+     */
+    private final long      bytes;
+
+    /**
+     * Time taken by the replay.
+     */
+    @NonNull
+    private final Duration  duration;
+
+    /**
+     * Connections which failed, or were closed by the target before the end of the session.
+     */
+    private final long      errors;
+
+    /**
+     * Latency, in nanoseconds, from each request to the first response after it. When several requests are sent before
+     * the response, these share a single value, measured from the first of them.
+     */
+    @NonNull
+    private final Histogram latency;
+
+    /**
+     * Requests sent.
+     */
+    private final long      sent;
+
+    /**
+     * Requests not answered, including those which couldn't be sent.
+     */
+    private final long      unanswered;
+
+}
@@ -0,0 +1,94 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server;
+
+import java.util.List;
+import java.util.Objects;
+
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
+/**
+ * Proxy listener which sends all the events to a list of listeners, in order.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class CompositeProxyListener implements ProxyListener {
+
+    /**
+     * Listeners receiving the events.
+     */
+    private final ProxyListener[] listeners;
+
+    /**
+     * Constructs a listener sending the events to the received listeners.
+     *
+     * @param lstnrs
+     *            listeners receiving the events
+     */
+    public CompositeProxyListener(final List<ProxyListener> lstnrs) {
+        super();
+
+        listeners = Objects.requireNonNull(lstnrs)
+            .toArray(new ProxyListener[0]);
+    }
+
+    @Override
+    public final void onConnection(final String connectionId, final ConnectionAddresses addresses) {
+        for (final ProxyListener listener : listeners) {
+            listener.onConnection(connectionId, addresses);
+        }
+    }
+
+    @Override
+    public final void onRequest(final ProxyEvent event) {
+        for (final ProxyListener listener : listeners) {
+            listener.onRequest(event);
+        }
+    }
+
+    @Override
+    public final void onResponse(final ProxyEvent event) {
+        for (final ProxyListener listener : listeners) {
+            listener.onResponse(event);
+        }
+    }
+
+    @Override
+    public final void onStart() {
+        for (final ProxyListener listener : listeners) {
+            listener.onStart();
+        }
+    }
+
+    @Override
+    public final void onStop() {
+        for (final ProxyListener listener : listeners) {
+            listener.onStop();
+        }
+    }
+
+}
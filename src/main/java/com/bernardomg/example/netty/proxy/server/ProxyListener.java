@@ -24,31 +24,48 @@
 
 package com.bernardomg.example.netty.proxy.server;
 
-import io.netty.buffer.ByteBuf;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
 
 /**
  * Proxy transaction listener. Allows reacting to the events of a proxied connection.
+ * <p>
+ * Requests and responses are received as {@link ProxyEvent}, a copy of the proxied message. These, and the accepted
+ * connections, are delivered outside the event loop, so the listener can take its time without slowing down the proxy.
  *
  * @author Bernardo Mart&iacute;nez Garrido
  *
  */
 public interface ProxyListener {
 
+    /**
+     * Reacts to a new connection being accepted. The addresses are the original ones, which may come from a PROXY
+     * protocol header.
+     * <p>
+     * This is received before the messages of the connection.
+     *
+     * @param connectionId
+     *            id of the accepted connection
+     * @param addresses
+     *            original addresses of the connection
+     */
+    public void onConnection(final String connectionId, final ConnectionAddresses addresses);
+
     /**
      * Reacts to a request message being received by the server from the client.
      *
-     * @param message
+     * @param event
      *            request message received
      */
-    public void onRequest(final ByteBuf message);
+    public void onRequest(final ProxyEvent event);
 
     /**
      * Reacts to a response message being sent by the server to the client.
      *
-     * @param message
+     * @param event
      *            response message sent
      */
-    public void onResponse(final ByteBuf message);
+    public void onResponse(final ProxyEvent event);
 
     /**
      * Reacts to the start event.
@@ -0,0 +1,158 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server;
+
+import com.bernardomg.example.netty.proxy.client.Client;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionController;
+import com.bernardomg.example.netty.proxy.server.bridge.ConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.sni.ClientHello;
+import com.bernardomg.example.netty.proxy.server.sni.SniRoutingTable;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Where the connections accepted by a server go. Each connection goes through the admission control, and then is
+ * bridged to a connection opened by the client.
+ * <p>
+ * A server can change its route while running. The connections keep the route they were accepted with, so the old
+ * route stays in use until all of them close.
+ * <p>
+ * The route may choose the client by the server name in the TLS ClientHello. Connections for names without a route, or
+ * without a ClientHello, go to the default client.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@AllArgsConstructor
+public final class ProxyRoute {
+
+    /**
+     * Admission control for the accepted connections.
+     */
+    @NonNull
+    private final AdmissionController     admission;
+
+    /**
+     * Connection bridge to connect the proxy server and clients.
+     */
+    @NonNull
+    private final ConnectionBridge        bridge;
+
+    /**
+     * Proxy client. Creates new connections to the target as needed.
+     */
+    @NonNull
+    private final Client                  client;
+
+    /**
+     * Clients for each server name. Empty if the route doesn't look at server names.
+     */
+    @NonNull
+    private final SniRoutingTable<Client> sniRoutes;
+
+    /**
+     * Constructs a route which sends all the connections to the same client.
+     *
+     * @param adm
+     *            admission control for the accepted connections
+     * @param brdg
+     *            connection bridge to connect the proxy server and clients
+     * @param clnt
+     *            proxy client
+     */
+    public ProxyRoute(final AdmissionController adm, final ConnectionBridge brdg, final Client clnt) {
+        this(adm, brdg, clnt, SniRoutingTable.empty());
+    }
+
+    /**
+     * Closes all the connections accepted through this route which are still open.
+     */
+    public final void close() {
+        admission.closeAll();
+    }
+
+    /**
+     * Releases the resources held by the route. Should be called once no connection uses it.
+     */
+    public final void dispose() {
+        client.dispose();
+        sniRoutes.getValues()
+            .forEach(Client::dispose);
+    }
+
+    /**
+     * Checks if all the connections accepted through this route are closed.
+     *
+     * @return {@code true} if no connection uses the route, {@code false} otherwise
+     */
+    public final boolean isDrained() {
+        return admission.getActive() == 0;
+    }
+
+    /**
+     * Checks if the route chooses the client by server name. Then the connections should send a ClientHello before they
+     * are bridged.
+     *
+     * @return {@code true} if the route looks at server names, {@code false} otherwise
+     */
+    public final boolean isSniRouted() {
+        return !sniRoutes.isEmpty();
+    }
+
+    /**
+     * Returns the client for the received ClientHello. This is the one for its server name, or the default client if
+     * no route matches it.
+     *
+     * @param hello
+     *            ClientHello sent by the connection
+     * @return the client for the connection
+     */
+    public final Client selectClient(final ClientHello hello) {
+        final Client routed;
+        final Client selected;
+
+        routed = sniRoutes.lookup(hello.getServerName());
+        if (routed == null) {
+            selected = client;
+        } else {
+            selected = routed;
+        }
+
+        return selected;
+    }
+
+    /**
+     * Prepares all the clients before the first connection.
+     */
+    public final void warmup() {
+        client.warmup();
+        sniRoutes.getValues()
+            .forEach(Client::warmup);
+    }
+
+}
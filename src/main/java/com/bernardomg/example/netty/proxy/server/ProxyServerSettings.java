@@ -0,0 +1,120 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server;
+
+import com.bernardomg.example.netty.proxy.metrics.NoOpProxyMetrics;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.sni.SniSettings;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+
+import io.netty.handler.ssl.SslContext;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Settings for a {@link ReactorNettyTcpProxyServer}, along the resources it shares with other servers, such as the
+ * event loops or the metrics.
+ * <p>
+ * The port, route, event loops, channel settings, dispatcher and listener are required. By default, there is no PROXY protocol
+ * header and no TLS, the ClientHello is read with the default limits, and nothing is recorded into the metrics.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public final class ProxyServerSettings {
+
+    /**
+     * Settings for the connection channels.
+     */
+    @NonNull
+    private final ChannelSettings      channelSettings;
+
+    /**
+     * Event dispatcher. Will receive the accepted connections.
+     */
+    @NonNull
+    private final ProxyEventDispatcher dispatcher;
+
+    /**
+     * Proxy listener. Told when the server starts and stops.
+     */
+    @NonNull
+    private final ProxyListener        listener;
+
+    /**
+     * Event loop resources, should be the same used by the route client.
+     */
+    @NonNull
+    private final LoopResources        loops;
+
+    /**
+     * Proxy metrics, which receive the TLS handshakes.
+     */
+    @NonNull
+    @Builder.Default
+    private final ProxyMetrics         metrics         = NoOpProxyMetrics.INSTANCE;
+
+    /**
+     * Port which the server will listen to.
+     */
+    @NonNull
+    private final Integer              port;
+
+    /**
+     * PROXY protocol flag. If active, each connection should start with a PROXY protocol header.
+     */
+    @Builder.Default
+    private final boolean              proxyProtocol   = false;
+
+    /**
+     * Initial route for the accepted connections.
+     */
+    @NonNull
+    private final ProxyRoute           route;
+
+    /**
+     * Limits for reading the ClientHello, used if the route chooses the client by server name.
+     */
+    @NonNull
+    @Builder.Default
+    private final SniSettings          sniSettings     = SniSettings.DEFAULT;
+
+    /**
+     * TLS context for the accepted connections. If null, they are plain TCP.
+     */
+    private final SslContext           tls;
+
+    /**
+     * Wiretap flag. Activates Reactor Netty wiretap logging.
+     */
+    @Builder.Default
+    private final boolean              wiretap         = false;
+
+}
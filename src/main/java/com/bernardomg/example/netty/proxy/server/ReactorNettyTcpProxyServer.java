@@ -26,13 +26,29 @@
 
 import java.util.Objects;
 
-import com.bernardomg.example.netty.proxy.client.ReactorNettyProxyClient;
+import com.bernardomg.example.netty.proxy.client.Client;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionController;
 import com.bernardomg.example.netty.proxy.server.bridge.ConnectionBridge;
-import com.bernardomg.example.netty.proxy.server.bridge.ProxyConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.EarlyReadCounter;
+import com.bernardomg.example.netty.proxy.server.event.ConnectionEvent;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.sni.ClientHello;
+import com.bernardomg.example.netty.proxy.server.sni.ClientHelloHandler;
+import com.bernardomg.example.netty.proxy.server.sni.SniSettings;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ProxyProtocolHandler;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsHandshakeRecorder;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsSide;
 
+import io.netty.channel.Channel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.concurrent.Future;
 import lombok.extern.slf4j.Slf4j;
 import reactor.netty.Connection;
 import reactor.netty.DisposableChannel;
+import reactor.netty.resources.LoopResources;
 import reactor.netty.tcp.TcpServer;
 
 /**
@@ -41,10 +57,35 @@
  * <h2>Connection bridging</h2>
  * <p>
  * When the server starts a new connection, then a new client is started for said server connection. They are connected
- * through a {@link ProxyConnectionBridge}, which will redirect request and response streams between them. So requests
+ * through a {@link ConnectionBridge}, which will redirect request and response streams between them. So requests
  * go this way: {@code listened port -> Netty server -> Netty client -> proxied URL}, and responses work in reverse.
  * <p>
  * This also means than for each proxy server there may exist multiple clients. As many as current requests.
+ * <h2>Admission</h2>
+ * <p>
+ * Before connecting to the target, each connection goes through an {@link AdmissionController}. Rejected connections
+ * are closed right away, so they never reach the target.
+ * <h2>PROXY protocol</h2>
+ * <p>
+ * When the server is behind another proxy, such as a load balancer, it can read the original client address from a
+ * PROXY protocol header at the start of each connection. The header is read once, before admitting the connection, and
+ * the addresses in it are used for the admission, routing and listener.
+ * <h2>SNI routing</h2>
+ * <p>
+ * If the route chooses the client by server name, the server peeks at the TLS ClientHello of each connection before
+ * bridging it. TLS is not terminated, the bytes read are sent to the target untouched.
+ * <h2>TLS</h2>
+ * <p>
+ * Optionally, the server terminates TLS, and the connections are bridged once the handshake ends. Then the bridge and
+ * listener see the decrypted bytes. The PROXY protocol header, if any, is read before the handshake.
+ * <h2>Routes</h2>
+ * <p>
+ * The client, bridge and admission control form the {@link ProxyRoute} of the server. It can be replaced while running,
+ * which only affects the connections accepted after that.
+ * <h2>Stopping</h2>
+ * <p>
+ * Stopping the server only unbinds it. The connections already accepted stay open, so they can drain, and can be
+ * closed through their route.
  *
  * @author Bernardo Mart&iacute;nez Garrido
  *
@@ -53,60 +94,103 @@
 public final class ReactorNettyTcpProxyServer implements Server {
 
     /**
-     * Connection bridge to connect the proxy server and clients.
+     * Settings for the connection channels.
+     */
+    private final ChannelSettings      channelSettings;
+
+    /**
+     * Event dispatcher. Will receive the accepted connections.
+     */
+    private final ProxyEventDispatcher dispatcher;
+
+    /**
+     * Proxy listener. Told when the server starts and stops.
+     */
+    private final ProxyListener        listener;
+
+    /**
+     * Event loop resources.
+     */
+    private final LoopResources        loops;
+
+    /**
+     * Proxy metrics, which receive the TLS handshakes.
      */
-    private final ConnectionBridge        bridge;
+    private final ProxyMetrics         metrics;
 
     /**
-     * Proxy client. Creates new connections to the target as needed.
+     * Limits for reading the ClientHello, when routing by server name.
      */
-    private final ReactorNettyProxyClient client;
+    private final SniSettings          sniSettings;
 
     /**
-     * Proxy listener. Extension hook which allows reacting to the proxy events.
+     * PROXY protocol flag. If active, the original addresses are read from a header at the start of each connection.
      */
-    private final ProxyListener           listener;
+    private final boolean              proxyProtocol;
 
     /**
      * Port which the server will listen to.
      */
-    private final Integer                 port;
+    private final Integer              port;
+
+    /**
+     * Route for the accepted connections.
+     */
+    private volatile ProxyRoute        route;
 
     /**
      * Disposable for closing the server port connection.
      */
-    private DisposableChannel             server;
+    private DisposableChannel          server;
+
+    /**
+     * TLS context for the accepted connections. If null, they are plain TCP.
+     */
+    private final SslContext           tls;
 
     /**
      * Wiretap flag. Activates Reactor Netty wiretap logging.
      */
-    private final boolean                 wiretap;
+    private final boolean              wiretap;
 
     /**
-     * Constructs a proxy server redirecting the received port to the target URL.
+     * Constructs a proxy server with the received settings.
      *
-     * @param prt
-     *            port to listen to
-     * @param targetHost
-     *            target host
-     * @param targetPort
-     *            target port
-     * @param lst
-     *            proxy listener
-     * @param wtap
-     *            wiretap flag
-     */
-    public ReactorNettyTcpProxyServer(final Integer prt, final String targetHost, final Integer targetPort,
-            final ProxyListener lst, final boolean wtap) {
+     * @param settings
+     *            server settings
+     */
+    public ReactorNettyTcpProxyServer(final ProxyServerSettings settings) {
         super();
 
-        port = Objects.requireNonNull(prt);
-        listener = Objects.requireNonNull(lst);
-        wiretap = Objects.requireNonNull(wtap);
+        port = settings.getPort();
+        route = settings.getRoute();
+        loops = settings.getLoops();
+        channelSettings = settings.getChannelSettings();
+        dispatcher = settings.getDispatcher();
+        listener = settings.getListener();
+        proxyProtocol = settings.isProxyProtocol();
+        sniSettings = settings.getSniSettings();
+        tls = settings.getTls();
+        metrics = settings.getMetrics();
+        wiretap = settings.isWiretap();
+    }
 
-        client = new ReactorNettyProxyClient(targetHost, targetPort, wtap);
+    /**
+     * Returns the port listened to.
+     *
+     * @return the port listened to
+     */
+    public final Integer getPort() {
+        return port;
+    }
 
-        bridge = new ProxyConnectionBridge(listener);
+    /**
+     * Returns the route for the connections accepted from now on.
+     *
+     * @return the current route
+     */
+    public final ProxyRoute getRoute() {
+        return route;
     }
 
     @Override
@@ -119,19 +203,54 @@ public final void listen() {
         log.trace("Stopped server listening");
     }
 
+    /**
+     * Changes the route for the connections accepted from now on. The connections already accepted keep the previous
+     * route, which is returned so it can be disposed once they close.
+     *
+     * @param rt
+     *            new route
+     * @return the previous route
+     */
+    public final ProxyRoute reroute(final ProxyRoute rt) {
+        final ProxyRoute previous;
+
+        log.debug("Changing route for port {}", port);
+
+        rt.warmup();
+        previous = route;
+        route = Objects.requireNonNull(rt);
+
+        return previous;
+    }
+
     @Override
     public final void start() {
+        final TcpServer tcpServer;
+
         log.trace("Starting server");
 
         log.debug("Binding to port {}", port);
 
-        server = TcpServer.create()
+        route.warmup();
+
+        if (tls == null) {
+            tcpServer = channelSettings.applyTo(TcpServer.create());
+        } else {
+            tcpServer = channelSettings.applyTo(TcpServer.create())
+                .secure(spec -> spec.sslContext(tls));
+        }
+
+        server = tcpServer
+            // Connection preamble
+            .doOnChannelInit((observer, channel, address) -> initChannel(channel))
             // Bridge connection
-            .doOnConnection(this::bridgeConnections)
+            .doOnConnection(this::onConnection)
             // Listen to events
             .doOnBind(c -> listener.onStart())
             // Wiretap
             .wiretap(wiretap)
+            // Event loops
+            .runOn(loops)
             // Bind to port
             .port(port)
             .bindNow()
@@ -145,29 +264,139 @@ public final void start() {
     public final void stop() {
         log.trace("Stopping server");
 
-        listener.onStop();
-
+        // Only unbinds, the accepted connections stay open
+        // The listener is told once the server channel closes
         server.dispose();
 
         log.trace("Stopped server");
     }
 
     /**
-     * Bridges the server and client connections.
+     * Bridges the server and client connections through the received route.
      *
      * @param serverConn
      *            server connection
+     * @param addresses
+     *            original addresses of the server connection
+     * @param rt
+     *            route for the connection
+     * @param client
+     *            client chosen by the route for the connection
      */
-    private final void bridgeConnections(final Connection serverConn) {
+    private final void bridgeConnections(final Connection serverConn, final ConnectionAddresses addresses,
+            final ProxyRoute rt, final Client client) {
         log.debug("Starting proxy client");
 
         // Connect to client, and react when connection becomes available
-        client.connect()
+        client.connect(addresses)
             .subscribe((clientConn) -> {
-                log.debug("Bridging connection with {}", bridge);
+                log.debug("Bridging connection with {}", rt.getBridge());
+
+                rt.getBridge()
+                    .bridge(serverConn, clientConn);
+            }, (error) -> {
+                // Without a target there is nothing to proxy
+                log.warn("Closing connection from {}, as the proxy client failed to connect: {}", addresses.getSource(),
+                    error.getMessage());
 
-                bridge.bridge(serverConn, clientConn);
+                serverConn.dispose();
             });
     }
 
+    /**
+     * Prepares a new connection channel, adding the handlers for reading its preamble. The PROXY protocol header comes
+     * first, followed by the ClientHello. Both are read before the TLS handler, when terminating TLS.
+     * <p>
+     * The route is read before the connection is ready, so it may change in between. Then the new route may look at
+     * server names, while the connection has no ClientHello. It will go to the default client.
+     *
+     * @param channel
+     *            new channel
+     */
+    private final void initChannel(final Channel channel) {
+        final boolean sniRouted;
+
+        sniRouted = route.isSniRouted();
+        if (tls != null) {
+            TlsHandshakeRecorder.install(channel, TlsSide.SERVER, metrics);
+        }
+        // Bytes may be read before bridging, while connecting to the upstream, or after the preamble or TLS handshake
+        EarlyReadCounter.install(channel);
+        if (sniRouted) {
+            ClientHelloHandler.install(channel, sniSettings);
+        }
+        if (proxyProtocol) {
+            // Added to the start of the pipeline, before the ClientHello handler
+            ProxyProtocolHandler.install(channel);
+        }
+    }
+
+    /**
+     * Admits and bridges the connection, once its preamble is read. This is the PROXY protocol header and the
+     * ClientHello, if expected.
+     *
+     * @param serverConn
+     *            server connection
+     */
+    private final void onConnection(final Connection serverConn) {
+        final Future<Void> hello;
+        final Future<Void> pending;
+
+        hello = serverConn.channel()
+            .attr(ClientHelloHandler.PARSED)
+            .get();
+        // The ClientHello is read after the header, so it is enough to wait for it
+        if (hello == null) {
+            pending = serverConn.channel()
+                .attr(ProxyProtocolHandler.DECODED)
+                .get();
+        } else {
+            pending = hello;
+        }
+
+        if (pending == null) {
+            onConnectionReady(serverConn);
+        } else {
+            // If the preamble fails, the handler already closed the connection
+            pending.addListener(f -> {
+                if (f.isSuccess()) {
+                    onConnectionReady(serverConn);
+                }
+            });
+        }
+    }
+
+    /**
+     * Bridges the accepted connection, if admitted. Otherwise the admission control already closed it.
+     * <p>
+     * The route is read once, so the whole connection goes through the same route, even if it changes meanwhile.
+     *
+     * @param serverConn
+     *            server connection
+     */
+    private final void onConnectionReady(final Connection serverConn) {
+        final ProxyRoute          current;
+        final ConnectionAddresses addresses;
+        final ClientHello         hello;
+
+        current = route;
+        if (current.getAdmission()
+            .admit(serverConn)) {
+            addresses = ConnectionAddresses.of(serverConn.channel());
+            // Dispatched before bridging, so it goes before the messages of the connection
+            dispatcher.dispatch(new ConnectionEvent(addresses, serverConn.channel()
+                .id()
+                .asShortText()));
+            if (serverConn.channel()
+                .hasAttr(ClientHello.KEY)) {
+                hello = serverConn.channel()
+                    .attr(ClientHello.KEY)
+                    .get();
+            } else {
+                hello = ClientHello.EMPTY;
+            }
+            bridgeConnections(serverConn, addresses, current, current.selectClient(hello));
+        }
+    }
+
 }
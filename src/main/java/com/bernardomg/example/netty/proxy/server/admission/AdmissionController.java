@@ -0,0 +1,437 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.admission;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.Connection;
+
+/**
+ * Decides which of the accepted connections are proxied. This runs before connecting to the upstream, so a connection
+ * storm is stopped at the proxy, instead of being passed to the upstreams.
+ * <h2>Limits</h2>
+ * <ul>
+ * <li>Open connections, for all the clients together</li>
+ * <li>Open connections for each client</li>
+ * <li>New connections per second for each client, as a token bucket</li>
+ * <li>Bytes per second sent by each client, as a token bucket shared by all its connections</li>
+ * </ul>
+ * <p>
+ * The byte limit doesn't reject anything. Its bucket is set into the {@link TokenBucket#READ_LIMIT} attribute of the
+ * channel, for the bridge to stop reading while the client is over it.
+ * <h2>Rejecting</h2>
+ * <p>
+ * Rejected connections are reset, without lingering, and counted by reason.
+ * <h2>Contention</h2>
+ * <p>
+ * The global count is an atomic integer, updated without locks. Each client state is only updated while holding its
+ * entry in a concurrent map, which locks just that entry, so clients don't contend with each other. Clients are
+ * forgotten once they have no connections and their buckets are full, when their last connection closes or in a
+ * periodic sweep.
+ * <h2>Updating the limits</h2>
+ * <p>
+ * The limits are changed through {@link #update(AdmissionSettings)}, which returns a new controller sharing the state
+ * of this one. The connections open on either of them count towards the limits, and the clients keep their buckets and
+ * rejection counts. Still, each controller knows the connections it admitted, so it can close them, or tell when they
+ * are all closed.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class AdmissionController {
+
+    /**
+     * Minimum time between sweeps of the client states, in nanoseconds.
+     */
+    private static final long       SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Open connections admitted by this controller.
+     */
+    private final AtomicInteger     active         = new AtomicInteger();
+
+    /**
+     * Admitted connections still open. Closed channels are removed by the group.
+     */
+    private final ChannelGroup      channels       = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    /**
+     * Clock, giving the current time in nanoseconds as {@code System.nanoTime()} does.
+     */
+    private final LongSupplier      clock;
+
+    /**
+     * Client limits flag. If inactive, client states are not kept.
+     */
+    private final boolean           clientLimits;
+
+    /**
+     * Proxy metrics.
+     */
+    private final ProxyMetrics      metrics;
+
+    /**
+     * Admission settings.
+     */
+    private final AdmissionSettings settings;
+
+    /**
+     * State shared with the controllers created by updating the limits.
+     */
+    private final AdmissionState    state;
+
+    /**
+     * Constructs a controller with the received settings.
+     *
+     * @param sttngs
+     *            admission settings
+     * @param mtrcs
+     *            proxy metrics
+     */
+    public AdmissionController(final AdmissionSettings sttngs, final ProxyMetrics mtrcs) {
+        this(sttngs, mtrcs, System::nanoTime);
+    }
+
+    /**
+     * Constructs a controller with the received settings, reading the time from the received clock.
+     *
+     * @param sttngs
+     *            admission settings
+     * @param mtrcs
+     *            proxy metrics
+     * @param clck
+     *            clock, giving the current time in nanoseconds
+     */
+    public AdmissionController(final AdmissionSettings sttngs, final ProxyMetrics mtrcs, final LongSupplier clck) {
+        this(sttngs, mtrcs, clck, new AdmissionState(clck.getAsLong()));
+    }
+
+    /**
+     * Constructs a controller with the received settings, over the received state.
+     *
+     * @param sttngs
+     *            admission settings
+     * @param mtrcs
+     *            proxy metrics
+     * @param clck
+     *            clock, giving the current time in nanoseconds
+     * @param stt
+     *            admission state
+     */
+    private AdmissionController(final AdmissionSettings sttngs, final ProxyMetrics mtrcs, final LongSupplier clck,
+            final AdmissionState stt) {
+        super();
+
+        settings = Objects.requireNonNull(sttngs);
+        metrics = Objects.requireNonNull(mtrcs);
+        clock = Objects.requireNonNull(clck);
+        state = Objects.requireNonNull(stt);
+
+        clientLimits = (settings.getMaxClientConnections() > 0) || (settings.getClientConnectionRate() > 0)
+                || (settings.getClientByteRate() > 0);
+    }
+
+    /**
+     * Admits or rejects the connection. Rejected connections are closed, while admitted ones are released once they
+     * close.
+     *
+     * @param connection
+     *            accepted connection
+     * @return {@code true} if the connection is admitted, {@code false} if it was rejected
+     */
+    public final boolean admit(final Connection connection) {
+        final Channel      channel;
+        final InetAddress  address;
+        final RejectReason reason;
+
+        channel = connection.channel();
+        // The original client address, if the connection came through another proxy
+        address = getAddress(ConnectionAddresses.of(channel)
+            .getSource());
+
+        if (!tryAcquire()) {
+            reason = RejectReason.CONNECTIONS;
+        } else if (address == null) {
+            reason = null;
+        } else {
+            reason = admitClient(channel, address);
+            if (reason != null) {
+                active.decrementAndGet();
+                state.getActive()
+                    .decrementAndGet();
+            }
+        }
+
+        if (reason == null) {
+            channels.add(channel);
+            connection.onDispose(() -> release(address));
+        } else {
+            reject(channel, reason);
+        }
+
+        sweepIfDue();
+
+        return reason == null;
+    }
+
+    /**
+     * Closes all the admitted connections still open.
+     */
+    public final void closeAll() {
+        log.debug("Closing {} admitted connections", channels.size());
+
+        channels.close();
+    }
+
+    /**
+     * Returns the number of open connections admitted by this controller.
+     *
+     * @return the open connections
+     */
+    public final int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Returns the number of clients being tracked.
+     *
+     * @return the tracked clients
+     */
+    public final int getClients() {
+        return state.getClients()
+            .size();
+    }
+
+    /**
+     * Returns the number of connections rejected for the received reason. This includes those rejected by the
+     * controllers this one was updated from.
+     *
+     * @param reason
+     *            reason to check
+     * @return the connections rejected for the reason
+     */
+    public final long getRejected(final RejectReason reason) {
+        return state.getRejected(reason)
+            .sum();
+    }
+
+    /**
+     * Returns a controller with new limits, which carries over the state of this one. The connections open on this
+     * controller count towards the new limits, and the clients keep their buckets, so the client rates are not changed.
+     *
+     * @param sttngs
+     *            new admission settings
+     * @return a controller with the new limits
+     */
+    public final AdmissionController update(final AdmissionSettings sttngs) {
+        return new AdmissionController(sttngs, metrics, clock, state);
+    }
+
+    /**
+     * Applies the client limits. If the connection is admitted, the client byte limit is set into the channel.
+     *
+     * @param channel
+     *            accepted channel
+     * @param address
+     *            client address
+     * @return the reason for rejecting the connection, or {@code null} if it is admitted
+     */
+    private final RejectReason admitClient(final Channel channel, final InetAddress address) {
+        final RejectReason[]  reason;
+        final ClientAdmission client;
+
+        // Taken out of the remapping function, which holds the client entry
+        reason = new RejectReason[1];
+        client = state.getClients()
+            .compute(address, (k, current) -> {
+                final ClientAdmission admission;
+
+                if (current == null) {
+                    admission = new ClientAdmission(settings, clock);
+                } else {
+                    admission = current;
+                }
+                reason[0] = admission.tryAdmit(settings.getMaxClientConnections());
+
+                return admission;
+            });
+
+        if ((reason[0] == null) && (client.getBytes() != TokenBucket.UNLIMITED)) {
+            channel.attr(TokenBucket.READ_LIMIT)
+                .set(client.getBytes());
+        }
+
+        return reason[0];
+    }
+
+    /**
+     * Returns the IP address of the client. This is {@code null} if the client is not connected through IP, or client
+     * limits are disabled.
+     *
+     * @param remote
+     *            client address
+     * @return the client IP address
+     */
+    private final InetAddress getAddress(final SocketAddress remote) {
+        final InetAddress address;
+
+        if (clientLimits && (remote instanceof InetSocketAddress)) {
+            address = ((InetSocketAddress) remote).getAddress();
+        } else {
+            address = null;
+        }
+
+        return address;
+    }
+
+    /**
+     * Forgets the client if idle. Used as remapping function for the client entry.
+     *
+     * @param address
+     *            client address
+     * @param client
+     *            client state
+     * @return the client state, or {@code null} to forget it
+     */
+    private final ClientAdmission keepIfActive(final InetAddress address, final ClientAdmission client) {
+        final ClientAdmission kept;
+
+        if (client.isIdle()) {
+            kept = null;
+        } else {
+            kept = client;
+        }
+
+        return kept;
+    }
+
+    /**
+     * Rejects the connection. It is reset, so the proxy keeps no state for it after closing.
+     *
+     * @param channel
+     *            rejected channel
+     * @param reason
+     *            reason for rejecting it
+     */
+    private final void reject(final Channel channel, final RejectReason reason) {
+        log.debug("Rejecting connection from {}: {}", channel.remoteAddress(), reason);
+
+        state.getRejected(reason)
+            .increment();
+        metrics.onConnectionRejected(reason);
+
+        channel.config()
+            .setOption(ChannelOption.SO_LINGER, 0);
+        channel.close();
+    }
+
+    /**
+     * Releases an admitted connection, which was closed.
+     *
+     * @param address
+     *            client address, may be {@code null}
+     */
+    private final void release(final InetAddress address) {
+        active.decrementAndGet();
+        state.getActive()
+            .decrementAndGet();
+        if (address != null) {
+            state.getClients()
+                .computeIfPresent(address, (k, client) -> {
+                    client.release();
+                    return keepIfActive(k, client);
+                });
+        }
+    }
+
+    /**
+     * Forgets the idle clients, if enough time passed since the last sweep. Only one thread sweeps at a time.
+     */
+    private final void sweepIfDue() {
+        final long now;
+        final long last;
+
+        now = clock.getAsLong();
+        last = state.getLastSweep()
+            .get();
+        if (((now - last) > SWEEP_INTERVAL) && state.getLastSweep()
+            .compareAndSet(last, now)) {
+            for (final InetAddress address : state.getClients()
+                .keySet()) {
+                state.getClients()
+                    .computeIfPresent(address, this::keepIfActive);
+            }
+        }
+    }
+
+    /**
+     * Counts a new open connection, unless the maximum is reached. The connections admitted by the controllers sharing
+     * the state count towards the maximum.
+     *
+     * @return {@code true} if the connection was counted, {@code false} if the maximum was reached
+     */
+    private final boolean tryAcquire() {
+        final AtomicInteger total;
+        final int           max;
+        boolean             acquired;
+        int                 current;
+
+        total = state.getActive();
+        max = settings.getMaxConnections();
+        if (max <= 0) {
+            total.incrementAndGet();
+            acquired = true;
+        } else {
+            do {
+                current = total.get();
+                acquired = current < max;
+            } while (acquired && !total.compareAndSet(current, current + 1));
+        }
+
+        if (acquired) {
+            active.incrementAndGet();
+        }
+
+        return acquired;
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.admission;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Settings for admitting connections. Clients are told apart by their IP address. Any limit which is not positive is
+ * disabled.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public final class AdmissionSettings {
+
+    /**
+     * No limits at all.
+     */
+    public static final AdmissionSettings UNLIMITED             = AdmissionSettings.builder()
+        .build();
+
+    /**
+     * Bytes each client can send above its byte rate at once.
+     */
+    private final long                    clientByteBurst;
+
+    /**
+     * Bytes each client can send per second, in all its connections together.
+     */
+    private final long                    clientByteRate;
+
+    /**
+     * Connections each client can open above its connection rate at once.
+     */
+    private final int                     clientConnectionBurst;
+
+    /**
+     * Connections each client can open per second.
+     */
+    private final double                  clientConnectionRate;
+
+    /**
+     * Maximum open connections for each client.
+     */
+    private final int                     maxClientConnections;
+
+    /**
+     * Maximum open connections for all the clients together.
+     */
+    private final int                     maxConnections;
+
+}
@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.admission;
+
+import java.net.InetAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission state of a listener. It outlives the controllers, so when the limits change the open connections still
+ * count towards them, and the clients keep their buckets.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+final class AdmissionState {
+
+    /**
+     * Open connections, admitted by any of the controllers.
+     */
+    private final AtomicInteger                               active    = new AtomicInteger();
+
+    /**
+     * State for each client.
+     */
+    private final ConcurrentMap<InetAddress, ClientAdmission> clients   = new ConcurrentHashMap<>();
+
+    /**
+     * Time of the last sweep, in nanoseconds.
+     */
+    private final AtomicLong                                  lastSweep;
+
+    /**
+     * Rejected connections, by reason.
+     */
+    private final Map<RejectReason, LongAdder>                rejected  = new EnumMap<>(RejectReason.class);
+
+    /**
+     * Constructs the state for a new listener.
+     *
+     * @param now
+     *            current time, in nanoseconds
+     */
+    AdmissionState(final long now) {
+        super();
+
+        lastSweep = new AtomicLong(now);
+        for (final RejectReason reason : RejectReason.values()) {
+            rejected.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * Returns the open connections.
+     *
+     * @return the open connections
+     */
+    public final AtomicInteger getActive() {
+        return active;
+    }
+
+    /**
+     * Returns the state for each client.
+     *
+     * @return the client states
+     */
+    public final ConcurrentMap<InetAddress, ClientAdmission> getClients() {
+        return clients;
+    }
+
+    /**
+     * Returns the time of the last sweep, in nanoseconds.
+     *
+     * @return the time of the last sweep
+     */
+    public final AtomicLong getLastSweep() {
+        return lastSweep;
+    }
+
+    /**
+     * Returns the counter of connections rejected for the received reason.
+     *
+     * @param reason
+     *            reason to check
+     * @return the counter for the reason
+     */
+    public final LongAdder getRejected(final RejectReason reason) {
+        return rejected.get(reason);
+    }
+
+}
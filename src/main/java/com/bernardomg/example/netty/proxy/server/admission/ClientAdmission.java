@@ -0,0 +1,143 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.admission;
+
+import java.util.function.LongSupplier;
+
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+
+/**
+ * Admission state for a single client. It is only modified while the controller holds the map entry for the client,
+ * so the connection count doesn't need to be atomic.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+final class ClientAdmission {
+
+    /**
+     * Open connections.
+     */
+    private int               active;
+
+    /**
+     * Limit on the bytes read from the client.
+     */
+    private final TokenBucket bytes;
+
+    /**
+     * Limit on the connections opened by the client.
+     */
+    private final TokenBucket connections;
+
+    /**
+     * Constructs the state for a new client, with full buckets.
+     *
+     * @param settings
+     *            admission settings
+     * @param clock
+     *            clock for the buckets
+     */
+    ClientAdmission(final AdmissionSettings settings, final LongSupplier clock) {
+        super();
+
+        connections = createBucket(settings.getClientConnectionRate(), settings.getClientConnectionBurst(), clock);
+        bytes = createBucket(settings.getClientByteRate(), settings.getClientByteBurst(), clock);
+    }
+
+    /**
+     * Returns the limit on the bytes read from the client.
+     *
+     * @return the byte limit
+     */
+    public final TokenBucket getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Checks if forgetting the client loses nothing. This is when it has no connections, and all its tokens were
+     * refilled.
+     *
+     * @return {@code true} if the client can be forgotten, {@code false} otherwise
+     */
+    public final boolean isIdle() {
+        return (active == 0) && connections.isFull() && bytes.isFull();
+    }
+
+    /**
+     * Records a connection closing.
+     */
+    public final void release() {
+        active--;
+    }
+
+    /**
+     * Tries to admit a connection.
+     *
+     * @param maxConnections
+     *            maximum open connections for the client. If not positive, there is no limit
+     * @return the reason for rejecting the connection, or {@code null} if it is admitted
+     */
+    public final RejectReason tryAdmit(final int maxConnections) {
+        final RejectReason reason;
+
+        if ((maxConnections > 0) && (active >= maxConnections)) {
+            reason = RejectReason.CLIENT_CONNECTIONS;
+        } else if (!connections.tryAcquire(1)) {
+            reason = RejectReason.CLIENT_RATE;
+        } else {
+            active++;
+            reason = null;
+        }
+
+        return reason;
+    }
+
+    /**
+     * Creates a bucket for the received limit. Without burst, the bucket holds a second of tokens.
+     *
+     * @param rate
+     *            tokens per second
+     * @param burst
+     *            maximum tokens at once
+     * @param clock
+     *            clock for the bucket
+     * @return the bucket for the limit
+     */
+    private final TokenBucket createBucket(final double rate, final long burst, final LongSupplier clock) {
+        final TokenBucket bucket;
+
+        if (rate <= 0) {
+            bucket = TokenBucket.UNLIMITED;
+        } else if (burst > 0) {
+            bucket = new TokenBucket(rate, burst, clock);
+        } else {
+            bucket = new TokenBucket(rate, (long) Math.ceil(rate), clock);
+        }
+
+        return bucket;
+    }
+
+}
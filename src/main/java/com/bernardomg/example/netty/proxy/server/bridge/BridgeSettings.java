@@ -0,0 +1,126 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge;
+
+import com.bernardomg.example.netty.proxy.metrics.NoOpProxyMetrics;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.BackpressureStats;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.GlobalBufferLimit;
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.CorrelationSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.flush.FlushSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FramingSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.BandwidthShaper;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.ShapingSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.timeout.TimeoutSettings;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for a {@link ProxyConnectionBridge}, along the state it shares with other bridges, such as the buffer limit
+ * or the metrics.
+ * <p>
+ * Only the capture settings are required. By default, messages are flushed one by one, and there is no framing,
+ * correlation, timeout, rate limit nor buffer limit. Nothing is recorded into the metrics.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public final class BridgeSettings {
+
+    /**
+     * Backpressure pause stats, which may be shared with other bridges.
+     */
+    @NonNull
+    @Builder.Default
+    private final BackpressureStats   backpressureStats = new BackpressureStats();
+
+    /**
+     * Limit on the bytes being written by all the connections.
+     */
+    @NonNull
+    @Builder.Default
+    private final GlobalBufferLimit   bufferLimit       = new GlobalBufferLimit(0);
+
+    /**
+     * Settings for capturing the messages into events.
+     */
+    @NonNull
+    private final CaptureSettings     capture;
+
+    /**
+     * Settings for pairing the requests with their responses. Requires framing.
+     */
+    @NonNull
+    @Builder.Default
+    private final CorrelationSettings correlation       = CorrelationSettings.NONE;
+
+    /**
+     * Settings for splitting the messages into frames.
+     */
+    @NonNull
+    @Builder.Default
+    private final FramingSettings     framing           = FramingSettings.NONE;
+
+    /**
+     * Proxy metrics.
+     */
+    @NonNull
+    @Builder.Default
+    private final ProxyMetrics        metrics           = NoOpProxyMetrics.INSTANCE;
+
+    /**
+     * Flush settings for requests.
+     */
+    @NonNull
+    @Builder.Default
+    private final FlushSettings       requestFlush      = FlushSettings.PER_MESSAGE;
+
+    /**
+     * Flush settings for responses.
+     */
+    @NonNull
+    @Builder.Default
+    private final FlushSettings       responseFlush     = FlushSettings.PER_MESSAGE;
+
+    /**
+     * Bandwidth shaper, which gives the rate limits for each connection.
+     */
+    @NonNull
+    @Builder.Default
+    private final BandwidthShaper     shaper            = new BandwidthShaper(ShapingSettings.NONE);
+
+    /**
+     * Connection timeouts.
+     */
+    @NonNull
+    @Builder.Default
+    private final TimeoutSettings     timeouts          = TimeoutSettings.NONE;
+
+}
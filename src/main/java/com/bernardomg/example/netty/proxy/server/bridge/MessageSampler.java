@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge;
+
+/**
+ * Chooses one message out of a fixed number. The first message is always chosen.
+ * <p>
+ * There is a sampler for each connection and direction, which is only used from the connection event loop, so it is
+ * not thread safe.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+final class MessageSampler {
+
+    /**
+     * Messages seen since the last one chosen.
+     */
+    private int       count;
+
+    /**
+     * One message out of this number is chosen.
+     */
+    private final int rate;
+
+    /**
+     * Constructs a sampler for the received rate.
+     *
+     * @param rt
+     *            one message out of this number is chosen, if not positive all of them are
+     */
+    public MessageSampler(final int rt) {
+        super();
+
+        rate = Math.max(1, rt);
+    }
+
+    /**
+     * Indicates if the next message is chosen.
+     *
+     * @return {@code true} if the message is chosen, {@code false} otherwise
+     */
+    public final boolean sample() {
+        final boolean chosen;
+
+        chosen = count == 0;
+        count++;
+        if (count == rate) {
+            count = 0;
+        }
+
+        return chosen;
+    }
+
+}
@@ -24,18 +24,37 @@
 
 package com.bernardomg.example.netty.proxy.server.bridge;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
-import com.bernardomg.example.netty.proxy.server.ProxyListener;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.BackpressureStats;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.BackpressureWriter;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.GlobalBufferLimit;
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.CorrelationSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.ExchangeTracker;
+import com.bernardomg.example.netty.proxy.server.bridge.flush.FlushSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FrameAssembler;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.Framer;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FramingSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.BandwidthShaper;
+import com.bernardomg.example.netty.proxy.server.bridge.timeout.TimeoutSettings;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.Disposable;
 import reactor.core.Disposables;
 import reactor.netty.Connection;
-import reactor.netty.NettyInbound;
-import reactor.netty.NettyOutbound;
 
 /**
  * Bridges connections to proxy requests and responses as if the proxy server was actually the target server. The end
@@ -46,15 +65,61 @@
  * </ul>
  * <h2>Disposing the bridge</h2>
  * <p>
- * Once the bridging is done both connections will share a single lifecycle. Actually, there will be a single lifecycle,
- * the server connection's. This will define when the other components are created and destroyed.
+ * Once the bridging is done both connections will share a single lifecycle. Whichever of them is closed first, by the
+ * peer, an error or a timeout, closes the whole bridge.
  * <p>
- * When the server connection is disposed of, then the following steps are taken:
+ * When any of the connections is disposed of, then the following steps are taken:
  * <ul>
  * <li>Request flux is disposed of</li>
  * <li>Response flux is disposed of</li>
- * <li>Client channel is closed</li>
+ * <li>Both channels are closed</li>
  * </ul>
+ * <p>
+ * A half-closed connection doesn't close the bridge. If the channels allow half-closure, then the end of stream is
+ * passed to the other connection, and the opposite direction keeps working until it also ends.
+ * <h2>Timeouts</h2>
+ * <p>
+ * The {@link TimeoutSettings} close connections which stay idle, stop sending, or stop reading for too long. As with
+ * any other close, this closes the whole bridge.
+ * <h2>Events</h2>
+ * <p>
+ * Each proxied message is turned into a {@link ProxyEvent}, which is sent to the {@link ProxyEventDispatcher}. Only
+ * the first bytes of the message are copied into the event, up to the capture size, so listeners never hold the
+ * actual message buffers.
+ * <p>
+ * The {@link CaptureSettings} may sample the messages, so only one out of a number of them is sent to the dispatcher.
+ * The rest cost nothing but being counted in the metrics.
+ * <h2>Framing</h2>
+ * <p>
+ * With {@link FramingSettings}, the events are the frames of the protocol, instead of the messages as read. Each
+ * direction has a {@link FrameAssembler}, which finds the frames without copying the messages, and these are still
+ * proxied as read. The sampling and capture then apply to the frames.
+ * <h2>Exchanges</h2>
+ * <p>
+ * On top of the framing, the {@link CorrelationSettings} pair each request frame with its response, through an
+ * {@link ExchangeTracker} for each connection. The time between them is recorded into the metrics for the route, and
+ * added to the event of the response frame. All the exchanges are measured, even those not sampled.
+ * <h2>Flushing</h2>
+ * <p>
+ * Each direction has its own {@link FlushSettings}, which decide how often the messages written into the target
+ * connection are flushed. Flushing less often combines small messages into fewer write calls, at the cost of latency.
+ * <h2>Backpressure</h2>
+ * <p>
+ * Messages are written through a {@link BackpressureWriter}, which stops reading from the source connection while the
+ * target is unwritable, or while the {@link GlobalBufferLimit} is exhausted. So a slow peer only makes the proxy hold
+ * up to the target write buffer high water mark, instead of everything the fast peer sends. The pauses are recorded
+ * into the {@link BackpressureStats}.
+ * <h2>Shaping</h2>
+ * <p>
+ * The {@link BandwidthShaper} gives each direction a byte rate for the connection, and another for all of them. Also,
+ * if the server channel has a {@link TokenBucket#READ_LIMIT}, usually set by the admission control for its client, it
+ * is added to the request limits. Reading is paused while any of these is over its rate, in the same way as with
+ * backpressure. The throttled time of each connection is recorded into the metrics once it closes.
+ * <h2>Metrics</h2>
+ * <p>
+ * Each bridge, and each message going through it, is recorded into the {@link ProxyMetrics}.
+ * <p>
+ * All of these are set through the {@link BridgeSettings}.
  *
  * @author Bernardo Mart&iacute;nez Garrido
  *
@@ -63,55 +128,356 @@
 public final class ProxyConnectionBridge implements ConnectionBridge {
 
     /**
-     * Proxy listener. Will received the requests.
+     * Payload for events which don't capture any byte.
+     */
+    private static final byte[]        EMPTY_PAYLOAD = new byte[0];
+
+    /**
+     * Limit on the bytes being written by all the connections.
+     */
+    private final GlobalBufferLimit    bufferLimit;
+
+    /**
+     * Maximum number of bytes copied from each message into its event.
+     */
+    private final int                  captureBytes;
+
+    /**
+     * One message out of this number is sent to the dispatcher.
+     */
+    private final int                  sampleRate;
+
+    /**
+     * Pairs the requests with their responses.
+     */
+    private final CorrelationSettings  correlation;
+
+    /**
+     * Event dispatcher. Will receive the requests and responses.
+     */
+    private final ProxyEventDispatcher dispatcher;
+
+    /**
+     * Finds the frames in the messages. Null if the messages are not framed.
+     */
+    private final Framer               framer;
+
+    /**
+     * Frames over this size are streamed in pieces.
+     */
+    private final int                  maxFrameBytes;
+
+    /**
+     * Proxy metrics.
+     */
+    private final ProxyMetrics         metrics;
+
+    /**
+     * Flush settings for requests.
+     */
+    private final FlushSettings        requestFlush;
+
+    /**
+     * Flush settings for responses.
+     */
+    private final FlushSettings        responseFlush;
+
+    /**
+     * Bandwidth shaper, which gives the rate limits for each connection.
+     */
+    private final BandwidthShaper      shaper;
+
+    /**
+     * Backpressure pause stats.
+     */
+    private final BackpressureStats    stats;
+
+    /**
+     * Connection timeouts.
      */
-    private final ProxyListener listener;
+    private final TimeoutSettings      timeouts;
 
-    public ProxyConnectionBridge(final ProxyListener lstn) {
+    /**
+     * Constructs a bridge sending events to the received dispatcher, with the received settings.
+     *
+     * @param dsptchr
+     *            event dispatcher
+     * @param settings
+     *            bridge settings
+     * @throws IllegalArgumentException
+     *             if the framing or correlation settings are not valid, or correlating without framing
+     */
+    public ProxyConnectionBridge(final ProxyEventDispatcher dsptchr, final BridgeSettings settings) {
         super();
 
-        listener = Objects.requireNonNull(lstn);
+        dispatcher = Objects.requireNonNull(dsptchr);
+        captureBytes = settings.getCapture()
+            .getCapturedBytes();
+        sampleRate = settings.getCapture()
+            .getSampleRate();
+        requestFlush = settings.getRequestFlush();
+        responseFlush = settings.getResponseFlush();
+        bufferLimit = settings.getBufferLimit();
+        stats = settings.getBackpressureStats();
+        timeouts = settings.getTimeouts();
+        shaper = settings.getShaper();
+        metrics = settings.getMetrics();
+        framer = settings.getFraming()
+            .createFramer();
+        maxFrameBytes = settings.getFraming()
+            .getMaxFrameBytes();
+        correlation = settings.getCorrelation();
+
+        if (correlation.isEnabled() && (framer == null)) {
+            throw new IllegalArgumentException("Correlating the exchanges requires framing the messages");
+        }
+        correlation.validate();
     }
 
     @Override
     public final void bridge(final Connection server, final Connection client) {
-        final Disposable reqDispose;
-        final Disposable respDispose;
-        final Disposable bridgeDispose;
+        final BackpressureWriter reqWriter;
+        final BackpressureWriter respWriter;
+        final Disposable         bridgeDispose;
+        final String             connectionId;
+        final long               start;
+        final MessageSampler     reqSampler;
+        final MessageSampler     respSampler;
+        final TokenBucket        clientLimit;
+        final ExchangeTracker    tracker;
+
+        connectionId = server.channel()
+            .id()
+            .asShortText();
+        start = System.nanoTime();
+        metrics.onBridgeOpened();
+
+        timeouts.applyTo(server, client);
+        tracker = correlation.createTracker();
 
         log.debug("Binding request. Server inbound -> client outbound");
-        reqDispose = decoratedBridge(server.inbound(), client.outbound(), listener::onRequest);
+        reqSampler = new MessageSampler(sampleRate);
+        clientLimit = Objects.requireNonNullElse(server.channel()
+            .attr(TokenBucket.READ_LIMIT)
+            .get(), TokenBucket.UNLIMITED);
+        reqWriter = decoratedBridge(server, client, Direction.REQUEST, requestFlush,
+            getReadLimits(Direction.REQUEST, clientLimit), createFrameConsumer(connectionId, Direction.REQUEST,
+                reqSampler, tracker));
 
         log.debug("Binding response. Client inbound -> server outbound");
-        respDispose = decoratedBridge(client.inbound(), server.outbound(), listener::onResponse);
+        respSampler = new MessageSampler(sampleRate);
+        respWriter = decoratedBridge(client, server, Direction.RESPONSE, responseFlush,
+            getReadLimits(Direction.RESPONSE, TokenBucket.UNLIMITED), createFrameConsumer(connectionId,
+                Direction.RESPONSE, respSampler, tracker));
 
         // Combines disposables
-        // This includes closing the client channel
-        bridgeDispose = Disposables.composite(reqDispose, respDispose, client.channel()::close);
+        // This includes closing both channels
+        bridgeDispose = Disposables.composite(reqWriter, respWriter, server.channel()::close,
+            client.channel()::close, () -> onClosed(start, reqWriter, respWriter));
 
-        // When the server connection is disposed, so is the bridging
+        // When any of the connections is disposed, so is the bridging
+        // The composite is only disposed once
         server.onDispose(bridgeDispose);
+        client.onDispose(bridgeDispose);
+    }
+
+    /**
+     * Returns the backpressure pause stats of all the bridged connections.
+     *
+     * @return the backpressure stats
+     */
+    public final BackpressureStats getBackpressureStats() {
+        return stats;
     }
 
     /**
      * Bridges the connections, adding the decorator. This builds a flux which sends messages in the direction
      * {@code inbound -> outbound}.
      *
-     * @param inbound
-     *            source connection {@code NettyInbound}
-     * @param outbound
-     *            target connection {@code NettyOutbound}
-     * @param decorator
-     *            decorator to apply
-     * @return disposable to get rid of the bridge flux
-     */
-    private final Disposable decoratedBridge(final NettyInbound inbound, final NettyOutbound outbound,
-            final Consumer<? super ByteBuf> decorator) {
-        return outbound.send(inbound.receive()
+     * @param source
+     *            source connection
+     * @param target
+     *            target connection
+     * @param direction
+     *            direction of the messages
+     * @param flush
+     *            flush settings for the target connection
+     * @param readLimits
+     *            limits on the bytes read from the source connection
+     * @param onFrame
+     *            receives the frames in the messages
+     * @return writer for the bridge flux, which disposes of it
+     */
+    private final BackpressureWriter decoratedBridge(final Connection source, final Connection target,
+            final Direction direction, final FlushSettings flush, final List<TokenBucket> readLimits,
+            final BiConsumer<ByteBuf, FramePart> onFrame) {
+        final BackpressureWriter writer;
+        final FrameAssembler     assembler;
+        final Consumer<ByteBuf>  decorator;
+
+        flush.applyTo(target);
+
+        if (framer == null) {
+            // Each message is a frame
+            assembler = null;
+            decorator = m -> {
+                metrics.onMessage(direction, m.readableBytes());
+                onFrame.accept(m, FramePart.WHOLE);
+            };
+        } else {
+            assembler = new FrameAssembler(framer, maxFrameBytes, onFrame);
+            decorator = m -> {
+                metrics.onMessage(direction, m.readableBytes());
+                assembler.onMessage(m);
+            };
+        }
+
+        writer = new BackpressureWriter(source, target, direction, bufferLimit, readLimits, stats);
+        source.inbound()
+            .receive()
             .retain()
-            .doOnNext(decorator))
-            .then()
-            .subscribe();
+            .doOnNext(decorator)
+            // The assembler is only used from the source event loop
+            .doFinally(s -> {
+                if (assembler != null) {
+                    source.channel()
+                        .eventLoop()
+                        .execute(assembler::release);
+                }
+            })
+            .subscribe(writer);
+
+        return writer;
+    }
+
+    /**
+     * Pairs the frame with its request or response, recording the exchange latency into the metrics once complete.
+     *
+     * @param tracker
+     *            exchange tracker for the connection, or {@code null} if there is no correlation
+     * @param direction
+     *            frame direction
+     * @param frame
+     *            proxied frame
+     * @param part
+     *            part of the frame in the message
+     * @return the exchange latency if the frame completes an exchange, or {@link ProxyEvent#NO_LATENCY} otherwise
+     */
+    private final long correlate(final ExchangeTracker tracker, final Direction direction, final ByteBuf frame,
+            final FramePart part) {
+        final long latency;
+
+        if (tracker == null) {
+            latency = ProxyEvent.NO_LATENCY;
+        } else if (direction == Direction.REQUEST) {
+            tracker.onRequest(frame, part);
+            latency = ProxyEvent.NO_LATENCY;
+        } else {
+            latency = tracker.onResponse(frame, part);
+            if (latency != ProxyEvent.NO_LATENCY) {
+                metrics.onExchange(correlation.getRoute(), latency);
+            }
+        }
+
+        return latency;
+    }
+
+    /**
+     * Creates the consumer for the frames of a direction, which correlates them, and sends them to the dispatcher if
+     * chosen by the sampler.
+     *
+     * @param connectionId
+     *            id of the proxied connection
+     * @param direction
+     *            message direction
+     * @param sampler
+     *            sampler for the connection and direction
+     * @param tracker
+     *            exchange tracker for the connection, or {@code null} if there is no correlation
+     * @return the frame consumer
+     */
+    private final BiConsumer<ByteBuf, FramePart> createFrameConsumer(final String connectionId,
+            final Direction direction, final MessageSampler sampler, final ExchangeTracker tracker) {
+        return (frame, part) -> {
+            final long latency;
+
+            latency = correlate(tracker, direction, frame, part);
+            if (sampler.sample()) {
+                dispatch(connectionId, direction, frame, part, latency);
+            }
+        };
+    }
+
+    /**
+     * Sends an event for the frame to the dispatcher.
+     *
+     * @param connectionId
+     *            id of the proxied connection
+     * @param direction
+     *            message direction
+     * @param message
+     *            proxied frame
+     * @param part
+     *            part of the frame in the message
+     * @param latency
+     *            exchange latency, or {@link ProxyEvent#NO_LATENCY} if the frame doesn't complete an exchange
+     */
+    private final void dispatch(final String connectionId, final Direction direction, final ByteBuf message,
+            final FramePart part, final long latency) {
+        final int    length;
+        final int    captured;
+        final byte[] payload;
+
+        length = message.readableBytes();
+        captured = Math.min(length, captureBytes);
+        if (captured == 0) {
+            payload = EMPTY_PAYLOAD;
+        } else {
+            payload = ByteBufUtil.getBytes(message, message.readerIndex(), captured);
+        }
+
+        dispatcher.dispatch(new ProxyEvent(connectionId, direction, latency, length, part, payload,
+            System.currentTimeMillis()));
+    }
+
+    /**
+     * Returns the limits on the bytes read for the received direction. The unlimited ones are left out.
+     *
+     * @param direction
+     *            direction to limit
+     * @param extra
+     *            additional limit for the direction
+     * @return the read limits
+     */
+    private final List<TokenBucket> getReadLimits(final Direction direction, final TokenBucket extra) {
+        final List<TokenBucket> limits;
+
+        limits = new ArrayList<>(3);
+        for (final TokenBucket limit : List.of(extra, shaper.createConnectionLimit(direction),
+            shaper.getTotalLimit(direction))) {
+            if (limit != TokenBucket.UNLIMITED) {
+                limits.add(limit);
+            }
+        }
+
+        return limits;
+    }
+
+    /**
+     * Records the bridge closing into the metrics.
+     *
+     * @param start
+     *            time when the bridge was opened, in nanoseconds
+     * @param reqWriter
+     *            request writer
+     * @param respWriter
+     *            response writer
+     */
+    private final void onClosed(final long start, final BackpressureWriter reqWriter,
+            final BackpressureWriter respWriter) {
+        metrics.onBridgeClosed(System.nanoTime() - start);
+        metrics.onThrottled(Direction.REQUEST, reqWriter.getThrottledNanos());
+        metrics.onThrottled(Direction.RESPONSE, respWriter.getThrottledNanos());
     }
 
 }
@@ -0,0 +1,290 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.EarlyReadCounter;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+
+import io.netty.channel.Channel;
+import io.netty.channel.epoll.AbstractEpollStreamChannel;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.util.concurrent.Future;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.netty.Connection;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+
+/**
+ * Bridges connections with kernel splicing. The bytes are moved from one socket to the other by the kernel, without
+ * being copied into the JVM. This way the proxy doesn't see the messages, so it can only be used when nothing needs
+ * to read them.
+ * <h2>Requirements</h2>
+ * <p>
+ * Splicing is only supported by the epoll transport, and both channels have to:
+ * <ul>
+ * <li>Use level-triggered epoll mode</li>
+ * <li>Be registered in the same event loop</li>
+ * </ul>
+ * <p>
+ * Also, the server channel can't have a {@link TokenBucket#READ_LIMIT}, as spliced bytes can't be counted.
+ * <p>
+ * If these conditions are not met, the connections are bridged with the fallback bridge.
+ * <h2>Messages received before splicing</h2>
+ * <p>
+ * A connection may have received data before being bridged, which Reactor Netty keeps until it is read. Before
+ * splicing starts these are forwarded the usual way. The spliced bytes are written after them, as they are queued into
+ * the same outbound buffer.
+ * <h2>Splice length</h2>
+ * <p>
+ * Each splice ends after moving a fixed number of bytes, at most {@link Integer#MAX_VALUE}. When that happens, and both
+ * channels are still open, a new splice is started in its place. Otherwise the connection would stop being spliced
+ * once it went over 2 GiB, leaving the rest of the data waiting.
+ * <h2>Disposing the bridge</h2>
+ * <p>
+ * As with the fallback bridge, whichever connection is closed first closes the other one. Spliced channels don't
+ * allow half-closure, as the splices can't pass the end of stream along.
+ * <h2>Metrics</h2>
+ * <p>
+ * Spliced bridges are recorded into the {@link ProxyMetrics}, but not the spliced bytes, as they never reach the proxy.
+ * Only the messages forwarded before splicing are recorded.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class SpliceConnectionBridge implements ConnectionBridge {
+
+    /**
+     * Bridge for the connections which can't be spliced.
+     */
+    private final ConnectionBridge fallback;
+
+    /**
+     * Proxy metrics.
+     */
+    private final ProxyMetrics     metrics;
+
+    /**
+     * Bytes moved by each splice, before starting the next one.
+     */
+    private final int              spliceBytes;
+
+    /**
+     * Constructs a splice bridge with the received fallback. Each splice moves as many bytes as it can before being
+     * restarted.
+     *
+     * @param fllbck
+     *            bridge for the connections which can't be spliced
+     * @param mtrcs
+     *            proxy metrics
+     */
+    public SpliceConnectionBridge(final ConnectionBridge fllbck, final ProxyMetrics mtrcs) {
+        this(fllbck, mtrcs, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a splice bridge with the received fallback and splice length.
+     *
+     * @param fllbck
+     *            bridge for the connections which can't be spliced
+     * @param mtrcs
+     *            proxy metrics
+     * @param bytes
+     *            bytes moved by each splice, before starting the next one
+     */
+    public SpliceConnectionBridge(final ConnectionBridge fllbck, final ProxyMetrics mtrcs, final int bytes) {
+        super();
+
+        fallback = Objects.requireNonNull(fllbck);
+        metrics = Objects.requireNonNull(mtrcs);
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Splice length must be positive, got " + bytes);
+        }
+        spliceBytes = bytes;
+    }
+
+    @Override
+    public final void bridge(final Connection server, final Connection client) {
+        final Disposable                   reqDispose;
+        final Disposable                   respDispose;
+        final AtomicReference<Future<Void>> reqSplice;
+        final AtomicReference<Future<Void>> respSplice;
+        final Disposable                   bridgeDispose;
+        final AbstractEpollStreamChannel   serverChannel;
+        final AbstractEpollStreamChannel   clientChannel;
+        final long                         start;
+
+        if (!canSplice(server.channel(), client.channel())) {
+            log.debug("Can't splice connections, using {}", fallback);
+            fallback.bridge(server, client);
+        } else {
+            serverChannel = (AbstractEpollStreamChannel) server.channel();
+            clientChannel = (AbstractEpollStreamChannel) client.channel();
+            start = System.nanoTime();
+            metrics.onBridgeOpened();
+            // Spliced connections don't half-close, so the early reads don't matter
+            EarlyReadCounter.remove(serverChannel);
+
+            // Forwards what was received before splicing
+            reqDispose = forward(server.inbound(), client.outbound(), Direction.REQUEST);
+            respDispose = forward(client.inbound(), server.outbound(), Direction.RESPONSE);
+
+            log.debug("Splicing request. Server -> client");
+            reqSplice = new AtomicReference<>();
+            splice(serverChannel, clientChannel, reqSplice, server);
+
+            log.debug("Splicing response. Client -> server");
+            respSplice = new AtomicReference<>();
+            splice(clientChannel, serverChannel, respSplice, server);
+
+            // Combines disposables
+            // This includes closing both channels
+            bridgeDispose = Disposables.composite(reqDispose, respDispose, () -> cancel(reqSplice),
+                () -> cancel(respSplice), serverChannel::close, clientChannel::close,
+                () -> metrics.onBridgeClosed(System.nanoTime() - start));
+
+            // When any of the connections is disposed, so is the bridging
+            server.onDispose(bridgeDispose);
+            client.onDispose(bridgeDispose);
+        }
+    }
+
+    /**
+     * Cancels the splice in progress.
+     *
+     * @param current
+     *            holder for the splice in progress
+     */
+    private final void cancel(final AtomicReference<Future<Void>> current) {
+        current.get()
+            .cancel(false);
+    }
+
+    /**
+     * Checks if both channels can be spliced.
+     *
+     * @param server
+     *            server channel
+     * @param client
+     *            client channel
+     * @return {@code true} if the channels can be spliced, {@code false} otherwise
+     */
+    private final boolean canSplice(final Channel server, final Channel client) {
+        return (server instanceof AbstractEpollStreamChannel) && (client instanceof AbstractEpollStreamChannel)
+                && (server.eventLoop() == client.eventLoop()) && isLevelTriggered(server) && isLevelTriggered(client)
+                && !server.hasAttr(TokenBucket.READ_LIMIT);
+    }
+
+    /**
+     * Forwards the messages from the inbound to the outbound, recording them into the metrics.
+     *
+     * @param inbound
+     *            source connection {@code NettyInbound}
+     * @param outbound
+     *            target connection {@code NettyOutbound}
+     * @param direction
+     *            direction forwarded
+     * @return disposable to get rid of the forwarding flux
+     */
+    private final Disposable forward(final NettyInbound inbound, final NettyOutbound outbound,
+            final Direction direction) {
+        return outbound.send(inbound.receive()
+            .retain()
+            .doOnNext(m -> metrics.onMessage(direction, m.readableBytes())))
+            .then()
+            .subscribe();
+    }
+
+    /**
+     * Checks if an epoll channel is level-triggered.
+     *
+     * @param channel
+     *            channel to check
+     * @return {@code true} if the channel is level-triggered, {@code false} otherwise
+     */
+    private final boolean isLevelTriggered(final Channel channel) {
+        return ((AbstractEpollStreamChannel) channel).config()
+            .getEpollMode() == EpollMode.LEVEL_TRIGGERED;
+    }
+
+    /**
+     * Reacts to a splice ending. If it moved all its bytes, and both channels are still open, the next splice is
+     * started. If it failed, the bridge is closed. A cancelled splice means the bridge is already closing.
+     *
+     * @param splice
+     *            finished splice
+     * @param source
+     *            channel read by the splice
+     * @param target
+     *            channel written by the splice
+     * @param current
+     *            holder for the splice in progress
+     * @param server
+     *            server connection
+     */
+    private final void onSpliceEnd(final Future<?> splice, final AbstractEpollStreamChannel source,
+            final AbstractEpollStreamChannel target, final AtomicReference<Future<Void>> current,
+            final Connection server) {
+        if (splice.isSuccess()) {
+            if (source.isActive() && target.isActive()) {
+                log.trace("Splice finished after {} bytes, restarting it", spliceBytes);
+                splice(source, target, current, server);
+            }
+        } else if (!splice.isCancelled()) {
+            log.debug("Splice failed, closing bridge: {}", String.valueOf(splice.cause()));
+            server.dispose();
+        }
+    }
+
+    /**
+     * Starts splicing from the source into the target. The splice is kept in the holder, so it can be cancelled, and
+     * restarts itself when it ends.
+     *
+     * @param source
+     *            channel to read
+     * @param target
+     *            channel to write
+     * @param current
+     *            holder for the splice in progress
+     * @param server
+     *            server connection
+     */
+    private final void splice(final AbstractEpollStreamChannel source, final AbstractEpollStreamChannel target,
+            final AtomicReference<Future<Void>> current, final Connection server) {
+        final Future<Void> splice;
+
+        splice = source.spliceTo(target, spliceBytes);
+        current.set(splice);
+        splice.addListener(f -> onSpliceEnd(f, source, target, current, server));
+    }
+
+}
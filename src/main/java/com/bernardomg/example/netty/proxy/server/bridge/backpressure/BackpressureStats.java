@@ -0,0 +1,155 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.backpressure;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+
+/**
+ * Counts how often, and for how long, each bridge direction stopped reading because its target couldn't take more
+ * data, or because it went over its rate limits. Thread safe, shared by all the bridged connections.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class BackpressureStats {
+
+    /**
+     * Total paused time for each direction, in nanoseconds.
+     */
+    private final Map<Direction, LongAdder> pausedNanos    = new EnumMap<>(Direction.class);
+
+    /**
+     * Number of pauses for each direction.
+     */
+    private final Map<Direction, LongAdder> pauses         = new EnumMap<>(Direction.class);
+
+    /**
+     * Total throttled time for each direction, in nanoseconds.
+     */
+    private final Map<Direction, LongAdder> throttledNanos = new EnumMap<>(Direction.class);
+
+    /**
+     * Number of throttles for each direction.
+     */
+    private final Map<Direction, LongAdder> throttles      = new EnumMap<>(Direction.class);
+
+    /**
+     * Default constructor.
+     */
+    public BackpressureStats() {
+        super();
+
+        for (final Direction direction : Direction.values()) {
+            pausedNanos.put(direction, new LongAdder());
+            pauses.put(direction, new LongAdder());
+            throttledNanos.put(direction, new LongAdder());
+            throttles.put(direction, new LongAdder());
+        }
+    }
+
+    /**
+     * Returns the total time the direction was paused.
+     *
+     * @param direction
+     *            direction to check
+     * @return the total paused time
+     */
+    public final Duration getPausedTime(final Direction direction) {
+        return Duration.ofNanos(pausedNanos.get(direction)
+            .sum());
+    }
+
+    /**
+     * Returns the number of times the direction was paused.
+     *
+     * @param direction
+     *            direction to check
+     * @return the number of pauses
+     */
+    public final long getPauses(final Direction direction) {
+        return pauses.get(direction)
+            .sum();
+    }
+
+    /**
+     * Returns the total time the direction was throttled.
+     *
+     * @param direction
+     *            direction to check
+     * @return the total throttled time
+     */
+    public final Duration getThrottledTime(final Direction direction) {
+        return Duration.ofNanos(throttledNanos.get(direction)
+            .sum());
+    }
+
+    /**
+     * Returns the number of times the direction was throttled.
+     *
+     * @param direction
+     *            direction to check
+     * @return the number of throttles
+     */
+    public final long getThrottles(final Direction direction) {
+        return throttles.get(direction)
+            .sum();
+    }
+
+    /**
+     * Records a finished pause.
+     *
+     * @param direction
+     *            paused direction
+     * @param nanos
+     *            pause duration, in nanoseconds
+     */
+    public final void recordPause(final Direction direction, final long nanos) {
+        pauses.get(direction)
+            .increment();
+        pausedNanos.get(direction)
+            .add(nanos);
+    }
+
+    /**
+     * Records a finished throttle, which is a pause caused by a rate limit.
+     *
+     * @param direction
+     *            throttled direction
+     * @param nanos
+     *            throttle duration, in nanoseconds
+     */
+    public final void recordThrottle(final Direction direction, final long nanos) {
+        throttles.get(direction)
+            .increment();
+        throttledNanos.get(direction)
+            .add(nanos);
+    }
+
+}
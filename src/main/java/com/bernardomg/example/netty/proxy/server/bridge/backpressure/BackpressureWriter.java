@@ -0,0 +1,506 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.backpressure;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.reactivestreams.Subscription;
+
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.EmptyByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.DuplexChannel;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.netty.Connection;
+
+/**
+ * Writes the messages read from one connection into another, only asking for more messages while the target can take
+ * them. When the target becomes unwritable, or the global limit is reached, the writer stops requesting. Reactor Netty
+ * then stops reading from the source connection, and the data stays in the peer's socket instead of in memory.
+ * <h2>Demand</h2>
+ * <p>
+ * Messages are requested in small batches, refilled once half of them arrive. This keeps the source reading
+ * continuously while there is no pressure, and bounds what still arrives after pausing.
+ * <h2>Read limit</h2>
+ * <p>
+ * The bytes read from the source may be limited by any number of {@link TokenBucket}s, such as one for the connection
+ * and another shared by all of them. Once a bucket is in debt the writer pauses, as with any other pressure, and
+ * resumes when the debt is paid. So reads are delayed instead of buffered. These pauses are recorded as throttles,
+ * apart from the other pauses.
+ * <h2>Pause events</h2>
+ * <p>
+ * Each pause and resume fires a {@link ReadPauseEvent} into the source pipeline. Otherwise the handlers there, such as
+ * the read timeouts, would take the pauses for a peer which stopped sending.
+ * <p>
+ * The messages already requested keep arriving after pausing, and all of them go over the rate. So with read limits
+ * the messages are requested in much smaller batches.
+ * <h2>Threads</h2>
+ * <p>
+ * All the writer state is handled in the event loop of the source connection. Resumes coming from other threads are
+ * scheduled into it.
+ * <h2>Half-closing</h2>
+ * <p>
+ * If the channels allow half-closure, the source shutting down its output only ends this direction. Once every message
+ * read before that is written, the target output is shut down too, so the peer receives the same end of stream. When
+ * the target input was already shut down, both directions are finished and the target is closed.
+ * <p>
+ * Reactor Netty ignores half-closures, so a handler in the source counts the messages read, and compares them with the
+ * ones written when the source input is shut down. The source may have been shut down before the writer was created,
+ * while connecting to the target, and then the end of stream is sent on after the queued messages.
+ * <h2>Errors</h2>
+ * <p>
+ * A failure reading the source closes it, and a failure writing into the target closes the target. Whoever owns both
+ * connections should close the other one along.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class BackpressureWriter extends BaseSubscriber<ByteBuf> {
+
+    /**
+     * Name for the input handler in the pipeline.
+     */
+    private static final String     INPUT_HANDLER_NAME       = "proxy.input";
+
+    /**
+     * Name for the writability handler in the pipeline.
+     */
+    private static final String     WRITABILITY_HANDLER_NAME = "proxy.writability";
+
+    /**
+     * Messages requested at once, when there are read limits.
+     */
+    private static final int        LIMITED_PREFETCH         = 2;
+
+    /**
+     * Messages requested at once.
+     */
+    private static final int        PREFETCH                 = 32;
+
+    /**
+     * Messages received since the last request.
+     */
+    private int                     consumed;
+
+    /**
+     * Direction written by this writer.
+     */
+    private final Direction         direction;
+
+    /**
+     * Source input shut down flag.
+     */
+    private boolean                 inputShutdown;
+
+    /**
+     * Global limit on pending bytes.
+     */
+    private final GlobalBufferLimit limit;
+
+    /**
+     * Paused flag.
+     */
+    private boolean                 paused;
+
+    /**
+     * Time when the current pause started.
+     */
+    private long                    pauseStart;
+
+    /**
+     * Messages requested at once.
+     */
+    private final int               prefetch;
+
+    /**
+     * Limits on the bytes read from the source.
+     */
+    private final List<TokenBucket> readLimits;
+
+    /**
+     * Messages read from the source.
+     */
+    private long                    received;
+
+    /**
+     * Messages received before requesting more.
+     */
+    private final int               refill;
+
+    /**
+     * Source channel.
+     */
+    private final Channel           source;
+
+    /**
+     * Event loop of the source connection.
+     */
+    private final EventLoop         sourceLoop;
+
+    /**
+     * Pause stats.
+     */
+    private final BackpressureStats stats;
+
+    /**
+     * Throttled flag. Marks the current pause as caused by the read limits.
+     */
+    private boolean                 throttled;
+
+    /**
+     * Total time throttled, in nanoseconds. Only written from the source event loop, but may be read from others.
+     */
+    private volatile long           throttledNanos;
+
+    /**
+     * Channel receiving the messages.
+     */
+    private final Channel           target;
+
+    /**
+     * Messages written into the target.
+     */
+    private long                    written;
+
+    /**
+     * Constructs a writer between the received connections. This registers a handler in the target connection, to know
+     * when it becomes writable again, and another in the source connection, to know when its input is shut down.
+     *
+     * @param src
+     *            connection from which messages are read
+     * @param trgt
+     *            connection to which messages are written
+     * @param dir
+     *            direction written
+     * @param lmt
+     *            global limit on pending bytes
+     * @param rdLmts
+     *            limits on the bytes read from the source
+     * @param sts
+     *            pause stats
+     */
+    public BackpressureWriter(final Connection src, final Connection trgt, final Direction dir,
+            final GlobalBufferLimit lmt, final List<TokenBucket> rdLmts,
+            final BackpressureStats sts) {
+        super();
+
+        source = src.channel();
+        sourceLoop = source.eventLoop();
+        target = trgt.channel();
+        direction = Objects.requireNonNull(dir);
+        limit = Objects.requireNonNull(lmt);
+        readLimits = List.copyOf(rdLmts);
+        if (readLimits.isEmpty()) {
+            prefetch = PREFETCH;
+        } else {
+            prefetch = LIMITED_PREFETCH;
+        }
+        refill = prefetch / 2;
+        stats = Objects.requireNonNull(sts);
+
+        trgt.addHandlerLast(WRITABILITY_HANDLER_NAME, new WritabilityHandler());
+        src.addHandlerLast(INPUT_HANDLER_NAME, new InputHandler());
+        // The messages read before bridging are still queued, and come first
+        received = EarlyReadCounter.remove(source);
+        // The input shutdown event may have come before the handler
+        inputShutdown = (source instanceof DuplexChannel) && ((DuplexChannel) source).isInputShutdown();
+    }
+
+    @Override
+    protected final void hookOnError(final Throwable throwable) {
+        log.debug("Failed reading {}: {}", direction, throwable.getMessage());
+        source.close();
+    }
+
+    @Override
+    protected final void hookOnNext(final ByteBuf message) {
+        final int  size;
+        final long throttle;
+
+        size = message.readableBytes();
+        limit.acquire(size);
+        target.writeAndFlush(message)
+            .addListener(f -> {
+                limit.release(size);
+                if (!f.isSuccess()) {
+                    log.debug("Failed writing {}: {}", direction, String.valueOf(f.cause()));
+                    target.close();
+                }
+            });
+        written++;
+        if (inputShutdown && (written == received)) {
+            shutdownOutput();
+        }
+        throttle = acquireReadLimits(size);
+
+        consumed++;
+        if (!paused && ((throttle > 0) || (consumed >= refill))) {
+            if ((throttle == 0) && canWrite()) {
+                requestConsumed();
+            } else {
+                pause();
+            }
+        }
+    }
+
+    @Override
+    protected final void hookOnSubscribe(final Subscription subscription) {
+        if (inputShutdown) {
+            log.debug("Source of {} half-closed before bridging, after {} messages", direction, received);
+
+            if (received == 0) {
+                shutdownOutput();
+            }
+        }
+        request(prefetch);
+    }
+
+    /**
+     * Returns the time the direction was throttled by the read limits.
+     *
+     * @return the total throttled time, in nanoseconds
+     */
+    public final long getThrottledNanos() {
+        return throttledNanos;
+    }
+
+    /**
+     * Takes the bytes from all the read limits.
+     *
+     * @param bytes
+     *            bytes read
+     * @return the nanoseconds to wait until all the limits are paid
+     */
+    private final long acquireReadLimits(final int bytes) {
+        long wait;
+
+        wait = 0;
+        for (int i = 0; i < readLimits.size(); i++) {
+            wait = Math.max(wait, readLimits.get(i)
+                .acquire(bytes));
+        }
+
+        return wait;
+    }
+
+    /**
+     * Checks if the target can take more data.
+     *
+     * @return {@code true} if more messages can be written, {@code false} otherwise
+     */
+    private final boolean canWrite() {
+        return target.isWritable() && !limit.isExhausted() && (getReadWait() == 0);
+    }
+
+    /**
+     * Waits for the pressure to go away. The global limit and the read limit resume the writer on their own, while the
+     * target resumes it through its writability handler. If there is no pressure left, the writer resumes right away.
+     */
+    private final void awaitResume() {
+        final long wait;
+
+        wait = getReadWait();
+        if (limit.isExhausted()) {
+            limit.await(this::scheduleResume);
+        } else if (wait > 0) {
+            sourceLoop.schedule(this::resume, wait, TimeUnit.NANOSECONDS);
+        } else if (target.isWritable()) {
+            // The read limit was paid while pausing
+            sourceLoop.execute(this::resume);
+        }
+    }
+
+    /**
+     * Returns the time until all the read limits are paid.
+     *
+     * @return the nanoseconds to wait until all the limits are paid
+     */
+    private final long getReadWait() {
+        long wait;
+
+        wait = 0;
+        for (int i = 0; i < readLimits.size(); i++) {
+            wait = Math.max(wait, readLimits.get(i)
+                .getWait());
+        }
+
+        return wait;
+    }
+
+    /**
+     * Reacts to the source input shutting down. The target output is shut down once all the messages read are written.
+     */
+    private final void onInputShutdown() {
+        log.debug("Source of {} half-closed, after {} messages", direction, received);
+
+        inputShutdown = true;
+        if (written == received) {
+            shutdownOutput();
+        }
+    }
+
+    /**
+     * Stops requesting messages.
+     */
+    private final void pause() {
+        log.trace("Pausing {}", direction);
+
+        paused = true;
+        pauseStart = System.nanoTime();
+        throttled = getReadWait() > 0;
+        source.pipeline()
+            .fireUserEventTriggered(ReadPauseEvent.PAUSED);
+        awaitResume();
+    }
+
+    /**
+     * Records the pause which just finished, as a throttle if the read limits caused it.
+     *
+     * @param nanos
+     *            pause duration, in nanoseconds
+     */
+    private final void recordPause(final long nanos) {
+        if (throttled) {
+            stats.recordThrottle(direction, nanos);
+            throttledNanos += nanos;
+        } else {
+            stats.recordPause(direction, nanos);
+        }
+    }
+
+    /**
+     * Requests as many messages as were consumed since the last request.
+     * <p>
+     * The messages already queued are received while requesting, so the count is reset before that.
+     */
+    private final void requestConsumed() {
+        final int count;
+
+        count = consumed;
+        consumed = 0;
+        request(count);
+    }
+
+    /**
+     * Resumes requesting messages, if the target can take them.
+     */
+    private final void resume() {
+        if (paused && !isDisposed()) {
+            if (canWrite()) {
+                log.trace("Resuming {}", direction);
+
+                paused = false;
+                recordPause(System.nanoTime() - pauseStart);
+                source.pipeline()
+                    .fireUserEventTriggered(ReadPauseEvent.RESUMED);
+                requestConsumed();
+            } else {
+                awaitResume();
+            }
+        }
+    }
+
+    /**
+     * Resumes in the source event loop.
+     */
+    private final void scheduleResume() {
+        if (sourceLoop.inEventLoop()) {
+            resume();
+        } else {
+            sourceLoop.execute(this::resume);
+        }
+    }
+
+    /**
+     * Shuts down the target output, after the messages written into it are sent. If its input is shut down too, then the
+     * target is closed, as both directions are finished.
+     */
+    private final void shutdownOutput() {
+        if (target instanceof DuplexChannel) {
+            target.writeAndFlush(Unpooled.EMPTY_BUFFER)
+                .addListener(f -> ((DuplexChannel) target).shutdownOutput()
+                    .addListener(s -> {
+                        if (!s.isSuccess() || ((DuplexChannel) target).isInputShutdown()) {
+                            target.close();
+                        }
+                    }));
+        } else {
+            target.close();
+        }
+    }
+
+    /**
+     * Counts the messages read from the source, and detects when its input is shut down.
+     */
+    private final class InputHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public final void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+            // Reactor Netty discards empty buffers
+            if ((msg != Unpooled.EMPTY_BUFFER) && !(msg instanceof EmptyByteBuf)) {
+                received++;
+            }
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public final void userEventTriggered(final ChannelHandlerContext ctx, final Object evt) throws Exception {
+            if (evt instanceof ChannelInputShutdownEvent) {
+                onInputShutdown();
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+
+    }
+
+    /**
+     * Resumes the writer when the target becomes writable.
+     */
+    private final class WritabilityHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public final void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
+            if (ctx.channel()
+                .isWritable()) {
+                scheduleResume();
+            }
+            ctx.fireChannelWritabilityChanged();
+        }
+
+    }
+
+}
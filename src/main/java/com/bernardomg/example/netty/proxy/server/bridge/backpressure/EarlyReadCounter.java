@@ -0,0 +1,119 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.backpressure;
+
+import io.netty.buffer.EmptyByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Counts the messages read from a connection before it is bridged. These are queued by Reactor Netty until the bridge
+ * reads them, but the {@link BackpressureWriter} only sees the messages read after it starts, so it takes this count
+ * to know when all the messages read were written.
+ * <p>
+ * Messages are read before bridging while connecting to the upstream, as the connection is already reading. Also when a
+ * handler reads the start of the connection by itself, such as the PROXY protocol header or the TLS ClientHello. These
+ * handlers pass on the bytes after what they read, once they are done. The same happens with the bytes sent right after
+ * a TLS handshake, which the TLS handler reads by itself.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class EarlyReadCounter extends ChannelInboundHandlerAdapter {
+
+    /**
+     * Name for the handler in the pipeline.
+     */
+    private static final String HANDLER_NAME = "proxy.earlyReads";
+
+    /**
+     * Adds the counter at the start of the channel pipeline, or right after the TLS handler, if there is one, so it
+     * counts the decrypted messages. The handlers reading the start of the connection should be added after this, so
+     * they come before the counter.
+     *
+     * @param channel
+     *            channel to count
+     */
+    public static final void install(final Channel channel) {
+        if (channel.pipeline()
+            .get(NettyPipeline.SslHandler) == null) {
+            channel.pipeline()
+                .addFirst(HANDLER_NAME, new EarlyReadCounter());
+        } else {
+            channel.pipeline()
+                .addAfter(NettyPipeline.SslHandler, HANDLER_NAME, new EarlyReadCounter());
+        }
+    }
+
+    /**
+     * Removes the counter from the channel, if it has one, and returns the messages it counted.
+     *
+     * @param channel
+     *            channel to stop counting
+     * @return the messages read before this call
+     */
+    public static final long remove(final Channel channel) {
+        final ChannelHandler handler;
+        final long           count;
+
+        handler = channel.pipeline()
+            .get(HANDLER_NAME);
+        if (handler == null) {
+            count = 0;
+        } else {
+            channel.pipeline()
+                .remove(handler);
+            count = ((EarlyReadCounter) handler).count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Messages read.
+     */
+    private volatile long       count;
+
+    /**
+     * Default constructor.
+     */
+    private EarlyReadCounter() {
+        super();
+    }
+
+    @Override
+    public final void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+        // Reactor Netty discards empty buffers
+        if ((msg != Unpooled.EMPTY_BUFFER) && !(msg instanceof EmptyByteBuf)) {
+            count++;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+}
@@ -0,0 +1,147 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.backpressure;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limit on the bytes being written by all the bridged connections together. Bytes are counted from the moment they are
+ * written until they reach the socket.
+ * <p>
+ * Once the limit is reached, writers should stop reading and wait with {@link #await(Runnable)}. They are notified
+ * once the pending bytes go down to half the limit, so they don't keep pausing and resuming around the limit.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class GlobalBufferLimit {
+
+    /**
+     * Maximum pending bytes.
+     */
+    private final long            maxBytes;
+
+    /**
+     * Pending bytes.
+     */
+    private final AtomicLong      pending     = new AtomicLong();
+
+    /**
+     * Pending bytes below which waiting writers are notified.
+     */
+    private final long            resumeBytes;
+
+    /**
+     * Writers waiting for the pending bytes to go down.
+     */
+    private final Queue<Runnable> waiting     = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructs a limit for the received bytes. If not positive, there is no limit.
+     *
+     * @param max
+     *            maximum pending bytes
+     */
+    public GlobalBufferLimit(final long max) {
+        super();
+
+        if (max > 0) {
+            maxBytes = max;
+        } else {
+            maxBytes = Long.MAX_VALUE;
+        }
+        resumeBytes = maxBytes / 2;
+    }
+
+    /**
+     * Adds bytes to the pending ones.
+     *
+     * @param bytes
+     *            bytes being written
+     */
+    public final void acquire(final int bytes) {
+        pending.addAndGet(bytes);
+    }
+
+    /**
+     * Registers a writer waiting for the pending bytes to go down. The callback is run only once.
+     *
+     * @param onAvailable
+     *            callback for when there is room again
+     */
+    public final void await(final Runnable onAvailable) {
+        waiting.offer(onAvailable);
+        // It may have been released before registering
+        if (pending.get() <= resumeBytes) {
+            notifyWaiting();
+        }
+    }
+
+    /**
+     * Returns the bytes being written.
+     *
+     * @return the pending bytes
+     */
+    public final long getPendingBytes() {
+        return pending.get();
+    }
+
+    /**
+     * Indicates if the limit has been reached.
+     *
+     * @return {@code true} if no more bytes should be written, {@code false} otherwise
+     */
+    public final boolean isExhausted() {
+        return pending.get() >= maxBytes;
+    }
+
+    /**
+     * Removes bytes from the pending ones.
+     *
+     * @param bytes
+     *            bytes already written
+     */
+    public final void release(final int bytes) {
+        if ((pending.addAndGet(-bytes) <= resumeBytes) && !waiting.isEmpty()) {
+            notifyWaiting();
+        }
+    }
+
+    /**
+     * Runs and removes all the waiting callbacks.
+     */
+    private final void notifyWaiting() {
+        Runnable callback;
+
+        callback = waiting.poll();
+        while (callback != null) {
+            callback.run();
+            callback = waiting.poll();
+        }
+    }
+
+}
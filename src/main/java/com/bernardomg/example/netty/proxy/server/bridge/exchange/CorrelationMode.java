@@ -0,0 +1,106 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.exchange;
+
+/**
+ * How the responses are paired with their requests.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public enum CorrelationMode {
+
+    /**
+     * Responses carry the id of their request, and may come in any order.
+     */
+    ID {
+
+        @Override
+        public final ExchangeTracker createTracker(final CorrelationSettings settings) {
+            return new IdExchangeTracker(settings.getIdOffset(), settings.getIdBytes(), settings.getMaxPending(),
+                settings.getTimeout());
+        }
+
+        @Override
+        public final void validate(final CorrelationSettings settings) {
+            IdExchangeTracker.validate(settings.getIdOffset(), settings.getIdBytes(), settings.getMaxPending());
+        }
+
+    },
+    /**
+     * No correlation.
+     */
+    NONE {
+
+        @Override
+        public final ExchangeTracker createTracker(final CorrelationSettings settings) {
+            return null;
+        }
+
+        @Override
+        public final void validate(final CorrelationSettings settings) {
+            // Nothing to check
+        }
+
+    },
+    /**
+     * Responses come in the same order as their requests.
+     */
+    PIPELINED {
+
+        @Override
+        public final ExchangeTracker createTracker(final CorrelationSettings settings) {
+            return new PipelinedExchangeTracker(settings.getMaxPending(), settings.getTimeout());
+        }
+
+        @Override
+        public final void validate(final CorrelationSettings settings) {
+            PipelinedExchangeTracker.validate(settings.getMaxPending());
+        }
+
+    };
+
+    /**
+     * Creates the tracker for a connection.
+     *
+     * @param settings
+     *            correlation settings
+     * @return the tracker, or {@code null} if there is no correlation
+     * @throws IllegalArgumentException
+     *             if the settings are not valid for this mode
+     */
+    public abstract ExchangeTracker createTracker(final CorrelationSettings settings);
+
+    /**
+     * Checks the settings are valid for this mode, without creating a tracker.
+     *
+     * @param settings
+     *            correlation settings
+     * @throws IllegalArgumentException
+     *             if the settings are not valid for this mode
+     */
+    public abstract void validate(final CorrelationSettings settings);
+
+}
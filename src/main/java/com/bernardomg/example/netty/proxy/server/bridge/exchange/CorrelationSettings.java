@@ -0,0 +1,118 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.exchange;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for pairing the request frames with their responses. Each correlation mode uses only some of them.
+ * <p>
+ * The route name tags the latencies recorded, so each route gets its own histogram.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public final class CorrelationSettings {
+
+    /**
+     * No correlation.
+     */
+    public static final CorrelationSettings NONE       = CorrelationSettings.builder()
+        .mode(CorrelationMode.NONE)
+        .route("")
+        .timeout(Duration.ZERO)
+        .build();
+
+    /**
+     * Size of the id field, in bytes, for the {@link CorrelationMode#ID} correlation.
+     */
+    private final int                       idBytes;
+
+    /**
+     * Position of the id field in the frames, for the {@link CorrelationMode#ID} correlation.
+     */
+    private final int                       idOffset;
+
+    /**
+     * Maximum number of requests waiting for a response on each connection.
+     */
+    private final int                       maxPending;
+
+    /**
+     * How the responses are paired with their requests.
+     */
+    @NonNull
+    private final CorrelationMode           mode;
+
+    /**
+     * Name of the route, which tags the latencies recorded.
+     */
+    @NonNull
+    private final String                    route;
+
+    /**
+     * Maximum time a request waits for its response. Once over it, the request is evicted, and its exchange is not
+     * measured. If not positive, requests wait until the connection closes.
+     */
+    @NonNull
+    private final Duration                  timeout;
+
+    /**
+     * Creates the tracker for a connection.
+     *
+     * @return the tracker, or {@code null} if there is no correlation
+     * @throws IllegalArgumentException
+     *             if the settings are not valid
+     */
+    public final ExchangeTracker createTracker() {
+        return mode.createTracker(this);
+    }
+
+    /**
+     * Indicates if the requests and responses are correlated.
+     *
+     * @return {@code true} if they are correlated, {@code false} otherwise
+     */
+    public final boolean isEnabled() {
+        return mode != CorrelationMode.NONE;
+    }
+
+    /**
+     * Checks the settings are valid for their mode.
+     *
+     * @throws IllegalArgumentException
+     *             if the settings are not valid
+     */
+    public final void validate() {
+        mode.validate(this);
+    }
+
+}
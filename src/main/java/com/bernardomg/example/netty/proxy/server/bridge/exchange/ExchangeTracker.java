@@ -0,0 +1,71 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.exchange;
+
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Pairs the request frames of a connection with their responses, and measures the time between them. There is a
+ * tracker for each bridged connection.
+ * <p>
+ * Requests are received from the server event loop, and responses from the client one, which may be different
+ * threads. So implementations should be thread safe, but never block. They should neither change the indexes nor the
+ * contents of the frames received.
+ * <p>
+ * Frames marked as {@link FramePart#UNFRAMED} mean the traffic doesn't follow the framing, and then the tracker stops
+ * correlating.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public interface ExchangeTracker {
+
+    /**
+     * Records a request frame, or a piece of it. The request is complete once its last piece is received.
+     *
+     * @param frame
+     *            request frame
+     * @param part
+     *            part of the frame received
+     */
+    public void onRequest(final ByteBuf frame, final FramePart part);
+
+    /**
+     * Records a response frame, or a piece of it. If it completes the response to a request, then this returns the
+     * time from the end of the request to the end of the response.
+     *
+     * @param frame
+     *            response frame
+     * @param part
+     *            part of the frame received
+     * @return the exchange latency, in nanoseconds, or {@link ProxyEvent#NO_LATENCY} if the frame doesn't complete an
+     *         exchange
+     */
+    public long onResponse(final ByteBuf frame, final FramePart part);
+
+}
@@ -0,0 +1,323 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.exchange;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.buffer.ByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Correlates multiplexed protocols, where responses may come in any order, but carry the id of their request, such as
+ * DNS over TCP or most RPC protocols. Each response is paired with the unanswered request which has its same id.
+ * <p>
+ * The id is an unsigned big endian field, at the same position in the requests and responses. Frames too short to
+ * contain it are not correlated.
+ * <p>
+ * Requests unanswered for longer than the timeout are evicted, and a late response to them is not measured. The
+ * expired requests are looked for once there are too many pending, before giving up on a new one. Without a timeout,
+ * or if none has expired, new requests are not tracked, which only loses their latency, as the ids keep the rest
+ * paired.
+ * <h2>Pending requests</h2>
+ * <p>
+ * The unanswered requests are kept in a table of primitives, sized by the maximum, so nothing is boxed nor allocated
+ * for each exchange. Each side only reads the frames from its own event loop, but both of them use the table. So it is
+ * locked, which costs little, as both sides usually run on the same event loop.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class IdExchangeTracker implements ExchangeTracker {
+
+    /**
+     * Time source, in nanoseconds.
+     */
+    private final LongSupplier    clock;
+
+    /**
+     * Size of the id field, in bytes.
+     */
+    private final int             idBytes;
+
+    /**
+     * Position of the id field in the frames.
+     */
+    private final int             idOffset;
+
+    /**
+     * Maximum number of unanswered requests tracked.
+     */
+    private final int             maxPending;
+
+    /**
+     * End time of each unanswered request, in nanoseconds, by id. Locked while used.
+     */
+    private final PendingRequests pending;
+
+    /**
+     * Id of the request being received. Only used by the request side.
+     */
+    private long                  requestId;
+
+    /**
+     * Request id flag. Active if the id of the request being received is known. Only used by the request side.
+     */
+    private boolean               requestIdKnown;
+
+    /**
+     * Id of the response being received. Only used by the response side.
+     */
+    private long                  responseId;
+
+    /**
+     * Response id flag. Active if the id of the response being received is known. Only used by the response side.
+     */
+    private boolean               responseIdKnown;
+
+    /**
+     * Stopped flag. Active once the traffic doesn't follow the framing.
+     */
+    private volatile boolean      stopped;
+
+    /**
+     * Maximum time a request waits for its response, in nanoseconds. If not positive, requests never expire.
+     */
+    private final long            timeout;
+
+    /**
+     * Constructs a tracker for the received id field.
+     *
+     * @param ffst
+     *            position of the id field in the frames
+     * @param bts
+     *            size of the id field, in bytes, between 1 and 8
+     * @param pndng
+     *            maximum number of unanswered requests tracked
+     * @param tmt
+     *            maximum time a request waits for its response, if not positive requests never expire
+     * @throws IllegalArgumentException
+     *             if the offset is negative, the size is not supported, or the maximum is not positive, or too large
+     */
+    public IdExchangeTracker(final int ffst, final int bts, final int pndng, final Duration tmt) {
+        this(ffst, bts, pndng, tmt, System::nanoTime);
+    }
+
+    /**
+     * Constructs a tracker for the received id field, which takes the time from the received clock.
+     *
+     * @param ffst
+     *            position of the id field in the frames
+     * @param bts
+     *            size of the id field, in bytes, between 1 and 8
+     * @param pndng
+     *            maximum number of unanswered requests tracked
+     * @param tmt
+     *            maximum time a request waits for its response, if not positive requests never expire
+     * @param clck
+     *            time source, in nanoseconds
+     * @throws IllegalArgumentException
+     *             if the offset is negative, the size is not supported, or the maximum is not positive, or too large
+     */
+    public IdExchangeTracker(final int ffst, final int bts, final int pndng, final Duration tmt,
+            final LongSupplier clck) {
+        super();
+
+        validate(ffst, bts, pndng);
+
+        idOffset = ffst;
+        idBytes = bts;
+        maxPending = pndng;
+        pending = new PendingRequests(pndng);
+        timeout = tmt.toNanos();
+        clock = Objects.requireNonNull(clck);
+    }
+
+    /**
+     * Checks the arguments for a tracker are valid.
+     *
+     * @param ffst
+     *            position of the id field in the frames
+     * @param bts
+     *            size of the id field, in bytes, between 1 and 8
+     * @param pending
+     *            maximum number of unanswered requests tracked
+     * @throws IllegalArgumentException
+     *             if the offset is negative, the size is not supported, or the maximum is not positive, or too large
+     */
+    static final void validate(final int ffst, final int bts, final int pending) {
+        if (ffst < 0) {
+            throw new IllegalArgumentException("The id field offset can't be negative, received " + ffst);
+        }
+        if ((bts < 1) || (bts > Long.BYTES)) {
+            throw new IllegalArgumentException("The id field should have between 1 and 8 bytes, received " + bts);
+        }
+        if ((pending <= 0) || (pending > (1 << 29))) {
+            throw new IllegalArgumentException(String.format(
+                "The pending exchanges should be between 1 and %d, received %d", 1 << 29, pending));
+        }
+    }
+
+    @Override
+    public final void onRequest(final ByteBuf frame, final FramePart part) {
+        final long now;
+        boolean    tracked;
+        int        evicted;
+
+        if (part == FramePart.UNFRAMED) {
+            stop();
+        } else if (!stopped) {
+            if ((part == FramePart.WHOLE) || (part == FramePart.START)) {
+                requestIdKnown = hasId(frame);
+                if (requestIdKnown) {
+                    requestId = readId(frame);
+                }
+            }
+            if (((part == FramePart.WHOLE) || (part == FramePart.END)) && requestIdKnown) {
+                now = clock.getAsLong();
+                evicted = 0;
+                synchronized (pending) {
+                    tracked = pending.put(requestId, now);
+                    if (!tracked && (timeout > 0)) {
+                        evicted = pending.evict(now, timeout);
+                        tracked = pending.put(requestId, now);
+                    }
+                }
+                if (evicted > 0) {
+                    log.debug("Evicted {} requests unanswered after the timeout", evicted);
+                }
+                if (!tracked) {
+                    log.debug("Not tracking request {}, as there are {} requests waiting for a response", requestId,
+                        maxPending);
+                }
+            }
+        }
+    }
+
+    @Override
+    public final long onResponse(final ByteBuf frame, final FramePart part) {
+        final long now;
+        long       start;
+        boolean    found;
+        int        index;
+        long       latency;
+
+        latency = ProxyEvent.NO_LATENCY;
+        if (part == FramePart.UNFRAMED) {
+            stop();
+        } else if (!stopped) {
+            if ((part == FramePart.WHOLE) || (part == FramePart.START)) {
+                responseIdKnown = hasId(frame);
+                if (responseIdKnown) {
+                    responseId = readId(frame);
+                }
+            }
+            if (((part == FramePart.WHOLE) || (part == FramePart.END)) && responseIdKnown) {
+                start = 0;
+                synchronized (pending) {
+                    index = pending.indexOf(responseId);
+                    found = index >= 0;
+                    if (found) {
+                        start = pending.getStart(index);
+                        pending.removeAt(index);
+                    }
+                }
+                if (found) {
+                    now = clock.getAsLong();
+                    if (isExpired(start, now)) {
+                        log.debug("Not measuring response {}, as it came after the timeout", responseId);
+                    } else {
+                        latency = now - start;
+                    }
+                }
+            }
+        }
+
+        return latency;
+    }
+
+    /**
+     * Checks if the frame is long enough to contain the id.
+     *
+     * @param frame
+     *            frame, or first piece of it
+     * @return {@code true} if the frame contains the id, {@code false} otherwise
+     */
+    private final boolean hasId(final ByteBuf frame) {
+        return frame.readableBytes() >= (idOffset + idBytes);
+    }
+
+    /**
+     * Checks if a request has waited longer than the timeout.
+     *
+     * @param start
+     *            end time of the request, in nanoseconds
+     * @param now
+     *            current time, in nanoseconds
+     * @return {@code true} if the request expired, {@code false} otherwise
+     */
+    private final boolean isExpired(final long start, final long now) {
+        return (timeout > 0) && ((now - start) > timeout);
+    }
+
+    /**
+     * Reads the id at the start of the frame. The frame should contain it.
+     *
+     * @param frame
+     *            frame, or first piece of it
+     * @return the id
+     */
+    private final long readId(final ByteBuf frame) {
+        final int start;
+        long      id;
+
+        start = frame.readerIndex() + idOffset;
+        id = 0;
+        for (int i = 0; i < idBytes; i++) {
+            id = (id << Byte.SIZE) | frame.getUnsignedByte(start + i);
+        }
+
+        return id;
+    }
+
+    /**
+     * Stops correlating, dropping the unanswered requests.
+     */
+    private final void stop() {
+        if (!stopped) {
+            log.debug("Stopped correlating, as the traffic doesn't follow the framing");
+            stopped = true;
+            synchronized (pending) {
+                pending.clear();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,332 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.exchange;
+
+import java.util.Arrays;
+
+import io.netty.util.internal.MathUtil;
+
+/**
+ * End times of the unanswered requests, by id. It is an open addressing table of primitives, so tracking an exchange
+ * neither boxes nor allocates.
+ * <p>
+ * The table starts small, and doubles as the requests pile up, up to twice the maximum. So it is never more than half
+ * full, and it only takes the memory the connection needs. Removing an entry shifts back the ones after it, which
+ * leaves no tombstones behind.
+ * <h2>Expiry</h2>
+ * <p>
+ * The earliest end time in the table is known, or at least a time before it. So looking for the expired requests only
+ * scans the table when at least one of them may have expired, instead of each time the table is full.
+ * <p>
+ * This is not thread safe.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+final class PendingRequests {
+
+    /**
+     * Table size before growing.
+     */
+    private static final int  INITIAL_CAPACITY = 16;
+
+    /**
+     * Multiplier for spreading the ids over the table.
+     */
+    private static final long SPREAD           = 0x9E3779B97F4A7C15L;
+
+    /**
+     * End time of the earliest request, in nanoseconds, or a time before it.
+     */
+    private long              earliest;
+
+    /**
+     * Request ids.
+     */
+    private long[]            ids;
+
+    /**
+     * Table size once fully grown.
+     */
+    private final int         maxCapacity;
+
+    /**
+     * Maximum number of requests.
+     */
+    private final int         maxSize;
+
+    /**
+     * Number of requests.
+     */
+    private int               size;
+
+    /**
+     * End time of each request, in nanoseconds.
+     */
+    private long[]            starts;
+
+    /**
+     * Slots in use.
+     */
+    private boolean[]         used;
+
+    /**
+     * Constructs a table for the received number of requests.
+     *
+     * @param max
+     *            maximum number of requests, at most 2<sup>29</sup>
+     */
+    PendingRequests(final int max) {
+        super();
+
+        maxSize = max;
+        maxCapacity = MathUtil.findNextPositivePowerOfTwo(max) * 2;
+        allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+    }
+
+    /**
+     * Removes all the requests.
+     */
+    public final void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Removes the requests which have waited longer than the timeout. The table is only scanned if a request may have
+     * expired.
+     *
+     * @param now
+     *            current time, in nanoseconds
+     * @param timeout
+     *            maximum time a request waits for its response, in nanoseconds
+     * @return the number of requests removed
+     */
+    public final int evict(final long now, final long timeout) {
+        final int before;
+        int       index;
+        long      oldest;
+
+        before = size;
+        if ((size > 0) && ((now - earliest) > timeout)) {
+            oldest = now;
+            index = 0;
+            while (index < used.length) {
+                if (!used[index]) {
+                    index++;
+                } else if ((now - starts[index]) > timeout) {
+                    // The next request is shifted into this slot, so it is checked again
+                    removeAt(index);
+                } else {
+                    if ((starts[index] - oldest) < 0) {
+                        oldest = starts[index];
+                    }
+                    index++;
+                }
+            }
+            earliest = oldest;
+        }
+
+        return before - size;
+    }
+
+    /**
+     * Returns the number of requests.
+     *
+     * @return the number of requests
+     */
+    public final int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the end time of the request at the received slot.
+     *
+     * @param index
+     *            slot of the request, as returned by {@link #indexOf(long)}
+     * @return the end time of the request, in nanoseconds
+     */
+    public final long getStart(final int index) {
+        return starts[index];
+    }
+
+    /**
+     * Returns the slot of the request with the received id.
+     *
+     * @param id
+     *            request id
+     * @return the slot of the request, or {@code -1} if there is no request with the id
+     */
+    public final int indexOf(final long id) {
+        final int mask;
+        int       index;
+
+        mask = used.length - 1;
+        index = slot(id, mask);
+        while (used[index] && (ids[index] != id)) {
+            index = (index + 1) & mask;
+        }
+
+        if (!used[index]) {
+            index = -1;
+        }
+
+        return index;
+    }
+
+    /**
+     * Stores the end time of a request. A request with the same id is replaced.
+     *
+     * @param id
+     *            request id
+     * @param start
+     *            end time of the request, in nanoseconds
+     * @return {@code true} if the request was stored, {@code false} if the table is full
+     */
+    public final boolean put(final long id, final long start) {
+        final int     index;
+        final boolean stored;
+
+        index = indexOf(id);
+        if (index >= 0) {
+            starts[index] = start;
+            stored = true;
+        } else if (size < maxSize) {
+            if (((size + 1) * 2) > used.length) {
+                grow();
+            }
+            if ((size == 0) || ((start - earliest) < 0)) {
+                earliest = start;
+            }
+            insert(id, start);
+            size++;
+            stored = true;
+        } else {
+            stored = false;
+        }
+
+        return stored;
+    }
+
+    /**
+     * Removes the request at the received slot. The requests after it which were displaced by it are shifted back, so
+     * they can still be found.
+     *
+     * @param index
+     *            slot of the request, as returned by {@link #indexOf(long)}
+     */
+    public final void removeAt(final int index) {
+        final int mask;
+        int       hole;
+        int       next;
+        int       home;
+
+        mask = used.length - 1;
+        hole = index;
+        next = (hole + 1) & mask;
+        while (used[next]) {
+            home = slot(ids[next], mask);
+            // Shifted only if its home slot is not between the hole and itself
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                ids[hole] = ids[next];
+                starts[hole] = starts[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[hole] = false;
+        size--;
+    }
+
+    /**
+     * Creates empty arrays for the received table size.
+     *
+     * @param capacity
+     *            table size
+     */
+    private final void allocate(final int capacity) {
+        ids = new long[capacity];
+        starts = new long[capacity];
+        used = new boolean[capacity];
+    }
+
+    /**
+     * Doubles the table size, unless fully grown, and stores the requests again.
+     */
+    private final void grow() {
+        final long[]    oldIds;
+        final long[]    oldStarts;
+        final boolean[] oldUsed;
+
+        if (used.length < maxCapacity) {
+            oldIds = ids;
+            oldStarts = starts;
+            oldUsed = used;
+            allocate(used.length * 2);
+            for (int i = 0; i < oldUsed.length; i++) {
+                if (oldUsed[i]) {
+                    insert(oldIds[i], oldStarts[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stores a request which is not in the table, into the first free slot from its home slot.
+     *
+     * @param id
+     *            request id
+     * @param start
+     *            end time of the request, in nanoseconds
+     */
+    private final void insert(final long id, final long start) {
+        final int mask;
+        int       index;
+
+        mask = used.length - 1;
+        index = slot(id, mask);
+        while (used[index]) {
+            index = (index + 1) & mask;
+        }
+        ids[index] = id;
+        starts[index] = start;
+        used[index] = true;
+    }
+
+    /**
+     * Returns the home slot of the id, the first one where it is looked for.
+     *
+     * @param id
+     *            request id
+     * @param mask
+     *            mask to find the slot in the table
+     * @return the home slot of the id
+     */
+    private final int slot(final long id, final int mask) {
+        // Sequential ids are spread over the table
+        return (int) ((id * SPREAD) >>> 32) & mask;
+    }
+
+}
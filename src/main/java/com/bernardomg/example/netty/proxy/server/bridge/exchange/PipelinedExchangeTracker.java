@@ -0,0 +1,232 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.exchange;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.MathUtil;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Correlates protocols which answer the requests in order, even if pipelined, such as HTTP/1.1 or Redis. Each response
+ * is paired with the oldest request still unanswered.
+ * <h2>Lock-free</h2>
+ * <p>
+ * The end times of the requests are kept in a ring, written only by the server event loop and read only by the client
+ * one. Each side publishes its position with an ordered write, so nothing is locked nor allocated for each exchange.
+ * <h2>Losing track</h2>
+ * <p>
+ * The pairing only holds while every request has exactly one response. So the tracker stops for good when it finds a
+ * response without a request, such as a greeting sent by the server, or when the unanswered requests don't fit into
+ * the ring.
+ * <p>
+ * The same goes for a request unanswered after the timeout. Its response may never come, and as responses are paired
+ * by their order, it can't be evicted alone without shifting the rest. So the whole ring is evicted, stopping the
+ * tracker. This is found either when the late response comes, or when the next request is received.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class PipelinedExchangeTracker implements ExchangeTracker {
+
+    /**
+     * Time source, in nanoseconds.
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Position of the next request to answer. Only written by the response side.
+     */
+    private final AtomicLong head    = new AtomicLong();
+
+    /**
+     * Mask to find the position in the ring.
+     */
+    private final int        mask;
+
+    /**
+     * End time of each unanswered request, in nanoseconds.
+     */
+    private final long[]     starts;
+
+    /**
+     * Stopped flag. Active once the requests and responses can't be paired anymore.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Position for the next request. Only written by the request side.
+     */
+    private final AtomicLong tail    = new AtomicLong();
+
+    /**
+     * Maximum time a request waits for its response, in nanoseconds. If not positive, requests never expire.
+     */
+    private final long       timeout;
+
+    /**
+     * Constructs a tracker for the received number of unanswered requests.
+     *
+     * @param maxPending
+     *            maximum number of unanswered requests, which is rounded up to a power of two
+     * @param tmt
+     *            maximum time a request waits for its response, if not positive requests never expire
+     * @throws IllegalArgumentException
+     *             if the maximum is not positive, or too large
+     */
+    public PipelinedExchangeTracker(final int maxPending, final Duration tmt) {
+        this(maxPending, tmt, System::nanoTime);
+    }
+
+    /**
+     * Constructs a tracker for the received number of unanswered requests, which takes the time from the received
+     * clock.
+     *
+     * @param maxPending
+     *            maximum number of unanswered requests, which is rounded up to a power of two
+     * @param tmt
+     *            maximum time a request waits for its response, if not positive requests never expire
+     * @param clck
+     *            time source, in nanoseconds
+     * @throws IllegalArgumentException
+     *             if the maximum is not positive, or too large
+     */
+    public PipelinedExchangeTracker(final int maxPending, final Duration tmt, final LongSupplier clck) {
+        super();
+
+        validate(maxPending);
+
+        starts = new long[MathUtil.findNextPositivePowerOfTwo(maxPending)];
+        mask = starts.length - 1;
+        timeout = tmt.toNanos();
+        clock = Objects.requireNonNull(clck);
+    }
+
+    /**
+     * Checks the arguments for a tracker are valid.
+     *
+     * @param maxPending
+     *            maximum number of unanswered requests
+     * @throws IllegalArgumentException
+     *             if the maximum is not positive, or too large
+     */
+    static final void validate(final int maxPending) {
+        if ((maxPending <= 0) || (maxPending > (1 << 30))) {
+            throw new IllegalArgumentException(String.format(
+                "The pending exchanges should be between 1 and %d, received %d", 1 << 30, maxPending));
+        }
+    }
+
+    @Override
+    public final void onRequest(final ByteBuf frame, final FramePart part) {
+        final long position;
+        final long oldest;
+        final long now;
+
+        if (part == FramePart.UNFRAMED) {
+            stopped = true;
+        } else if (!stopped && isEnd(part)) {
+            position = tail.get();
+            oldest = head.get();
+            now = clock.getAsLong();
+            if ((position - oldest) == starts.length) {
+                log.debug("Stopped correlating, as there are more than {} requests waiting for a response",
+                    starts.length);
+                stopped = true;
+            } else if ((position != oldest) && isExpired(starts[(int) oldest & mask], now)) {
+                // Only the request side writes the ring, so the oldest start can be read even if answered meanwhile
+                log.debug("Stopped correlating, as a request went unanswered after the timeout");
+                stopped = true;
+            } else {
+                starts[(int) position & mask] = now;
+                tail.lazySet(position + 1);
+            }
+        }
+    }
+
+    @Override
+    public final long onResponse(final ByteBuf frame, final FramePart part) {
+        final long position;
+        final long start;
+        final long now;
+        long       latency;
+
+        latency = ProxyEvent.NO_LATENCY;
+        if (part == FramePart.UNFRAMED) {
+            stopped = true;
+        } else if (!stopped && isEnd(part)) {
+            position = head.get();
+            if (position == tail.get()) {
+                log.debug("Stopped correlating, as a response came without a request");
+                stopped = true;
+            } else {
+                start = starts[(int) position & mask];
+                now = clock.getAsLong();
+                if (isExpired(start, now)) {
+                    log.debug("Stopped correlating, as a response came after the timeout");
+                    stopped = true;
+                } else {
+                    latency = now - start;
+                    head.lazySet(position + 1);
+                }
+            }
+        }
+
+        return latency;
+    }
+
+    /**
+     * Checks if the part ends a frame.
+     *
+     * @param part
+     *            part to check
+     * @return {@code true} if the part ends a frame, {@code false} otherwise
+     */
+    private final boolean isEnd(final FramePart part) {
+        return (part == FramePart.WHOLE) || (part == FramePart.END);
+    }
+
+    /**
+     * Checks if a request has waited longer than the timeout.
+     *
+     * @param start
+     *            end time of the request, in nanoseconds
+     * @param now
+     *            current time, in nanoseconds
+     * @return {@code true} if the request expired, {@code false} otherwise
+     */
+    private final boolean isExpired(final long start, final long now) {
+        return (timeout > 0) && ((now - start) > timeout);
+    }
+
+}
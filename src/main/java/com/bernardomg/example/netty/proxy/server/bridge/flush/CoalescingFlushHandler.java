@@ -0,0 +1,182 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.flush;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * Holds back flushes until enough data is pending. A flush is let through when the pending bytes or messages reach
+ * their threshold. Otherwise a flush is scheduled after the maximum delay, so no message waits longer than that.
+ * <p>
+ * Pending data is always flushed when the channel becomes unwritable, or is closed.
+ * <p>
+ * This handler keeps state, and so it can't be shared between channels.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class CoalescingFlushHandler extends ChannelDuplexHandler {
+
+    /**
+     * Maximum pending bytes before flushing.
+     */
+    private final long         maxBytes;
+
+    /**
+     * Maximum time a message can wait for a flush, in nanoseconds.
+     */
+    private final long         maxDelayNanos;
+
+    /**
+     * Maximum pending messages before flushing.
+     */
+    private final long         maxMessages;
+
+    /**
+     * Bytes written since the last flush.
+     */
+    private long               pendingBytes;
+
+    /**
+     * Messages written since the last flush.
+     */
+    private long               pendingMessages;
+
+    /**
+     * Scheduled flush, if any.
+     */
+    private ScheduledFuture<?> scheduledFlush;
+
+    /**
+     * Constructs a handler with the received thresholds.
+     *
+     * @param settings
+     *            flush thresholds
+     */
+    public CoalescingFlushHandler(final FlushSettings settings) {
+        super();
+
+        maxBytes = positiveOrMax(settings.getMaxBytes());
+        maxMessages = positiveOrMax(settings.getMaxMessages());
+        maxDelayNanos = settings.getMaxDelay()
+            .toNanos();
+    }
+
+    @Override
+    public final void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception {
+        if (!ctx.channel()
+            .isWritable()) {
+            flushNow(ctx);
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public final void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        flushNow(ctx);
+        ctx.close(promise);
+    }
+
+    @Override
+    public final void disconnect(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        flushNow(ctx);
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public final void flush(final ChannelHandlerContext ctx) throws Exception {
+        if ((pendingBytes >= maxBytes) || (pendingMessages >= maxMessages) || (maxDelayNanos <= 0)) {
+            flushNow(ctx);
+        } else if ((scheduledFlush == null) && (pendingMessages > 0)) {
+            scheduledFlush = ctx.executor()
+                .schedule(() -> flushNow(ctx), maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public final void handlerRemoved(final ChannelHandlerContext ctx) throws Exception {
+        if (pendingMessages > 0) {
+            flushNow(ctx);
+        }
+    }
+
+    @Override
+    public final void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise)
+            throws Exception {
+        if (msg instanceof ByteBuf) {
+            pendingBytes += ((ByteBuf) msg).readableBytes();
+        } else if (msg instanceof ByteBufHolder) {
+            pendingBytes += ((ByteBufHolder) msg).content()
+                .readableBytes();
+        }
+        pendingMessages++;
+
+        ctx.write(msg, promise);
+    }
+
+    /**
+     * Flushes the pending messages, and cancels any scheduled flush.
+     *
+     * @param ctx
+     *            channel context
+     */
+    private final void flushNow(final ChannelHandlerContext ctx) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        pendingBytes = 0;
+        pendingMessages = 0;
+
+        ctx.flush();
+    }
+
+    /**
+     * Returns the received threshold if positive, or the maximum value otherwise.
+     *
+     * @param threshold
+     *            threshold to check
+     * @return the threshold to use
+     */
+    private final long positiveOrMax(final int threshold) {
+        final long value;
+
+        if (threshold > 0) {
+            value = threshold;
+        } else {
+            value = Long.MAX_VALUE;
+        }
+
+        return value;
+    }
+
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.flush;
+
+import java.time.Duration;
+
+import io.netty.handler.flush.FlushConsolidationHandler;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import reactor.netty.Connection;
+
+/**
+ * Settings for flushing one direction of the bridge. The thresholds are only used by {@link FlushMode#THRESHOLD}, and
+ * a threshold which is not positive is ignored.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder
+public final class FlushSettings {
+
+    /**
+     * Flushes each message, as Reactor Netty does by default.
+     */
+    public static final FlushSettings PER_MESSAGE  = FlushSettings.builder()
+        .mode(FlushMode.MESSAGE)
+        .maxDelay(Duration.ZERO)
+        .build();
+
+    /**
+     * Name for the flush handler in the pipeline.
+     */
+    private static final String       HANDLER_NAME = "proxy.flush";
+
+    /**
+     * Maximum pending bytes before flushing.
+     */
+    private final int                 maxBytes;
+
+    /**
+     * Maximum time a message can wait for a flush.
+     */
+    @NonNull
+    private final Duration            maxDelay;
+
+    /**
+     * Maximum pending messages before flushing.
+     */
+    private final int                 maxMessages;
+
+    /**
+     * Flush mode.
+     */
+    @NonNull
+    private final FlushMode           mode;
+
+    /**
+     * Prepares the connection for flushing as set in these settings. This is applied to the connection receiving the
+     * messages.
+     *
+     * @param connection
+     *            connection to which the messages are written
+     */
+    public final void applyTo(final Connection connection) {
+        switch (mode) {
+            case READ_COMPLETE:
+                connection.addHandlerLast(HANDLER_NAME,
+                    new FlushConsolidationHandler(FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES, true));
+                break;
+            case THRESHOLD:
+                connection.addHandlerLast(HANDLER_NAME, new CoalescingFlushHandler(this));
+                break;
+            default:
+                // Reactor Netty already flushes each message
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Frames ending with a delimiter, which is included in the frame. With a line feed, this frames text protocols line by
+ * line, whether they end lines with {@code \n} or {@code \r\n}.
+ * <p>
+ * When a frame is streamed, as it is too large, a delimiter split between two reads is not found, and the frame goes
+ * on until the next one.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class DelimiterFramer implements Framer {
+
+    /**
+     * Line feed delimiter.
+     */
+    public static final String LINE      = "\\n";
+
+    /**
+     * Parses a delimiter written with escapes. These can be {@code \n}, {@code \r}, {@code \t}, {@code \\} and
+     * {@code \xHH}, for any byte in hex. Other characters are taken as UTF-8.
+     *
+     * @param text
+     *            delimiter to parse
+     * @return the delimiter bytes
+     * @throws IllegalArgumentException
+     *             if the delimiter is empty, or contains an invalid escape
+     */
+    public static final byte[] parse(final String text) {
+        final ByteArrayOutputStream bytes;
+        int                         index;
+        char                        escape;
+
+        bytes = new ByteArrayOutputStream();
+        index = 0;
+        while (index < text.length()) {
+            if ((text.charAt(index) == '\\') && (index + 1 < text.length())) {
+                escape = text.charAt(index + 1);
+                index += 2;
+                if (escape == 'n') {
+                    bytes.write('\n');
+                } else if (escape == 'r') {
+                    bytes.write('\r');
+                } else if (escape == 't') {
+                    bytes.write('\t');
+                } else if (escape == '\\') {
+                    bytes.write('\\');
+                } else if ((escape == 'x') && (index + 2 <= text.length())) {
+                    try {
+                        bytes.write(Integer.parseInt(text.substring(index, index + 2), 16));
+                    } catch (final NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid escape in delimiter " + text, e);
+                    }
+                    index += 2;
+                } else {
+                    throw new IllegalArgumentException("Invalid escape in delimiter " + text);
+                }
+            } else {
+                bytes.writeBytes(text.substring(index, index + 1)
+                    .getBytes(StandardCharsets.UTF_8));
+                index++;
+            }
+        }
+
+        if (bytes.size() == 0) {
+            throw new IllegalArgumentException("The delimiter can't be empty");
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Delimiter at the end of each frame.
+     */
+    private final byte[]       delimiter;
+
+    /**
+     * Constructs a framer for the received delimiter.
+     *
+     * @param dlmtr
+     *            delimiter at the end of each frame
+     * @throws IllegalArgumentException
+     *             if the delimiter is empty
+     */
+    public DelimiterFramer(final byte[] dlmtr) {
+        super();
+
+        if (dlmtr.length == 0) {
+            throw new IllegalArgumentException("The delimiter can't be empty");
+        }
+        delimiter = dlmtr.clone();
+    }
+
+    @Override
+    public final long frameLength(final ByteBuf buffer) {
+        final int last;
+        int       index;
+        long      length;
+
+        // Looks for the first byte, and then checks the rest
+        last = buffer.writerIndex() - delimiter.length;
+        if (buffer.readableBytes() < delimiter.length) {
+            index = -1;
+        } else {
+            index = buffer.indexOf(buffer.readerIndex(), last + 1, delimiter[0]);
+        }
+        length = UNKNOWN;
+        while ((index >= 0) && (length == UNKNOWN)) {
+            if (matches(buffer, index)) {
+                length = (index - buffer.readerIndex()) + delimiter.length;
+            } else if (index < last) {
+                index = buffer.indexOf(index + 1, last + 1, delimiter[0]);
+            } else {
+                index = -1;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Checks if the delimiter starts at the received index.
+     *
+     * @param buffer
+     *            buffer to check
+     * @param index
+     *            index to check
+     * @return {@code true} if the delimiter is at the index, {@code false} otherwise
+     */
+    private final boolean matches(final ByteBuf buffer, final int index) {
+        boolean matches;
+        int     position;
+
+        matches = true;
+        position = 1;
+        while (matches && (position < delimiter.length)) {
+            matches = buffer.getByte(index + position) == delimiter[position];
+            position++;
+        }
+
+        return matches;
+    }
+
+}
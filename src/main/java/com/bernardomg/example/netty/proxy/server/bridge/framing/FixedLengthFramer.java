@@ -0,0 +1,64 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Frames of a fixed size.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class FixedLengthFramer implements Framer {
+
+    /**
+     * Size of each frame.
+     */
+    private final int size;
+
+    /**
+     * Constructs a framer for the received size.
+     *
+     * @param sz
+     *            size of each frame
+     * @throws IllegalArgumentException
+     *             if the size is not positive
+     */
+    public FixedLengthFramer(final int sz) {
+        super();
+
+        if (sz <= 0) {
+            throw new IllegalArgumentException("The frame size should be positive, received " + sz);
+        }
+        size = sz;
+    }
+
+    @Override
+    public final long frameLength(final ByteBuf buffer) {
+        return size;
+    }
+
+}
@@ -0,0 +1,231 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Splits the messages read from a connection into frames, as found by a {@link Framer}. The messages are only looked
+ * at, they are still proxied as read.
+ * <h2>Zero-copy</h2>
+ * <p>
+ * Frames are slices of the messages, so nothing is copied. A frame split between reads is held as a composite of the
+ * message slices until complete. The slices are only valid until the frame consumer returns.
+ * <h2>Large frames</h2>
+ * <p>
+ * At most the maximum frame size is held. Frames over it, or whose length is still unknown after it, are streamed
+ * instead, in pieces, as they are read.
+ * <h2>Invalid frames</h2>
+ * <p>
+ * If the framer finds the bytes are not valid frames, the connection can't be framed anymore. From then on the
+ * messages are sent as read, marked as {@link FramePart#UNFRAMED}.
+ * <p>
+ * There is an assembler for each connection and direction, which is only used from the connection event loop, so it
+ * is not thread safe.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class FrameAssembler {
+
+    /**
+     * Message slices held for a frame before they are merged.
+     */
+    private static final int                             MAX_COMPONENTS = 1024;
+
+    /**
+     * Finds the frames.
+     */
+    private final Framer                                 framer;
+
+    /**
+     * Frames over this size are streamed.
+     */
+    private final int                                    maxFrameBytes;
+
+    /**
+     * Receives the frames, along which part of the frame they are.
+     */
+    private final BiConsumer<? super ByteBuf, FramePart> onFrame;
+
+    /**
+     * Bytes read for the next frame, which is not complete yet. Null when there are none.
+     */
+    private CompositeByteBuf                             pending;
+
+    /**
+     * Bytes left of the frame being streamed, or {@link Framer#UNKNOWN} if its length is not known.
+     */
+    private long                                         remaining;
+
+    /**
+     * Streaming flag. Active while a large frame is being streamed.
+     */
+    private boolean                                      streaming;
+
+    /**
+     * Unframed flag. Active after finding invalid frames.
+     */
+    private boolean                                      unframed;
+
+    /**
+     * Constructs an assembler with the received framer.
+     *
+     * @param frmr
+     *            finds the frames
+     * @param maxBytes
+     *            frames over this size are streamed
+     * @param cnsmr
+     *            receives the frames
+     */
+    public FrameAssembler(final Framer frmr, final int maxBytes, final BiConsumer<? super ByteBuf, FramePart> cnsmr) {
+        super();
+
+        framer = Objects.requireNonNull(frmr);
+        maxFrameBytes = maxBytes;
+        onFrame = Objects.requireNonNull(cnsmr);
+    }
+
+    /**
+     * Takes a message read from the connection, sending the frames completed with it. Its indexes are not changed.
+     *
+     * @param message
+     *            message read
+     */
+    public final void onMessage(final ByteBuf message) {
+        final ByteBuf buffer;
+
+        if (unframed) {
+            onFrame.accept(message, FramePart.UNFRAMED);
+        } else {
+            if (pending == null) {
+                buffer = message.slice();
+            } else {
+                pending.addComponent(true, message.retainedSlice());
+                buffer = pending;
+            }
+
+            try {
+                drain(buffer);
+            } catch (final IllegalArgumentException e) {
+                log.debug("Stopped framing, as the bytes are not valid frames: {}", e.getMessage());
+                unframed = true;
+                if (buffer.isReadable()) {
+                    onFrame.accept(buffer.readSlice(buffer.readableBytes()), FramePart.UNFRAMED);
+                }
+            }
+
+            // Keeps the start of the next frame
+            if (!buffer.isReadable()) {
+                release();
+            } else if (pending == null) {
+                pending = message.alloc()
+                    .compositeBuffer(MAX_COMPONENTS);
+                pending.addComponent(true, buffer.retainedSlice());
+            } else {
+                pending.discardReadComponents();
+            }
+        }
+    }
+
+    /**
+     * Releases the bytes held for an incomplete frame. Should be called once the connection closes.
+     */
+    public final void release() {
+        if (pending != null) {
+            pending.release();
+            pending = null;
+        }
+    }
+
+    /**
+     * Sends all the frames, and pieces of streamed frames, in the buffer. Only the start of an incomplete frame is left
+     * in it.
+     *
+     * @param buffer
+     *            bytes read
+     * @throws IllegalArgumentException
+     *             if the bytes are not valid frames
+     */
+    private final void drain(final ByteBuf buffer) {
+        long      length;
+        int       size;
+        FramePart part;
+        boolean   waiting;
+
+        waiting = false;
+        while (!waiting && buffer.isReadable()) {
+            if (streaming) {
+                if (remaining == Framer.UNKNOWN) {
+                    length = framer.remainingLength(buffer);
+                } else {
+                    length = remaining;
+                }
+                if ((length == Framer.UNKNOWN) || (length > buffer.readableBytes())) {
+                    size = buffer.readableBytes();
+                    part = FramePart.CONTINUATION;
+                    if (remaining != Framer.UNKNOWN) {
+                        remaining -= size;
+                    }
+                } else {
+                    size = (int) length;
+                    part = FramePart.END;
+                    streaming = false;
+                }
+                onFrame.accept(buffer.readSlice(size), part);
+            } else {
+                length = framer.frameLength(buffer);
+                if ((length != Framer.UNKNOWN) && (length <= 0)) {
+                    throw new IllegalArgumentException("Invalid frame length " + length);
+                }
+
+                if ((length != Framer.UNKNOWN) && (length <= buffer.readableBytes())) {
+                    onFrame.accept(buffer.readSlice((int) length), FramePart.WHOLE);
+                } else if ((length > maxFrameBytes) || (buffer.readableBytes() > maxFrameBytes)) {
+                    // Too large to hold
+                    size = buffer.readableBytes();
+                    streaming = true;
+                    if (length == Framer.UNKNOWN) {
+                        remaining = Framer.UNKNOWN;
+                    } else {
+                        remaining = length - size;
+                    }
+                    onFrame.accept(buffer.readSlice(size), FramePart.START);
+                } else {
+                    waiting = true;
+                }
+            }
+        }
+    }
+
+}
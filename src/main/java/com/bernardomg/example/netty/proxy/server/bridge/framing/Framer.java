@@ -0,0 +1,77 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Finds the frames of a protocol in the bytes of a connection. This is the extension point for framing custom
+ * protocols, along {@link FramerProvider}.
+ * <p>
+ * A framer is shared by all the connections, and called from their event loops, so it should be stateless, and never
+ * block. It should neither change the indexes nor the contents of the buffers received.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public interface Framer {
+
+    /**
+     * Returned when there are not enough bytes to know the frame length.
+     */
+    public static final long UNKNOWN = -1;
+
+    /**
+     * Returns the length of the frame starting at the reader index of the buffer. This is the full frame length, which
+     * may be larger than the bytes in the buffer, if it can already be known, such as from a length field.
+     * <p>
+     * If the length can't be known yet, this is called again once more bytes are read.
+     *
+     * @param buffer
+     *            bytes from the start of the frame
+     * @return the frame length, which should be positive, or {@link #UNKNOWN} if more bytes are needed
+     * @throws IllegalArgumentException
+     *             if the bytes are not a valid frame
+     */
+    public long frameLength(final ByteBuf buffer);
+
+    /**
+     * Returns the length left of a frame whose first bytes were already streamed, as the frame was too large and its
+     * length couldn't be known. The buffer contains the bytes after those.
+     * <p>
+     * By default, this looks up the frame length as if the frame started in the buffer, which works for framers looking
+     * for the frame end, such as with a delimiter.
+     *
+     * @param buffer
+     *            bytes after the ones already streamed
+     * @return the length left of the frame, which may be zero, or {@link #UNKNOWN} if it doesn't end in the buffer
+     * @throws IllegalArgumentException
+     *             if the bytes are not a valid frame
+     */
+    public default long remainingLength(final ByteBuf buffer) {
+        return frameLength(buffer);
+    }
+
+}
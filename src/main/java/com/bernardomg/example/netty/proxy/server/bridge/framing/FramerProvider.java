@@ -0,0 +1,56 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+/**
+ * Creates the framer for a custom protocol. Providers are found with the {@link java.util.ServiceLoader}, so they
+ * should be listed in a {@code META-INF/services} file in their jar, and have a public constructor without arguments.
+ * <p>
+ * Then the provider is chosen by name, with the {@link FramingType#CUSTOM} framing.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public interface FramerProvider {
+
+    /**
+     * Creates the framer. The settings contain all the framing options, which the provider may use.
+     *
+     * @param settings
+     *            framing settings
+     * @return a framer for the protocol
+     * @throws IllegalArgumentException
+     *             if the settings are not valid for the protocol
+     */
+    public Framer create(final FramingSettings settings);
+
+    /**
+     * Returns the name of the protocol, which chooses the provider.
+     *
+     * @return the protocol name
+     */
+    public String getName();
+
+}
@@ -0,0 +1,102 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for splitting the proxied bytes into frames. Each framing type uses only some of them.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder
+public final class FramingSettings {
+
+    /**
+     * No framing, the listeners receive the messages as read.
+     */
+    public static final FramingSettings NONE              = FramingSettings.builder()
+        .type(FramingType.NONE)
+        .delimiter(DelimiterFramer.LINE)
+        .build();
+
+    /**
+     * Name of the custom framer, for the {@link FramingType#CUSTOM} framing.
+     */
+    private final String                customFramer;
+
+    /**
+     * Delimiter at the end of each frame, with escapes, for the {@link FramingType#DELIMITER} framing.
+     */
+    @NonNull
+    private final String                delimiter;
+
+    /**
+     * Size of each frame, for the {@link FramingType#FIXED} framing.
+     */
+    private final int                   frameSize;
+
+    /**
+     * Value added to the frame length, for the {@link FramingType#LENGTH_FIELD} framing.
+     */
+    private final int                   lengthAdjustment;
+
+    /**
+     * Size of the length field, in bytes, for the {@link FramingType#LENGTH_FIELD} framing.
+     */
+    private final int                   lengthFieldBytes;
+
+    /**
+     * Position of the length field in the header, for the {@link FramingType#LENGTH_FIELD} framing.
+     */
+    private final int                   lengthFieldOffset;
+
+    /**
+     * Frames over this size are streamed in pieces, instead of held until complete.
+     */
+    private final int                   maxFrameBytes;
+
+    /**
+     * How the bytes are split into frames.
+     */
+    @NonNull
+    private final FramingType           type;
+
+    /**
+     * Creates the framer for these settings.
+     *
+     * @return the framer, or {@code null} if there is no framing
+     * @throws IllegalArgumentException
+     *             if the settings are not valid
+     */
+    public final Framer createFramer() {
+        return type.createFramer(this);
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+import java.util.ServiceLoader;
+
+/**
+ * How the proxied bytes are split into frames.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public enum FramingType {
+
+    /**
+     * Custom protocol, framed by the {@link FramerProvider} with the custom framer name.
+     */
+    CUSTOM {
+
+        @Override
+        public final Framer createFramer(final FramingSettings settings) {
+            for (final FramerProvider provider : ServiceLoader.load(FramerProvider.class)) {
+                if (provider.getName()
+                    .equals(settings.getCustomFramer())) {
+                    return provider.create(settings);
+                }
+            }
+
+            throw new IllegalArgumentException("No framer provider for " + settings.getCustomFramer());
+        }
+
+    },
+    /**
+     * Frames ending with a delimiter.
+     */
+    DELIMITER {
+
+        @Override
+        public final Framer createFramer(final FramingSettings settings) {
+            return new DelimiterFramer(DelimiterFramer.parse(settings.getDelimiter()));
+        }
+
+    },
+    /**
+     * Frames of a fixed size.
+     */
+    FIXED {
+
+        @Override
+        public final Framer createFramer(final FramingSettings settings) {
+            return new FixedLengthFramer(settings.getFrameSize());
+        }
+
+    },
+    /**
+     * Frames starting with their length.
+     */
+    LENGTH_FIELD {
+
+        @Override
+        public final Framer createFramer(final FramingSettings settings) {
+            return new LengthFieldFramer(settings.getLengthFieldOffset(), settings.getLengthFieldBytes(),
+                settings.getLengthAdjustment());
+        }
+
+    },
+    /**
+     * No framing, each message read is a frame.
+     */
+    NONE {
+
+        @Override
+        public final Framer createFramer(final FramingSettings settings) {
+            return null;
+        }
+
+    };
+
+    /**
+     * Creates the framer for the received settings.
+     *
+     * @param settings
+     *            framing settings
+     * @return the framer, or {@code null} if there is no framing
+     * @throws IllegalArgumentException
+     *             if the settings are not valid for this framing
+     */
+    public abstract Framer createFramer(final FramingSettings settings);
+
+}
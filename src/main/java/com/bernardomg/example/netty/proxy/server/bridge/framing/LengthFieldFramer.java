@@ -0,0 +1,149 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.framing;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Frames starting with a header which contains their length, as an unsigned big endian field. This covers most binary
+ * protocols.
+ * <p>
+ * The frame length is the header, up to the end of the length field, plus the field value, plus the adjustment. So
+ * protocols whose length field counts the header too use a negative adjustment.
+ * <p>
+ * An 8 byte field is read as a signed long, so values with the highest bit set are rejected, as are lengths which end
+ * before the header.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class LengthFieldFramer implements Framer {
+
+    /**
+     * Value added to the frame length.
+     */
+    private final int adjustment;
+
+    /**
+     * Size of the length field, in bytes.
+     */
+    private final int fieldLength;
+
+    /**
+     * Size of the header, up to the end of the length field.
+     */
+    private final int headerLength;
+
+    /**
+     * Position of the length field in the header.
+     */
+    private final int offset;
+
+    /**
+     * Constructs a framer for the received length field.
+     *
+     * @param ffst
+     *            position of the length field in the header
+     * @param fldLength
+     *            size of the length field, in bytes, which can be 1, 2, 3, 4 or 8
+     * @param adjstmnt
+     *            value added to the frame length
+     * @throws IllegalArgumentException
+     *             if the offset is negative, or the field size is not supported
+     */
+    public LengthFieldFramer(final int ffst, final int fldLength, final int adjstmnt) {
+        super();
+
+        if (ffst < 0) {
+            throw new IllegalArgumentException("The length field offset can't be negative, received " + ffst);
+        }
+        if ((fldLength != 1) && (fldLength != 2) && (fldLength != 3) && (fldLength != 4) && (fldLength != 8)) {
+            throw new IllegalArgumentException("The length field should have 1, 2, 3, 4 or 8 bytes, received "
+                    + fldLength);
+        }
+
+        offset = ffst;
+        fieldLength = fldLength;
+        adjustment = adjstmnt;
+        headerLength = offset + fieldLength;
+    }
+
+    @Override
+    public final long frameLength(final ByteBuf buffer) {
+        final long value;
+        final long length;
+
+        if (buffer.readableBytes() < headerLength) {
+            length = UNKNOWN;
+        } else {
+            value = getFieldValue(buffer, buffer.readerIndex() + offset);
+            if (value < 0) {
+                // Only an 8 byte field, read as a signed long, can go negative
+                throw new IllegalArgumentException(
+                    String.format("Invalid frame length field %d, over the maximum length", value));
+            }
+            length = headerLength + value + adjustment;
+            if (length < headerLength) {
+                throw new IllegalArgumentException(
+                    String.format("Invalid frame length field %d, with adjustment %d", value, adjustment));
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Reads the length field.
+     *
+     * @param buffer
+     *            buffer with the field
+     * @param index
+     *            index of the field
+     * @return the length field value
+     */
+    private final long getFieldValue(final ByteBuf buffer, final int index) {
+        final long value;
+
+        switch (fieldLength) {
+            case 1:
+                value = buffer.getUnsignedByte(index);
+                break;
+            case 2:
+                value = buffer.getUnsignedShort(index);
+                break;
+            case 3:
+                value = buffer.getUnsignedMedium(index);
+                break;
+            case 4:
+                value = buffer.getUnsignedInt(index);
+                break;
+            default:
+                value = buffer.getLong(index);
+        }
+
+        return value;
+    }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.shaping;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+
+/**
+ * Creates the rate limits for each bridged connection. The limits for all the connections together are single buckets,
+ * shared by every connection, while each connection gets its own buckets.
+ * <p>
+ * The buckets are lock-free, but the shared ones are still a single atomic value updated for each message of every
+ * connection.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class BandwidthShaper {
+
+    /**
+     * Shaping settings.
+     */
+    private final ShapingSettings             settings;
+
+    /**
+     * Limit for all the connections together, for each direction.
+     */
+    private final Map<Direction, TokenBucket> totals   = new EnumMap<>(Direction.class);
+
+    /**
+     * Constructs a shaper with the received settings.
+     *
+     * @param sttngs
+     *            shaping settings
+     */
+    public BandwidthShaper(final ShapingSettings sttngs) {
+        super();
+
+        settings = Objects.requireNonNull(sttngs);
+
+        totals.put(Direction.REQUEST, createBucket(settings.getTotalRequestRate()));
+        totals.put(Direction.RESPONSE, createBucket(settings.getTotalResponseRate()));
+    }
+
+    /**
+     * Constructs a shaper with the received settings, sharing the limits for all the connections of another shaper.
+     *
+     * @param sttngs
+     *            shaping settings
+     * @param shared
+     *            shaper whose total limits are used
+     */
+    private BandwidthShaper(final ShapingSettings sttngs, final BandwidthShaper shared) {
+        super();
+
+        settings = Objects.requireNonNull(sttngs);
+
+        totals.putAll(shared.totals);
+    }
+
+    /**
+     * Creates the limit for a new connection in the received direction.
+     *
+     * @param direction
+     *            direction to limit
+     * @return the limit for the connection
+     */
+    public final TokenBucket createConnectionLimit(final Direction direction) {
+        final TokenBucket limit;
+
+        if (direction == Direction.REQUEST) {
+            limit = createBucket(settings.getRequestRate());
+        } else {
+            limit = createBucket(settings.getResponseRate());
+        }
+
+        return limit;
+    }
+
+    /**
+     * Returns the limit for all the connections together in the received direction.
+     *
+     * @param direction
+     *            direction to limit
+     * @return the limit for all the connections
+     */
+    public final TokenBucket getTotalLimit(final Direction direction) {
+        return totals.get(direction);
+    }
+
+    /**
+     * Returns a shaper with other rates for each connection, which shares the limits for all the connections with this
+     * one. So a group of connections can have its own rates, while all of them still count towards the totals.
+     *
+     * @param requestRate
+     *            request bytes per second for each connection
+     * @param responseRate
+     *            response bytes per second for each connection
+     * @return a shaper with the received rates for each connection
+     */
+    public final BandwidthShaper withConnectionRates(final long requestRate, final long responseRate) {
+        return new BandwidthShaper(ShapingSettings.builder()
+            .burst(settings.getBurst())
+            .requestRate(requestRate)
+            .responseRate(responseRate)
+            .totalRequestRate(settings.getTotalRequestRate())
+            .totalResponseRate(settings.getTotalResponseRate())
+            .build(), this);
+    }
+
+    /**
+     * Creates a bucket for the received rate, with the burst from the settings. The burst is at least the rate over a
+     * millisecond, so the bucket can take some bytes at once.
+     *
+     * @param rate
+     *            bytes per second
+     * @return the bucket for the rate
+     */
+    private final TokenBucket createBucket(final long rate) {
+        final TokenBucket bucket;
+        final long        burst;
+
+        if (rate <= 0) {
+            bucket = TokenBucket.UNLIMITED;
+        } else {
+            burst = Math.max(rate / 1000, (long) (rate * (settings.getBurst()
+                .toNanos() / 1_000_000_000d)));
+            bucket = new TokenBucket(rate, burst);
+        }
+
+        return bucket;
+    }
+
+}
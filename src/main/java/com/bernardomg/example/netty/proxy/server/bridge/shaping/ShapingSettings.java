@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.shaping;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Byte rates for each direction of the bridge, in bytes per second. Each direction has a rate for each connection, and
+ * another for all the connections together. A rate which is not positive is disabled.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder
+public final class ShapingSettings {
+
+    /**
+     * No rate limits at all.
+     */
+    public static final ShapingSettings NONE              = ShapingSettings.builder()
+        .burst(Duration.ZERO)
+        .build();
+
+    /**
+     * Time of traffic at the full rate which can go through at once, after being idle. The burst of each rate is this
+     * time at that rate.
+     */
+    @NonNull
+    private final Duration              burst;
+
+    /**
+     * Request bytes per second for each connection.
+     */
+    private final long                  requestRate;
+
+    /**
+     * Response bytes per second for each connection.
+     */
+    private final long                  responseRate;
+
+    /**
+     * Request bytes per second for all the connections together.
+     */
+    private final long                  totalRequestRate;
+
+    /**
+     * Response bytes per second for all the connections together.
+     */
+    private final long                  totalResponseRate;
+
+    /**
+     * Checks if any rate is enabled.
+     *
+     * @return {@code true} if any rate is enabled, {@code false} otherwise
+     */
+    public final boolean isEnabled() {
+        return (requestRate > 0) || (responseRate > 0) || (totalRequestRate > 0) || (totalResponseRate > 0);
+    }
+
+}
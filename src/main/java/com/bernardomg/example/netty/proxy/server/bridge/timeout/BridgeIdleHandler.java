@@ -0,0 +1,107 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.timeout;
+
+import java.util.concurrent.TimeUnit;
+
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.ReadPauseEvent;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.DuplexChannel;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Closes the connection once it is idle for too long. A read timeout is ignored after the connection half-closes, as
+ * the peer won't send anything else, while it may still be waiting for the other direction.
+ * <p>
+ * A read timeout is also ignored while the proxy itself stopped reading, which is told by the {@link ReadPauseEvent}s.
+ * The peer may still be sending, but nothing is read. Once reading resumes, the peer has the whole timeout again.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+final class BridgeIdleHandler extends IdleStateHandler {
+
+    /**
+     * Read paused flag. Active while the proxy doesn't read from the connection.
+     */
+    private boolean readPaused;
+
+    /**
+     * Constructs a handler with the received timeouts. A timeout of zero is disabled.
+     *
+     * @param readTimeout
+     *            maximum time without reading, in nanoseconds
+     * @param idleTimeout
+     *            maximum time without reading or writing, in nanoseconds
+     */
+    BridgeIdleHandler(final long readTimeout, final long idleTimeout) {
+        super(readTimeout, 0, idleTimeout, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public final void userEventTriggered(final ChannelHandlerContext ctx, final Object evt) throws Exception {
+        if (evt == ReadPauseEvent.PAUSED) {
+            readPaused = true;
+        } else if (evt == ReadPauseEvent.RESUMED) {
+            readPaused = false;
+            resetReadTimeout();
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    @Override
+    protected final void channelIdle(final ChannelHandlerContext ctx, final IdleStateEvent evt) throws Exception {
+        final Channel channel;
+
+        channel = ctx.channel();
+        if (evt.state() == IdleState.ALL_IDLE) {
+            log.debug("Connection {} idle for too long, closing it", channel.id()
+                .asShortText());
+            ctx.close();
+        } else if ((evt.state() == IdleState.READER_IDLE) && !readPaused && !isInputShutdown(channel)) {
+            log.debug("Connection {} sent nothing for too long, closing it", channel.id()
+                .asShortText());
+            ctx.close();
+        }
+    }
+
+    /**
+     * Checks if the channel input is shut down, so nothing else can be read.
+     *
+     * @param channel
+     *            channel to check
+     * @return {@code true} if the input is shut down, {@code false} otherwise
+     */
+    private final boolean isInputShutdown(final Channel channel) {
+        return (channel instanceof DuplexChannel) && ((DuplexChannel) channel).isInputShutdown();
+    }
+
+}
@@ -0,0 +1,61 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.timeout;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Closes the connection when a write isn't sent in time, usually because the peer stopped reading. Unlike the Netty
+ * handler, it doesn't raise an exception, the connection is just closed.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+final class BridgeWriteTimeoutHandler extends WriteTimeoutHandler {
+
+    /**
+     * Constructs a handler with the received timeout.
+     *
+     * @param timeout
+     *            maximum time for a write to be sent, in nanoseconds
+     */
+    BridgeWriteTimeoutHandler(final long timeout) {
+        super(timeout, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    protected final void writeTimedOut(final ChannelHandlerContext ctx) throws Exception {
+        log.debug("Connection {} couldn't write in time, closing it", ctx.channel()
+            .id()
+            .asShortText());
+        ctx.close();
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.bridge.timeout;
+
+import java.time.Duration;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import reactor.netty.Connection;
+
+/**
+ * Timeouts for a bridged pair of connections. Any of them closes the pair once it passes, and a timeout which is not
+ * positive is disabled.
+ * <ul>
+ * <li>Idle: time without reading or writing anything, in both directions</li>
+ * <li>Read: time without reading from the source of a direction, while it is open and the proxy reads from it</li>
+ * <li>Write: time a message written into the target of a direction can wait to be sent</li>
+ * </ul>
+ * <p>
+ * The read timeout stops once the source half-closes, as nothing else can come from it.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder(toBuilder = true)
+public final class TimeoutSettings {
+
+    /**
+     * No timeouts at all.
+     */
+    public static final TimeoutSettings NONE               = TimeoutSettings.builder()
+        .idle(Duration.ZERO)
+        .requestRead(Duration.ZERO)
+        .requestWrite(Duration.ZERO)
+        .responseRead(Duration.ZERO)
+        .responseWrite(Duration.ZERO)
+        .build();
+
+    /**
+     * Name for the idle and read timeout handler in the pipeline.
+     */
+    private static final String         IDLE_HANDLER_NAME  = "proxy.idle";
+
+    /**
+     * Name for the write timeout handler in the pipeline.
+     */
+    private static final String         WRITE_HANDLER_NAME = "proxy.writeTimeout";
+
+    /**
+     * Maximum time without traffic in any direction.
+     */
+    @NonNull
+    private final Duration              idle;
+
+    /**
+     * Maximum time without reading requests from the client.
+     */
+    @NonNull
+    private final Duration              requestRead;
+
+    /**
+     * Maximum time for a request to be written into the target.
+     */
+    @NonNull
+    private final Duration              requestWrite;
+
+    /**
+     * Maximum time without reading responses from the target.
+     */
+    @NonNull
+    private final Duration              responseRead;
+
+    /**
+     * Maximum time for a response to be written into the client.
+     */
+    @NonNull
+    private final Duration              responseWrite;
+
+    /**
+     * Adds the timeouts to the bridged connections. Each connection only closes itself, the bridge then closes the
+     * other one.
+     * <p>
+     * All the traffic goes through the server connection, so it is the only one tracking the idle time.
+     *
+     * @param server
+     *            server connection, which reads the requests and writes the responses
+     * @param client
+     *            client connection, which writes the requests and reads the responses
+     */
+    public final void applyTo(final Connection server, final Connection client) {
+        addHandlers(server, requestRead, idle, responseWrite);
+        addHandlers(client, responseRead, Duration.ZERO, requestWrite);
+    }
+
+    /**
+     * Adds the handlers for the enabled timeouts into the connection.
+     *
+     * @param connection
+     *            connection to add the handlers
+     * @param read
+     *            read timeout
+     * @param allIdle
+     *            idle timeout
+     * @param write
+     *            write timeout
+     */
+    private final void addHandlers(final Connection connection, final Duration read, final Duration allIdle,
+            final Duration write) {
+        if (isEnabled(read) || isEnabled(allIdle)) {
+            connection.addHandlerLast(IDLE_HANDLER_NAME,
+                new BridgeIdleHandler(Math.max(0, read.toNanos()), Math.max(0, allIdle.toNanos())));
+        }
+        if (isEnabled(write)) {
+            connection.addHandlerLast(WRITE_HANDLER_NAME, new BridgeWriteTimeoutHandler(write.toNanos()));
+        }
+    }
+
+    /**
+     * Checks if the timeout is enabled.
+     *
+     * @param timeout
+     *            timeout to check
+     * @return {@code true} if the timeout is positive, {@code false} otherwise
+     */
+    private final boolean isEnabled(final Duration timeout) {
+        return !timeout.isNegative() && !timeout.isZero();
+    }
+
+}
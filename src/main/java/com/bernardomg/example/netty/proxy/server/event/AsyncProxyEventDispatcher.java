@@ -0,0 +1,259 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.bernardomg.example.netty.proxy.server.ProxyListener;
+
+import io.netty.util.internal.PlatformDependent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dispatches events to a listener from a dedicated thread. The event loops just push the events into a bounded
+ * lock-free queue, and the consumer thread drains it in batches.
+ * <p>
+ * Messages and connections go through the same queue, so the listener receives each connection before its messages.
+ * <h2>Overflow</h2>
+ * <p>
+ * If the listener can't keep up then the queue ends up full. What happens then depends on the {@link OverflowPolicy}.
+ * Dropping the events keeps the proxy going at full speed, while blocking makes the event loops wait for the listener.
+ * Still, blocking only waits while the consumer thread runs. Events which don't fit into the queue while it is stopped
+ * are dropped. All the dropped events are counted.
+ * <h2>Lifecycle</h2>
+ * <p>
+ * The consumer thread runs between {@link #start()} and {@link #stop()}. When stopped, it still delivers the events
+ * already in the queue.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class AsyncProxyEventDispatcher implements ProxyEventDispatcher {
+
+    /**
+     * Time the consumer waits when there are no events.
+     */
+    private static final long    IDLE_WAIT_NANOS  = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Time a blocked producer waits between attempts.
+     */
+    private static final long    OFFER_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * Maximum number of events delivered on each batch.
+     */
+    private final int            batchSize;
+
+    /**
+     * Consumer thread.
+     */
+    private Thread               consumer;
+
+    /**
+     * Number of dropped events.
+     */
+    private final AtomicLong     dropped          = new AtomicLong();
+
+    /**
+     * Listener receiving the events.
+     */
+    private final ProxyListener  listener;
+
+    /**
+     * Policy for when the queue is full.
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * Events waiting for the listener. These are {@link ProxyEvent} and {@link ConnectionEvent}.
+     */
+    private final Queue<Object>  queue;
+
+    /**
+     * Running flag.
+     */
+    private volatile boolean     running;
+
+    /**
+     * Constructs a dispatcher for the received listener.
+     *
+     * @param lstn
+     *            listener receiving the events
+     * @param capacity
+     *            maximum number of events waiting in the queue
+     * @param batch
+     *            maximum number of events delivered on each batch
+     * @param policy
+     *            policy for when the queue is full
+     */
+    public AsyncProxyEventDispatcher(final ProxyListener lstn, final int capacity, final int batch,
+            final OverflowPolicy policy) {
+        super();
+
+        if (batch < 1) {
+            throw new IllegalArgumentException("Batch size should be positive, received " + batch);
+        }
+
+        listener = Objects.requireNonNull(lstn);
+        overflowPolicy = Objects.requireNonNull(policy);
+        batchSize = batch;
+        queue = PlatformDependent.newFixedMpscQueue(capacity);
+    }
+
+    @Override
+    public final void dispatch(final ConnectionEvent event) {
+        offer(event);
+    }
+
+    @Override
+    public final void dispatch(final ProxyEvent event) {
+        offer(event);
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full.
+     *
+     * @return the number of dropped events
+     */
+    public final long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Starts the consumer thread.
+     */
+    public final void start() {
+        log.debug("Starting event dispatcher");
+
+        running = true;
+        consumer = new Thread(this::consume, "proxy-listener");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Stops the consumer thread, after delivering the events in the queue.
+     */
+    public final void stop() {
+        log.debug("Stopping event dispatcher");
+
+        running = false;
+        if (consumer != null) {
+            try {
+                consumer.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread()
+                    .interrupt();
+            }
+        }
+
+        log.debug("Stopped event dispatcher. Dropped {} events", dropped.get());
+    }
+
+    /**
+     * Consumer loop. Delivers events until stopped and the queue is empty.
+     */
+    private final void consume() {
+        final List<Object> batch;
+        Object             event;
+
+        batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            event = queue.poll();
+            while ((event != null) && (batch.size() < batchSize)) {
+                batch.add(event);
+                if (batch.size() < batchSize) {
+                    event = queue.poll();
+                }
+            }
+
+            if (batch.isEmpty()) {
+                LockSupport.parkNanos(IDLE_WAIT_NANOS);
+            } else {
+                batch.forEach(this::deliver);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Sends the event to the listener. Errors are logged, so a failing listener won't stop the consumer.
+     *
+     * @param event
+     *            event to deliver
+     */
+    private final void deliver(final Object event) {
+        final ProxyEvent      message;
+        final ConnectionEvent connection;
+
+        try {
+            if (event instanceof ProxyEvent) {
+                message = (ProxyEvent) event;
+                if (message.getDirection() == Direction.REQUEST) {
+                    listener.onRequest(message);
+                } else {
+                    listener.onResponse(message);
+                }
+            } else {
+                connection = (ConnectionEvent) event;
+                listener.onConnection(connection.getConnectionId(), connection.getAddresses());
+            }
+        } catch (final RuntimeException e) {
+            log.error("Listener failed handling event", e);
+        }
+    }
+
+    /**
+     * Pushes the event into the queue, applying the overflow policy if it is full.
+     *
+     * @param event
+     *            event to push
+     */
+    private final void offer(final Object event) {
+        boolean offered;
+
+        offered = queue.offer(event);
+        if (!offered && (overflowPolicy == OverflowPolicy.BLOCK)) {
+            // Without the consumer nothing frees the queue, so there is no point in waiting
+            while (!offered && running) {
+                LockSupport.parkNanos(OFFER_WAIT_NANOS);
+                offered = queue.offer(event);
+            }
+        }
+
+        if (!offered) {
+            dropped.incrementAndGet();
+        }
+    }
+
+}
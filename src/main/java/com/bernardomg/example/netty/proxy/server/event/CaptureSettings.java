@@ -0,0 +1,84 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.event;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Settings for capturing the proxied messages into events. These bound the cost of the listener, which otherwise would
+ * copy and show every byte going through the proxy.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder
+public final class CaptureSettings {
+
+    /**
+     * Captures nothing, only the message sizes.
+     */
+    public static final CaptureSettings SIZE_ONLY  = CaptureSettings.builder()
+        .mode(CaptureMode.SIZE)
+        .sampleRate(1)
+        .build();
+
+    /**
+     * Maximum number of bytes copied from each message.
+     */
+    private final int                   maxBytes;
+
+    /**
+     * How the messages are shown.
+     */
+    @NonNull
+    private final CaptureMode           mode;
+
+    /**
+     * Only one message out of this number is captured, for each connection and direction. If not positive, all the
+     * messages are captured.
+     */
+    private final int                   sampleRate;
+
+    /**
+     * Returns the number of bytes copied from each message. This is zero when only the sizes are shown.
+     *
+     * @return the bytes copied from each message
+     */
+    public final int getCapturedBytes() {
+        final int captured;
+
+        if (mode == CaptureMode.SIZE) {
+            captured = 0;
+        } else {
+            captured = Math.max(0, maxBytes);
+        }
+
+        return captured;
+    }
+
+}
@@ -0,0 +1,59 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.event;
+
+/**
+ * Part of a protocol frame in a proxied message. Without framing, each message read is taken as a whole frame.
+ * <p>
+ * Frames over the maximum frame size are streamed in pieces, as they are read, instead of being held until complete.
+ * And if the bytes turn out not to be valid frames, they are taken as read from then on.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public enum FramePart {
+
+    /**
+     * Middle piece of a streamed frame.
+     */
+    CONTINUATION,
+    /**
+     * Last piece of a streamed frame.
+     */
+    END,
+    /**
+     * First piece of a streamed frame.
+     */
+    START,
+    /**
+     * Bytes as read, after framing stopped for the connection and direction, as they didn't follow the framing.
+     */
+    UNFRAMED,
+    /**
+     * Complete frame.
+     */
+    WHOLE;
+
+}
@@ -0,0 +1,157 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.event;
+
+import java.nio.charset.Charset;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A message going through the proxy. It is a lightweight copy of what was proxied, so it can be handled outside the
+ * event loop after the actual message has been released.
+ * <p>
+ * The payload is a copy of the first bytes of the message, which may be empty. The length is always the full message
+ * length.
+ * <p>
+ * If the proxy frames the messages, each event is a protocol frame, or a piece of a frame too large to be held whole.
+ * Otherwise, each event is a message as read from the connection.
+ * <p>
+ * When the proxy correlates requests and responses, the response frame which completes an exchange carries its
+ * latency. This is the time from the end of the request to the end of its response.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@AllArgsConstructor
+public final class ProxyEvent {
+
+    /**
+     * Latency for events which don't complete an exchange.
+     */
+    public static final long NO_LATENCY   = -1;
+
+    /**
+     * Id of the proxied connection.
+     */
+    @NonNull
+    private final String     connectionId;
+
+    /**
+     * Message direction.
+     */
+    @NonNull
+    private final Direction  direction;
+
+    /**
+     * Time from the end of the request to the end of this response, in nanoseconds, or {@link #NO_LATENCY} if the
+     * event doesn't complete an exchange.
+     */
+    private final long       latency;
+
+    /**
+     * Full message length.
+     */
+    private final int        length;
+
+    /**
+     * Part of the frame in the message.
+     */
+    @NonNull
+    private final FramePart  part;
+
+    /**
+     * Copy of the first bytes of the message.
+     */
+    @NonNull
+    private final byte[]     payload;
+
+    /**
+     * Time when the message was proxied, in milliseconds since the epoch.
+     */
+    private final long       timestamp;
+
+    /**
+     * Constructs an event for a whole message.
+     *
+     * @param id
+     *            id of the proxied connection
+     * @param drctn
+     *            message direction
+     * @param lngth
+     *            full message length
+     * @param pyld
+     *            copy of the first bytes of the message
+     * @param tmstmp
+     *            time when the message was proxied, in milliseconds since the epoch
+     */
+    public ProxyEvent(final String id, final Direction drctn, final int lngth, final byte[] pyld, final long tmstmp) {
+        this(id, drctn, lngth, FramePart.WHOLE, pyld, tmstmp);
+    }
+
+    /**
+     * Constructs an event for a frame, which doesn't complete an exchange.
+     *
+     * @param id
+     *            id of the proxied connection
+     * @param drctn
+     *            message direction
+     * @param lngth
+     *            full message length
+     * @param prt
+     *            part of the frame in the message
+     * @param pyld
+     *            copy of the first bytes of the message
+     * @param tmstmp
+     *            time when the message was proxied, in milliseconds since the epoch
+     */
+    public ProxyEvent(final String id, final Direction drctn, final int lngth, final FramePart prt, final byte[] pyld,
+            final long tmstmp) {
+        this(id, drctn, NO_LATENCY, lngth, prt, pyld, tmstmp);
+    }
+
+    /**
+     * Returns the payload decoded with the received charset.
+     *
+     * @param charset
+     *            charset to decode the payload
+     * @return the decoded payload
+     */
+    public final String getPayloadAsString(final Charset charset) {
+        return new String(payload, charset);
+    }
+
+    /**
+     * Indicates if the payload contains only part of the message.
+     *
+     * @return {@code true} if the payload is truncated, {@code false} otherwise
+     */
+    public final boolean isTruncated() {
+        return payload.length < length;
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.event;
+
+/**
+ * Sends proxy events to the listeners.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public interface ProxyEventDispatcher {
+
+    /**
+     * Dispatches the event. This is called from the event loop, so it should not wait for the listeners.
+     *
+     * @param event
+     *            event to dispatch
+     */
+    public void dispatch(final ProxyEvent event);
+
+    /**
+     * Dispatches a connection event. This is called from the event loop, before dispatching any message of the
+     * connection, so it should not wait for the listeners either.
+     * <p>
+     * By default the connections are ignored, so a dispatcher can handle just the messages.
+     *
+     * @param event
+     *            connection event to dispatch
+     */
+    public default void dispatch(final ConnectionEvent event) {
+        // Ignored
+    }
+
+}
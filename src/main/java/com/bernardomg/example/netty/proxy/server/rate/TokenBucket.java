@@ -0,0 +1,245 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.rate;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import io.netty.util.AttributeKey;
+
+/**
+ * Token bucket, refilled at a fixed rate up to the burst size. It can be shared by any number of threads, as all its
+ * state is a single atomic value, updated without locks.
+ * <h2>Algorithm</h2>
+ * <p>
+ * Instead of counting tokens, the bucket keeps the time when it would be full again, as in the generic cell rate
+ * algorithm. Taking tokens moves this time forward by the time needed to refill them, and tokens are available while
+ * this time is less than the burst ahead of now. So there is no refill task, and no clock reading besides the one done
+ * when taking tokens.
+ * <h2>Debt</h2>
+ * <p>
+ * Tokens can be taken in two ways. {@link #tryAcquire(long)} only takes them if available, which suits admitting or
+ * rejecting something. {@link #acquire(long)} always takes them, leaving the bucket in debt, and returns how long to
+ * wait until it is paid. This suits bytes which were already read, and can only be paid by not reading for a while.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class TokenBucket {
+
+    /**
+     * Channel attribute for the limit on the bytes read from the channel. Set by whoever accepts the channel, and used
+     * by whoever reads from it.
+     */
+    public static final AttributeKey<TokenBucket> READ_LIMIT    = AttributeKey.valueOf("proxy.readLimit");
+
+    /**
+     * Bucket which never runs out of tokens.
+     */
+    public static final TokenBucket               UNLIMITED     = new TokenBucket(0, 0);
+
+    /**
+     * Time the bucket may be ahead of now, which is the time to refill the burst, in nanoseconds.
+     */
+    private final long                            burstNanos;
+
+    /**
+     * Clock, giving the current time in nanoseconds as {@code System.nanoTime()} does.
+     */
+    private final LongSupplier                    clock;
+
+    /**
+     * Time when the bucket will be full again, in nanoseconds.
+     */
+    private final AtomicLong                      fullAt;
+
+    /**
+     * Time to refill a token, in nanoseconds.
+     */
+    private final double                          nanosPerToken;
+
+    /**
+     * Unlimited flag.
+     */
+    private final boolean                         unlimited;
+
+    /**
+     * Constructs a bucket with the received rate and burst. The bucket starts full.
+     *
+     * @param rate
+     *            tokens refilled each second. If not positive, the bucket is unlimited
+     * @param burst
+     *            maximum tokens in the bucket. It is at least one
+     */
+    public TokenBucket(final double rate, final long burst) {
+        this(rate, burst, System::nanoTime);
+    }
+
+    /**
+     * Constructs a bucket with the received rate and burst, reading the time from the received clock. The bucket starts
+     * full.
+     *
+     * @param rate
+     *            tokens refilled each second. If not positive, the bucket is unlimited
+     * @param burst
+     *            maximum tokens in the bucket. It is at least one
+     * @param clck
+     *            clock, giving the current time in nanoseconds
+     */
+    public TokenBucket(final double rate, final long burst, final LongSupplier clck) {
+        super();
+
+        clock = Objects.requireNonNull(clck);
+
+        unlimited = rate <= 0;
+        if (unlimited) {
+            nanosPerToken = 0;
+        } else {
+            nanosPerToken = 1_000_000_000d / rate;
+        }
+        burstNanos = (long) (Math.max(1, burst) * nanosPerToken);
+        fullAt = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Takes the tokens, even if they are not available. Returns the time until the debt is paid, during which the
+     * caller should stop consuming.
+     *
+     * @param tokens
+     *            tokens to take
+     * @return the nanoseconds to wait until tokens are available again, zero if there is no debt
+     */
+    public final long acquire(final long tokens) {
+        final long now;
+        final long cost;
+        final long wait;
+        long       current;
+        long       next;
+
+        if (unlimited) {
+            wait = 0;
+        } else {
+            now = clock.getAsLong();
+            cost = getCost(tokens);
+            do {
+                current = fullAt.get();
+                next = later(current, now) + cost;
+            } while (!fullAt.compareAndSet(current, next));
+            wait = Math.max(0, next - now - burstNanos);
+        }
+
+        return wait;
+    }
+
+    /**
+     * Returns the time until tokens are available again.
+     *
+     * @return the nanoseconds to wait until tokens are available, zero if they are available now
+     */
+    public final long getWait() {
+        final long wait;
+
+        if (unlimited) {
+            wait = 0;
+        } else {
+            wait = Math.max(0, fullAt.get() - clock.getAsLong() - burstNanos);
+        }
+
+        return wait;
+    }
+
+    /**
+     * Checks if the bucket is full, so forgetting it loses nothing.
+     *
+     * @return {@code true} if the bucket is full, {@code false} otherwise
+     */
+    public final boolean isFull() {
+        return unlimited || ((fullAt.get() - clock.getAsLong()) <= 0);
+    }
+
+    /**
+     * Takes the tokens, only if they are available.
+     *
+     * @param tokens
+     *            tokens to take
+     * @return {@code true} if the tokens were taken, {@code false} otherwise
+     */
+    public final boolean tryAcquire(final long tokens) {
+        final long now;
+        final long cost;
+        boolean    taken;
+        long       current;
+        long       next;
+
+        if (unlimited) {
+            taken = true;
+        } else {
+            now = clock.getAsLong();
+            cost = getCost(tokens);
+            do {
+                current = fullAt.get();
+                next = later(current, now) + cost;
+                // Not enough tokens, unless the bucket ends up no further ahead than the burst
+                taken = (next - now) <= burstNanos;
+            } while (taken && !fullAt.compareAndSet(current, next));
+        }
+
+        return taken;
+    }
+
+    /**
+     * Returns the time to refill the received tokens.
+     *
+     * @param tokens
+     *            tokens to refill
+     * @return the nanoseconds to refill the tokens
+     */
+    private final long getCost(final long tokens) {
+        return (long) Math.ceil(tokens * nanosPerToken);
+    }
+
+    /**
+     * Returns the later of two {@code System.nanoTime()} values, which may overflow.
+     *
+     * @param first
+     *            first time
+     * @param second
+     *            second time
+     * @return the later time
+     */
+    private final long later(final long first, final long second) {
+        final long later;
+
+        if ((first - second) > 0) {
+            later = first;
+        } else {
+            later = second;
+        }
+
+        return later;
+    }
+
+}
@@ -0,0 +1,64 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.sni;
+
+import java.util.List;
+
+import io.netty.util.AttributeKey;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * What the proxy needs from a TLS ClientHello to route the connection.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+public final class ClientHello {
+
+    /**
+     * Hello without server name or protocols. Used when the connection doesn't start with a ClientHello.
+     */
+    public static final ClientHello               EMPTY      = new ClientHello(List.of(), "");
+
+    /**
+     * Channel attribute for the ClientHello of the connection. Set once, when the hello is read.
+     */
+    public static final AttributeKey<ClientHello> KEY        = AttributeKey.valueOf("clientHello");
+
+    /**
+     * Application protocols offered through ALPN. Empty if none was offered.
+     */
+    @NonNull
+    private final List<String>                    protocols;
+
+    /**
+     * Server name sent through SNI, in lower case. Empty if none was sent.
+     */
+    @NonNull
+    private final String                          serverName;
+
+}
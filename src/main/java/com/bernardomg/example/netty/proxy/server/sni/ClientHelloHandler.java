@@ -0,0 +1,344 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.sni;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.ssl.SslClientHelloHandler;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Peeks at the TLS ClientHello at the start of a connection, and stores the server name and application protocols into
+ * the {@link ClientHello#KEY} channel attribute. Nothing is decrypted, the connection stays a raw byte stream.
+ * <p>
+ * Only the handshake records are buffered, up to the maximum size, and the hello should arrive before the timeout.
+ * Otherwise the connection is closed, so slow or oversized hellos can't hold the proxy memory. Once the hello is read,
+ * the handler removes itself, and the buffered bytes go on untouched. Until then the connection should not be used, so
+ * the result is kept in the {@link #PARSED} channel attribute, to wait for it.
+ * <p>
+ * Connections which don't start with a ClientHello get an {@link ClientHello#EMPTY empty hello}.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ClientHelloHandler extends SslClientHelloHandler<ClientHello> {
+
+    /**
+     * ALPN extension type.
+     */
+    private static final int                       ALPN         = 16;
+
+    /**
+     * Name for the handler in the pipeline.
+     */
+    private static final String                    HANDLER_NAME = "clientHelloHandler";
+
+    /**
+     * Host name type, for the server name extension.
+     */
+    private static final int                       HOST_NAME    = 0;
+
+    /**
+     * Channel attribute for the ClientHello reading. Completes once the hello is read, and fails if the connection is
+     * closed before.
+     */
+    public static final AttributeKey<Future<Void>> PARSED       = AttributeKey.valueOf("clientHelloParsed");
+
+    /**
+     * Server name extension type.
+     */
+    private static final int                       SERVER_NAME  = 0;
+
+    /**
+     * Adds the handler at the start of the channel pipeline. Should be called when initializing the channel, before it
+     * reads anything.
+     *
+     * @param channel
+     *            channel to read the hello from
+     * @param settings
+     *            limits for reading the hello
+     */
+    public static final void install(final Channel channel, final SniSettings settings) {
+        final ClientHelloHandler handler;
+
+        handler = new ClientHelloHandler(settings, channel.eventLoop()
+            .newPromise());
+        channel.attr(PARSED)
+            .set(handler.parsed);
+        channel.pipeline()
+            .addFirst(HANDLER_NAME, handler);
+    }
+
+    /**
+     * Reads the ClientHello fields used for routing. The buffer starts at the client version, after the handshake
+     * header.
+     *
+     * @param hello
+     *            ClientHello handshake body
+     * @return the parsed ClientHello
+     */
+    private static final ClientHello parse(final ByteBuf hello) {
+        final int end;
+        int          index;
+        int          extensionsEnd;
+        int          type;
+        int          length;
+        String       serverName;
+        List<String> protocols;
+
+        end = hello.writerIndex();
+        // Version and random
+        index = hello.readerIndex() + 2 + 32;
+        // Session id
+        index += 1 + hello.getUnsignedByte(index);
+        // Cipher suites
+        index += 2 + hello.getUnsignedShort(index);
+        // Compression methods
+        index += 1 + hello.getUnsignedByte(index);
+
+        serverName = "";
+        protocols = List.of();
+        if ((index + 2) <= end) {
+            extensionsEnd = Math.min(end, index + 2 + hello.getUnsignedShort(index));
+            index += 2;
+            while ((index + 4) <= extensionsEnd) {
+                type = hello.getUnsignedShort(index);
+                length = hello.getUnsignedShort(index + 2);
+                index += 4;
+                if (type == SERVER_NAME) {
+                    serverName = parseServerName(hello, index, Math.min(extensionsEnd, index + length));
+                } else if (type == ALPN) {
+                    protocols = parseProtocols(hello, index, Math.min(extensionsEnd, index + length));
+                }
+                index += length;
+            }
+        }
+
+        return new ClientHello(protocols, serverName);
+    }
+
+    /**
+     * Reads the protocols in the ALPN extension.
+     *
+     * @param hello
+     *            ClientHello handshake body
+     * @param start
+     *            start of the extension data
+     * @param end
+     *            end of the extension data
+     * @return the protocols in the extension
+     */
+    private static final List<String> parseProtocols(final ByteBuf hello, final int start, final int end) {
+        final List<String> protocols;
+        int                index;
+        int                length;
+
+        protocols = new ArrayList<>();
+        // Skips the list length
+        index = start + 2;
+        while (index < end) {
+            length = hello.getUnsignedByte(index);
+            index += 1;
+            protocols.add(hello.toString(index, Math.min(length, end - index), StandardCharsets.US_ASCII));
+            index += length;
+        }
+
+        return protocols;
+    }
+
+    /**
+     * Reads the host name in the server name extension.
+     *
+     * @param hello
+     *            ClientHello handshake body
+     * @param start
+     *            start of the extension data
+     * @param end
+     *            end of the extension data
+     * @return the host name in lower case, or an empty string if there is none
+     */
+    private static final String parseServerName(final ByteBuf hello, final int start, final int end) {
+        String name;
+        int    index;
+        int    type;
+        int    length;
+
+        name = "";
+        // Skips the list length
+        index = start + 2;
+        while (name.isEmpty() && ((index + 3) <= end)) {
+            type = hello.getUnsignedByte(index);
+            length = hello.getUnsignedShort(index + 1);
+            index += 3;
+            if (type == HOST_NAME) {
+                name = hello.toString(index, Math.min(length, end - index), StandardCharsets.US_ASCII)
+                    .toLowerCase(Locale.ROOT);
+            }
+            index += length;
+        }
+
+        return name;
+    }
+
+    /**
+     * Completed once the hello is read.
+     */
+    private final Promise<Void>                    parsed;
+
+    /**
+     * Limits for reading the hello.
+     */
+    private final SniSettings                      settings;
+
+    /**
+     * Closes the connection if the hello takes too long.
+     */
+    private ScheduledFuture<?>                     timeout;
+
+    /**
+     * Constructs a handler which completes the received promise once the hello is read.
+     *
+     * @param sttngs
+     *            limits for reading the hello
+     * @param prsd
+     *            completed once the hello is read
+     */
+    private ClientHelloHandler(final SniSettings sttngs, final Promise<Void> prsd) {
+        super(sttngs.getMaxHelloBytes());
+
+        settings = sttngs;
+        parsed = Objects.requireNonNull(prsd);
+    }
+
+    @Override
+    public final void channelActive(final ChannelHandlerContext ctx) throws Exception {
+        super.channelActive(ctx);
+
+        // Reactor Netty only reads once the connection is bridged, which waits for the hello
+        // The decoder asks for more reads until the hello is complete
+        ctx.read();
+    }
+
+    @Override
+    public final void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+        cancelTimeout();
+        parsed.tryFailure(new ClosedChannelException());
+
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public final void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+        if (parsed.tryFailure(cause)) {
+            log.debug("Closing connection from {}, as its ClientHello is invalid: {}", ctx.channel()
+                .remoteAddress(), cause.getMessage());
+            cancelTimeout();
+            ctx.close();
+        } else {
+            super.exceptionCaught(ctx, cause);
+        }
+    }
+
+    @Override
+    public final void handlerAdded(final ChannelHandlerContext ctx) throws Exception {
+        timeout = ctx.executor()
+            .schedule(() -> {
+                if (parsed.tryFailure(ReadTimeoutException.INSTANCE)) {
+                    log.debug("Closing connection from {}, as it didn't send a ClientHello in time", ctx.channel()
+                        .remoteAddress());
+                    ctx.close();
+                }
+            }, settings.getHelloTimeout()
+                .toNanos(), TimeUnit.NANOSECONDS);
+
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    protected final Future<ClientHello> lookup(final ChannelHandlerContext ctx, final ByteBuf clientHello)
+            throws Exception {
+        ClientHello hello;
+
+        if (clientHello == null) {
+            hello = ClientHello.EMPTY;
+        } else {
+            try {
+                hello = parse(clientHello);
+            } catch (final IndexOutOfBoundsException e) {
+                log.debug("Ignoring malformed ClientHello from {}", ctx.channel()
+                    .remoteAddress());
+                hello = ClientHello.EMPTY;
+            }
+        }
+
+        return ctx.executor()
+            .newSucceededFuture(hello);
+    }
+
+    @Override
+    protected final void onLookupComplete(final ChannelHandlerContext ctx, final Future<ClientHello> future)
+            throws Exception {
+        log.debug("Connection from {} asked for server {}, protocols {}", ctx.channel()
+            .remoteAddress(),
+            future.getNow()
+                .getServerName(),
+            future.getNow()
+                .getProtocols());
+
+        ctx.channel()
+            .attr(ClientHello.KEY)
+            .set(future.getNow());
+        cancelTimeout();
+        // Passes on the buffered bytes
+        ctx.pipeline()
+            .remove(this);
+        parsed.trySuccess(null);
+    }
+
+    /**
+     * Cancels the hello timeout.
+     */
+    private final void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.server.sni;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maps server names to values, by exact name or by wildcard suffix. A pattern such as {@code *.example.com} matches any
+ * name ending in {@code .example.com}, but not {@code example.com} itself.
+ * <p>
+ * An exact name wins over the wildcards, and a longer wildcard over a shorter one. So, with {@code *.example.com} and
+ * {@code *.eu.example.com}, the name {@code www.eu.example.com} goes to the second one.
+ * <p>
+ * The table can't change once built. The lookup runs once for each connection, so it doesn't allocate: names are kept
+ * in open addressing tables, and the hash for each suffix of the name is computed in a single pass from its end.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ * @param <T>
+ *            type of the values
+ */
+public final class SniRoutingTable<T> {
+
+    /**
+     * Empty table.
+     */
+    private static final SniRoutingTable<?> EMPTY        = new SniRoutingTable<>(Map.of());
+
+    /**
+     * Returns an empty table.
+     *
+     * @param <T>
+     *            type of the values
+     * @return an empty table
+     */
+    @SuppressWarnings("unchecked")
+    public static final <T> SniRoutingTable<T> empty() {
+        return (SniRoutingTable<T>) EMPTY;
+    }
+
+    /**
+     * Returns the hash for a region of the name. Computed from the end of the region, as the lookup does.
+     *
+     * @param name
+     *            name to hash
+     * @param start
+     *            region start
+     * @return the hash for the region from the start to the end of the name
+     */
+    private static final int hash(final String name, final int start) {
+        int hash;
+
+        hash = 0;
+        for (int i = name.length() - 1; i >= start; i--) {
+            hash = (31 * hash) + name.charAt(i);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Returns the table size for the number of keys. Keeps the table at most half full.
+     *
+     * @param keys
+     *            number of keys
+     * @return the table size
+     */
+    private static final int tableSize(final int keys) {
+        int size;
+
+        size = 2;
+        while (size < (keys * 2)) {
+            size *= 2;
+        }
+
+        return size;
+    }
+
+    /**
+     * Exact names.
+     */
+    private final String[]                  exactKeys;
+
+    /**
+     * Values for the exact names.
+     */
+    private final Object[]                  exactValues;
+
+    /**
+     * Wildcard suffixes, including the leading dot.
+     */
+    private final String[]                  suffixKeys;
+
+    /**
+     * Values for the wildcard suffixes.
+     */
+    private final Object[]                  suffixValues;
+
+    /**
+     * All the values, in the order received.
+     */
+    private final List<T>                   values;
+
+    /**
+     * Constructs a table with the received routes.
+     *
+     * @param routes
+     *            values for each name or wildcard pattern
+     * @throws IllegalArgumentException
+     *             if a pattern is not valid
+     */
+    public SniRoutingTable(final Map<String, T> routes) {
+        super();
+
+        final List<T> vals;
+        int           exact;
+        String        pattern;
+
+        exact = 0;
+        for (final String key : routes.keySet()) {
+            if (!key.startsWith("*")) {
+                exact++;
+            }
+        }
+
+        exactKeys = new String[tableSize(exact)];
+        exactValues = new Object[exactKeys.length];
+        suffixKeys = new String[tableSize(routes.size() - exact)];
+        suffixValues = new Object[suffixKeys.length];
+
+        vals = new ArrayList<>();
+        for (final Map.Entry<String, T> route : routes.entrySet()) {
+            pattern = route.getKey()
+                .toLowerCase(Locale.ROOT);
+            if (pattern.startsWith("*.") && (pattern.length() > 2) && (pattern.indexOf('*', 1) < 0)) {
+                put(suffixKeys, suffixValues, pattern.substring(1), Objects.requireNonNull(route.getValue()));
+            } else if (!pattern.isEmpty() && (pattern.indexOf('*') < 0)) {
+                put(exactKeys, exactValues, pattern, Objects.requireNonNull(route.getValue()));
+            } else {
+                throw new IllegalArgumentException(String.format(
+                    "Invalid server name %s, should be a name or a wildcard such as *.example.com", route.getKey()));
+            }
+            vals.add(route.getValue());
+        }
+        values = Collections.unmodifiableList(vals);
+    }
+
+    /**
+     * Returns all the values in the table.
+     *
+     * @return all the values
+     */
+    public final List<T> getValues() {
+        return values;
+    }
+
+    /**
+     * Checks if the table has no routes.
+     *
+     * @return {@code true} if the table is empty, {@code false} otherwise
+     */
+    public final boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * Returns the value for the received server name. The name should be in lower case, as sent by
+     * {@link ClientHelloHandler}.
+     *
+     * @param name
+     *            server name
+     * @return the value for the name, or {@code null} if no route matches it
+     */
+    @SuppressWarnings("unchecked")
+    public final T lookup(final String name) {
+        Object match;
+        Object found;
+        int    hash;
+        char   character;
+
+        match = null;
+        hash = 0;
+        for (int i = name.length() - 1; i >= 0; i--) {
+            character = name.charAt(i);
+            hash = (31 * hash) + character;
+            if ((character == '.') && (i > 0)) {
+                // Suffixes are found from shorter to longer, the last one is the longest
+                found = get(suffixKeys, suffixValues, name, i, hash);
+                if (found != null) {
+                    match = found;
+                }
+            }
+        }
+
+        if (!name.isEmpty()) {
+            found = get(exactKeys, exactValues, name, 0, hash);
+            if (found != null) {
+                match = found;
+            }
+        }
+
+        return (T) match;
+    }
+
+    /**
+     * Returns the value stored for a region of the name.
+     *
+     * @param keys
+     *            table keys
+     * @param vals
+     *            table values
+     * @param name
+     *            name to look up
+     * @param start
+     *            start of the region, which ends at the end of the name
+     * @param hash
+     *            hash for the region
+     * @return the value for the region, or {@code null} if there is none
+     */
+    private final Object get(final String[] keys, final Object[] vals, final String name, final int start,
+            final int hash) {
+        final int mask;
+        final int length;
+        Object    value;
+        int       index;
+        String    key;
+
+        mask = keys.length - 1;
+        length = name.length() - start;
+        value = null;
+        index = spread(hash) & mask;
+        key = keys[index];
+        while ((value == null) && (key != null)) {
+            if ((key.length() == length) && key.regionMatches(0, name, start, length)) {
+                value = vals[index];
+            } else {
+                index = (index + 1) & mask;
+                key = keys[index];
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Stores a key into the table.
+     *
+     * @param keys
+     *            table keys
+     * @param vals
+     *            table values
+     * @param key
+     *            key to store
+     * @param value
+     *            value for the key
+     */
+    private final void put(final String[] keys, final Object[] vals, final String key, final Object value) {
+        final int mask;
+        int       index;
+
+        mask = keys.length - 1;
+        index = spread(hash(key, 0)) & mask;
+        while ((keys[index] != null) && !keys[index].equals(key)) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        vals[index] = value;
+    }
+
+    /**
+     * Mixes the high bits of the hash into the low ones, which pick the table slot.
+     *
+     * @param hash
+     *            hash to spread
+     * @return the spread hash
+     */
+    private final int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+}
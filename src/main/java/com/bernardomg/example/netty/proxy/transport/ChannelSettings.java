@@ -0,0 +1,152 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import reactor.netty.tcp.TcpClient;
+import reactor.netty.tcp.TcpServer;
+
+/**
+ * Settings for the channels of the proxy server and client. These are applied as channel options, so they take effect
+ * before the channels are registered.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+@Builder
+public final class ChannelSettings {
+
+    /**
+     * Half-closure flag. Keeps the channels open when the peer shuts down its output, so the other direction can still
+     * be written.
+     */
+    private final boolean       halfClosure;
+
+    /**
+     * Level-triggered flag. Makes epoll channels use level-triggered mode, which is required for splicing. Ignored by
+     * other transports.
+     */
+    private final boolean       levelTriggered;
+
+    /**
+     * Reactor Netty metrics flag. Only applied to the client channels, as the server metrics are tagged with the address
+     * of each client, which would make them grow without limit.
+     */
+    private final boolean       metrics;
+
+    /**
+     * Transport used by the channels.
+     */
+    @NonNull
+    private final TransportType transport;
+
+    /**
+     * Pending write bytes above which a channel becomes unwritable. If not positive, the Netty default is kept.
+     */
+    private final int           writeBufferHighWaterMark;
+
+    /**
+     * Pending write bytes below which an unwritable channel becomes writable again.
+     */
+    private final int           writeBufferLowWaterMark;
+
+    /**
+     * Applies the settings to the client channels.
+     *
+     * @param client
+     *            client to configure
+     * @return the configured client
+     */
+    public final TcpClient applyTo(final TcpClient client) {
+        TcpClient configured;
+
+        configured = client;
+        if (halfClosure) {
+            configured = configured.option(ChannelOption.ALLOW_HALF_CLOSURE, true);
+        }
+        if (isEpollLevelTriggered()) {
+            configured = configured.option(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
+        }
+        if (writeBufferHighWaterMark > 0) {
+            configured = configured.option(ChannelOption.WRITE_BUFFER_WATER_MARK, getWaterMark());
+        }
+        if (metrics) {
+            configured = configured.metrics(true);
+        }
+
+        return configured;
+    }
+
+    /**
+     * Applies the settings to the server child channels, which are the ones handling the connections.
+     *
+     * @param server
+     *            server to configure
+     * @return the configured server
+     */
+    public final TcpServer applyTo(final TcpServer server) {
+        TcpServer configured;
+
+        configured = server;
+        if (halfClosure) {
+            configured = configured.childOption(ChannelOption.ALLOW_HALF_CLOSURE, true);
+        }
+        if (isEpollLevelTriggered()) {
+            configured = configured.childOption(EpollChannelOption.EPOLL_MODE, EpollMode.LEVEL_TRIGGERED);
+        }
+        if (writeBufferHighWaterMark > 0) {
+            configured = configured.childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, getWaterMark());
+        }
+
+        return configured;
+    }
+
+    /**
+     * Returns the write buffer water mark. The low water mark is kept below the high one.
+     *
+     * @return the write buffer water mark
+     */
+    private final WriteBufferWaterMark getWaterMark() {
+        return new WriteBufferWaterMark(Math.min(Math.max(0, writeBufferLowWaterMark), writeBufferHighWaterMark),
+            writeBufferHighWaterMark);
+    }
+
+    /**
+     * Indicates if the epoll channels should be set to level-triggered mode.
+     *
+     * @return {@code true} if epoll channels are level-triggered, {@code false} otherwise
+     */
+    private final boolean isEpollLevelTriggered() {
+        return levelTriggered && (transport == TransportType.EPOLL);
+    }
+
+}
@@ -0,0 +1,247 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Event loop resources shared by the proxy server and client. These decide both the event loop groups and the
+ * transport used by the channels.
+ * <h2>Event loops</h2>
+ * <p>
+ * There are two groups:
+ * <ul>
+ * <li>Select group, which accepts new connections</li>
+ * <li>Worker group, which handles the connections I/O</li>
+ * </ul>
+ * <p>
+ * The client uses the worker group, colocated. This means that when a client connection is opened from an event loop,
+ * it is registered in that same event loop. As the client connections are opened when a server connection is received,
+ * both sides of the bridge end up in the same thread, and messages are proxied without handing them over between
+ * threads.
+ * <h2>Transport</h2>
+ * <p>
+ * The preferred transport is used only if it is available. Otherwise its fallbacks are tried, and NIO is used as the
+ * last option. The transport actually used can be checked with {@link #getTransport()}.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ProxyLoopResources implements LoopResources {
+
+    /**
+     * Group for client connections.
+     */
+    private final EventLoopGroup clientGroup;
+
+    /**
+     * Disposed flag.
+     */
+    private final AtomicBoolean  disposed = new AtomicBoolean(false);
+
+    /**
+     * Group accepting server connections.
+     */
+    private final EventLoopGroup selectGroup;
+
+    /**
+     * Transport in use.
+     */
+    private final TransportType  transport;
+
+    /**
+     * Group handling server connections.
+     */
+    private final EventLoopGroup workerGroup;
+
+    /**
+     * Constructs the loop resources. If the number of select threads is not positive, then the worker group also
+     * accepts the new connections. If the number of worker threads is not positive, the Reactor Netty default is used.
+     *
+     * @param preferred
+     *            preferred transport
+     * @param selectThreads
+     *            number of threads accepting connections
+     * @param workerThreads
+     *            number of threads handling connections
+     */
+    public ProxyLoopResources(final TransportType preferred, final int selectThreads, final int workerThreads) {
+        super();
+
+        final int workers;
+
+        Objects.requireNonNull(preferred);
+
+        transport = preferred.resolve();
+        if (transport != preferred) {
+            log.warn("Transport {} not available, using {}", preferred, transport,
+                preferred.getUnavailabilityCause());
+        }
+
+        if (workerThreads > 0) {
+            workers = workerThreads;
+        } else {
+            workers = LoopResources.DEFAULT_IO_WORKER_COUNT;
+        }
+        workerGroup = transport.createGroup(workers, new DefaultThreadFactory("proxy-worker", true));
+
+        if (selectThreads > 0) {
+            selectGroup = transport.createGroup(selectThreads, new DefaultThreadFactory("proxy-select", true));
+        } else {
+            selectGroup = workerGroup;
+        }
+
+        clientGroup = LoopResources.colocate(workerGroup);
+
+        log.debug("Created {} event loops with {} select threads and {} worker threads", transport, selectThreads,
+            workers);
+    }
+
+    @Override
+    public final boolean daemon() {
+        return true;
+    }
+
+    @Override
+    public final Mono<Void> disposeLater(final Duration quietPeriod, final Duration timeout) {
+        return Mono.defer(() -> {
+            final Mono<Void> shutdown;
+
+            if (disposed.compareAndSet(false, true)) {
+                if (selectGroup == workerGroup) {
+                    shutdown = shutdown(workerGroup, quietPeriod, timeout);
+                } else {
+                    shutdown = shutdown(selectGroup, quietPeriod, timeout)
+                        .and(shutdown(workerGroup, quietPeriod, timeout));
+                }
+            } else {
+                shutdown = Mono.empty();
+            }
+
+            return shutdown;
+        });
+    }
+
+    /**
+     * Returns the transport used by the channels.
+     *
+     * @return the transport in use
+     */
+    public final TransportType getTransport() {
+        return transport;
+    }
+
+    /**
+     * Returns the event loops handling the connections.
+     *
+     * @return the worker event loops
+     */
+    public final EventLoopGroup getWorkerGroup() {
+        return workerGroup;
+    }
+
+    @Override
+    public final boolean isDisposed() {
+        return disposed.get();
+    }
+
+    @Override
+    public final <CHANNEL extends Channel> CHANNEL onChannel(final Class<CHANNEL> channelType,
+            final EventLoopGroup group) {
+        try {
+            return onChannelClass(channelType, group).getDeclaredConstructor()
+                .newInstance();
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed creating channel of type " + channelType, e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final <CHANNEL extends Channel> Class<? extends CHANNEL> onChannelClass(final Class<CHANNEL> channelType,
+            final EventLoopGroup group) {
+        final Class<? extends Channel> channelClass;
+
+        if (ServerSocketChannel.class.equals(channelType)) {
+            channelClass = transport.getServerChannelClass();
+        } else if (SocketChannel.class.equals(channelType)) {
+            channelClass = transport.getSocketChannelClass();
+        } else if (DatagramChannel.class.equals(channelType)) {
+            channelClass = transport.getDatagramChannelClass();
+        } else {
+            throw new IllegalArgumentException("Unsupported channel type " + channelType);
+        }
+
+        return (Class<? extends CHANNEL>) channelClass;
+    }
+
+    @Override
+    public final EventLoopGroup onClient(final boolean useNative) {
+        return clientGroup;
+    }
+
+    @Override
+    public final EventLoopGroup onServer(final boolean useNative) {
+        return workerGroup;
+    }
+
+    @Override
+    public final EventLoopGroup onServerSelect(final boolean useNative) {
+        return selectGroup;
+    }
+
+    /**
+     * Gracefully shuts down the received group.
+     *
+     * @param group
+     *            group to shut down
+     * @param quietPeriod
+     *            quiet period
+     * @param timeout
+     *            maximum time to wait
+     * @return a {@code Mono} completing when the group is shut down
+     */
+    private final Mono<Void> shutdown(final EventLoopGroup group, final Duration quietPeriod,
+            final Duration timeout) {
+        return Mono.create(sink -> group
+            .shutdownGracefully(quietPeriod.toMillis(), timeout.toMillis(), TimeUnit.MILLISECONDS)
+            .addListener(f -> sink.success()));
+    }
+
+}
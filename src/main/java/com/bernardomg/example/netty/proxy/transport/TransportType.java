@@ -0,0 +1,250 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport;
+
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringDatagramChannel;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUringSocketChannel;
+
+/**
+ * Netty transports supported by the proxy. The native ones are only available on Linux, and each of them knows which
+ * transport to use as fallback.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public enum TransportType {
+
+    /**
+     * Native epoll transport.
+     */
+    EPOLL {
+
+        @Override
+        public final EventLoopGroup createGroup(final int threads, final ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public final Class<? extends DatagramChannel> getDatagramChannelClass() {
+            return EpollDatagramChannel.class;
+        }
+
+        @Override
+        public final TransportType getFallback() {
+            return NIO;
+        }
+
+        @Override
+        public final Class<? extends ServerSocketChannel> getServerChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @Override
+        public final Class<? extends SocketChannel> getSocketChannelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @Override
+        public final Throwable getUnavailabilityCause() {
+            return Epoll.unavailabilityCause();
+        }
+
+        @Override
+        public final boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+    },
+    /**
+     * Native io_uring transport.
+     */
+    IO_URING {
+
+        @Override
+        public final EventLoopGroup createGroup(final int threads, final ThreadFactory threadFactory) {
+            return new IOUringEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public final Class<? extends DatagramChannel> getDatagramChannelClass() {
+            return IOUringDatagramChannel.class;
+        }
+
+        @Override
+        public final TransportType getFallback() {
+            return EPOLL;
+        }
+
+        @Override
+        public final Class<? extends ServerSocketChannel> getServerChannelClass() {
+            return IOUringServerSocketChannel.class;
+        }
+
+        @Override
+        public final Class<? extends SocketChannel> getSocketChannelClass() {
+            return IOUringSocketChannel.class;
+        }
+
+        @Override
+        public final Throwable getUnavailabilityCause() {
+            return IOUring.unavailabilityCause();
+        }
+
+        @Override
+        public final boolean isAvailable() {
+            return IOUring.isAvailable();
+        }
+
+    },
+    /**
+     * Java NIO transport. Always available.
+     */
+    NIO {
+
+        @Override
+        public final EventLoopGroup createGroup(final int threads, final ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @Override
+        public final Class<? extends DatagramChannel> getDatagramChannelClass() {
+            return NioDatagramChannel.class;
+        }
+
+        @Override
+        public final TransportType getFallback() {
+            return NIO;
+        }
+
+        @Override
+        public final Class<? extends ServerSocketChannel> getServerChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @Override
+        public final Class<? extends SocketChannel> getSocketChannelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        public final Throwable getUnavailabilityCause() {
+            return null;
+        }
+
+        @Override
+        public final boolean isAvailable() {
+            return true;
+        }
+
+    };
+
+    /**
+     * Creates an event loop group for this transport.
+     *
+     * @param threads
+     *            number of threads in the group
+     * @param threadFactory
+     *            factory for the group threads
+     * @return a new event loop group
+     */
+    public abstract EventLoopGroup createGroup(final int threads, final ThreadFactory threadFactory);
+
+    /**
+     * Returns the class for datagram channels. These are used by the DNS resolver.
+     *
+     * @return the datagram channel class
+     */
+    public abstract Class<? extends DatagramChannel> getDatagramChannelClass();
+
+    /**
+     * Returns the transport to use when this one is not available.
+     *
+     * @return the fallback transport
+     */
+    public abstract TransportType getFallback();
+
+    /**
+     * Returns the class for server channels.
+     *
+     * @return the server channel class
+     */
+    public abstract Class<? extends ServerSocketChannel> getServerChannelClass();
+
+    /**
+     * Returns the class for socket channels.
+     *
+     * @return the socket channel class
+     */
+    public abstract Class<? extends SocketChannel> getSocketChannelClass();
+
+    /**
+     * Returns the reason why this transport is not available, or {@code null} if it is available.
+     *
+     * @return the reason for not being available
+     */
+    public abstract Throwable getUnavailabilityCause();
+
+    /**
+     * Indicates if the transport can be used in the current platform.
+     *
+     * @return {@code true} if the transport can be used, {@code false} otherwise
+     */
+    public abstract boolean isAvailable();
+
+    /**
+     * Returns the first available transport, starting with this one and then following the fallbacks.
+     *
+     * @return the first available transport
+     */
+    public final TransportType resolve() {
+        TransportType transport;
+
+        transport = this;
+        while (!transport.isAvailable()) {
+            transport = transport.getFallback();
+        }
+
+        return transport;
+    }
+
+}
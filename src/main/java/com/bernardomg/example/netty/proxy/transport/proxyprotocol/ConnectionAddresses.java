@@ -0,0 +1,162 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport.proxyprotocol;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.haproxy.HAProxyCommand;
+import io.netty.handler.codec.haproxy.HAProxyMessage;
+import io.netty.handler.codec.haproxy.HAProxyProtocolVersion;
+import io.netty.handler.codec.haproxy.HAProxyProxiedProtocol;
+import io.netty.util.AttributeKey;
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * Original addresses of a connection. These are the channel addresses, unless the connection came through another
+ * proxy which sent them in a PROXY protocol header.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Value
+public final class ConnectionAddresses {
+
+    /**
+     * Channel attribute for the addresses received in a PROXY protocol header. Set once, when the header is decoded.
+     */
+    public static final AttributeKey<ConnectionAddresses> KEY         = AttributeKey.valueOf("proxyProtocolAddresses");
+
+    /**
+     * Returns the original addresses of the received channel. These are the ones from the PROXY protocol header, if
+     * there was one, otherwise the channel addresses.
+     *
+     * @param channel
+     *            channel to check
+     * @return the original addresses of the channel
+     */
+    public static final ConnectionAddresses of(final Channel channel) {
+        final ConnectionAddresses received;
+        final ConnectionAddresses addresses;
+
+        received = channel.attr(KEY)
+            .get();
+        if (received == null) {
+            addresses = new ConnectionAddresses(channel.localAddress(), channel.remoteAddress());
+        } else {
+            addresses = received;
+        }
+
+        return addresses;
+    }
+
+    /**
+     * Address the connection was sent to.
+     */
+    @NonNull
+    private final SocketAddress                           destination;
+
+    /**
+     * Address of the client which opened the connection.
+     */
+    @NonNull
+    private final SocketAddress                           source;
+
+    /**
+     * Returns a PROXY protocol v2 header for these addresses. If they are not IP addresses of the same family, the
+     * header has no addresses, and the receiver will use the connection ones.
+     *
+     * @return a PROXY protocol header for the addresses
+     */
+    public final HAProxyMessage toHeader() {
+        final InetSocketAddress      src;
+        final InetSocketAddress      dst;
+        final HAProxyProxiedProtocol protocol;
+        final HAProxyMessage         header;
+
+        protocol = getProtocol();
+        if (protocol == HAProxyProxiedProtocol.UNKNOWN) {
+            header = new HAProxyMessage(HAProxyProtocolVersion.V2, HAProxyCommand.LOCAL, protocol, null, null, 0, 0);
+        } else {
+            src = (InetSocketAddress) source;
+            dst = (InetSocketAddress) destination;
+            header = new HAProxyMessage(HAProxyProtocolVersion.V2, HAProxyCommand.PROXY, protocol, src.getAddress()
+                .getHostAddress(),
+                dst.getAddress()
+                    .getHostAddress(),
+                src.getPort(), dst.getPort());
+        }
+
+        return header;
+    }
+
+    /**
+     * Returns the protocol for the addresses, which is unknown unless both are IP addresses of the same family.
+     *
+     * @return the protocol for the addresses
+     */
+    private final HAProxyProxiedProtocol getProtocol() {
+        final InetAddress            src;
+        final InetAddress            dst;
+        final HAProxyProxiedProtocol protocol;
+
+        src = getInetAddress(source);
+        dst = getInetAddress(destination);
+        if ((src instanceof Inet4Address) && (dst instanceof Inet4Address)) {
+            protocol = HAProxyProxiedProtocol.TCP4;
+        } else if ((src instanceof Inet6Address) && (dst instanceof Inet6Address)) {
+            protocol = HAProxyProxiedProtocol.TCP6;
+        } else {
+            protocol = HAProxyProxiedProtocol.UNKNOWN;
+        }
+
+        return protocol;
+    }
+
+    /**
+     * Returns the IP address of the received address, or {@code null} if it is not a resolved IP address.
+     *
+     * @param address
+     *            address to check
+     * @return the IP address
+     */
+    private final InetAddress getInetAddress(final SocketAddress address) {
+        final InetAddress inet;
+
+        if (address instanceof InetSocketAddress) {
+            inet = ((InetSocketAddress) address).getAddress();
+        } else {
+            inet = null;
+        }
+
+        return inet;
+    }
+
+}
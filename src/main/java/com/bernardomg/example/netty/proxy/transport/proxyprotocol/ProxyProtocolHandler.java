@@ -0,0 +1,234 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport.proxyprotocol;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.haproxy.HAProxyCommand;
+import io.netty.handler.codec.haproxy.HAProxyMessage;
+import io.netty.handler.codec.haproxy.HAProxyMessageDecoder;
+import io.netty.handler.codec.haproxy.HAProxyProxiedProtocol;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.AttributeKey;
+import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads the PROXY protocol header at the start of a connection, and stores the original addresses into the
+ * {@link ConnectionAddresses#KEY} channel attribute. Both versions of the protocol are accepted.
+ * <p>
+ * The header is decoded by a {@link HAProxyMessageDecoder}. Both handlers remove themselves from the pipeline once the
+ * header is read, so the messages after it go straight through. Until then the connection should not be used, so the
+ * result is kept in the {@link #DECODED} channel attribute, to wait for it. The header is read even if auto read is
+ * disabled.
+ * <p>
+ * Connections with an invalid header, or which take too long sending it, are closed. Headers without TCP addresses,
+ * such as the health checks sent by load balancers, keep the channel addresses.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ProxyProtocolHandler extends ChannelInboundHandlerAdapter {
+
+    /**
+     * Channel attribute for the header decoding. Completes once the header is read, and fails if the connection is
+     * closed before.
+     */
+    public static final AttributeKey<Future<Void>> DECODED        = AttributeKey.valueOf("proxyProtocolDecoded");
+
+    /**
+     * Name for the header decoder in the pipeline.
+     */
+    private static final String                    DECODER_NAME   = "proxyProtocolDecoder";
+
+    /**
+     * Name for the handler in the pipeline.
+     */
+    private static final String                    HANDLER_NAME   = "proxyProtocolHandler";
+
+    /**
+     * Maximum time to receive the header, in seconds.
+     */
+    private static final long                      HEADER_TIMEOUT = 10;
+
+    /**
+     * Adds the PROXY protocol handlers at the start of the channel pipeline. Should be called when initializing the
+     * channel, before it reads anything.
+     *
+     * @param channel
+     *            channel to read the header from
+     */
+    public static final void install(final Channel channel) {
+        final ProxyProtocolHandler handler;
+
+        handler = new ProxyProtocolHandler(channel.eventLoop()
+            .newPromise());
+        channel.attr(DECODED)
+            .set(handler.decoded);
+        channel.pipeline()
+            .addFirst(HANDLER_NAME, handler)
+            .addFirst(DECODER_NAME, new HAProxyMessageDecoder());
+    }
+
+    /**
+     * Completed once the header is read.
+     */
+    private final Promise<Void>                    decoded;
+
+    /**
+     * Closes the connection if the header takes too long.
+     */
+    private ScheduledFuture<?>                     timeout;
+
+    /**
+     * Constructs a handler which completes the received promise once the header is read.
+     *
+     * @param dcdd
+     *            completed once the header is read
+     */
+    private ProxyProtocolHandler(final Promise<Void> dcdd) {
+        super();
+
+        decoded = Objects.requireNonNull(dcdd);
+    }
+
+    @Override
+    public final void channelActive(final ChannelHandlerContext ctx) throws Exception {
+        super.channelActive(ctx);
+
+        // Reactor Netty only reads once the connection is bridged, which waits for the header
+        // The decoder asks for more reads until the header is complete
+        ctx.read();
+    }
+
+    @Override
+    public final void channelInactive(final ChannelHandlerContext ctx) throws Exception {
+        cancelTimeout();
+        decoded.tryFailure(new ClosedChannelException());
+
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public final void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+        if (msg instanceof HAProxyMessage) {
+            try {
+                onHeader(ctx, (HAProxyMessage) msg);
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        } else {
+            super.channelRead(ctx, msg);
+        }
+    }
+
+    @Override
+    public final void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception {
+        if (decoded.tryFailure(cause)) {
+            log.debug("Closing connection from {}, as its PROXY protocol header is invalid: {}", ctx.channel()
+                .remoteAddress(), cause.getMessage());
+            cancelTimeout();
+            ctx.close();
+        } else {
+            super.exceptionCaught(ctx, cause);
+        }
+    }
+
+    @Override
+    public final void handlerAdded(final ChannelHandlerContext ctx) throws Exception {
+        timeout = ctx.executor()
+            .schedule(() -> {
+                if (decoded.tryFailure(ReadTimeoutException.INSTANCE)) {
+                    log.debug("Closing connection from {}, as it didn't send a PROXY protocol header", ctx.channel()
+                        .remoteAddress());
+                    ctx.close();
+                }
+            }, HEADER_TIMEOUT, TimeUnit.SECONDS);
+
+        super.handlerAdded(ctx);
+    }
+
+    /**
+     * Cancels the header timeout.
+     */
+    private final void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Stores the addresses in the header, and removes the handler.
+     *
+     * @param ctx
+     *            handler context
+     * @param header
+     *            PROXY protocol header
+     */
+    private final void onHeader(final ChannelHandlerContext ctx, final HAProxyMessage header) {
+        final ConnectionAddresses addresses;
+
+        if ((header.command() == HAProxyCommand.PROXY) && ((header.proxiedProtocol() == HAProxyProxiedProtocol.TCP4)
+                || (header.proxiedProtocol() == HAProxyProxiedProtocol.TCP6))) {
+            addresses = new ConnectionAddresses(
+                new InetSocketAddress(NetUtil.createInetAddressFromIpAddressString(header.destinationAddress()),
+                    header.destinationPort()),
+                new InetSocketAddress(NetUtil.createInetAddressFromIpAddressString(header.sourceAddress()),
+                    header.sourcePort()));
+            ctx.channel()
+                .attr(ConnectionAddresses.KEY)
+                .set(addresses);
+            log.debug("Connection from {} proxied for {}", ctx.channel()
+                .remoteAddress(), addresses.getSource());
+        } else {
+            log.debug("Connection from {} sent a {} header, keeping its address", ctx.channel()
+                .remoteAddress(), header.command());
+        }
+
+        cancelTimeout();
+        ctx.pipeline()
+            .remove(this);
+        decoded.trySuccess(null);
+
+        if (!ctx.channel()
+            .config()
+            .isAutoRead()) {
+            // The handlers after this one, such as the ClientHello reader, may need data before the bridge reads
+            ctx.read();
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport.proxyprotocol;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.haproxy.HAProxyMessageEncoder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends a PROXY protocol v2 header at the start of a connection, so the receiver knows the original addresses.
+ * <p>
+ * The header encoder is only in the pipeline while the header is written, so the messages after it don't go through
+ * it.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ProxyProtocolWriter {
+
+    /**
+     * Name for the header encoder in the pipeline.
+     */
+    private static final String ENCODER_NAME = "proxyProtocolEncoder";
+
+    /**
+     * Writes the header for the received addresses. Should be called before writing anything else into the channel.
+     * If the header can't be written, the channel is closed.
+     *
+     * @param channel
+     *            channel to write into
+     * @param addresses
+     *            original addresses of the connection
+     */
+    public static final void write(final Channel channel, final ConnectionAddresses addresses) {
+        log.debug("Sending PROXY protocol header for {} to {}", addresses.getSource(), channel.remoteAddress());
+
+        channel.pipeline()
+            .addFirst(ENCODER_NAME, HAProxyMessageEncoder.INSTANCE);
+        channel.writeAndFlush(addresses.toHeader())
+            .addListener(f -> removeEncoder(channel))
+            .addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+    }
+
+    /**
+     * Removes the header encoder, unless the pipeline was already torn down.
+     *
+     * @param channel
+     *            channel with the encoder
+     */
+    private static final void removeEncoder(final Channel channel) {
+        if (channel.pipeline()
+            .get(ENCODER_NAME) != null) {
+            channel.pipeline()
+                .remove(ENCODER_NAME);
+        }
+    }
+
+    /**
+     * Utility class.
+     */
+    private ProxyProtocolWriter() {
+        super();
+    }
+
+}
@@ -0,0 +1,205 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport.tls;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Objects;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLSessionContext;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ApplicationProtocolNegotiator;
+import io.netty.handler.ssl.SslContext;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Server TLS context which reloads its certificate and key when their files change, without a restart. Only the
+ * connections accepted after that use the new certificate, the established ones keep going.
+ * <p>
+ * The files are checked periodically, as certificate managers usually replace them by moving links, which file
+ * watchers don't always notice. A certificate and key which can't be read are logged and ignored, keeping the last
+ * valid ones, until the files change again. So a renewal caught halfway is picked up once it is done.
+ * <p>
+ * Resumed sessions belong to the context which created them, so a reload drops them, and the next handshakes are full
+ * ones.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class ReloadableSslContext extends SslContext {
+
+    /**
+     * Last modification time of the certificate file.
+     */
+    private FileTime                certificateModified;
+
+    /**
+     * Current context, used for the new connections.
+     */
+    private volatile SslContext     current;
+
+    /**
+     * Last modification time of the key file.
+     */
+    private FileTime                keyModified;
+
+    /**
+     * Periodic check for changes.
+     */
+    private Disposable              reloadCheck;
+
+    /**
+     * TLS settings.
+     */
+    private final ServerTlsSettings settings;
+
+    /**
+     * Constructs a context with the received settings. The certificate and key are read right away.
+     *
+     * @param sttngs
+     *            server TLS settings
+     * @throws IllegalArgumentException
+     *             if the certificate or key can't be read
+     */
+    public ReloadableSslContext(final ServerTlsSettings sttngs) {
+        super();
+
+        settings = Objects.requireNonNull(sttngs);
+        certificateModified = getModified(settings.getCertificate());
+        keyModified = getModified(settings.getKey());
+        current = TlsContexts.forServer(settings);
+    }
+
+    // Still abstract in SslContext, so it has to be delegated
+    @SuppressWarnings("deprecation")
+    @Override
+    public final ApplicationProtocolNegotiator applicationProtocolNegotiator() {
+        return current.applicationProtocolNegotiator();
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public final List<String> cipherSuites() {
+        return current.cipherSuites();
+    }
+
+    @Override
+    public final boolean isClient() {
+        return false;
+    }
+
+    @Override
+    public final SSLEngine newEngine(final ByteBufAllocator alloc) {
+        return current.newEngine(alloc);
+    }
+
+    @Override
+    public final SSLEngine newEngine(final ByteBufAllocator alloc, final String peerHost, final int peerPort) {
+        return current.newEngine(alloc, peerHost, peerPort);
+    }
+
+    /**
+     * Reads the certificate and key again, if their files changed since the last time.
+     *
+     * @return {@code true} if a new certificate was loaded, {@code false} otherwise
+     */
+    public final synchronized boolean reload() {
+        final FileTime certificateTime;
+        final FileTime keyTime;
+        boolean        reloaded;
+
+        certificateTime = getModified(settings.getCertificate());
+        keyTime = getModified(settings.getKey());
+        reloaded = false;
+        if (!Objects.equals(certificateTime, certificateModified) || !Objects.equals(keyTime, keyModified)) {
+            // A failed change is not retried until the files change again
+            certificateModified = certificateTime;
+            keyModified = keyTime;
+            try {
+                current = TlsContexts.forServer(settings);
+                reloaded = true;
+                log.info("Reloaded TLS certificate {}", settings.getCertificate());
+            } catch (final IllegalArgumentException e) {
+                log.warn("Keeping the current TLS certificate, as the new one can't be read: {}", e.getMessage());
+            }
+        }
+
+        return reloaded;
+    }
+
+    @Override
+    public final SSLSessionContext sessionContext() {
+        return current.sessionContext();
+    }
+
+    /**
+     * Starts checking the files for changes.
+     */
+    public final synchronized void start() {
+        log.debug("Checking TLS certificate {} for changes every {} ms", settings.getCertificate(),
+            settings.getReloadInterval()
+                .toMillis());
+
+        reloadCheck = Flux.interval(settings.getReloadInterval())
+            .subscribe(t -> reload());
+    }
+
+    /**
+     * Stops checking the files for changes.
+     */
+    public final synchronized void stop() {
+        if (reloadCheck != null) {
+            reloadCheck.dispose();
+        }
+    }
+
+    /**
+     * Returns the modification time of a file, or {@code null} if it can't be read.
+     *
+     * @param file
+     *            file to check
+     * @return the file modification time
+     */
+    private final FileTime getModified(final Path file) {
+        FileTime modified;
+
+        try {
+            modified = Files.getLastModifiedTime(file);
+        } catch (final IOException e) {
+            modified = null;
+        }
+
+        return modified;
+    }
+
+}
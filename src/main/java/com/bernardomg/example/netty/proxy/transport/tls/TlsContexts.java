@@ -0,0 +1,141 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport.tls;
+
+import javax.net.ssl.SSLException;
+
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Creates the TLS contexts for both sides of the proxy. OpenSSL is used when its native library is available, as it is
+ * faster and cheaper on memory than the JDK TLS, which is the fallback.
+ * <p>
+ * Each context keeps its own session cache, so a single context should be shared by all the connections which may
+ * resume each other's sessions.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+@Slf4j
+public final class TlsContexts {
+
+    /**
+     * Creates the context for terminating TLS with the received settings. This reads the certificate and key files.
+     *
+     * @param settings
+     *            server TLS settings
+     * @return the server TLS context
+     * @throws IllegalArgumentException
+     *             if the certificate or key can't be read
+     */
+    public static final SslContext forServer(final ServerTlsSettings settings) {
+        final SslContext context;
+
+        try {
+            context = SslContextBuilder.forServer(settings.getCertificate()
+                .toFile(),
+                settings.getKey()
+                    .toFile())
+                .sslProvider(getProvider())
+                .sessionCacheSize(settings.getSessionCacheSize())
+                .sessionTimeout(settings.getSessionTimeout()
+                    .toSeconds())
+                .build();
+        } catch (final SSLException | IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Failed reading certificate %s and key %s: %s",
+                settings.getCertificate(), settings.getKey(), e.getMessage()), e);
+        }
+
+        return context;
+    }
+
+    /**
+     * Creates the context for originating TLS with the received settings.
+     *
+     * @param settings
+     *            upstream TLS settings
+     * @return the upstream TLS context
+     * @throws IllegalArgumentException
+     *             if the trusted certificates can't be read
+     */
+    public static final SslContext forUpstream(final UpstreamTlsSettings settings) {
+        final SslContextBuilder builder;
+        final SslContext        context;
+
+        builder = SslContextBuilder.forClient()
+            .sslProvider(getProvider())
+            .sessionCacheSize(settings.getSessionCacheSize())
+            .sessionTimeout(settings.getSessionTimeout()
+                .toSeconds());
+        if (settings.isInsecure()) {
+            log.warn("Trusting any target certificate");
+            builder.trustManager(InsecureTrustManagerFactory.INSTANCE);
+        } else if (settings.getTrustCertificates() != null) {
+            builder.trustManager(settings.getTrustCertificates()
+                .toFile());
+        }
+
+        try {
+            context = builder.build();
+        } catch (final SSLException | IllegalArgumentException e) {
+            throw new IllegalArgumentException(String.format("Failed reading trusted certificates %s: %s",
+                settings.getTrustCertificates(), e.getMessage()), e);
+        }
+
+        return context;
+    }
+
+    /**
+     * Returns the TLS implementation to use. This is OpenSSL if available, otherwise the JDK one.
+     *
+     * @return the TLS provider
+     */
+    public static final SslProvider getProvider() {
+        final SslProvider provider;
+
+        if (OpenSsl.isAvailable()) {
+            provider = SslProvider.OPENSSL;
+        } else {
+            log.debug("OpenSSL not available, using JDK TLS: {}", OpenSsl.unavailabilityCause()
+                .getMessage());
+            provider = SslProvider.JDK;
+        }
+
+        return provider;
+    }
+
+    /**
+     * Utility class.
+     */
+    private TlsContexts() {
+        super();
+    }
+
+}
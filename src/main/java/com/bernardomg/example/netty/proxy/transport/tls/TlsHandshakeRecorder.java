@@ -0,0 +1,148 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.transport.tls;
+
+import java.util.Objects;
+
+import javax.net.ssl.SSLEngine;
+
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslHandshakeCompletionEvent;
+import io.netty.internal.tcnative.SSL;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Records the TLS handshake of a connection into the metrics, telling apart the resumed sessions from the full
+ * handshakes. Removes itself after the handshake, so it costs nothing afterwards.
+ * <p>
+ * OpenSSL tells if the session was reused. The JDK engines don't, so there a session created before the handshake
+ * started is taken as resumed.
+ *
+ * @author Bernardo Mart&iacute;nez Garrido
+ *
+ */
+public final class TlsHandshakeRecorder extends ChannelInboundHandlerAdapter {
+
+    /**
+     * Name for the handler in the pipeline.
+     */
+    private static final String HANDLER_NAME = "proxy.tlsHandshake";
+
+    /**
+     * Adds the recorder after the TLS handler of the channel. Does nothing if the channel has no TLS.
+     *
+     * @param channel
+     *            channel to record
+     * @param side
+     *            side of the proxy where the channel is
+     * @param metrics
+     *            metrics receiving the handshake
+     */
+    public static final void install(final Channel channel, final TlsSide side, final ProxyMetrics metrics) {
+        if (channel.pipeline()
+            .get(NettyPipeline.SslHandler) != null) {
+            channel.pipeline()
+                .addAfter(NettyPipeline.SslHandler, HANDLER_NAME, new TlsHandshakeRecorder(side, metrics));
+        }
+    }
+
+    /**
+     * Metrics receiving the handshake.
+     */
+    private final ProxyMetrics  metrics;
+
+    /**
+     * Side of the proxy where the channel is.
+     */
+    private final TlsSide       side;
+
+    /**
+     * Time the handshake started, in milliseconds since the epoch.
+     */
+    private long                start;
+
+    /**
+     * Constructs a recorder for a channel on the received side.
+     *
+     * @param sd
+     *            side of the proxy where the channel is
+     * @param mtrcs
+     *            metrics receiving the handshake
+     */
+    private TlsHandshakeRecorder(final TlsSide sd, final ProxyMetrics mtrcs) {
+        super();
+
+        side = Objects.requireNonNull(sd);
+        metrics = Objects.requireNonNull(mtrcs);
+    }
+
+    @Override
+    public final void handlerAdded(final ChannelHandlerContext ctx) {
+        start = System.currentTimeMillis();
+    }
+
+    @Override
+    public final void userEventTriggered(final ChannelHandlerContext ctx, final Object evt) throws Exception {
+        final SslHandler sslHandler;
+
+        if (evt instanceof SslHandshakeCompletionEvent) {
+            sslHandler = ctx.pipeline()
+                .get(SslHandler.class);
+            if (((SslHandshakeCompletionEvent) evt).isSuccess() && (sslHandler != null)) {
+                metrics.onTlsHandshake(side, isResumed(sslHandler.engine()));
+            }
+            ctx.pipeline()
+                .remove(this);
+        }
+        ctx.fireUserEventTriggered(evt);
+    }
+
+    /**
+     * Checks if the engine resumed a previous session.
+     *
+     * @param engine
+     *            engine after the handshake
+     * @return {@code true} if the session was resumed, {@code false} if it is a new one
+     */
+    private final boolean isResumed(final SSLEngine engine) {
+        final boolean resumed;
+
+        if (engine instanceof ReferenceCountedOpenSslEngine) {
+            resumed = SSL.isSessionReused(((ReferenceCountedOpenSslEngine) engine).sslPointer());
+        } else {
+            resumed = engine.getSession()
+                .getCreationTime() < start;
+        }
+
+        return resumed;
+    }
+
+}
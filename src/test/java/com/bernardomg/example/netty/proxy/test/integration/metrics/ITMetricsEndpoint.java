@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.integration.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.metrics.MetricsEndpoint;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+@DisplayName("Metrics endpoint")
+public final class ITMetricsEndpoint {
+
+    /**
+     * Default constructor.
+     */
+    public ITMetricsEndpoint() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Serves the metrics in the loopback address by default")
+    public final void testScrape_Loopback() throws IOException {
+        final PrometheusMeterRegistry registry;
+        final MetricsEndpoint         endpoint;
+        final int                     port;
+        final HttpURLConnection       connection;
+        final String                  body;
+
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.counter("test.scrapes")
+            .increment();
+
+        port = findFreePort();
+        endpoint = new MetricsEndpoint(registry, port);
+        endpoint.start();
+        try {
+            connection = (HttpURLConnection) new URL("http", InetAddress.getLoopbackAddress()
+                .getHostAddress(), port, "/metrics").openConnection();
+            try (final InputStream input = connection.getInputStream()) {
+                body = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            Assertions.assertEquals(200, connection.getResponseCode(), "Status");
+            Assertions.assertTrue(body.contains("test_scrapes_total 1.0"), "Scraped metrics");
+        } finally {
+            endpoint.stop();
+        }
+    }
+
+    /**
+     * Finds a free port in the loopback address.
+     *
+     * @return a free port
+     * @throws IOException
+     *             if no port can be opened
+     */
+    private final int findFreePort() throws IOException {
+        final int port;
+
+        try (final ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+
+        return port;
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.integration.server.bridge;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.BridgeSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.ProxyConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.test.support.EchoBackend;
+import com.bernardomg.example.netty.proxy.test.support.TestProxy;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+@DisplayName("Half-closed connections")
+public final class ITHalfClosure {
+
+    /**
+     * Maximum time to wait for the end of stream, in milliseconds.
+     */
+    private static final int    TIMEOUT = 10000;
+
+    /**
+     * Trailer the backend sends after the end of the request stream.
+     */
+    private static final String TRAILER = "bye";
+
+    /**
+     * Default constructor.
+     */
+    public ITHalfClosure() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Sends on the end of the requests, and delivers the response sent after it")
+    public final void testShutdownOutput_ResponseDelivered() throws IOException, InterruptedException {
+        final String response;
+
+        try (final EchoBackend backend = new EchoBackend(TRAILER.getBytes(StandardCharsets.US_ASCII));
+                final TestProxy proxy  = new TestProxy(backend.getPort(), createBridge(), createSettings());
+                final Socket    socket = proxy.connect()) {
+            socket.getOutputStream()
+                .write("hello".getBytes(StandardCharsets.US_ASCII));
+            socket.shutdownOutput();
+
+            Assertions.assertTrue(backend.awaitEndOfStream(TIMEOUT), "Backend end of stream");
+            response = new String(socket.getInputStream()
+                .readAllBytes(), StandardCharsets.US_ASCII);
+        }
+
+        Assertions.assertEquals("hello" + TRAILER, response, "Response");
+    }
+
+    @Test
+    @DisplayName("Sends on the end of the requests read before bridging, and delivers the response sent after it")
+    public final void testShutdownOutput_ReadBeforeBridge_ResponseDelivered() throws IOException,
+            InterruptedException {
+        final OutputStream output;
+        final String       response;
+
+        try (final EchoBackend backend = new EchoBackend(TRAILER.getBytes(StandardCharsets.US_ASCII));
+                final TestProxy proxy  = new TestProxy(backend.getPort(), createBridge(), createSettings(), true);
+                final Socket    socket = proxy.connect()) {
+            // The request comes with the header, so it is read before the connection is bridged
+            output = socket.getOutputStream();
+            output.write("PROXY TCP4 10.0.0.1 10.0.0.2 1234 80\r\nhello".getBytes(StandardCharsets.US_ASCII));
+            socket.shutdownOutput();
+
+            Assertions.assertTrue(backend.awaitEndOfStream(TIMEOUT), "Backend end of stream");
+            response = new String(socket.getInputStream()
+                .readAllBytes(), StandardCharsets.US_ASCII);
+        }
+
+        Assertions.assertEquals("hello" + TRAILER, response, "Response");
+    }
+
+    /**
+     * Returns a bridge with the default settings.
+     *
+     * @return a bridge
+     */
+    private final ProxyConnectionBridge createBridge() {
+        return new ProxyConnectionBridge(event -> {}, BridgeSettings.builder()
+            .capture(CaptureSettings.SIZE_ONLY)
+            .build());
+    }
+
+    /**
+     * Returns settings allowing half-closed connections.
+     *
+     * @return channel settings
+     */
+    private final ChannelSettings createSettings() {
+        return ChannelSettings.builder()
+            .transport(TransportType.NIO)
+            .halfClosure(true)
+            .build();
+    }
+
+}
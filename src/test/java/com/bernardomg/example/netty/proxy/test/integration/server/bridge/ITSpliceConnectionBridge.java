@@ -0,0 +1,239 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.integration.server.bridge;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.metrics.ProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.admission.RejectReason;
+import com.bernardomg.example.netty.proxy.server.bridge.BridgeSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.ProxyConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.bridge.SpliceConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.test.support.EchoBackend;
+import com.bernardomg.example.netty.proxy.test.support.TestProxy;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+import com.bernardomg.example.netty.proxy.transport.tls.TlsSide;
+
+@DisplayName("Splice connection bridge")
+public final class ITSpliceConnectionBridge {
+
+    /**
+     * Default constructor.
+     */
+    public ITSpliceConnectionBridge() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Keeps splicing after each splice moves all its bytes")
+    public final void testBridge_OverSpliceLength_Restarted() throws IOException {
+        final CountingMetrics metrics;
+        final byte[]          payload;
+        final byte[]          echoed;
+
+        Assumptions.assumeTrue(TransportType.EPOLL.isAvailable(), "Splicing requires epoll");
+
+        metrics = new CountingMetrics();
+        payload = new byte[1024 * 1024];
+        new Random(1).nextBytes(payload);
+        echoed = new byte[payload.length];
+
+        try (final EchoBackend backend = new EchoBackend();
+                final TestProxy proxy = new TestProxy(backend.getPort(), createBridge(metrics), createSettings());
+                final Socket socket = proxy.connect()) {
+            Assertions.assertEquals(TransportType.EPOLL, proxy.getLoops()
+                .getTransport());
+
+            write(socket, payload, echoed);
+        }
+
+        Assertions.assertArrayEquals(payload, echoed, "Echoed data");
+        Assertions.assertEquals(1, metrics.getBridges(), "Spliced bridges");
+        Assertions.assertEquals(0, metrics.getMessageBytes(), "Bytes forwarded through the JVM");
+    }
+
+    /**
+     * Returns a splice bridge with a short splice length, so the payload needs many splices.
+     *
+     * @param metrics
+     *            proxy metrics
+     * @return a splice bridge
+     */
+    private final SpliceConnectionBridge createBridge(final ProxyMetrics metrics) {
+        final ProxyConnectionBridge fallback;
+
+        fallback = new ProxyConnectionBridge(event -> {}, BridgeSettings.builder()
+            .capture(CaptureSettings.SIZE_ONLY)
+            .build());
+
+        return new SpliceConnectionBridge(fallback, metrics, 4096);
+    }
+
+    /**
+     * Returns settings for channels which can be spliced.
+     *
+     * @return channel settings
+     */
+    private final ChannelSettings createSettings() {
+        return ChannelSettings.builder()
+            .transport(TransportType.EPOLL)
+            .levelTriggered(true)
+            .build();
+    }
+
+    /**
+     * Writes the payload while reading the echo, so neither side fills the socket buffers.
+     *
+     * @param socket
+     *            connection to the proxy
+     * @param payload
+     *            data to write
+     * @param echoed
+     *            buffer for the echoed data
+     * @throws IOException
+     *             if the connection fails
+     */
+    private final void write(final Socket socket, final byte[] payload, final byte[] echoed) throws IOException {
+        final DataInputStream input;
+        final int             chunk;
+        int                   offset;
+
+        input = new DataInputStream(socket.getInputStream());
+        chunk = 16 * 1024;
+        offset = 0;
+        while (offset < payload.length) {
+            socket.getOutputStream()
+                .write(payload, offset, chunk);
+            input.readFully(echoed, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Metrics which count the bridges and the bytes forwarded as messages.
+     */
+    private static final class CountingMetrics implements ProxyMetrics {
+
+        /**
+         * Bridges opened.
+         */
+        private final AtomicLong bridges      = new AtomicLong();
+
+        /**
+         * Bytes forwarded as messages.
+         */
+        private final AtomicLong messageBytes = new AtomicLong();
+
+        /**
+         * Default constructor.
+         */
+        public CountingMetrics() {
+            super();
+        }
+
+        /**
+         * Returns the bridges opened.
+         *
+         * @return the bridges opened
+         */
+        public final long getBridges() {
+            return bridges.get();
+        }
+
+        /**
+         * Returns the bytes forwarded as messages.
+         *
+         * @return the bytes forwarded as messages
+         */
+        public final long getMessageBytes() {
+            return messageBytes.get();
+        }
+
+        @Override
+        public final void onBridgeClosed(final long nanos) {
+            // Ignored
+        }
+
+        @Override
+        public final void onBridgeOpened() {
+            bridges.incrementAndGet();
+        }
+
+        @Override
+        public final void onConnected(final Upstream upstream, final long nanos) {
+            // Ignored
+        }
+
+        @Override
+        public final void onConnectFailed(final Upstream upstream) {
+            // Ignored
+        }
+
+        @Override
+        public final void onConnectionRejected(final RejectReason reason) {
+            // Ignored
+        }
+
+        @Override
+        public final void onExchange(final String route, final long nanos) {
+            // Ignored
+        }
+
+        @Override
+        public final void onMessage(final Direction direction, final int bytes) {
+            messageBytes.addAndGet(bytes);
+        }
+
+        @Override
+        public final void onThrottled(final Direction direction, final long nanos) {
+            // Ignored
+        }
+
+        @Override
+        public final void onTlsHandshake(final TlsSide side, final boolean resumed) {
+            // Ignored
+        }
+
+        @Override
+        public final void onUpstreamError(final Upstream upstream) {
+            // Ignored
+        }
+
+    }
+
+}
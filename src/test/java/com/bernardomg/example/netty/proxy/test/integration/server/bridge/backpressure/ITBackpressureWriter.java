@@ -0,0 +1,196 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.integration.server.bridge.backpressure;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.BridgeSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.ProxyConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.BackpressureStats;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.test.support.EchoBackend;
+import com.bernardomg.example.netty.proxy.test.support.TestProxy;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+@DisplayName("Backpressure writer")
+public final class ITBackpressureWriter {
+
+    /**
+     * Size of each write from the client. Small, so the prefetched messages are filled before the socket buffers.
+     */
+    private static final int CHUNK   = 1024;
+
+    /**
+     * Time without progress after which the client is considered stalled, in milliseconds.
+     */
+    private static final int STALL   = 300;
+
+    /**
+     * Maximum time to wait for the proxy, in milliseconds.
+     */
+    private static final int TIMEOUT = 10000;
+
+    /**
+     * Default constructor.
+     */
+    public ITBackpressureWriter() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Resumes reading once the unwritable target drains")
+    public final void testWrite_TargetUnwritable_Resumes() throws IOException, InterruptedException,
+            ExecutionException, TimeoutException {
+        final BackpressureStats       stats;
+        final byte[]                  payload;
+        final byte[]                  echoed;
+        final AtomicLong              written;
+        final DataInputStream         input;
+        final CompletableFuture<Void> writing;
+
+        stats = new BackpressureStats();
+        payload = new byte[32 * 1024 * 1024];
+        new Random(1).nextBytes(payload);
+        echoed = new byte[payload.length];
+        written = new AtomicLong();
+
+        try (final EchoBackend backend = new EchoBackend();
+                final TestProxy proxy = new TestProxy(backend.getPort(), createBridge(stats), createSettings());
+                final Socket socket = proxy.connect()) {
+            input = new DataInputStream(socket.getInputStream());
+
+            // Round trip, so the connection is bridged before pausing
+            socket.getOutputStream()
+                .write(1);
+            Assertions.assertEquals(1, input.read(), "Echoed byte");
+
+            backend.pause();
+            writing = CompletableFuture.runAsync(() -> write(socket, payload, written));
+
+            // The backend reads nothing, so once the socket buffers are full the client can't write more
+            awaitStall(written);
+            Assertions.assertFalse(writing.isDone(), "Client done writing into a paused backend");
+
+            backend.resume();
+            input.readFully(echoed);
+            writing.get(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+
+        Assertions.assertArrayEquals(payload, echoed, "Echoed data");
+        Assertions.assertTrue(stats.getPauses(Direction.REQUEST) > 0, "Request pauses");
+    }
+
+    /**
+     * Waits until the client stops making progress.
+     *
+     * @param written
+     *            bytes written by the client
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private final void awaitStall(final AtomicLong written) throws InterruptedException {
+        final long deadline;
+        long       previous;
+
+        deadline = System.currentTimeMillis() + TIMEOUT;
+        previous = -1;
+        while ((previous != written.get()) && (System.currentTimeMillis() < deadline)) {
+            previous = written.get();
+            Thread.sleep(STALL);
+        }
+    }
+
+    /**
+     * Returns a bridge recording its pauses into the received stats.
+     *
+     * @param stats
+     *            pause stats
+     * @return a bridge recording its pauses
+     */
+    private final ProxyConnectionBridge createBridge(final BackpressureStats stats) {
+        return new ProxyConnectionBridge(event -> {}, BridgeSettings.builder()
+            .capture(CaptureSettings.SIZE_ONLY)
+            .backpressureStats(stats)
+            .build());
+    }
+
+    /**
+     * Returns settings with tiny write buffers, so the channels become unwritable right away.
+     *
+     * @return channel settings
+     */
+    private final ChannelSettings createSettings() {
+        return ChannelSettings.builder()
+            .transport(TransportType.NIO)
+            .writeBufferHighWaterMark(2 * CHUNK)
+            .writeBufferLowWaterMark(CHUNK)
+            .build();
+    }
+
+    /**
+     * Writes the payload into the socket, in small chunks.
+     *
+     * @param socket
+     *            connection to the proxy
+     * @param payload
+     *            data to write
+     * @param written
+     *            bytes written
+     */
+    private final void write(final Socket socket, final byte[] payload, final AtomicLong written) {
+        final OutputStream output;
+        int                offset;
+
+        try {
+            output = socket.getOutputStream();
+            offset = 0;
+            while (offset < payload.length) {
+                output.write(payload, offset, CHUNK);
+                output.flush();
+                offset += CHUNK;
+                written.set(offset);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
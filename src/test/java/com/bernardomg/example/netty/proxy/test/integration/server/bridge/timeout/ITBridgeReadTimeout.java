@@ -0,0 +1,147 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.integration.server.bridge.timeout;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.BridgeSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.ProxyConnectionBridge;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.BandwidthShaper;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.ShapingSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.timeout.TimeoutSettings;
+import com.bernardomg.example.netty.proxy.server.event.CaptureSettings;
+import com.bernardomg.example.netty.proxy.test.support.EchoBackend;
+import com.bernardomg.example.netty.proxy.test.support.TestProxy;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.TransportType;
+
+@DisplayName("Bridge read timeout")
+public final class ITBridgeReadTimeout {
+
+    /**
+     * Request bytes per second for each connection.
+     */
+    private static final int  RATE         = 32 * 1024;
+
+    /**
+     * Request read timeout, in milliseconds. Much shorter than the time the payload takes to go through at the rate.
+     */
+    private static final long READ_TIMEOUT = 300;
+
+    /**
+     * Maximum time to wait for the proxy, in milliseconds.
+     */
+    private static final int  TIMEOUT      = 10000;
+
+    /**
+     * Default constructor.
+     */
+    public ITBridgeReadTimeout() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Doesn't time out while the shaping throttles the reads of a client still sending")
+    public final void testRead_Throttled_NotClosed() throws IOException {
+        final byte[]          payload;
+        final byte[]          echoed;
+        final DataInputStream input;
+
+        payload = new byte[4 * RATE];
+        new Random(1).nextBytes(payload);
+        echoed = new byte[payload.length];
+
+        try (final EchoBackend backend = new EchoBackend();
+                final TestProxy proxy  = new TestProxy(backend.getPort(), createBridge(), createSettings());
+                final Socket    socket = proxy.connect()) {
+            socket.setSoTimeout(TIMEOUT);
+            input = new DataInputStream(socket.getInputStream());
+
+            // The whole payload is sent at once, and then waits in the socket buffers while throttled
+            socket.getOutputStream()
+                .write(payload);
+            input.readFully(echoed);
+        }
+
+        Assertions.assertArrayEquals(payload, echoed, "Echoed data");
+    }
+
+    @Test
+    @DisplayName("Times out a client which stops sending, even with shaping")
+    public final void testRead_Silent_Closed() throws IOException {
+        final DataInputStream input;
+
+        try (final EchoBackend backend = new EchoBackend();
+                final TestProxy proxy  = new TestProxy(backend.getPort(), createBridge(), createSettings());
+                final Socket    socket = proxy.connect()) {
+            socket.setSoTimeout(TIMEOUT);
+            input = new DataInputStream(socket.getInputStream());
+
+            socket.getOutputStream()
+                .write(1);
+            Assertions.assertEquals(1, input.read(), "Echoed byte");
+
+            Assertions.assertEquals(-1, input.read(), "End of stream");
+        }
+    }
+
+    /**
+     * Returns a bridge shaping the requests, with a short request read timeout.
+     *
+     * @return a bridge with shaping and a read timeout
+     */
+    private final ProxyConnectionBridge createBridge() {
+        return new ProxyConnectionBridge(event -> {}, BridgeSettings.builder()
+            .capture(CaptureSettings.SIZE_ONLY)
+            .shaper(new BandwidthShaper(ShapingSettings.builder()
+                .burst(Duration.ofMillis(100))
+                .requestRate(RATE)
+                .build()))
+            .timeouts(TimeoutSettings.NONE.toBuilder()
+                .requestRead(Duration.ofMillis(READ_TIMEOUT))
+                .build())
+            .build());
+    }
+
+    /**
+     * Returns the channel settings for the proxy.
+     *
+     * @return channel settings
+     */
+    private final ChannelSettings createSettings() {
+        return ChannelSettings.builder()
+            .transport(TransportType.NIO)
+            .build();
+    }
+
+}
@@ -0,0 +1,219 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.support;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Blocking backend which echoes whatever it reads. When the peer shuts down its output, the backend writes a trailer and
+ * closes the connection. Echoing may be paused, so after the chunk being read the data stays in the socket buffers
+ * until resumed.
+ */
+public final class EchoBackend implements AutoCloseable {
+
+    /**
+     * Latch released when a connection reaches the end of stream.
+     */
+    private final CountDownLatch    endOfStream = new CountDownLatch(1);
+
+    /**
+     * Bytes read from all the connections.
+     */
+    private final AtomicLong        read        = new AtomicLong();
+
+    /**
+     * Latch released when echoing is resumed. Replaced when paused.
+     */
+    private volatile CountDownLatch resumed     = new CountDownLatch(0);
+
+    /**
+     * Server socket.
+     */
+    private final ServerSocket      server;
+
+    /**
+     * Bytes written after the end of stream.
+     */
+    private final byte[]            trailer;
+
+    /**
+     * Starts a backend which writes nothing after the end of stream.
+     *
+     * @throws IOException
+     *             if the server socket can't be opened
+     */
+    public EchoBackend() throws IOException {
+        this(new byte[0]);
+    }
+
+    /**
+     * Starts a backend which writes the received trailer after the end of stream.
+     *
+     * @param trlr
+     *            bytes written after the end of stream
+     * @throws IOException
+     *             if the server socket can't be opened
+     */
+    public EchoBackend(final byte[] trlr) throws IOException {
+        super();
+
+        final Thread acceptor;
+
+        trailer = trlr.clone();
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+
+        acceptor = new Thread(this::accept, "echo-backend");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Waits until a connection reaches the end of stream.
+     *
+     * @param millis
+     *            maximum time to wait
+     * @return {@code true} if the end of stream was reached, {@code false} if the time ran out
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public final boolean awaitEndOfStream(final long millis) throws InterruptedException {
+        return endOfStream.await(millis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public final void close() throws IOException {
+        resume();
+        server.close();
+    }
+
+    /**
+     * Returns the port listened to.
+     *
+     * @return the port listened to
+     */
+    public final int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Returns the bytes read from all the connections.
+     *
+     * @return the bytes read
+     */
+    public final long getRead() {
+        return read.get();
+    }
+
+    /**
+     * Stops echoing. The chunk being read is held until resumed, and nothing else is read.
+     */
+    public final void pause() {
+        resumed = new CountDownLatch(1);
+    }
+
+    /**
+     * Resumes echoing, if the backend was paused.
+     */
+    public final void resume() {
+        resumed.countDown();
+    }
+
+    /**
+     * Accepts connections until the server socket is closed.
+     */
+    private final void accept() {
+        Socket socket;
+
+        try {
+            while (!server.isClosed()) {
+                socket = server.accept();
+                startEcho(socket);
+            }
+        } catch (final IOException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * Echoes a connection until the end of stream, then writes the trailer and closes it.
+     *
+     * @param socket
+     *            connection to echo
+     */
+    private final void echo(final Socket socket) {
+        final byte[]       buffer;
+        final InputStream  input;
+        final OutputStream output;
+        int                count;
+
+        buffer = new byte[8192];
+        try (socket) {
+            input = socket.getInputStream();
+            output = socket.getOutputStream();
+            count = input.read(buffer);
+            while (count >= 0) {
+                resumed.await();
+                read.addAndGet(count);
+                output.write(buffer, 0, count);
+                output.flush();
+                count = input.read(buffer);
+            }
+            endOfStream.countDown();
+            output.write(trailer);
+            output.flush();
+        } catch (final SocketException e) {
+            // Closed by the peer
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread()
+                .interrupt();
+        }
+    }
+
+    /**
+     * Echoes a connection in its own thread.
+     *
+     * @param socket
+     *            connection to echo
+     */
+    private final void startEcho(final Socket socket) {
+        final Thread handler;
+
+        handler = new Thread(() -> echo(socket), "echo-backend-connection");
+        handler.setDaemon(true);
+        handler.start();
+    }
+
+}
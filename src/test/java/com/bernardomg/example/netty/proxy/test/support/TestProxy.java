@@ -0,0 +1,189 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.support;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+
+import com.bernardomg.example.netty.proxy.client.Client;
+import com.bernardomg.example.netty.proxy.client.ReactorNettyProxyClient;
+import com.bernardomg.example.netty.proxy.client.balance.RoundRobinLoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.connect.ConnectSettings;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+import com.bernardomg.example.netty.proxy.metrics.NoOpProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.CompositeProxyListener;
+import com.bernardomg.example.netty.proxy.server.ProxyRoute;
+import com.bernardomg.example.netty.proxy.server.ProxyServerSettings;
+import com.bernardomg.example.netty.proxy.server.ReactorNettyTcpProxyServer;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionController;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionSettings;
+import com.bernardomg.example.netty.proxy.server.bridge.ConnectionBridge;
+import com.bernardomg.example.netty.proxy.transport.ChannelSettings;
+import com.bernardomg.example.netty.proxy.transport.ProxyLoopResources;
+
+/**
+ * Proxy listening in a free loopback port, and sending all the connections to a single upstream in the loopback
+ * address. Each connection is handled by a single worker thread, so both sides of a bridge share the event loop.
+ */
+public final class TestProxy implements AutoCloseable {
+
+    /**
+     * Client connecting to the upstream.
+     */
+    private final Client                     client;
+
+    /**
+     * Event loops.
+     */
+    private final ProxyLoopResources         loops;
+
+    /**
+     * Proxy server.
+     */
+    private final ReactorNettyTcpProxyServer server;
+
+    /**
+     * Starts a proxy in front of the received upstream port.
+     *
+     * @param upstreamPort
+     *            port of the upstream
+     * @param bridge
+     *            bridge between the connections
+     * @param settings
+     *            settings for the connection channels
+     * @throws IOException
+     *             if no free port can be found
+     */
+    public TestProxy(final int upstreamPort, final ConnectionBridge bridge, final ChannelSettings settings)
+            throws IOException {
+        this(upstreamPort, bridge, settings, false);
+    }
+
+    /**
+     * Starts a proxy in front of the received upstream port, which optionally reads a PROXY protocol header from each
+     * connection.
+     *
+     * @param upstreamPort
+     *            port of the upstream
+     * @param bridge
+     *            bridge between the connections
+     * @param settings
+     *            settings for the connection channels
+     * @param proxyProtocol
+     *            PROXY protocol flag, if active each connection should start with a PROXY protocol header
+     * @throws IOException
+     *             if no free port can be found
+     */
+    public TestProxy(final int upstreamPort, final ConnectionBridge bridge, final ChannelSettings settings,
+            final boolean proxyProtocol) throws IOException {
+        super();
+
+        final HealthSettings  healthSettings;
+        final ConnectSettings connectSettings;
+
+        loops = new ProxyLoopResources(settings.getTransport(), 1, 1);
+        healthSettings = HealthSettings.builder()
+            .failureThreshold(5)
+            .ejectionTime(Duration.ofSeconds(10))
+            .maxEjectionTime(Duration.ofSeconds(60))
+            .probeInterval(Duration.ofSeconds(5))
+            .probeTimeout(Duration.ofSeconds(1))
+            .build();
+        connectSettings = ConnectSettings.builder()
+            .timeout(Duration.ofSeconds(5))
+            .build();
+        client = new ReactorNettyProxyClient(List.of(new Upstream("127.0.0.1", upstreamPort)),
+            new RoundRobinLoadBalancer(), healthSettings, connectSettings, loops, settings, NoOpProxyMetrics.INSTANCE,
+            false);
+        server = new ReactorNettyTcpProxyServer(ProxyServerSettings.builder()
+            .port(findFreePort())
+            .route(new ProxyRoute(new AdmissionController(AdmissionSettings.UNLIMITED, NoOpProxyMetrics.INSTANCE),
+                bridge, client))
+            .loops(loops)
+            .channelSettings(settings)
+            .dispatcher(event -> {})
+            .listener(new CompositeProxyListener(List.of()))
+            .proxyProtocol(proxyProtocol)
+            .build());
+        server.start();
+    }
+
+    @Override
+    public final void close() {
+        server.stop();
+        client.dispose();
+        loops.disposeLater(Duration.ZERO, Duration.ofSeconds(5))
+            .block();
+    }
+
+    /**
+     * Opens a connection to the proxy.
+     *
+     * @return a connection to the proxy
+     * @throws IOException
+     *             if the connection fails
+     */
+    public final Socket connect() throws IOException {
+        final Socket socket;
+
+        socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(10000);
+
+        return socket;
+    }
+
+    /**
+     * Returns the event loops, which know the transport actually used.
+     *
+     * @return the event loops
+     */
+    public final ProxyLoopResources getLoops() {
+        return loops;
+    }
+
+    /**
+     * Finds a free port in the loopback address.
+     *
+     * @return a free port
+     * @throws IOException
+     *             if no port can be opened
+     */
+    private static final int findFreePort() throws IOException {
+        final int port;
+
+        try (final ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+
+        return port;
+    }
+
+}
@@ -0,0 +1,57 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.capture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.capture.CaptureFormat;
+
+@DisplayName("Capture format")
+public final class TestCaptureFormat {
+
+    /**
+     * Default constructor.
+     */
+    public TestCaptureFormat() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Detects each format from its magic number")
+    public final void testFromMagic() {
+        for (final CaptureFormat format : CaptureFormat.values()) {
+            Assertions.assertEquals(format, CaptureFormat.fromMagic(format.getMagic()), format.name());
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects an unknown magic number")
+    public final void testFromMagic_Unknown_Exception() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CaptureFormat.fromMagic(0x12345678));
+    }
+
+}
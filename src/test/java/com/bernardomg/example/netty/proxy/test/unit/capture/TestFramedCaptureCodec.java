@@ -0,0 +1,182 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.capture.CaptureCodec;
+import com.bernardomg.example.netty.proxy.capture.CaptureFormat;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+@DisplayName("Framed capture codec")
+public final class TestFramedCaptureCodec {
+
+    /**
+     * Default constructor.
+     */
+    public TestFramedCaptureCodec() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects a header with another magic number")
+    public final void testReadHeader_BadMagic_Exception() {
+        final CaptureCodec codec;
+        final ByteBuffer   buffer;
+
+        codec = CaptureFormat.FRAMED.createCodec(8080);
+        buffer = ByteBuffer.allocate(8);
+        buffer.putInt(0x12345678);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0);
+        buffer.flip();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> codec.readHeader(buffer));
+    }
+
+    @Test
+    @DisplayName("Rejects a header with an unknown version")
+    public final void testReadHeader_BadVersion_Exception() {
+        final CaptureCodec codec;
+        final ByteBuffer   buffer;
+
+        codec = CaptureFormat.FRAMED.createCodec(8080);
+        buffer = ByteBuffer.allocate(8);
+        buffer.putInt(CaptureFormat.FRAMED.getMagic());
+        buffer.putShort((short) 2);
+        buffer.putShort((short) 0);
+        buffer.flip();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> codec.readHeader(buffer));
+    }
+
+    @Test
+    @DisplayName("Reads back the records written")
+    public final void testReadRecord_RoundTrip() {
+        final CaptureCodec codec;
+        final ProxyEvent   request;
+        final ProxyEvent   response;
+        final ByteBuffer   buffer;
+        final ProxyEvent   readRequest;
+        final ProxyEvent   readResponse;
+
+        codec = CaptureFormat.FRAMED.createCodec(8080);
+        request = event("conn-1", Direction.REQUEST, "hello", 1000L);
+        response = event("conn-2", Direction.RESPONSE, "world!", 2000L);
+
+        buffer = ByteBuffer.allocate(8 + codec.getRecordSize(request, 5) + codec.getRecordSize(response, 6));
+        codec.writeHeader(buffer, 0);
+        codec.writeRecord(buffer, request, 5);
+        codec.writeRecord(buffer, response, 6);
+        buffer.flip();
+
+        codec.readHeader(buffer);
+        readRequest = codec.readRecord(buffer);
+        readResponse = codec.readRecord(buffer);
+
+        Assertions.assertEquals(request, readRequest, "Request");
+        Assertions.assertEquals(response, readResponse, "Response");
+        Assertions.assertNull(codec.readRecord(buffer), "End");
+    }
+
+    @Test
+    @DisplayName("Keeps the original length of a payload cut by the snap length")
+    public final void testReadRecord_Snapped() {
+        final CaptureCodec codec;
+        final ProxyEvent   event;
+        final ByteBuffer   buffer;
+        final ProxyEvent   read;
+
+        codec = CaptureFormat.FRAMED.createCodec(8080);
+        event = event("conn", Direction.REQUEST, "abcdefgh", 1000L);
+
+        buffer = ByteBuffer.allocate(codec.getRecordSize(event, 3));
+        codec.writeRecord(buffer, event, 3);
+        buffer.flip();
+
+        read = codec.readRecord(buffer);
+
+        Assertions.assertEquals(8, read.getLength(), "Length");
+        Assertions.assertEquals("abc", new String(read.getPayload(), StandardCharsets.US_ASCII), "Payload");
+    }
+
+    @Test
+    @DisplayName("Stops at a record cut short")
+    public final void testReadRecord_Truncated_Null() {
+        final CaptureCodec codec;
+        final ProxyEvent   event;
+        final ByteBuffer   buffer;
+
+        codec = CaptureFormat.FRAMED.createCodec(8080);
+        event = event("conn", Direction.REQUEST, "hello", 1000L);
+
+        buffer = ByteBuffer.allocate(codec.getRecordSize(event, 5));
+        codec.writeRecord(buffer, event, 5);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+
+        Assertions.assertNull(codec.readRecord(buffer));
+    }
+
+    @Test
+    @DisplayName("Stops at the zeroed end of a segment")
+    public final void testReadRecord_Zeroed_Null() {
+        final CaptureCodec codec;
+        final ByteBuffer   buffer;
+
+        codec = CaptureFormat.FRAMED.createCodec(8080);
+        buffer = ByteBuffer.allocate(64);
+
+        Assertions.assertNull(codec.readRecord(buffer));
+    }
+
+    /**
+     * Returns an event with an ASCII payload.
+     *
+     * @param id
+     *            connection id
+     * @param direction
+     *            message direction
+     * @param payload
+     *            message payload
+     * @param timestamp
+     *            message timestamp
+     * @return the event
+     */
+    private final ProxyEvent event(final String id, final Direction direction, final String payload,
+            final long timestamp) {
+        final byte[] bytes;
+
+        bytes = payload.getBytes(StandardCharsets.US_ASCII);
+        return new ProxyEvent(id, direction, bytes.length, bytes, timestamp);
+    }
+
+}
@@ -0,0 +1,194 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.capture;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.capture.CaptureCodec;
+import com.bernardomg.example.netty.proxy.capture.CaptureFormat;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+@DisplayName("pcapng capture codec")
+public final class TestPcapngCaptureCodec {
+
+    /**
+     * Default constructor.
+     */
+    public TestPcapngCaptureCodec() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects a file not starting with a section header")
+    public final void testReadHeader_NotSection_Exception() {
+        final CaptureCodec codec;
+        final ByteBuffer   buffer;
+
+        codec = CaptureFormat.PCAPNG.createCodec(8080);
+        buffer = ByteBuffer.allocate(64);
+        buffer.putInt(CaptureFormat.FRAMED.getMagic());
+        buffer.putInt(28);
+        buffer.rewind();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> codec.readHeader(buffer));
+    }
+
+    @Test
+    @DisplayName("Reads back the records written, with their connection ids and directions")
+    public final void testReadRecord_RoundTrip() {
+        final CaptureCodec codec;
+        final ProxyEvent   request;
+        final ProxyEvent   response;
+        final ByteBuffer   buffer;
+        final ProxyEvent   readRequest;
+        final ProxyEvent   readResponse;
+
+        codec = CaptureFormat.PCAPNG.createCodec(8080);
+        request = event("conn-1", Direction.REQUEST, "hello", 1000L);
+        response = event("conn-1", Direction.RESPONSE, "world!", 2000L);
+
+        buffer = ByteBuffer.allocate(1024);
+        codec.writeHeader(buffer, 0xffff);
+        codec.writeRecord(buffer, request, 5);
+        codec.writeRecord(buffer, response, 6);
+        buffer.flip();
+
+        codec.readHeader(buffer);
+        readRequest = codec.readRecord(buffer);
+        readResponse = codec.readRecord(buffer);
+
+        Assertions.assertEquals(request, readRequest, "Request");
+        Assertions.assertEquals(response, readResponse, "Response");
+        Assertions.assertNull(codec.readRecord(buffer), "End");
+    }
+
+    @Test
+    @DisplayName("Keeps the original length of a payload cut by the snap length")
+    public final void testReadRecord_Snapped() {
+        final CaptureCodec codec;
+        final ProxyEvent   event;
+        final ByteBuffer   buffer;
+        final ProxyEvent   read;
+
+        codec = CaptureFormat.PCAPNG.createCodec(8080);
+        event = event("conn", Direction.REQUEST, "abcdefgh", 1000L);
+
+        buffer = ByteBuffer.allocate(1024);
+        codec.writeHeader(buffer, 0xffff);
+        codec.writeRecord(buffer, event, 3);
+        buffer.flip();
+
+        codec.readHeader(buffer);
+        read = codec.readRecord(buffer);
+
+        Assertions.assertEquals(8, read.getLength(), "Length");
+        Assertions.assertEquals("abc", new String(read.getPayload(), StandardCharsets.US_ASCII), "Payload");
+    }
+
+    @Test
+    @DisplayName("Stops at a block cut short")
+    public final void testReadRecord_Truncated_Null() {
+        final CaptureCodec codec;
+        final ProxyEvent   event;
+        final ByteBuffer   buffer;
+
+        codec = CaptureFormat.PCAPNG.createCodec(8080);
+        event = event("conn", Direction.REQUEST, "hello", 1000L);
+
+        buffer = ByteBuffer.allocate(1024);
+        codec.writeHeader(buffer, 0xffff);
+        codec.writeRecord(buffer, event, 5);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+
+        codec.readHeader(buffer);
+
+        Assertions.assertNull(codec.readRecord(buffer));
+    }
+
+    @Test
+    @DisplayName("Shows the port of each started connection as the proxy port, and the default one for the rest")
+    public final void testWriteRecord_StartedConnection_Port() {
+        final CaptureCodec codec;
+        final ByteBuffer   buffer;
+        final int          started;
+        final int          other;
+
+        codec = CaptureFormat.PCAPNG.createCodec(8080);
+        codec.startConnection("conn-1", 9090);
+
+        buffer = ByteBuffer.allocate(1024);
+        codec.writeHeader(buffer, 0xffff);
+        started = buffer.position();
+        codec.writeRecord(buffer, event("conn-1", Direction.REQUEST, "hello", 1000L), 5);
+        other = buffer.position();
+        codec.writeRecord(buffer, event("conn-2", Direction.REQUEST, "hello", 1000L), 5);
+
+        Assertions.assertEquals(9090, getDestinationPort(buffer, started), "Started connection port");
+        Assertions.assertEquals(8080, getDestinationPort(buffer, other), "Default port");
+    }
+
+    /**
+     * Returns an event with an ASCII payload.
+     *
+     * @param id
+     *            connection id
+     * @param direction
+     *            message direction
+     * @param payload
+     *            message payload
+     * @param timestamp
+     *            message timestamp
+     * @return the event
+     */
+    private final ProxyEvent event(final String id, final Direction direction, final String payload,
+            final long timestamp) {
+        final byte[] bytes;
+
+        bytes = payload.getBytes(StandardCharsets.US_ASCII);
+        return new ProxyEvent(id, direction, bytes.length, bytes, timestamp);
+    }
+
+    /**
+     * Returns the TCP destination port of the packet in the enhanced packet block at the received position.
+     *
+     * @param buffer
+     *            buffer with the block
+     * @param block
+     *            position of the block
+     * @return the destination port
+     */
+    private final int getDestinationPort(final ByteBuffer buffer, final int block) {
+        // Block fields, IPv4 header and TCP source port
+        return buffer.getShort(block + 28 + 20 + 2) & 0xffff;
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.balance;
+
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.ConsistentHashLoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.LoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+@DisplayName("Consistent hash load balancer")
+public final class TestConsistentHashLoadBalancer {
+
+    /**
+     * Clients checked for each test.
+     */
+    private static final int CLIENTS = 200;
+
+    /**
+     * Default constructor.
+     */
+    public TestConsistentHashLoadBalancer() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Only moves the clients of an upstream which is no longer a candidate")
+    public final void testSelect_MissingUpstream_OnlyItsClientsMoved() {
+        final List<Upstream> upstreams;
+        final List<Upstream> remaining;
+        final LoadBalancer   balancer;
+        Upstream             before;
+        Upstream             after;
+
+        upstreams = List.of(new Upstream("first", 1), new Upstream("second", 2), new Upstream("third", 3));
+        remaining = List.of(upstreams.get(0), upstreams.get(2));
+        balancer = new ConsistentHashLoadBalancer(upstreams);
+
+        for (int i = 0; i < CLIENTS; i++) {
+            before = balancer.select(upstreams, client(i, 1000));
+            after = balancer.select(remaining, client(i, 1000));
+            if (before != upstreams.get(1)) {
+                Assertions.assertSame(before, after, "Upstream for client " + i);
+            } else {
+                Assertions.assertTrue(remaining.contains(after), "Moved client " + i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Sends the connections from a client host to the same upstream, whatever their port")
+    public final void testSelect_SameHost_SameUpstream() {
+        final List<Upstream> upstreams;
+        final LoadBalancer   balancer;
+        Upstream             selected;
+
+        upstreams = List.of(new Upstream("first", 1), new Upstream("second", 2), new Upstream("third", 3));
+        balancer = new ConsistentHashLoadBalancer(upstreams);
+
+        for (int i = 0; i < CLIENTS; i++) {
+            selected = balancer.select(upstreams, client(i, 1000));
+            Assertions.assertSame(selected, balancer.select(upstreams, client(i, 2000)), "Upstream for client " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Spreads the client hosts among all the upstreams")
+    public final void testSelect_Spread() {
+        final List<Upstream> upstreams;
+        final LoadBalancer   balancer;
+        final Set<Upstream>  selected;
+
+        upstreams = List.of(new Upstream("first", 1), new Upstream("second", 2), new Upstream("third", 3));
+        balancer = new ConsistentHashLoadBalancer(upstreams);
+        selected = new HashSet<>();
+
+        for (int i = 0; i < CLIENTS; i++) {
+            selected.add(balancer.select(upstreams, client(i, 1000)));
+        }
+
+        Assertions.assertEquals(Set.copyOf(upstreams), selected, "Selected upstreams");
+    }
+
+    @Test
+    @DisplayName("Chooses the first candidate if none is in the ring")
+    public final void testSelect_UnknownCandidates_First() {
+        final LoadBalancer   balancer;
+        final List<Upstream> candidates;
+
+        balancer = new ConsistentHashLoadBalancer(List.of(new Upstream("known", 1)));
+        candidates = List.of(new Upstream("unknown", 2), new Upstream("other", 3));
+
+        Assertions.assertSame(candidates.get(0), balancer.select(candidates, client(1, 1000)), "Selected upstream");
+    }
+
+    /**
+     * Returns a client address in the 10.0.0.0/16 network.
+     *
+     * @param index
+     *            client index, used for the host
+     * @param port
+     *            client port
+     * @return the client address
+     */
+    private final InetSocketAddress client(final int index, final int port) {
+        return new InetSocketAddress("10.0." + (index / 256) + "." + (index % 256), port);
+    }
+
+}
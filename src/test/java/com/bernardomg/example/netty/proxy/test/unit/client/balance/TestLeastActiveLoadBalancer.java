@@ -0,0 +1,121 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.balance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.LeastActiveLoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.LoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+@DisplayName("Least active load balancer")
+public final class TestLeastActiveLoadBalancer {
+
+    /**
+     * Default constructor.
+     */
+    public TestLeastActiveLoadBalancer() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Counts the connections being established as load")
+    public final void testSelect_Connecting_Counted() {
+        final LoadBalancer balancer;
+        final Upstream     connecting;
+        final Upstream     idle;
+
+        balancer = new LeastActiveLoadBalancer();
+        connecting = new Upstream("connecting", 1);
+        connecting.onConnecting();
+        idle = new Upstream("idle", 2);
+
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertSame(idle, balancer.select(List.of(connecting, idle), null), "Selection " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Chooses the candidate with the fewest connections")
+    public final void testSelect_FewestConnections() {
+        final LoadBalancer balancer;
+        final Upstream     busy;
+        final Upstream     quiet;
+        final Upstream     busiest;
+
+        balancer = new LeastActiveLoadBalancer();
+        busy = new Upstream("busy", 1);
+        connect(busy, 2);
+        quiet = new Upstream("quiet", 2);
+        connect(quiet, 1);
+        busiest = new Upstream("busiest", 3);
+        connect(busiest, 3);
+
+        for (int i = 0; i < 6; i++) {
+            Assertions.assertSame(quiet, balancer.select(List.of(busy, quiet, busiest), null), "Selection " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Spreads the selections among the candidates with the same load")
+    public final void testSelect_Ties_Spread() {
+        final LoadBalancer   balancer;
+        final List<Upstream> candidates;
+        final Set<Upstream>  selected;
+
+        balancer = new LeastActiveLoadBalancer();
+        candidates = List.of(new Upstream("first", 1), new Upstream("second", 2), new Upstream("third", 3));
+        selected = new HashSet<>();
+
+        for (int i = 0; i < 3; i++) {
+            selected.add(balancer.select(candidates, null));
+        }
+
+        Assertions.assertEquals(Set.copyOf(candidates), selected, "Selected upstreams");
+    }
+
+    /**
+     * Opens connections to the upstream.
+     *
+     * @param upstream
+     *            upstream to connect to
+     * @param connections
+     *            number of connections
+     */
+    private final void connect(final Upstream upstream, final int connections) {
+        for (int i = 0; i < connections; i++) {
+            upstream.onConnecting();
+            upstream.onConnected(1_000_000);
+            upstream.onConnectFinished();
+        }
+    }
+
+}
@@ -0,0 +1,197 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.balance;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.LoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.PowerOfTwoChoicesLoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+@DisplayName("Power of two choices load balancer")
+public final class TestPowerOfTwoChoicesLoadBalancer {
+
+    /**
+     * Selections for each test. With two candidates both are always compared, so every selection should agree.
+     */
+    private static final int ROUNDS = 100;
+
+    /**
+     * Default constructor.
+     */
+    public TestPowerOfTwoChoicesLoadBalancer() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Prefers the upstream with a known latency over the one only failing to connect")
+    public final void testSelect_FailedOnly_NotSelected() {
+        final Upstream measured;
+        final Upstream failed;
+
+        measured = new Upstream("measured", 1);
+        connect(measured, 5_000_000);
+        close(measured);
+
+        failed = new Upstream("failed", 2);
+        failed.onConnecting();
+        failed.onConnectFailed();
+        failed.onConnectFinished();
+
+        assertSelected(measured, List.of(measured, failed));
+        assertSelected(measured, List.of(failed, measured));
+    }
+
+    @Test
+    @DisplayName("Prefers the slower upstream once the faster one fails to connect")
+    public final void testSelect_FailingFast_NotSelected() {
+        final Upstream slow;
+        final Upstream failing;
+
+        slow = new Upstream("slow", 1);
+        connect(slow, 3_000_000);
+
+        // Fastest at first, but refusing the next connections
+        failing = new Upstream("failing", 2);
+        connect(failing, 1_000_000);
+        close(slow);
+        close(failing);
+        failing.onConnectFailed();
+        failing.onConnectFailed();
+
+        assertSelected(slow, List.of(slow, failing));
+        assertSelected(slow, List.of(failing, slow));
+    }
+
+    @Test
+    @DisplayName("Prefers the upstream with fewer connections, even if it is slower")
+    public final void testSelect_LowerLoad_Selected() {
+        final Upstream fast;
+        final Upstream slow;
+
+        fast = new Upstream("fast", 1);
+        connect(fast, 1_000_000);
+        connect(fast, 1_000_000);
+
+        slow = new Upstream("slow", 2);
+        connect(slow, 10_000_000);
+
+        assertSelected(slow, List.of(fast, slow));
+        assertSelected(slow, List.of(slow, fast));
+    }
+
+    @Test
+    @DisplayName("Prefers the faster upstream when the loads are the same")
+    public final void testSelect_SameLoad_FasterSelected() {
+        final Upstream fast;
+        final Upstream slow;
+
+        fast = new Upstream("fast", 1);
+        connect(fast, 1_000_000);
+
+        slow = new Upstream("slow", 2);
+        connect(slow, 10_000_000);
+
+        assertSelected(fast, List.of(fast, slow));
+        assertSelected(fast, List.of(slow, fast));
+    }
+
+    @Test
+    @DisplayName("Prefers the upstream never connected when it has less load")
+    public final void testSelect_Unmeasured_SelectedWhileIdle() {
+        final Upstream measured;
+        final Upstream unmeasured;
+
+        measured = new Upstream("measured", 1);
+        connect(measured, 1_000_000);
+
+        unmeasured = new Upstream("unmeasured", 2);
+
+        assertSelected(unmeasured, List.of(measured, unmeasured));
+        assertSelected(unmeasured, List.of(unmeasured, measured));
+    }
+
+    @Test
+    @DisplayName("Prefers the measured upstream when the loads are the same")
+    public final void testSelect_Unmeasured_SameLoad_NotSelected() {
+        final Upstream measured;
+        final Upstream unmeasured;
+
+        measured = new Upstream("measured", 1);
+        connect(measured, 1_000_000);
+        close(measured);
+
+        unmeasured = new Upstream("unmeasured", 2);
+
+        assertSelected(measured, List.of(measured, unmeasured));
+        assertSelected(measured, List.of(unmeasured, measured));
+    }
+
+    /**
+     * Checks the balancer always selects the expected upstream.
+     *
+     * @param expected
+     *            expected upstream
+     * @param candidates
+     *            candidates to select from
+     */
+    private final void assertSelected(final Upstream expected, final List<Upstream> candidates) {
+        final LoadBalancer balancer;
+
+        balancer = new PowerOfTwoChoicesLoadBalancer();
+        for (int i = 0; i < ROUNDS; i++) {
+            Assertions.assertSame(expected, balancer.select(candidates, null), "Selected upstream");
+        }
+    }
+
+    /**
+     * Closes a connection to the upstream.
+     *
+     * @param upstream
+     *            upstream to disconnect from
+     */
+    private final void close(final Upstream upstream) {
+        upstream.onClosed();
+    }
+
+    /**
+     * Opens a connection to the upstream.
+     *
+     * @param upstream
+     *            upstream to connect to
+     * @param nanos
+     *            connect latency
+     */
+    private final void connect(final Upstream upstream, final long nanos) {
+        upstream.onConnecting();
+        upstream.onConnected(nanos);
+        upstream.onConnectFinished();
+    }
+
+}
@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.balance;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.LoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.RoundRobinLoadBalancer;
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+@DisplayName("Round robin load balancer")
+public final class TestRoundRobinLoadBalancer {
+
+    /**
+     * Default constructor.
+     */
+    public TestRoundRobinLoadBalancer() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Spreads the selections evenly, even from several threads")
+    public final void testSelect_Concurrent_Even() {
+        final LoadBalancer                 balancer;
+        final List<Upstream>               candidates;
+        final Map<Upstream, AtomicInteger> selections;
+
+        balancer = new RoundRobinLoadBalancer();
+        candidates = List.of(new Upstream("first", 1), new Upstream("second", 2), new Upstream("third", 3));
+        selections = new ConcurrentHashMap<>();
+
+        IntStream.range(0, 30_000)
+            .parallel()
+            .forEach(i -> selections.computeIfAbsent(balancer.select(candidates, null), u -> new AtomicInteger())
+                .incrementAndGet());
+
+        for (final Upstream candidate : candidates) {
+            Assertions.assertEquals(10_000, selections.get(candidate)
+                .get(), "Selections of " + candidate);
+        }
+    }
+
+    @Test
+    @DisplayName("Chooses each candidate in turn")
+    public final void testSelect_InTurn() {
+        final LoadBalancer   balancer;
+        final List<Upstream> candidates;
+
+        balancer = new RoundRobinLoadBalancer();
+        candidates = List.of(new Upstream("first", 1), new Upstream("second", 2), new Upstream("third", 3));
+
+        for (int i = 0; i < 7; i++) {
+            Assertions.assertSame(candidates.get(i % 3), balancer.select(candidates, null), "Selection " + i);
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.balance;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+
+@DisplayName("Upstream")
+public final class TestUpstream {
+
+    /**
+     * Default constructor.
+     */
+    public TestUpstream() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Averages the connect latencies, weighting the last one")
+    public final void testConnectLatency_Average() {
+        final Upstream upstream;
+
+        upstream = new Upstream("host", 1);
+        upstream.onConnected(1_000);
+        upstream.onConnected(2_000);
+
+        Assertions.assertEquals(Duration.ofNanos(1_200), upstream.getConnectLatency());
+    }
+
+    @Test
+    @DisplayName("Doubles the connect latency on each failure")
+    public final void testConnectLatency_Failed_Doubled() {
+        final Upstream upstream;
+
+        upstream = new Upstream("host", 1);
+        upstream.onConnected(1_000);
+        upstream.onConnectFailed();
+        upstream.onConnectFailed();
+
+        Assertions.assertEquals(Duration.ofNanos(4_000), upstream.getConnectLatency());
+    }
+
+    @Test
+    @DisplayName("Keeps the connect latency unknown when only failing")
+    public final void testConnectLatency_FailedOnly_Unknown() {
+        final Upstream upstream;
+
+        upstream = new Upstream("host", 1);
+        upstream.onConnectFailed();
+
+        Assertions.assertEquals(Duration.ZERO, upstream.getConnectLatency());
+    }
+
+    @Test
+    @DisplayName("Doesn't overflow the connect latency after many failures")
+    public final void testConnectLatency_ManyFailures_Capped() {
+        final Upstream upstream;
+
+        upstream = new Upstream("host", 1);
+        upstream.onConnected(1_000);
+        for (int i = 0; i < 100; i++) {
+            upstream.onConnectFailed();
+        }
+
+        Assertions.assertEquals(Duration.ofNanos(Long.MAX_VALUE), upstream.getConnectLatency());
+    }
+
+    @Test
+    @DisplayName("Counts both the established and the pending connections as load")
+    public final void testLoad_ActiveAndPending() {
+        final Upstream upstream;
+
+        upstream = new Upstream("host", 1);
+        upstream.onConnecting();
+        upstream.onConnected(1_000);
+        upstream.onConnectFinished();
+        upstream.onConnecting();
+
+        Assertions.assertEquals(1, upstream.getActive(), "Active");
+        Assertions.assertEquals(2, upstream.getLoad(), "Load");
+    }
+
+    @Test
+    @DisplayName("Parses a host and port")
+    public final void testParse() {
+        final Upstream upstream;
+
+        upstream = Upstream.parse("localhost:8080");
+
+        Assertions.assertEquals("localhost", upstream.getHost(), "Host");
+        Assertions.assertEquals(8080, upstream.getPort(), "Port");
+    }
+
+    @Test
+    @DisplayName("Rejects an address without port")
+    public final void testParse_NoPort_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Upstream.parse("localhost"));
+    }
+
+}
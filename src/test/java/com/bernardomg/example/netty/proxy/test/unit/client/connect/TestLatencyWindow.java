@@ -0,0 +1,138 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.connect;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.connect.LatencyWindow;
+
+@DisplayName("Latency window")
+public final class TestLatencyWindow {
+
+    /**
+     * Default constructor.
+     */
+    public TestLatencyWindow() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Computes the percentile over the recorded latencies")
+    public final void testGetPercentile() {
+        final LatencyWindow window;
+
+        window = new LatencyWindow(90);
+        record(window, 1, 100);
+
+        Assertions.assertEquals(Optional.of(Duration.ofNanos(90)), window.getPercentile());
+    }
+
+    @Test
+    @DisplayName("Keeps the percentile of all the samples from many threads")
+    public final void testGetPercentile_Concurrent() {
+        final LatencyWindow                 window;
+        final List<CompletableFuture<Void>> writers;
+
+        window = new LatencyWindow(100);
+        writers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            writers.add(CompletableFuture.runAsync(() -> record(window, 1, 1000)));
+        }
+        CompletableFuture.allOf(writers.toArray(new CompletableFuture[0]))
+            .join();
+
+        Assertions.assertEquals(Optional.of(Duration.ofNanos(1000)), window.getPercentile());
+    }
+
+    @Test
+    @DisplayName("Has no percentile until there are enough samples")
+    public final void testGetPercentile_FewSamples_Empty() {
+        final LatencyWindow window;
+
+        window = new LatencyWindow(50);
+        record(window, 1, 31);
+
+        Assertions.assertEquals(Optional.empty(), window.getPercentile());
+    }
+
+    @Test
+    @DisplayName("Keeps the last percentile until enough new samples arrive")
+    public final void testGetPercentile_Refresh() {
+        final LatencyWindow window;
+
+        window = new LatencyWindow(100);
+        record(window, 1, 32);
+        Assertions.assertEquals(Optional.of(Duration.ofNanos(32)), window.getPercentile(), "First percentile");
+
+        record(window, 1000, 1062);
+        Assertions.assertEquals(Optional.of(Duration.ofNanos(32)), window.getPercentile(), "Before refreshing");
+
+        record(window, 1063, 1063);
+        Assertions.assertEquals(Optional.of(Duration.ofNanos(1063)), window.getPercentile(), "After refreshing");
+    }
+
+    @Test
+    @DisplayName("Forgets the oldest samples once the window is full")
+    public final void testGetPercentile_Wrapped_OldestForgotten() {
+        final LatencyWindow window;
+
+        window = new LatencyWindow(1);
+        record(window, 1, 1024);
+        record(window, 5000, 6023);
+
+        Assertions.assertEquals(Optional.of(Duration.ofNanos(5010)), window.getPercentile());
+    }
+
+    @Test
+    @DisplayName("Rejects a percentile over 100")
+    public final void testNew_InvalidPercentile_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LatencyWindow(101));
+    }
+
+    /**
+     * Records every latency in the range.
+     *
+     * @param window
+     *            window to record into
+     * @param from
+     *            first latency, inclusive
+     * @param to
+     *            last latency, inclusive
+     */
+    private final void record(final LatencyWindow window, final long from, final long to) {
+        for (long latency = from; latency <= to; latency++) {
+            window.record(latency);
+        }
+    }
+
+}
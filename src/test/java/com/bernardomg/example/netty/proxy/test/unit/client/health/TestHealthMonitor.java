@@ -0,0 +1,121 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.health;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.health.HealthMonitor;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+
+import reactor.core.publisher.Mono;
+
+@DisplayName("Health monitor")
+public final class TestHealthMonitor {
+
+    /**
+     * Default constructor.
+     */
+    public TestHealthMonitor() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Leaves the ejected upstreams out of the healthy ones")
+    public final void testGetHealthy_Ejected_Excluded() {
+        final Upstream      failing;
+        final Upstream      working;
+        final HealthMonitor monitor;
+
+        failing = new Upstream("failing", 1);
+        working = new Upstream("working", 2);
+        monitor = new HealthMonitor(List.of(failing, working), createSettings(Duration.ZERO));
+
+        monitor.recordFailure(failing, new IOException("Refused"));
+        monitor.recordSuccess(working);
+
+        Assertions.assertEquals(List.of(working), monitor.getHealthy(List.of(failing, working)));
+    }
+
+    @Test
+    @DisplayName("Ejects the upstreams failing the probes")
+    public final void testStart_ProbeFailed_Ejected() throws InterruptedException {
+        final Upstream      failing;
+        final Upstream      working;
+        final HealthMonitor monitor;
+        final long          deadline;
+
+        failing = new Upstream("failing", 1);
+        working = new Upstream("working", 2);
+        monitor = new HealthMonitor(List.of(failing, working), createSettings(Duration.ofMillis(10)));
+
+        monitor.start(u -> {
+            final Mono<?> result;
+
+            if (u == failing) {
+                result = Mono.error(new IOException("Refused"));
+            } else {
+                result = Mono.just(u);
+            }
+
+            return result;
+        });
+        try {
+            deadline = System.currentTimeMillis() + 5000;
+            while ((monitor.getHealthy(List.of(failing, working))
+                .size() > 1) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+        } finally {
+            monitor.stop();
+        }
+
+        Assertions.assertEquals(List.of(working), monitor.getHealthy(List.of(failing, working)));
+    }
+
+    /**
+     * Returns settings which eject an upstream on its first failure.
+     *
+     * @param probeInterval
+     *            interval between probes
+     * @return the health settings
+     */
+    private final HealthSettings createSettings(final Duration probeInterval) {
+        return HealthSettings.builder()
+            .failureThreshold(1)
+            .ejectionTime(Duration.ofMinutes(1))
+            .maxEjectionTime(Duration.ofMinutes(5))
+            .probeInterval(probeInterval)
+            .probeTimeout(Duration.ofSeconds(1))
+            .build();
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.health;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.balance.Upstream;
+import com.bernardomg.example.netty.proxy.client.health.HealthSettings;
+import com.bernardomg.example.netty.proxy.client.health.UpstreamHealth;
+import com.bernardomg.example.netty.proxy.client.health.UpstreamHealthStatus;
+
+@DisplayName("Upstream health")
+public final class TestUpstreamHealth {
+
+    /**
+     * Base ejection time, in nanoseconds.
+     */
+    private static final long EJECTION     = Duration.ofSeconds(10)
+        .toNanos();
+
+    /**
+     * Maximum ejection time, in nanoseconds.
+     */
+    private static final long MAX_EJECTION = Duration.ofSeconds(40)
+        .toNanos();
+
+    /**
+     * Default constructor.
+     */
+    public TestUpstreamHealth() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Ejects the upstream once the failures reach the threshold")
+    public final void testRecordFailure_Threshold_Ejected() {
+        final UpstreamHealth health;
+
+        health = createHealth();
+
+        Assertions.assertEquals(Duration.ZERO, health.recordFailure(0), "First failure");
+        Assertions.assertEquals(Duration.ZERO, health.recordFailure(1), "Second failure");
+        Assertions.assertEquals(Duration.ofNanos(EJECTION), health.recordFailure(2), "Third failure");
+
+        Assertions.assertFalse(health.isHealthy(3), "Healthy while ejected");
+        Assertions.assertTrue(health.isHealthy(2 + EJECTION), "Healthy after the ejection");
+    }
+
+    @Test
+    @DisplayName("Doubles the ejection time when failing right after an ejection, up to the maximum")
+    public final void testRecordFailure_AfterEjection_Doubled() {
+        final UpstreamHealth health;
+        long                 now;
+
+        health = createHealth();
+        health.recordFailure(0);
+        health.recordFailure(0);
+        health.recordFailure(0);
+
+        now = EJECTION;
+        Assertions.assertEquals(Duration.ofNanos(2 * EJECTION), health.recordFailure(now), "Second ejection");
+
+        now += 2 * EJECTION;
+        Assertions.assertEquals(Duration.ofNanos(4 * EJECTION), health.recordFailure(now), "Third ejection");
+
+        now += 4 * EJECTION;
+        Assertions.assertEquals(Duration.ofNanos(MAX_EJECTION), health.recordFailure(now), "Capped ejection");
+    }
+
+    @Test
+    @DisplayName("Ignores the failures while ejected")
+    public final void testRecordFailure_WhileEjected_Ignored() {
+        final UpstreamHealth       health;
+        final UpstreamHealthStatus status;
+
+        health = createHealth();
+        health.recordFailure(0);
+        health.recordFailure(0);
+        health.recordFailure(0);
+
+        Assertions.assertEquals(Duration.ZERO, health.recordFailure(1));
+
+        status = health.getStatus(1);
+        Assertions.assertEquals(3, status.getConsecutiveFailures(), "Consecutive failures");
+        Assertions.assertEquals(1, status.getEjections(), "Ejections");
+        Assertions.assertEquals(Duration.ofNanos(EJECTION - 1), status.getEjectedFor(), "Ejected for");
+    }
+
+    @Test
+    @DisplayName("Starts counting the failures again after a success")
+    public final void testRecordSuccess_ResetsFailures() {
+        final UpstreamHealth health;
+
+        health = createHealth();
+        health.recordFailure(0);
+        health.recordFailure(0);
+        health.recordSuccess(0);
+
+        Assertions.assertEquals(Duration.ZERO, health.recordFailure(0), "Failure after a success");
+        Assertions.assertTrue(health.isHealthy(0), "Healthy");
+    }
+
+    @Test
+    @DisplayName("Goes back to the base ejection time after staying healthy long enough")
+    public final void testRecordSuccess_HealthyLongEnough_ResetsEjections() {
+        final UpstreamHealth health;
+        final long           recovered;
+
+        health = createHealth();
+        health.recordFailure(0);
+        health.recordFailure(0);
+        health.recordFailure(0);
+
+        recovered = EJECTION + MAX_EJECTION;
+        health.recordSuccess(recovered);
+        health.recordFailure(recovered);
+        health.recordFailure(recovered);
+
+        Assertions.assertEquals(Duration.ofNanos(EJECTION), health.recordFailure(recovered));
+    }
+
+    /**
+     * Returns the health for an upstream, ejected after three failures.
+     *
+     * @return the upstream health
+     */
+    private final UpstreamHealth createHealth() {
+        final HealthSettings settings;
+
+        settings = HealthSettings.builder()
+            .failureThreshold(3)
+            .ejectionTime(Duration.ofNanos(EJECTION))
+            .maxEjectionTime(Duration.ofNanos(MAX_EJECTION))
+            .probeInterval(Duration.ZERO)
+            .probeTimeout(Duration.ofSeconds(1))
+            .build();
+
+        return new UpstreamHealth(new Upstream("host", 1), settings);
+    }
+
+}
@@ -0,0 +1,163 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.client.pool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.client.pool.MinIdleAllocationStrategy;
+
+@DisplayName("Min idle allocation strategy")
+public final class TestMinIdleAllocationStrategy {
+
+    /**
+     * Default constructor.
+     */
+    public TestMinIdleAllocationStrategy() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Grants the spare permits along with the desired ones")
+    public final void testGetPermits_Acquire_AddsMinIdle() {
+        final MinIdleAllocationStrategy strategy;
+
+        strategy = new MinIdleAllocationStrategy(2, 10);
+
+        Assertions.assertEquals(3, strategy.getPermits(1), "Granted");
+        Assertions.assertEquals(3, strategy.permitGranted(), "Total granted");
+        Assertions.assertEquals(7, strategy.estimatePermitCount(), "Available");
+    }
+
+    @Test
+    @DisplayName("Never grants more than the maximum")
+    public final void testGetPermits_Acquire_BoundedByMax() {
+        final MinIdleAllocationStrategy strategy;
+
+        strategy = new MinIdleAllocationStrategy(2, 4);
+
+        Assertions.assertEquals(3, strategy.getPermits(1), "First grant");
+        Assertions.assertEquals(1, strategy.getPermits(1), "Second grant");
+        Assertions.assertEquals(0, strategy.getPermits(1), "Grant when exhausted");
+        Assertions.assertEquals(4, strategy.permitGranted(), "Total granted");
+    }
+
+    @Test
+    @DisplayName("Never grants more than the maximum to concurrent requests")
+    public final void testGetPermits_Concurrent_BoundedByMax() {
+        final MinIdleAllocationStrategy     strategy;
+        final CountDownLatch                start;
+        final AtomicInteger                 granted;
+        final List<CompletableFuture<Void>> requests;
+
+        strategy = new MinIdleAllocationStrategy(3, 100);
+        start = new CountDownLatch(1);
+        granted = new AtomicInteger();
+        requests = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            requests.add(CompletableFuture.runAsync(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread()
+                        .interrupt();
+                }
+                for (int j = 0; j < 1000; j++) {
+                    granted.addAndGet(strategy.getPermits(1));
+                }
+            }));
+        }
+        start.countDown();
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0]))
+            .join();
+
+        Assertions.assertEquals(100, granted.get(), "Total granted");
+        Assertions.assertEquals(0, strategy.estimatePermitCount(), "Available");
+    }
+
+    @Test
+    @DisplayName("Grants nothing for a negative request")
+    public final void testGetPermits_Negative_NoneGranted() {
+        final MinIdleAllocationStrategy strategy;
+
+        strategy = new MinIdleAllocationStrategy(2, 10);
+
+        Assertions.assertEquals(0, strategy.getPermits(-1));
+    }
+
+    @Test
+    @DisplayName("Warms up only to the minimum idle")
+    public final void testGetPermits_Warmup_UpToMinIdle() {
+        final MinIdleAllocationStrategy strategy;
+
+        strategy = new MinIdleAllocationStrategy(2, 10);
+
+        Assertions.assertEquals(2, strategy.getPermits(0), "First warmup");
+        Assertions.assertEquals(0, strategy.getPermits(0), "Second warmup");
+    }
+
+    @Test
+    @DisplayName("Warms up the connections missing to the minimum, after returning some")
+    public final void testGetPermits_Warmup_AfterReturn() {
+        final MinIdleAllocationStrategy strategy;
+
+        strategy = new MinIdleAllocationStrategy(2, 10);
+        strategy.getPermits(0);
+        strategy.returnPermits(1);
+
+        Assertions.assertEquals(1, strategy.getPermits(0));
+    }
+
+    @Test
+    @DisplayName("Rejects a min idle over the max size")
+    public final void testNew_MinIdleOverMax_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MinIdleAllocationStrategy(5, 4));
+    }
+
+    @Test
+    @DisplayName("Rejects a max size which is not positive")
+    public final void testNew_NoMaxSize_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new MinIdleAllocationStrategy(0, 0));
+    }
+
+    @Test
+    @DisplayName("Rejects returning more permits than granted")
+    public final void testReturnPermits_TooMany_Rejected() {
+        final MinIdleAllocationStrategy strategy;
+
+        strategy = new MinIdleAllocationStrategy(0, 4);
+        strategy.getPermits(1);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> strategy.returnPermits(2));
+    }
+
+}
@@ -0,0 +1,210 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.config;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bernardomg.example.netty.proxy.client.balance.BalanceStrategy;
+import com.bernardomg.example.netty.proxy.config.ListenerSettings;
+import com.bernardomg.example.netty.proxy.config.ProxyConfiguration;
+
+@DisplayName("Proxy configuration")
+public final class TestProxyConfiguration {
+
+    /**
+     * Default constructor.
+     */
+    public TestProxyConfiguration() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Takes the missing options from the defaults, and the name from the port")
+    public final void testRead_Defaults(@TempDir final Path folder) throws IOException {
+        final ProxyConfiguration configuration;
+        final ListenerSettings   listener;
+
+        configuration = ProxyConfiguration.read(write(folder, "listeners:", "  - port: 9090",
+            "    targets: [ \"localhost:8080\" ]", "    retries: 5"), defaults());
+        listener = configuration.getListeners()
+            .get(0);
+
+        Assertions.assertEquals("9090", listener.getName(), "Name");
+        Assertions.assertEquals(9090, listener.getPort(), "Port");
+        Assertions.assertEquals(List.of("localhost:8080"), listener.getTargets(), "Targets");
+        Assertions.assertEquals(5, listener.getRetries(), "Retries");
+        Assertions.assertEquals(Duration.ofMillis(3000), listener.getConnectTimeout(), "Connect timeout");
+        Assertions.assertEquals(BalanceStrategy.ROUND_ROBIN, listener.getBalance(), "Balance");
+    }
+
+    @Test
+    @DisplayName("Reads JSON files, keeping the listeners order")
+    public final void testRead_Json(@TempDir final Path folder) throws IOException {
+        final ProxyConfiguration configuration;
+
+        configuration = ProxyConfiguration.read(write(folder,
+            "{ \"listeners\": [ { \"name\": \"b\", \"port\": 9091, \"targets\": [ \"localhost:8081\" ] },",
+            "  { \"name\": \"a\", \"port\": 9090, \"targets\": [ \"localhost:8080\" ], \"balance\": \"LEAST_ACTIVE\" } ] }"),
+            defaults());
+
+        Assertions.assertEquals(2, configuration.getListeners()
+            .size(), "Listeners");
+        Assertions.assertEquals("b", configuration.getListeners()
+            .get(0)
+            .getName(), "First listener");
+        Assertions.assertEquals(BalanceStrategy.LEAST_ACTIVE, configuration.getListeners()
+            .get(1)
+            .getBalance(), "Balance");
+    }
+
+    @Test
+    @DisplayName("Rejects a file without listeners")
+    public final void testRead_NoListeners_Rejected(@TempDir final Path folder) throws IOException {
+        final Path file;
+
+        file = write(folder, "listeners: []");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProxyConfiguration.read(file, defaults()));
+    }
+
+    @Test
+    @DisplayName("Rejects a listener with a port out of range")
+    public final void testRead_PortOutOfRange_Rejected(@TempDir final Path folder) throws IOException {
+        final Path file;
+
+        file = write(folder, "listeners:", "  - port: 70000", "    targets: [ \"localhost:8080\" ]");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProxyConfiguration.read(file, defaults()));
+    }
+
+    @Test
+    @DisplayName("Rejects two listeners on the same port")
+    public final void testRead_RepeatedPort_Rejected(@TempDir final Path folder) throws IOException {
+        final Path file;
+
+        file = write(folder, "listeners:", "  - name: a", "    port: 9090", "    targets: [ \"localhost:8080\" ]",
+            "  - name: b", "    port: 9090", "    targets: [ \"localhost:8081\" ]");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProxyConfiguration.read(file, defaults()));
+    }
+
+    @Test
+    @DisplayName("Accepts server name routes without default targets")
+    public final void testRead_SniRoutes(@TempDir final Path folder) throws IOException {
+        final ListenerSettings listener;
+
+        listener = ProxyConfiguration.read(write(folder, "listeners:", "  - port: 443", "    sniRoutes:",
+            "      \"api.example.com\": [ \"localhost:8443\" ]", "      \"*.example.com\": [ \"localhost:9443\" ]"),
+            defaults())
+            .getListeners()
+            .get(0);
+
+        Assertions.assertEquals(List.of(), listener.getTargets(), "Targets");
+        Assertions.assertEquals(Map.of("api.example.com", List.of("localhost:8443"), "*.example.com",
+            List.of("localhost:9443")), listener.getSniRoutes(), "Routes");
+        Assertions.assertEquals(2, listener.getUpstreams()
+            .size(), "Upstreams");
+    }
+
+    @Test
+    @DisplayName("Rejects a target without a port")
+    public final void testRead_TargetWithoutPort_Rejected(@TempDir final Path folder) throws IOException {
+        final Path file;
+
+        file = write(folder, "listeners:", "  - port: 9090", "    targets: [ \"localhost\" ]");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProxyConfiguration.read(file, defaults()));
+    }
+
+    @Test
+    @DisplayName("Rejects unknown options, so typos are not ignored")
+    public final void testRead_UnknownOption_Rejected(@TempDir final Path folder) throws IOException {
+        final Path file;
+
+        file = write(folder, "listeners:", "  - port: 9090", "    targets: [ \"localhost:8080\" ]", "    retrys: 1");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProxyConfiguration.read(file, defaults()));
+    }
+
+    @Test
+    @DisplayName("Rejects a flag which is not a boolean")
+    public final void testRead_WrongFlag_Rejected(@TempDir final Path folder) throws IOException {
+        final Path file;
+
+        file = write(folder, "listeners:", "  - port: 9090", "    targets: [ \"localhost:8080\" ]",
+            "    proxyProtocol: maybe");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ProxyConfiguration.read(file, defaults()));
+    }
+
+    /**
+     * Returns the listener defaults for the tests.
+     *
+     * @return the listener defaults
+     */
+    private final ListenerSettings defaults() {
+        return ListenerSettings.builder()
+            .name("default")
+            .port(0)
+            .targets(List.of())
+            .sniRoutes(Map.of())
+            .balance(BalanceStrategy.ROUND_ROBIN)
+            .connectTimeout(Duration.ofMillis(3000))
+            .retries(2)
+            .idleTimeout(Duration.ZERO)
+            .build();
+    }
+
+    /**
+     * Writes a configuration file with the received lines.
+     *
+     * @param folder
+     *            folder for the file
+     * @param lines
+     *            file lines
+     * @return the file written
+     * @throws IOException
+     *             if the file can't be written
+     */
+    private final Path write(final Path folder, final String... lines) throws IOException {
+        final Path file;
+
+        file = folder.resolve("proxy.yaml");
+        Files.write(file, List.of(lines));
+
+        return file;
+    }
+
+}
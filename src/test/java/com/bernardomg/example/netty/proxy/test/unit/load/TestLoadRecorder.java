@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.load.LoadRecorder;
+import com.bernardomg.example.netty.proxy.load.LoadReport;
+
+@DisplayName("Load recorder")
+public final class TestLoadRecorder {
+
+    /**
+     * Default constructor.
+     */
+    public TestLoadRecorder() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Counts the messages recorded from many connections")
+    public final void testGetReport_Concurrent() {
+        final LoadRecorder                  recorder;
+        final List<CompletableFuture<Void>> connections;
+        final LoadReport                    report;
+
+        recorder = new LoadRecorder();
+        connections = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            connections.add(CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    recorder.recordCompleted(0, 0, 1000);
+                    recorder.recordError();
+                    recorder.recordSkipped();
+                }
+            }));
+        }
+        CompletableFuture.allOf(connections.toArray(new CompletableFuture[0]))
+            .join();
+
+        report = recorder.getReport(16);
+
+        Assertions.assertEquals(4000, report.getCompleted(), "Completed");
+        Assertions.assertEquals(4000, report.getErrors(), "Errors");
+        Assertions.assertEquals(4000, report.getSkipped(), "Skipped");
+        Assertions.assertEquals(4000, report.getLatency()
+            .getTotalCount(), "Latencies");
+    }
+
+    @Test
+    @DisplayName("Measures the latency from the intended send time, and the service time from the actual one")
+    public final void testRecordCompleted_LateSend() {
+        final LoadRecorder recorder;
+        final LoadReport   report;
+
+        recorder = new LoadRecorder();
+        // Sent 5000 ns late, and answered 1000 ns after being sent
+        recorder.recordCompleted(0, 5000, 6000);
+
+        report = recorder.getReport(16);
+
+        Assertions.assertEquals(6000, report.getLatency()
+            .getMaxValue(), 10, "Latency");
+        Assertions.assertEquals(1000, report.getServiceTime()
+            .getMaxValue(), 10, "Service time");
+    }
+
+    @Test
+    @DisplayName("Starts again from zero after resetting")
+    public final void testReset() {
+        final LoadRecorder recorder;
+        final LoadReport   report;
+
+        recorder = new LoadRecorder();
+        recorder.recordCompleted(0, 0, 1000);
+        recorder.recordError();
+        recorder.reset();
+
+        report = recorder.getReport(16);
+
+        Assertions.assertEquals(0, report.getCompleted(), "Completed");
+        Assertions.assertEquals(0, report.getErrors(), "Errors");
+        Assertions.assertEquals(0, report.getLatency()
+            .getTotalCount(), "Latencies");
+    }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.replay;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.bernardomg.example.netty.proxy.capture.CaptureCodec;
+import com.bernardomg.example.netty.proxy.capture.CaptureFormat;
+import com.bernardomg.example.netty.proxy.replay.CapturedTraffic;
+import com.bernardomg.example.netty.proxy.replay.ReplaySession;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+@DisplayName("Captured traffic")
+public final class TestCapturedTraffic {
+
+    /**
+     * Default constructor.
+     */
+    public TestCapturedTraffic() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Measures the latency from each request to the first response after it")
+    public final void testRead_Latency(@TempDir final Path folder) throws IOException {
+        final Path            file;
+        final CapturedTraffic traffic;
+
+        file = write(folder, "latency.cap", event("a", Direction.REQUEST, "1", 1000L),
+            event("a", Direction.REQUEST, "2", 1005L), event("a", Direction.RESPONSE, "3", 1010L),
+            event("a", Direction.RESPONSE, "4", 1050L));
+
+        traffic = CapturedTraffic.read(List.of(file));
+
+        Assertions.assertEquals(1, traffic.getLatency()
+            .getTotalCount(), "Latencies");
+        Assertions.assertEquals(10_000_000, traffic.getLatency()
+            .getMaxValue(), 10_000, "Latency");
+    }
+
+    @Test
+    @DisplayName("Groups the requests by connection, in the order they started, across files")
+    public final void testRead_Sessions(@TempDir final Path folder) throws IOException {
+        final Path                first;
+        final Path                second;
+        final CapturedTraffic     traffic;
+        final List<ReplaySession> sessions;
+
+        first = write(folder, "first.cap", event("a", Direction.REQUEST, "a1", 1000L),
+            event("b", Direction.REQUEST, "b1", 1001L), event("a", Direction.RESPONSE, "r", 1002L));
+        second = write(folder, "second.cap", event("a", Direction.REQUEST, "a2", 1003L),
+            event("b", Direction.REQUEST, "b2", 1004L));
+
+        traffic = CapturedTraffic.read(List.of(first, second));
+        sessions = traffic.getSessions();
+
+        Assertions.assertEquals(2, sessions.size(), "Sessions");
+        Assertions.assertEquals("a", sessions.get(0)
+            .getConnectionId(), "First session");
+        Assertions.assertEquals(List.of("a1", "a2"), payloads(sessions.get(0)), "First requests");
+        Assertions.assertEquals("b", sessions.get(1)
+            .getConnectionId(), "Second session");
+        Assertions.assertEquals(List.of("b1", "b2"), payloads(sessions.get(1)), "Second requests");
+        Assertions.assertEquals(4, traffic.getRequests(), "Requests");
+        Assertions.assertEquals(1000L, traffic.getStart(), "Start");
+        Assertions.assertEquals(0, traffic.getSkipped(), "Skipped");
+    }
+
+    @Test
+    @DisplayName("Skips the connections with truncated requests")
+    public final void testRead_Truncated_Skipped(@TempDir final Path folder) throws IOException {
+        final Path            file;
+        final CapturedTraffic traffic;
+
+        file = write(folder, "truncated.cap", event("a", Direction.REQUEST, "whole", 1000L),
+            new ProxyEvent("b", Direction.REQUEST, 10, "part".getBytes(StandardCharsets.US_ASCII), 1001L),
+            event("b", Direction.REQUEST, "whole", 1002L));
+
+        traffic = CapturedTraffic.read(List.of(file));
+
+        Assertions.assertEquals(1, traffic.getSessions()
+            .size(), "Sessions");
+        Assertions.assertEquals("a", traffic.getSessions()
+            .get(0)
+            .getConnectionId(), "Session");
+        Assertions.assertEquals(1, traffic.getSkipped(), "Skipped");
+    }
+
+    /**
+     * Returns an event with an ASCII payload.
+     *
+     * @param id
+     *            connection id
+     * @param direction
+     *            message direction
+     * @param payload
+     *            message payload
+     * @param timestamp
+     *            message timestamp
+     * @return the event
+     */
+    private final ProxyEvent event(final String id, final Direction direction, final String payload,
+            final long timestamp) {
+        final byte[] bytes;
+
+        bytes = payload.getBytes(StandardCharsets.US_ASCII);
+        return new ProxyEvent(id, direction, bytes.length, bytes, timestamp);
+    }
+
+    /**
+     * Returns the payloads of the session requests, as strings.
+     *
+     * @param session
+     *            session with the requests
+     * @return the request payloads
+     */
+    private final List<String> payloads(final ReplaySession session) {
+        final String[] payloads;
+
+        payloads = session.getRequests()
+            .stream()
+            .map(r -> r.getPayloadAsString(StandardCharsets.US_ASCII))
+            .toArray(String[]::new);
+        return Arrays.asList(payloads);
+    }
+
+    /**
+     * Writes a framed capture file with the received events, fully captured.
+     *
+     * @param folder
+     *            folder for the file
+     * @param name
+     *            file name
+     * @param events
+     *            events to write
+     * @return the file written
+     * @throws IOException
+     *             if the file can't be written
+     */
+    private final Path write(final Path folder, final String name, final ProxyEvent... events) throws IOException {
+        final CaptureCodec codec;
+        final ByteBuffer   buffer;
+        final Path         file;
+
+        codec = CaptureFormat.FRAMED.createCodec(0);
+        buffer = ByteBuffer.allocate(4096);
+        codec.writeHeader(buffer, 0);
+        for (final ProxyEvent event : events) {
+            codec.writeRecord(buffer, event, event.getPayload().length);
+        }
+        buffer.flip();
+
+        file = folder.resolve(name);
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.limit()));
+
+        return file;
+    }
+
+}
@@ -0,0 +1,248 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.admission;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.metrics.NoOpProxyMetrics;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionController;
+import com.bernardomg.example.netty.proxy.server.admission.AdmissionSettings;
+import com.bernardomg.example.netty.proxy.server.admission.RejectReason;
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import reactor.netty.Connection;
+
+@DisplayName("Admission controller")
+public final class TestAdmissionController {
+
+    /**
+     * Default constructor.
+     */
+    public TestAdmissionController() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Shares the byte limit between the connections of a client, and not with other clients")
+    public final void testAdmit_ByteLimit_PerClient() {
+        final AdmissionController controller;
+        final Connection          first;
+        final Connection          second;
+        final Connection          other;
+
+        controller = new AdmissionController(AdmissionSettings.builder()
+            .clientByteRate(1024)
+            .build(), NoOpProxyMetrics.INSTANCE, new AtomicLong()::get);
+        first = connect("10.0.0.1");
+        second = connect("10.0.0.1");
+        other = connect("10.0.0.2");
+
+        controller.admit(first);
+        controller.admit(second);
+        controller.admit(other);
+
+        Assertions.assertNotNull(getReadLimit(first), "Read limit");
+        Assertions.assertSame(getReadLimit(first), getReadLimit(second), "Read limit for the same client");
+        Assertions.assertNotSame(getReadLimit(first), getReadLimit(other), "Read limit for another client");
+    }
+
+    @Test
+    @DisplayName("Limits the open connections of each client apart")
+    public final void testAdmit_ClientConnections_PerClient() {
+        final AdmissionController controller;
+        final Connection          first;
+
+        controller = new AdmissionController(AdmissionSettings.builder()
+            .maxClientConnections(1)
+            .build(), NoOpProxyMetrics.INSTANCE, new AtomicLong()::get);
+        first = connect("10.0.0.1");
+
+        Assertions.assertTrue(controller.admit(first), "First connection");
+        Assertions.assertFalse(controller.admit(connect("10.0.0.1")), "Second connection");
+        Assertions.assertTrue(controller.admit(connect("10.0.0.2")), "Connection from another client");
+        Assertions.assertEquals(1, controller.getRejected(RejectReason.CLIENT_CONNECTIONS), "Rejected");
+
+        first.channel()
+            .close();
+        Assertions.assertTrue(controller.admit(connect("10.0.0.1")), "Connection after closing the first");
+    }
+
+    @Test
+    @DisplayName("Limits the connection rate of each client apart, refilling with time")
+    public final void testAdmit_ClientRate_PerClient() {
+        final AtomicLong          clock;
+        final AdmissionController controller;
+
+        clock = new AtomicLong();
+        controller = new AdmissionController(AdmissionSettings.builder()
+            .clientConnectionRate(1)
+            .clientConnectionBurst(2)
+            .build(), NoOpProxyMetrics.INSTANCE, clock::get);
+
+        Assertions.assertTrue(controller.admit(connect("10.0.0.1")), "First connection");
+        Assertions.assertTrue(controller.admit(connect("10.0.0.1")), "Second connection");
+        Assertions.assertFalse(controller.admit(connect("10.0.0.1")), "Connection over the burst");
+        Assertions.assertTrue(controller.admit(connect("10.0.0.2")), "Connection from another client");
+        Assertions.assertEquals(1, controller.getRejected(RejectReason.CLIENT_RATE), "Rejected");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assertions.assertTrue(controller.admit(connect("10.0.0.1")), "Connection after refilling");
+        Assertions.assertFalse(controller.admit(connect("10.0.0.1")), "Connection after the refilled one");
+    }
+
+    @Test
+    @DisplayName("Limits the open connections of all the clients together")
+    public final void testAdmit_MaxConnections() {
+        final AdmissionController controller;
+        final Connection          first;
+
+        controller = new AdmissionController(AdmissionSettings.builder()
+            .maxConnections(2)
+            .build(), NoOpProxyMetrics.INSTANCE, new AtomicLong()::get);
+        first = connect("10.0.0.1");
+
+        Assertions.assertTrue(controller.admit(first), "First connection");
+        Assertions.assertTrue(controller.admit(connect("10.0.0.2")), "Second connection");
+        Assertions.assertFalse(controller.admit(connect("10.0.0.3")), "Connection over the maximum");
+        Assertions.assertEquals(2, controller.getActive(), "Active");
+        Assertions.assertEquals(1, controller.getRejected(RejectReason.CONNECTIONS), "Rejected");
+
+        first.channel()
+            .close();
+        Assertions.assertEquals(1, controller.getActive(), "Active after closing");
+        Assertions.assertTrue(controller.admit(connect("10.0.0.3")), "Connection after closing the first");
+    }
+
+    @Test
+    @DisplayName("Forgets the clients without connections once their buckets are refilled")
+    public final void testAdmit_Sweep() {
+        final AtomicLong          clock;
+        final AdmissionController controller;
+        final Connection          connection;
+
+        clock = new AtomicLong();
+        controller = new AdmissionController(AdmissionSettings.builder()
+            .clientConnectionRate(1)
+            .build(), NoOpProxyMetrics.INSTANCE, clock::get);
+        connection = connect("10.0.0.1");
+
+        controller.admit(connection);
+        connection.channel()
+            .close();
+        Assertions.assertEquals(1, controller.getClients(), "Clients before refilling");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        controller.admit(connect("10.0.0.2"));
+        Assertions.assertEquals(1, controller.getClients(), "Clients after sweeping");
+    }
+
+    @Test
+    @DisplayName("After updating the limits, the clients keep their open connections")
+    public final void testUpdate_ClientConnections_Kept() {
+        final AdmissionController controller;
+        final AdmissionController updated;
+
+        controller = new AdmissionController(AdmissionSettings.builder()
+            .maxClientConnections(1)
+            .build(), NoOpProxyMetrics.INSTANCE, new AtomicLong()::get);
+        controller.admit(connect("10.0.0.1"));
+
+        updated = controller.update(AdmissionSettings.builder()
+            .maxClientConnections(1)
+            .build());
+
+        Assertions.assertFalse(updated.admit(connect("10.0.0.1")), "Connection over the client maximum");
+        Assertions.assertEquals(1, updated.getRejected(RejectReason.CLIENT_CONNECTIONS), "Rejected");
+    }
+
+    @Test
+    @DisplayName("After updating the limits, the connections open on the previous controller count towards them")
+    public final void testUpdate_MaxConnections_CountsPrevious() {
+        final AdmissionController controller;
+        final AdmissionController updated;
+        final Connection          first;
+
+        controller = new AdmissionController(AdmissionSettings.builder()
+            .maxConnections(2)
+            .build(), NoOpProxyMetrics.INSTANCE, new AtomicLong()::get);
+        first = connect("10.0.0.1");
+        controller.admit(first);
+        controller.admit(connect("10.0.0.2"));
+
+        updated = controller.update(AdmissionSettings.builder()
+            .maxConnections(3)
+            .build());
+
+        Assertions.assertTrue(updated.admit(connect("10.0.0.3")), "Connection under the new maximum");
+        Assertions.assertFalse(updated.admit(connect("10.0.0.4")), "Connection over the new maximum");
+        Assertions.assertEquals(2, controller.getActive(), "Active on the previous controller");
+        Assertions.assertEquals(1, updated.getActive(), "Active on the updated controller");
+
+        first.channel()
+            .close();
+        Assertions.assertEquals(1, controller.getActive(), "Active on the previous controller after closing");
+        Assertions.assertTrue(updated.admit(connect("10.0.0.4")), "Connection after closing the first");
+    }
+
+    /**
+     * Returns a connection from the received client address.
+     *
+     * @param address
+     *            client IP address
+     * @return a connection from the client
+     */
+    private final Connection connect(final String address) {
+        final EmbeddedChannel channel;
+
+        channel = new EmbeddedChannel();
+        channel.attr(ConnectionAddresses.KEY)
+            .set(new ConnectionAddresses(new InetSocketAddress("10.0.0.100", 8080),
+                new InetSocketAddress(address, 40000)));
+
+        return Connection.from(channel);
+    }
+
+    /**
+     * Returns the read limit set into the connection.
+     *
+     * @param connection
+     *            connection to check
+     * @return the read limit of the connection
+     */
+    private final TokenBucket getReadLimit(final Connection connection) {
+        return connection.channel()
+            .attr(TokenBucket.READ_LIMIT)
+            .get();
+    }
+
+}
@@ -0,0 +1,228 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.backpressure;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.BackpressureStats;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.BackpressureWriter;
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.GlobalBufferLimit;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+
+@DisplayName("Backpressure writer")
+public final class TestBackpressureWriter {
+
+    /**
+     * Messages queued in the source. More than the writer requests at once, so some stay queued while paused.
+     */
+    private static final int MESSAGES    = 200;
+
+    /**
+     * Messages written before the target becomes unwritable. Not a multiple of the refill, so the pauses start at
+     * different points of each batch.
+     */
+    private static final int WRITE_LIMIT = 20;
+
+    /**
+     * Default constructor.
+     */
+    public TestBackpressureWriter() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Writes all the queued messages once the target is writable again")
+    public final void testWrite_QueuedWhilePaused_AllWritten() {
+        final EmbeddedChannel     source;
+        final EmbeddedChannel     target;
+        final BackpressureStats   stats;
+        final Sinks.Many<ByteBuf> sink;
+        final BackpressureWriter  writer;
+        final int                 written;
+
+        source = new EmbeddedChannel();
+        target = new EmbeddedChannel();
+        stats = new BackpressureStats();
+        writer = new BackpressureWriter(Connection.from(source), Connection.from(target), Direction.REQUEST,
+            new GlobalBufferLimit(0), List.of(), stats);
+
+        // Queues the messages, which are delivered while requesting, as Reactor Netty does
+        sink = Sinks.many()
+            .unicast()
+            .onBackpressureBuffer();
+        for (int i = 0; i < MESSAGES; i++) {
+            sink.tryEmitNext(Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+        }
+
+        setWritable(target, false);
+        sink.asFlux()
+            .subscribe(writer);
+        written = countWritten(target);
+        Assertions.assertTrue(written < MESSAGES, "Written into an unwritable target");
+
+        setWritable(target, true);
+        Assertions.assertEquals(MESSAGES, countWritten(target) + written, "Written after resuming");
+        Assertions.assertEquals(1, stats.getPauses(Direction.REQUEST), "Pauses");
+
+        writer.dispose();
+        source.finishAndReleaseAll();
+        target.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("Keeps requesting when the target becomes unwritable again while resuming")
+    public final void testWrite_UnwritableWhileResuming_AllWritten() {
+        final EmbeddedChannel     source;
+        final EmbeddedChannel     target;
+        final Sinks.Many<ByteBuf> sink;
+        final BackpressureWriter  writer;
+        int                       written;
+
+        source = new EmbeddedChannel();
+        target = new EmbeddedChannel(new WriteLimitHandler(WRITE_LIMIT));
+        writer = new BackpressureWriter(Connection.from(source), Connection.from(target), Direction.REQUEST,
+            new GlobalBufferLimit(0), List.of(), new BackpressureStats());
+
+        sink = Sinks.many()
+            .unicast()
+            .onBackpressureBuffer();
+        for (int i = 0; i < MESSAGES; i++) {
+            sink.tryEmitNext(Unpooled.wrappedBuffer(new byte[] { (byte) i }));
+        }
+
+        sink.asFlux()
+            .subscribe(writer);
+
+        // Each resume receives the queued messages while requesting, and pauses again
+        written = countWritten(target);
+        for (int i = 0; (i < MESSAGES) && (written < MESSAGES); i++) {
+            setWritable(target, true);
+            written += countWritten(target);
+        }
+
+        Assertions.assertEquals(MESSAGES, written, "Written after resuming");
+
+        writer.dispose();
+        source.finishAndReleaseAll();
+        target.finishAndReleaseAll();
+    }
+
+    /**
+     * Takes the messages written into the target, and counts them.
+     *
+     * @param target
+     *            target channel
+     * @return the number of messages written since the last call
+     */
+    private final int countWritten(final EmbeddedChannel target) {
+        ByteBuf message;
+        int     count;
+
+        count = 0;
+        message = target.readOutbound();
+        while (message != null) {
+            if (message.isReadable()) {
+                count++;
+            }
+            message.release();
+            message = target.readOutbound();
+        }
+
+        return count;
+    }
+
+    /**
+     * Changes the channel writability. The embedded channel writes everything at once, so it is always writable unless
+     * told otherwise.
+     *
+     * @param channel
+     *            channel to change
+     * @param writable
+     *            writability flag
+     */
+    private final void setWritable(final EmbeddedChannel channel, final boolean writable) {
+        channel.unsafe()
+            .outboundBuffer()
+            .setUserDefinedWritability(1, writable);
+        channel.runPendingTasks();
+    }
+
+    /**
+     * Makes the channel unwritable after a number of writes.
+     */
+    private static final class WriteLimitHandler extends ChannelOutboundHandlerAdapter {
+
+        /**
+         * Writes since the channel was made unwritable.
+         */
+        private int count;
+
+        /**
+         * Writes before making the channel unwritable.
+         */
+        private final int limit;
+
+        /**
+         * Constructs a handler with the received limit.
+         *
+         * @param lmt
+         *            writes before making the channel unwritable
+         */
+        public WriteLimitHandler(final int lmt) {
+            super();
+
+            limit = lmt;
+        }
+
+        @Override
+        public final void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise)
+                throws Exception {
+            ctx.write(msg, promise);
+            count++;
+            if (count >= limit) {
+                count = 0;
+                ctx.channel()
+                    .unsafe()
+                    .outboundBuffer()
+                    .setUserDefinedWritability(1, false);
+            }
+        }
+
+    }
+
+}
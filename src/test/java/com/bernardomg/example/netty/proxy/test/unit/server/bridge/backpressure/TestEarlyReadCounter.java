@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.backpressure;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.EarlyReadCounter;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.EmptyByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import reactor.netty.NettyPipeline;
+
+@DisplayName("Early read counter")
+public final class TestEarlyReadCounter {
+
+    /**
+     * Default constructor.
+     */
+    public TestEarlyReadCounter() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Is added after the TLS handler, so it counts the decrypted messages")
+    public final void testInstall_Tls_AfterTlsHandler() {
+        final EmbeddedChannel channel;
+        final List<String>    names;
+
+        channel = new EmbeddedChannel();
+        channel.pipeline()
+            .addLast(NettyPipeline.SslHandler, new ChannelInboundHandlerAdapter());
+        channel.pipeline()
+            .addFirst("first", new ChannelInboundHandlerAdapter());
+
+        EarlyReadCounter.install(channel);
+        names = channel.pipeline()
+            .names();
+
+        Assertions.assertEquals(names.indexOf(NettyPipeline.SslHandler) + 1, names.indexOf("proxy.earlyReads"),
+            "Counter position");
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("Counts the messages read until removed, and passes them on")
+    public final void testRemove_Counted() {
+        final EmbeddedChannel channel;
+
+        channel = new EmbeddedChannel();
+        EarlyReadCounter.install(channel);
+
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 1 }));
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 2 }));
+
+        Assertions.assertEquals(2, EarlyReadCounter.remove(channel), "Count");
+        Assertions.assertEquals(2, channel.inboundMessages()
+            .size(), "Messages passed on");
+
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 3 }));
+        Assertions.assertEquals(0, EarlyReadCounter.remove(channel), "Count after removing");
+
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    @DisplayName("Doesn't count the empty buffers, which Reactor Netty discards")
+    public final void testRemove_EmptyBuffers_NotCounted() {
+        final EmbeddedChannel channel;
+
+        channel = new EmbeddedChannel();
+        EarlyReadCounter.install(channel);
+
+        channel.writeInbound(Unpooled.EMPTY_BUFFER);
+        channel.writeInbound(new EmptyByteBuf(ByteBufAllocator.DEFAULT));
+        channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 1 }));
+
+        Assertions.assertEquals(1, EarlyReadCounter.remove(channel), "Count");
+
+        channel.finishAndReleaseAll();
+    }
+
+}
@@ -0,0 +1,132 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.backpressure;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.backpressure.GlobalBufferLimit;
+
+@DisplayName("Global buffer limit")
+public final class TestGlobalBufferLimit {
+
+    /**
+     * Default constructor.
+     */
+    public TestGlobalBufferLimit() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Keeps the pending bytes balanced when acquired and released from several threads")
+    public final void testAcquire_Concurrent_Balanced() {
+        final GlobalBufferLimit limit;
+
+        limit = new GlobalBufferLimit(1000);
+
+        IntStream.range(0, 10_000)
+            .parallel()
+            .forEach(i -> {
+                limit.acquire(i % 100);
+                limit.release(i % 100);
+            });
+
+        Assertions.assertEquals(0, limit.getPendingBytes(), "Pending bytes");
+    }
+
+    @Test
+    @DisplayName("Runs a waiting writer right away if the bytes were released before it registered")
+    public final void testAwait_AlreadyReleased_Notified() {
+        final GlobalBufferLimit limit;
+        final AtomicInteger     notified;
+
+        limit = new GlobalBufferLimit(100);
+        notified = new AtomicInteger();
+
+        limit.acquire(100);
+        limit.release(60);
+        limit.await(notified::incrementAndGet);
+
+        Assertions.assertEquals(1, notified.get(), "Notifications");
+    }
+
+    @Test
+    @DisplayName("Notifies the waiting writers once, when the pending bytes go down to half the limit")
+    public final void testAwait_Half_NotifiedOnce() {
+        final GlobalBufferLimit limit;
+        final AtomicInteger     notified;
+
+        limit = new GlobalBufferLimit(100);
+        notified = new AtomicInteger();
+
+        limit.acquire(100);
+        limit.await(notified::incrementAndGet);
+        limit.await(notified::incrementAndGet);
+
+        limit.release(49);
+        Assertions.assertEquals(0, notified.get(), "Notifications over half the limit");
+
+        limit.release(1);
+        Assertions.assertEquals(2, notified.get(), "Notifications at half the limit");
+
+        limit.acquire(10);
+        limit.release(10);
+        Assertions.assertEquals(2, notified.get(), "Notifications after releasing again");
+    }
+
+    @Test
+    @DisplayName("Is exhausted once the pending bytes reach the limit")
+    public final void testIsExhausted() {
+        final GlobalBufferLimit limit;
+
+        limit = new GlobalBufferLimit(100);
+
+        limit.acquire(99);
+        Assertions.assertFalse(limit.isExhausted(), "Exhausted below the limit");
+
+        limit.acquire(1);
+        Assertions.assertTrue(limit.isExhausted(), "Exhausted at the limit");
+
+        limit.release(1);
+        Assertions.assertFalse(limit.isExhausted(), "Exhausted after releasing");
+    }
+
+    @Test
+    @DisplayName("Is never exhausted without a limit")
+    public final void testIsExhausted_NoLimit() {
+        final GlobalBufferLimit limit;
+
+        limit = new GlobalBufferLimit(0);
+
+        limit.acquire(Integer.MAX_VALUE);
+
+        Assertions.assertFalse(limit.isExhausted(), "Exhausted");
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.exchange;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.CorrelationMode;
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.CorrelationSettings;
+
+@DisplayName("Correlation settings")
+public final class TestCorrelationSettings {
+
+    /**
+     * Default constructor.
+     */
+    public TestCorrelationSettings() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects an id field which doesn't fit the id mode")
+    public final void testValidate_Id_InvalidField_Exception() {
+        final CorrelationSettings settings;
+
+        settings = settings(CorrelationMode.ID, 9, 16);
+
+        Assertions.assertThrows(IllegalArgumentException.class, settings::validate);
+    }
+
+    @Test
+    @DisplayName("Ignores the fields not used by the mode")
+    public final void testValidate_None_InvalidFields_Valid() {
+        final CorrelationSettings settings;
+
+        settings = settings(CorrelationMode.NONE, 0, 0);
+
+        Assertions.assertDoesNotThrow(settings::validate);
+    }
+
+    @Test
+    @DisplayName("Rejects a maximum which doesn't fit the pipelined mode")
+    public final void testValidate_Pipelined_NoPending_Exception() {
+        final CorrelationSettings settings;
+
+        settings = settings(CorrelationMode.PIPELINED, 2, 0);
+
+        Assertions.assertThrows(IllegalArgumentException.class, settings::validate);
+    }
+
+    /**
+     * Returns the settings for the received mode, with an id at the start of the frames.
+     *
+     * @param mode
+     *            correlation mode
+     * @param idBytes
+     *            size of the id field
+     * @param maxPending
+     *            maximum number of unanswered requests
+     * @return the correlation settings
+     */
+    private final CorrelationSettings settings(final CorrelationMode mode, final int idBytes, final int maxPending) {
+        return CorrelationSettings.builder()
+            .mode(mode)
+            .idBytes(idBytes)
+            .maxPending(maxPending)
+            .route("")
+            .timeout(Duration.ZERO)
+            .build();
+    }
+
+}
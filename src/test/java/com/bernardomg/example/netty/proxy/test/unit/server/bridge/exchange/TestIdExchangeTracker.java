@@ -0,0 +1,272 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.exchange;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.ExchangeTracker;
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.IdExchangeTracker;
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+@DisplayName("Id exchange tracker")
+public final class TestIdExchangeTracker {
+
+    /**
+     * Default constructor.
+     */
+    public TestIdExchangeTracker() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects invalid id fields and maximums")
+    public final void testConstructor_Invalid_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IdExchangeTracker(-1, 2, 4, Duration.ZERO),
+            "Negative offset");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IdExchangeTracker(0, 0, 4, Duration.ZERO),
+            "No id bytes");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IdExchangeTracker(0, 9, 4, Duration.ZERO),
+            "Too many id bytes");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IdExchangeTracker(0, 2, 0, Duration.ZERO),
+            "No pending exchanges");
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new IdExchangeTracker(0, 2, (1 << 29) + 1, Duration.ZERO), "Too many pending exchanges");
+    }
+
+    @Test
+    @DisplayName("Evicts the expired requests once there are too many, to track a new one")
+    public final void testOnRequest_FullWithExpired_Evicted() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new IdExchangeTracker(1, 2, 2, Duration.ofMillis(100), clock::get);
+
+        tracker.onRequest(frame(1), FramePart.WHOLE);
+        clock.addAndGet(millis(50));
+        tracker.onRequest(frame(2), FramePart.WHOLE);
+        clock.addAndGet(millis(60));
+        tracker.onRequest(frame(3), FramePart.WHOLE);
+        clock.addAndGet(millis(10));
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(1), FramePart.WHOLE),
+            "Evicted latency");
+        Assertions.assertEquals(millis(70), tracker.onResponse(frame(2), FramePart.WHOLE), "Kept latency");
+        Assertions.assertEquals(millis(10), tracker.onResponse(frame(3), FramePart.WHOLE), "New latency");
+    }
+
+    @Test
+    @DisplayName("Doesn't track new requests once there are too many, and none expired")
+    public final void testOnRequest_FullWithoutExpired_NotTracked() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new IdExchangeTracker(1, 2, 2, Duration.ofMillis(100), clock::get);
+
+        tracker.onRequest(frame(1), FramePart.WHOLE);
+        tracker.onRequest(frame(2), FramePart.WHOLE);
+        tracker.onRequest(frame(3), FramePart.WHOLE);
+        clock.addAndGet(millis(10));
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(3), FramePart.WHOLE),
+            "Untracked latency");
+        Assertions.assertEquals(millis(10), tracker.onResponse(frame(1), FramePart.WHOLE), "Tracked latency");
+    }
+
+    @Test
+    @DisplayName("Doesn't track frames too short for the id")
+    public final void testOnRequest_Short_NotTracked() {
+        final ExchangeTracker tracker;
+
+        tracker = new IdExchangeTracker(1, 2, 4, Duration.ZERO, () -> 0);
+
+        tracker.onRequest(Unpooled.wrappedBuffer(new byte[] { 0, 0 }), FramePart.WHOLE);
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY,
+            tracker.onResponse(Unpooled.wrappedBuffer(new byte[] { 0, 0 }), FramePart.WHOLE), "Latency");
+    }
+
+    @Test
+    @DisplayName("Doesn't measure a response which came after the timeout")
+    public final void testOnResponse_Late_NotMeasured() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new IdExchangeTracker(1, 2, 4, Duration.ofMillis(100), clock::get);
+
+        tracker.onRequest(frame(1), FramePart.WHOLE);
+        tracker.onRequest(frame(2), FramePart.WHOLE);
+        clock.addAndGet(millis(101));
+        tracker.onRequest(frame(3), FramePart.WHOLE);
+        clock.addAndGet(millis(10));
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(1), FramePart.WHOLE), "Late latency");
+        Assertions.assertEquals(millis(10), tracker.onResponse(frame(3), FramePart.WHOLE), "Latency after it");
+    }
+
+    @Test
+    @DisplayName("Pairs all the responses when as many requests as the maximum are waiting")
+    public final void testOnResponse_Many_AllPaired() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+        final int             pending;
+
+        clock = new AtomicLong();
+        pending = 1000;
+        tracker = new IdExchangeTracker(1, 2, pending, Duration.ofSeconds(10), clock::get);
+
+        for (int id = 0; id < pending; id++) {
+            tracker.onRequest(frame(id), FramePart.WHOLE);
+            clock.addAndGet(millis(1));
+        }
+
+        for (int id = 1; id < pending; id += 2) {
+            Assertions.assertEquals(millis(pending - id), tracker.onResponse(frame(id), FramePart.WHOLE),
+                "Odd latency");
+        }
+        for (int id = 0; id < pending; id += 2) {
+            Assertions.assertEquals(millis(pending - id), tracker.onResponse(frame(id), FramePart.WHOLE),
+                "Even latency");
+        }
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(0), FramePart.WHOLE),
+            "Repeated latency");
+    }
+
+    @Test
+    @DisplayName("Pairs the responses with the requests by their id, in any order")
+    public final void testOnResponse_OutOfOrder() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new IdExchangeTracker(1, 2, 4, Duration.ZERO, clock::get);
+
+        tracker.onRequest(frame(1), FramePart.WHOLE);
+        clock.addAndGet(millis(10));
+        tracker.onRequest(frame(0x1234), FramePart.WHOLE);
+        clock.addAndGet(millis(5));
+
+        Assertions.assertEquals(millis(5), tracker.onResponse(frame(0x1234), FramePart.WHOLE), "Second latency");
+        clock.addAndGet(millis(20));
+        Assertions.assertEquals(millis(35), tracker.onResponse(frame(1), FramePart.WHOLE), "First latency");
+    }
+
+    @Test
+    @DisplayName("Reads the id from the first piece, and completes the exchange at the last one")
+    public final void testOnResponse_Pieces() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new IdExchangeTracker(1, 2, 4, Duration.ZERO, clock::get);
+
+        tracker.onRequest(frame(7), FramePart.START);
+        tracker.onRequest(Unpooled.EMPTY_BUFFER, FramePart.END);
+        clock.addAndGet(millis(5));
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(7), FramePart.START),
+            "Latency at the start");
+        Assertions.assertEquals(millis(5), tracker.onResponse(Unpooled.EMPTY_BUFFER, FramePart.END),
+            "Latency at the end");
+    }
+
+    @Test
+    @DisplayName("Stops once the traffic doesn't follow the framing")
+    public final void testOnResponse_Unframed_Stopped() {
+        final ExchangeTracker tracker;
+
+        tracker = new IdExchangeTracker(1, 2, 4, Duration.ZERO, () -> 0);
+
+        tracker.onRequest(frame(1), FramePart.WHOLE);
+        tracker.onResponse(Unpooled.EMPTY_BUFFER, FramePart.UNFRAMED);
+        tracker.onRequest(frame(2), FramePart.WHOLE);
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(1), FramePart.WHOLE),
+            "Latency before stopping");
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(2), FramePart.WHOLE),
+            "Latency after stopping");
+    }
+
+    @Test
+    @DisplayName("Ignores a response without a request, and keeps pairing the rest")
+    public final void testOnResponse_Unmatched_Ignored() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new IdExchangeTracker(1, 2, 4, Duration.ZERO, clock::get);
+
+        tracker.onRequest(frame(1), FramePart.WHOLE);
+        clock.addAndGet(millis(5));
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(9), FramePart.WHOLE),
+            "Unmatched latency");
+        Assertions.assertEquals(millis(5), tracker.onResponse(frame(1), FramePart.WHOLE), "Matched latency");
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(frame(1), FramePart.WHOLE),
+            "Repeated latency");
+    }
+
+    /**
+     * Returns a frame with a type byte, followed by a 2 byte id and a body.
+     *
+     * @param id
+     *            frame id
+     * @return the frame
+     */
+    private final ByteBuf frame(final int id) {
+        final ByteBuf frame;
+
+        frame = Unpooled.buffer();
+        frame.writeByte(1);
+        frame.writeShort(id);
+        frame.writeByte(0);
+
+        return frame;
+    }
+
+    /**
+     * Returns the milliseconds in nanoseconds.
+     *
+     * @param millis
+     *            milliseconds
+     * @return the nanoseconds
+     */
+    private final long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+}
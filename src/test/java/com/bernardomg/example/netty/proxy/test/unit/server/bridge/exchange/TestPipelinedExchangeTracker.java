@@ -0,0 +1,209 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.exchange;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.ExchangeTracker;
+import com.bernardomg.example.netty.proxy.server.bridge.exchange.PipelinedExchangeTracker;
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+@DisplayName("Pipelined exchange tracker")
+public final class TestPipelinedExchangeTracker {
+
+    /**
+     * Empty frame. The pipelined tracker doesn't read the frames.
+     */
+    private static final ByteBuf FRAME = Unpooled.EMPTY_BUFFER;
+
+    /**
+     * Default constructor.
+     */
+    public TestPipelinedExchangeTracker() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects a maximum which is not positive")
+    public final void testConstructor_InvalidMax_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new PipelinedExchangeTracker(0, Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("Stops once a request comes while an older one is unanswered after the timeout")
+    public final void testOnRequest_Timeout_Stopped() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new PipelinedExchangeTracker(4, Duration.ofMillis(100), clock::get);
+
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        clock.addAndGet(millis(101));
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.WHOLE), "Latency");
+    }
+
+    @Test
+    @DisplayName("Stops once the unanswered requests don't fit")
+    public final void testOnResponse_Full_Stopped() {
+        final ExchangeTracker tracker;
+
+        tracker = new PipelinedExchangeTracker(2, Duration.ZERO, () -> 0);
+
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.WHOLE), "Latency");
+    }
+
+    @Test
+    @DisplayName("Pairs the responses with the requests by their order")
+    public final void testOnResponse_InOrder() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new PipelinedExchangeTracker(4, Duration.ZERO, clock::get);
+
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        clock.addAndGet(millis(10));
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        clock.addAndGet(millis(5));
+
+        Assertions.assertEquals(millis(15), tracker.onResponse(FRAME, FramePart.WHOLE), "First latency");
+        clock.addAndGet(millis(20));
+        Assertions.assertEquals(millis(25), tracker.onResponse(FRAME, FramePart.WHOLE), "Second latency");
+    }
+
+    @Test
+    @DisplayName("Completes the exchanges at the end of the frames")
+    public final void testOnResponse_Pieces() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new PipelinedExchangeTracker(4, Duration.ZERO, clock::get);
+
+        tracker.onRequest(FRAME, FramePart.START);
+        clock.addAndGet(millis(10));
+        tracker.onRequest(FRAME, FramePart.END);
+        clock.addAndGet(millis(5));
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.START),
+            "Latency at the start");
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.CONTINUATION),
+            "Latency in the middle");
+        Assertions.assertEquals(millis(5), tracker.onResponse(FRAME, FramePart.END), "Latency at the end");
+    }
+
+    @Test
+    @DisplayName("Stops once a response comes after the timeout")
+    public final void testOnResponse_Timeout_Stopped() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new PipelinedExchangeTracker(4, Duration.ofMillis(100), clock::get);
+
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        clock.addAndGet(millis(101));
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.WHOLE), "Late latency");
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.WHOLE),
+            "Latency after stopping");
+    }
+
+    @Test
+    @DisplayName("Stops once the traffic doesn't follow the framing")
+    public final void testOnResponse_Unframed_Stopped() {
+        final ExchangeTracker tracker;
+
+        tracker = new PipelinedExchangeTracker(4, Duration.ZERO, () -> 0);
+
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        tracker.onRequest(FRAME, FramePart.UNFRAMED);
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.WHOLE), "Latency");
+    }
+
+    @Test
+    @DisplayName("Stops once a response comes without a request")
+    public final void testOnResponse_Unmatched_Stopped() {
+        final ExchangeTracker tracker;
+
+        tracker = new PipelinedExchangeTracker(4, Duration.ZERO, () -> 0);
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.WHOLE), "Greeting");
+
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+
+        Assertions.assertEquals(ProxyEvent.NO_LATENCY, tracker.onResponse(FRAME, FramePart.WHOLE),
+            "Latency after stopping");
+    }
+
+    @Test
+    @DisplayName("Keeps going while the responses come before the timeout")
+    public final void testOnResponse_WithinTimeout() {
+        final AtomicLong      clock;
+        final ExchangeTracker tracker;
+
+        clock = new AtomicLong();
+        tracker = new PipelinedExchangeTracker(4, Duration.ofMillis(100), clock::get);
+
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+        clock.addAndGet(millis(100));
+        tracker.onRequest(FRAME, FramePart.WHOLE);
+
+        Assertions.assertEquals(millis(100), tracker.onResponse(FRAME, FramePart.WHOLE), "First latency");
+        Assertions.assertEquals(0, tracker.onResponse(FRAME, FramePart.WHOLE), "Second latency");
+    }
+
+    /**
+     * Returns the milliseconds in nanoseconds.
+     *
+     * @param millis
+     *            milliseconds
+     * @return the nanoseconds
+     */
+    private final long millis(final long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.flush;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.flush.CoalescingFlushHandler;
+import com.bernardomg.example.netty.proxy.server.bridge.flush.FlushMode;
+import com.bernardomg.example.netty.proxy.server.bridge.flush.FlushSettings;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+@DisplayName("Coalescing flush handler")
+public final class TestCoalescingFlushHandler {
+
+    /**
+     * Channel under test.
+     */
+    private EmbeddedChannel channel;
+
+    /**
+     * Default constructor.
+     */
+    public TestCoalescingFlushHandler() {
+        super();
+    }
+
+    @AfterEach
+    public final void releaseChannel() {
+        if (channel != null) {
+            channel.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    @DisplayName("Flushes once the pending bytes reach the threshold")
+    public final void testFlush_BytesThreshold_Flushed() {
+        channel = createChannel(10, 0, Duration.ofSeconds(10));
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[6]));
+        Assertions.assertEquals(0, channel.outboundMessages()
+            .size(), "Flushed below the threshold");
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[6]));
+        Assertions.assertEquals(2, channel.outboundMessages()
+            .size(), "Flushed at the threshold");
+    }
+
+    @Test
+    @DisplayName("Flushes the pending messages when closing")
+    public final void testFlush_Close_Flushed() {
+        channel = createChannel(0, 10, Duration.ofSeconds(10));
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        channel.close();
+
+        Assertions.assertEquals(1, channel.outboundMessages()
+            .size());
+    }
+
+    @Test
+    @DisplayName("Flushes after the maximum delay, when below the thresholds")
+    public final void testFlush_Delay_Flushed() {
+        channel = createChannel(0, 10, Duration.ofMillis(5));
+        channel.freezeTime();
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        channel.runScheduledPendingTasks();
+        Assertions.assertEquals(0, channel.outboundMessages()
+            .size(), "Flushed before the delay");
+
+        channel.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+        Assertions.assertEquals(1, channel.outboundMessages()
+            .size(), "Flushed after the delay");
+    }
+
+    @Test
+    @DisplayName("Flushes once the pending messages reach the threshold")
+    public final void testFlush_MessagesThreshold_Flushed() {
+        channel = createChannel(0, 3, Duration.ofSeconds(10));
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        Assertions.assertEquals(0, channel.outboundMessages()
+            .size(), "Flushed below the threshold");
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        Assertions.assertEquals(3, channel.outboundMessages()
+            .size(), "Flushed at the threshold");
+    }
+
+    @Test
+    @DisplayName("Flushes every write without a delay")
+    public final void testFlush_NoDelay_Flushed() {
+        channel = createChannel(100, 100, Duration.ZERO);
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+
+        Assertions.assertEquals(1, channel.outboundMessages()
+            .size());
+    }
+
+    @Test
+    @DisplayName("Flushes the pending messages when the channel becomes unwritable")
+    public final void testFlush_Unwritable_Flushed() {
+        channel = createChannel(0, 10, Duration.ofSeconds(10));
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        channel.unsafe()
+            .outboundBuffer()
+            .setUserDefinedWritability(1, false);
+        channel.runPendingTasks();
+
+        Assertions.assertEquals(1, channel.outboundMessages()
+            .size());
+    }
+
+    /**
+     * Returns a channel with a coalescing handler.
+     *
+     * @param maxBytes
+     *            maximum pending bytes
+     * @param maxMessages
+     *            maximum pending messages
+     * @param maxDelay
+     *            maximum delay
+     * @return a channel with a coalescing handler
+     */
+    private final EmbeddedChannel createChannel(final int maxBytes, final int maxMessages, final Duration maxDelay) {
+        final FlushSettings settings;
+
+        settings = FlushSettings.builder()
+            .mode(FlushMode.THRESHOLD)
+            .maxBytes(maxBytes)
+            .maxMessages(maxMessages)
+            .maxDelay(maxDelay)
+            .build();
+
+        return new EmbeddedChannel(new CoalescingFlushHandler(settings));
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.framing;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.framing.DelimiterFramer;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.Framer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+@DisplayName("Delimiter framer")
+public final class TestDelimiterFramer {
+
+    /**
+     * Default constructor.
+     */
+    public TestDelimiterFramer() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects an empty delimiter")
+    public final void testConstructor_Empty_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DelimiterFramer(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("Returns the length up to the end of the first delimiter")
+    public final void testFrameLength() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new DelimiterFramer(DelimiterFramer.parse("\\r\\n"));
+        buffer = ascii("first\r\nsecond\r\n");
+
+        Assertions.assertEquals(7, framer.frameLength(buffer), "Frame length");
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Looks for the delimiter from the reader index")
+    public final void testFrameLength_FromReaderIndex() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new DelimiterFramer(DelimiterFramer.parse("\\n"));
+        buffer = ascii("first\nsecond\n");
+        buffer.skipBytes(6);
+
+        Assertions.assertEquals(7, framer.frameLength(buffer), "Frame length");
+        Assertions.assertEquals(6, buffer.readerIndex(), "Reader index");
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Skips partial matches of a multi byte delimiter")
+    public final void testFrameLength_PartialMatch() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new DelimiterFramer(DelimiterFramer.parse("\\r\\n"));
+        buffer = ascii("a\rb\r\r\n");
+
+        Assertions.assertEquals(6, framer.frameLength(buffer), "Frame length");
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Returns an unknown length if only the start of the delimiter was read")
+    public final void testFrameLength_StartOfDelimiter_Unknown() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new DelimiterFramer(DelimiterFramer.parse("\\r\\n"));
+        buffer = ascii("line\r");
+
+        Assertions.assertEquals(Framer.UNKNOWN, framer.frameLength(buffer), "Frame length");
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Returns an unknown length without a delimiter")
+    public final void testFrameLength_WithoutDelimiter_Unknown() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new DelimiterFramer(DelimiterFramer.parse("\\n"));
+        buffer = ascii("no line end");
+
+        Assertions.assertEquals(Framer.UNKNOWN, framer.frameLength(buffer), "Frame length");
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Parses the escapes in a delimiter")
+    public final void testParse_Escapes() {
+        Assertions.assertArrayEquals(new byte[] { '\r', '\n', '\t', '\\', 0x00, (byte) 0xFF, '|' },
+            DelimiterFramer.parse("\\r\\n\\t\\\\\\x00\\xff|"));
+    }
+
+    @Test
+    @DisplayName("Rejects invalid escapes and empty delimiters")
+    public final void testParse_Invalid_Rejected() {
+        for (final String delimiter : new String[] { "", "\\q", "\\xZZ", "\\x1" }) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> DelimiterFramer.parse(delimiter),
+                delimiter);
+        }
+    }
+
+    /**
+     * Returns an ASCII buffer.
+     *
+     * @param text
+     *            buffer contents
+     * @return the buffer
+     */
+    private final ByteBuf ascii(final String text) {
+        return Unpooled.copiedBuffer(text, StandardCharsets.US_ASCII);
+    }
+
+}
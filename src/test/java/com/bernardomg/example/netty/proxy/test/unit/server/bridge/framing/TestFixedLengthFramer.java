@@ -0,0 +1,74 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.framing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FixedLengthFramer;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.Framer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+@DisplayName("Fixed length framer")
+public final class TestFixedLengthFramer {
+
+    /**
+     * Default constructor.
+     */
+    public TestFixedLengthFramer() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects a size which is not positive")
+    public final void testConstructor_NotPositive_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FixedLengthFramer(0), "Zero");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FixedLengthFramer(-1), "Negative");
+    }
+
+    @Test
+    @DisplayName("Returns the size, whatever the bytes read")
+    public final void testFrameLength() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new FixedLengthFramer(16);
+        buffer = Unpooled.buffer();
+
+        Assertions.assertEquals(16, framer.frameLength(buffer), "Frame length without bytes");
+
+        buffer.writeLong(-1);
+        buffer.writeLong(-1);
+        buffer.writeLong(-1);
+        Assertions.assertEquals(16, framer.frameLength(buffer), "Frame length with more bytes");
+        Assertions.assertEquals(0, buffer.readerIndex(), "Reader index");
+
+        buffer.release();
+    }
+
+}
@@ -0,0 +1,313 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.framing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.framing.DelimiterFramer;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.FrameAssembler;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.Framer;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.LengthFieldFramer;
+import com.bernardomg.example.netty.proxy.server.event.FramePart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+@DisplayName("Frame assembler")
+public final class TestFrameAssembler {
+
+    /**
+     * Default constructor.
+     */
+    public TestFrameAssembler() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Finds a delimiter split between two reads")
+    public final void testOnMessage_DelimiterStraddling() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new DelimiterFramer(DelimiterFramer.parse("\\r\\n")), 1024, frames);
+
+        send(assembler, ascii("first\r"));
+        send(assembler, ascii("\nsecond\r"));
+        send(assembler, ascii("\n"));
+
+        Assertions.assertEquals(List.of("WHOLE:first\r\n", "WHOLE:second\r\n"), frames, "Frames");
+    }
+
+    @Test
+    @DisplayName("Sends the bytes as read once they are not valid frames, and from then on")
+    public final void testOnMessage_Invalid_Unframed() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+        final ByteBuf        invalid;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new LengthFieldFramer(0, 8, 0), 1024, frames);
+        invalid = Unpooled.buffer();
+        invalid.writeLong(-1);
+        invalid.writeCharSequence("ab", StandardCharsets.US_ASCII);
+
+        send(assembler, lengthFrame("ok"));
+        send(assembler, invalid);
+        send(assembler, lengthFrame("late"));
+
+        Assertions.assertEquals(3, frames.size(), "Frames");
+        Assertions.assertEquals("WHOLE:ok", frames.get(0), "Valid frame");
+        Assertions.assertTrue(frames.get(1)
+            .startsWith("UNFRAMED:"), "Invalid bytes");
+        Assertions.assertEquals(10, frames.get(1)
+            .length() - "UNFRAMED:".length(), "Invalid bytes size");
+        Assertions.assertTrue(frames.get(2)
+            .startsWith("UNFRAMED:"), "Bytes after the invalid ones");
+    }
+
+    @Test
+    @DisplayName("Sends the held start of a frame along the invalid bytes")
+    public final void testOnMessage_InvalidAfterPending_Unframed() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+
+        frames = new ArrayList<>();
+        // Only knows the bytes are invalid once the second read arrives
+        assembler = assembler(new Framer() {
+
+            @Override
+            public final long frameLength(final ByteBuf buffer) {
+                if (buffer.indexOf(buffer.readerIndex(), buffer.writerIndex(), (byte) '!') >= 0) {
+                    throw new IllegalArgumentException("Invalid");
+                }
+                return UNKNOWN;
+            }
+
+        }, 1024, frames);
+
+        send(assembler, ascii("start "));
+        send(assembler, ascii("end!"));
+
+        Assertions.assertEquals(List.of("UNFRAMED:start end!"), frames, "Frames");
+    }
+
+    @Test
+    @DisplayName("Doesn't change the indexes of the messages")
+    public final void testOnMessage_MessageUnchanged() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+        final ByteBuf        message;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new DelimiterFramer(DelimiterFramer.parse("\\n")), 1024, frames);
+        message = ascii("a\nb\nc");
+
+        assembler.onMessage(message);
+
+        Assertions.assertEquals(0, message.readerIndex(), "Reader index");
+        Assertions.assertEquals(5, message.readableBytes(), "Readable bytes");
+
+        message.release();
+        assembler.release();
+    }
+
+    @Test
+    @DisplayName("Sends every frame in a read")
+    public final void testOnMessage_MultipleFrames() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new LengthFieldFramer(0, 8, 0), 1024, frames);
+
+        send(assembler, Unpooled.wrappedBuffer(lengthFrame("one"), lengthFrame("two"), lengthFrame("three")));
+
+        Assertions.assertEquals(List.of("WHOLE:one", "WHOLE:two", "WHOLE:three"), frames, "Frames");
+    }
+
+    @Test
+    @DisplayName("Streams a frame over the maximum size, with a known length")
+    public final void testOnMessage_Oversized_Streamed() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+        final ByteBuf        frame;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new LengthFieldFramer(0, 8, 0), 8, frames);
+        frame = lengthFrame("0123456789abcdef");
+
+        // The length is known once the whole field is read
+        send(assembler, frame.readRetainedSlice(6));
+        send(assembler, frame.readRetainedSlice(6));
+        send(assembler, frame.readRetainedSlice(6));
+        send(assembler, Unpooled.wrappedBuffer(frame, lengthFrame("next")));
+
+        Assertions.assertEquals(4, frames.size(), "Frames");
+        Assertions.assertTrue(frames.get(0)
+            .endsWith("0123"), "First piece");
+        Assertions.assertTrue(frames.get(0)
+            .startsWith("START:"), "First piece part");
+        Assertions.assertEquals("CONTINUATION:456789", frames.get(1), "Middle piece");
+        Assertions.assertEquals("END:abcdef", frames.get(2), "Last piece");
+        Assertions.assertEquals("WHOLE:next", frames.get(3), "Next frame");
+    }
+
+    @Test
+    @DisplayName("Streams a frame over the maximum size whose end is found by the delimiter")
+    public final void testOnMessage_OversizedUnknownLength_Streamed() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new DelimiterFramer(DelimiterFramer.parse("\\n")), 4, frames);
+
+        send(assembler, ascii("long "));
+        send(assembler, ascii("line"));
+        send(assembler, ascii(" end\nnext\n"));
+
+        Assertions.assertEquals(List.of("START:long ", "CONTINUATION:line", "END: end\n", "WHOLE:next\n"), frames,
+            "Frames");
+    }
+
+    @Test
+    @DisplayName("Joins a frame split between several reads")
+    public final void testOnMessage_SplitFrame() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+        final ByteBuf        frame;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new LengthFieldFramer(0, 8, 0), 1024, frames);
+        frame = lengthFrame("split frame");
+
+        // The first read ends inside the length field
+        send(assembler, frame.readRetainedSlice(1));
+        send(assembler, frame.readRetainedSlice(5));
+        Assertions.assertTrue(frames.isEmpty(), "Frames before the end");
+
+        send(assembler, frame);
+
+        Assertions.assertEquals(List.of("WHOLE:split frame"), frames, "Frames");
+    }
+
+    @Test
+    @DisplayName("Releases the start of an incomplete frame")
+    public final void testRelease_Pending() {
+        final List<String>   frames;
+        final FrameAssembler assembler;
+        final ByteBuf        message;
+
+        frames = new ArrayList<>();
+        assembler = assembler(new DelimiterFramer(DelimiterFramer.parse("\\n")), 1024, frames);
+        message = ascii("incomplete");
+
+        assembler.onMessage(message);
+        message.release();
+
+        Assertions.assertEquals(1, message.refCnt(), "References while held");
+
+        assembler.release();
+
+        Assertions.assertEquals(0, message.refCnt(), "References after releasing");
+        Assertions.assertTrue(frames.isEmpty(), "Frames");
+    }
+
+    /**
+     * Returns an ASCII buffer.
+     *
+     * @param text
+     *            buffer contents
+     * @return the buffer
+     */
+    private final ByteBuf ascii(final String text) {
+        return Unpooled.copiedBuffer(text, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Returns an assembler which stores each frame as its part followed by the frame text. Whole frames from a length
+     * field framer are stored without the length field.
+     *
+     * @param framer
+     *            finds the frames
+     * @param maxFrameBytes
+     *            frames over this size are streamed
+     * @param frames
+     *            stores the frames
+     * @return the assembler
+     */
+    private final FrameAssembler assembler(final Framer framer, final int maxFrameBytes, final List<String> frames) {
+        final boolean lengthField;
+
+        lengthField = framer instanceof LengthFieldFramer;
+        return new FrameAssembler(framer, maxFrameBytes, (frame, part) -> {
+            final int start;
+
+            if (lengthField && (part == FramePart.WHOLE)) {
+                start = frame.readerIndex() + 8;
+            } else {
+                start = frame.readerIndex();
+            }
+            frames.add(part + ":" + frame.toString(start, frame.writerIndex() - start, StandardCharsets.ISO_8859_1));
+        });
+    }
+
+    /**
+     * Returns a frame with an 8 byte length field before the text.
+     *
+     * @param text
+     *            frame contents
+     * @return the frame
+     */
+    private final ByteBuf lengthFrame(final String text) {
+        final ByteBuf frame;
+
+        frame = Unpooled.buffer();
+        frame.writeLong(text.length());
+        frame.writeCharSequence(text, StandardCharsets.US_ASCII);
+
+        return frame;
+    }
+
+    /**
+     * Sends a message to the assembler, and releases it, as the bridge does once it is forwarded.
+     *
+     * @param assembler
+     *            assembler receiving the message
+     * @param message
+     *            message read
+     */
+    private final void send(final FrameAssembler assembler, final ByteBuf message) {
+        assembler.onMessage(message);
+        message.release();
+    }
+
+}
@@ -0,0 +1,196 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.framing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.framing.Framer;
+import com.bernardomg.example.netty.proxy.server.bridge.framing.LengthFieldFramer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+@DisplayName("Length field framer")
+public final class TestLengthFieldFramer {
+
+    /**
+     * Default constructor.
+     */
+    public TestLengthFieldFramer() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects the field sizes which are not supported")
+    public final void testConstructor_InvalidFieldBytes_Rejected() {
+        for (final int bytes : new int[] { 0, 5, 6, 7, 9 }) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new LengthFieldFramer(0, bytes, 0),
+                "Field bytes " + bytes);
+        }
+    }
+
+    @Test
+    @DisplayName("Rejects a negative field offset")
+    public final void testConstructor_NegativeOffset_Rejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new LengthFieldFramer(-1, 2, 0));
+    }
+
+    @Test
+    @DisplayName("Rejects a length which ends before the header")
+    public final void testFrameLength_AdjustmentBeforeHeader_Rejected() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        // The field counts the header, which is 4 bytes, but says 2
+        framer = new LengthFieldFramer(0, 4, -8);
+        buffer = Unpooled.buffer();
+        buffer.writeInt(2);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> framer.frameLength(buffer));
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Adds the header and the adjustment to the field value")
+    public final void testFrameLength_Adjustment() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        // Type byte, and a length counting the whole frame
+        framer = new LengthFieldFramer(1, 2, -3);
+        buffer = Unpooled.buffer();
+        buffer.writeByte(7);
+        buffer.writeShort(10);
+
+        Assertions.assertEquals(10, framer.frameLength(buffer), "Frame length");
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Reads the length field for every supported size")
+    public final void testFrameLength_FieldSizes() {
+        ByteBuf buffer;
+
+        buffer = Unpooled.buffer();
+        buffer.writeByte(200);
+        Assertions.assertEquals(1 + 200, new LengthFieldFramer(0, 1, 0).frameLength(buffer), "1 byte");
+        buffer.release();
+
+        buffer = Unpooled.buffer();
+        buffer.writeShort(60000);
+        Assertions.assertEquals(2 + 60000, new LengthFieldFramer(0, 2, 0).frameLength(buffer), "2 bytes");
+        buffer.release();
+
+        buffer = Unpooled.buffer();
+        buffer.writeMedium(0xFFFFFF);
+        Assertions.assertEquals(3 + 0xFFFFFF, new LengthFieldFramer(0, 3, 0).frameLength(buffer), "3 bytes");
+        buffer.release();
+
+        buffer = Unpooled.buffer();
+        buffer.writeInt(0xFFFFFFFF);
+        Assertions.assertEquals(4 + 0xFFFFFFFFL, new LengthFieldFramer(0, 4, 0).frameLength(buffer), "4 bytes");
+        buffer.release();
+
+        buffer = Unpooled.buffer();
+        buffer.writeLong(1L << 40);
+        Assertions.assertEquals(8 + (1L << 40), new LengthFieldFramer(0, 8, 0).frameLength(buffer), "8 bytes");
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Reads the field from the reader index, without changing the indexes")
+    public final void testFrameLength_IndexesUnchanged() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new LengthFieldFramer(0, 2, 0);
+        buffer = Unpooled.buffer();
+        buffer.writeShort(100);
+        buffer.writeShort(5);
+        buffer.readShort();
+
+        Assertions.assertEquals(2 + 5, framer.frameLength(buffer), "Frame length");
+        Assertions.assertEquals(2, buffer.readerIndex(), "Reader index");
+        Assertions.assertEquals(4, buffer.writerIndex(), "Writer index");
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Rejects an 8 byte field with the highest bit set, which is read as negative")
+    public final void testFrameLength_NegativeLong_Rejected() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new LengthFieldFramer(0, 8, 0);
+        buffer = Unpooled.buffer();
+        buffer.writeLong(0x8000000000000010L);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> framer.frameLength(buffer));
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Rejects an 8 byte field which overflows once the header is added")
+    public final void testFrameLength_OverflowLong_Rejected() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new LengthFieldFramer(0, 8, 0);
+        buffer = Unpooled.buffer();
+        buffer.writeLong(Long.MAX_VALUE - 2);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> framer.frameLength(buffer));
+
+        buffer.release();
+    }
+
+    @Test
+    @DisplayName("Returns an unknown length until the whole header is read")
+    public final void testFrameLength_PartialHeader_Unknown() {
+        final Framer  framer;
+        final ByteBuf buffer;
+
+        framer = new LengthFieldFramer(2, 4, 0);
+        buffer = Unpooled.buffer();
+        buffer.writeShort(1);
+        buffer.writeShort(0);
+        buffer.writeByte(0);
+
+        Assertions.assertEquals(Framer.UNKNOWN, framer.frameLength(buffer), "Frame length");
+
+        buffer.writeByte(9);
+
+        Assertions.assertEquals(6 + 9, framer.frameLength(buffer), "Frame length with the whole header");
+
+        buffer.release();
+    }
+
+}
@@ -0,0 +1,133 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.bridge.shaping;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.BandwidthShaper;
+import com.bernardomg.example.netty.proxy.server.bridge.shaping.ShapingSettings;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+
+@DisplayName("Bandwidth shaper")
+public final class TestBandwidthShaper {
+
+    /**
+     * Default constructor.
+     */
+    public TestBandwidthShaper() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Lets the connection limit take the burst at once")
+    public final void testCreateConnectionLimit_Burst() {
+        final BandwidthShaper shaper;
+        final TokenBucket     limit;
+
+        shaper = new BandwidthShaper(ShapingSettings.builder()
+            .burst(Duration.ofMillis(100))
+            .requestRate(1000)
+            .build());
+
+        limit = shaper.createConnectionLimit(Direction.REQUEST);
+
+        Assertions.assertFalse(limit.tryAcquire(101), "Over the burst");
+        Assertions.assertTrue(limit.tryAcquire(100), "Burst");
+    }
+
+    @Test
+    @DisplayName("Without burst, lets the connection limit take a millisecond of bytes at once")
+    public final void testCreateConnectionLimit_MinimumBurst() {
+        final BandwidthShaper shaper;
+        final TokenBucket     limit;
+
+        shaper = new BandwidthShaper(ShapingSettings.builder()
+            .burst(Duration.ZERO)
+            .requestRate(100_000)
+            .build());
+
+        limit = shaper.createConnectionLimit(Direction.REQUEST);
+
+        Assertions.assertFalse(limit.tryAcquire(101), "Over the burst");
+        Assertions.assertTrue(limit.tryAcquire(100), "Burst");
+    }
+
+    @Test
+    @DisplayName("Without rates, all the limits are unlimited")
+    public final void testCreateConnectionLimit_NoRates_Unlimited() {
+        final BandwidthShaper shaper;
+
+        shaper = new BandwidthShaper(ShapingSettings.NONE);
+
+        Assertions.assertSame(TokenBucket.UNLIMITED, shaper.createConnectionLimit(Direction.REQUEST), "Request");
+        Assertions.assertSame(TokenBucket.UNLIMITED, shaper.createConnectionLimit(Direction.RESPONSE), "Response");
+        Assertions.assertSame(TokenBucket.UNLIMITED, shaper.getTotalLimit(Direction.REQUEST), "Total request");
+        Assertions.assertSame(TokenBucket.UNLIMITED, shaper.getTotalLimit(Direction.RESPONSE), "Total response");
+    }
+
+    @Test
+    @DisplayName("Gives each connection its own limit")
+    public final void testCreateConnectionLimit_PerConnection() {
+        final BandwidthShaper shaper;
+
+        shaper = new BandwidthShaper(ShapingSettings.builder()
+            .burst(Duration.ofSeconds(1))
+            .requestRate(1000)
+            .build());
+
+        Assertions.assertNotSame(shaper.createConnectionLimit(Direction.REQUEST),
+            shaper.createConnectionLimit(Direction.REQUEST));
+    }
+
+    @Test
+    @DisplayName("A shaper with other connection rates shares the total limits")
+    public final void testWithConnectionRates_SharesTotals() {
+        final BandwidthShaper shaper;
+        final BandwidthShaper derived;
+
+        shaper = new BandwidthShaper(ShapingSettings.builder()
+            .burst(Duration.ofSeconds(1))
+            .requestRate(1000)
+            .totalRequestRate(10_000)
+            .totalResponseRate(10_000)
+            .build());
+
+        derived = shaper.withConnectionRates(0, 1000);
+
+        Assertions.assertSame(shaper.getTotalLimit(Direction.REQUEST), derived.getTotalLimit(Direction.REQUEST),
+            "Total request");
+        Assertions.assertSame(shaper.getTotalLimit(Direction.RESPONSE), derived.getTotalLimit(Direction.RESPONSE),
+            "Total response");
+        Assertions.assertSame(TokenBucket.UNLIMITED, derived.createConnectionLimit(Direction.REQUEST), "Request");
+        Assertions.assertNotSame(TokenBucket.UNLIMITED, derived.createConnectionLimit(Direction.RESPONSE),
+            "Response");
+    }
+
+}
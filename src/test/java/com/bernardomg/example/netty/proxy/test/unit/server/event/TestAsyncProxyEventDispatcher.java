@@ -0,0 +1,247 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.event;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import com.bernardomg.example.netty.proxy.server.ProxyListener;
+import com.bernardomg.example.netty.proxy.server.event.AsyncProxyEventDispatcher;
+import com.bernardomg.example.netty.proxy.server.event.ConnectionEvent;
+import com.bernardomg.example.netty.proxy.server.event.Direction;
+import com.bernardomg.example.netty.proxy.server.event.OverflowPolicy;
+import com.bernardomg.example.netty.proxy.server.event.ProxyEvent;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+
+@DisplayName("Async proxy event dispatcher")
+public final class TestAsyncProxyEventDispatcher {
+
+    /**
+     * Listener storing the events received.
+     */
+    private static final class RecordingListener implements ProxyListener {
+
+        /**
+         * Ids of the connections received, and of the connection of each event received, in order.
+         */
+        private final List<String>     connectionIds = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Events received, in order.
+         */
+        private final List<ProxyEvent> events        = Collections.synchronizedList(new ArrayList<>());
+
+        /**
+         * Fails on the first event if active.
+         */
+        private boolean                failFirst;
+
+        @Override
+        public final void onConnection(final String connectionId, final ConnectionAddresses addresses) {
+            connectionIds.add("accepted " + connectionId);
+        }
+
+        @Override
+        public final void onRequest(final ProxyEvent event) {
+            receive(event);
+        }
+
+        @Override
+        public final void onResponse(final ProxyEvent event) {
+            receive(event);
+        }
+
+        @Override
+        public final void onStart() {
+            // Ignored
+        }
+
+        @Override
+        public final void onStop() {
+            // Ignored
+        }
+
+        /**
+         * Stores the event, or fails if it is the first one and failing is active.
+         *
+         * @param event
+         *            event received
+         */
+        private final void receive(final ProxyEvent event) {
+            if (failFirst) {
+                failFirst = false;
+                throw new IllegalStateException("Listener failure");
+            }
+            connectionIds.add(event.getConnectionId());
+            events.add(event);
+        }
+
+    }
+
+    /**
+     * Default constructor.
+     */
+    public TestAsyncProxyEventDispatcher() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Counts the events which don't fit into the queue while stopped when blocking")
+    @Timeout(10)
+    public final void testDispatch_Block_Stopped_Counted() {
+        final RecordingListener         listener;
+        final AsyncProxyEventDispatcher dispatcher;
+
+        listener = new RecordingListener();
+        dispatcher = new AsyncProxyEventDispatcher(listener, 4, 8, OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 20; i++) {
+            dispatcher.dispatch(event(i, Direction.REQUEST));
+        }
+
+        dispatcher.start();
+        dispatcher.stop();
+
+        Assertions.assertTrue(dispatcher.getDropped() > 0, "No event was dropped");
+        Assertions.assertEquals(20, listener.events.size() + dispatcher.getDropped());
+    }
+
+    @Test
+    @DisplayName("Delivers the connections in order with the messages")
+    public final void testDispatch_Connection_DeliveredInOrder() {
+        final RecordingListener         listener;
+        final AsyncProxyEventDispatcher dispatcher;
+        final ConnectionAddresses       addresses;
+
+        listener = new RecordingListener();
+        dispatcher = new AsyncProxyEventDispatcher(listener, 64, 2, OverflowPolicy.DROP);
+        addresses = new ConnectionAddresses(new InetSocketAddress("10.0.0.100", 8080),
+            new InetSocketAddress("10.0.0.1", 40000));
+
+        dispatcher.start();
+        dispatcher.dispatch(event(0, Direction.REQUEST));
+        dispatcher.dispatch(new ConnectionEvent(addresses, "other"));
+        dispatcher.dispatch(new ProxyEvent("other", Direction.REQUEST, 1, new byte[0], 0));
+        dispatcher.stop();
+
+        Assertions.assertEquals(List.of("connection", "accepted other", "other"), listener.connectionIds);
+    }
+
+    @Test
+    @DisplayName("Delivers the events in order, to the callback for their direction")
+    public final void testDispatch_Delivered() {
+        final RecordingListener         listener;
+        final AsyncProxyEventDispatcher dispatcher;
+
+        listener = new RecordingListener();
+        dispatcher = new AsyncProxyEventDispatcher(listener, 64, 4, OverflowPolicy.DROP);
+
+        dispatcher.start();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.dispatch(event(i, Direction.values()[i % 2]));
+        }
+        dispatcher.stop();
+
+        Assertions.assertEquals(10, listener.events.size());
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals(i, listener.events.get(i)
+                .getLength());
+            Assertions.assertEquals(Direction.values()[i % 2], listener.events.get(i)
+                .getDirection());
+        }
+        Assertions.assertEquals(0, dispatcher.getDropped());
+    }
+
+    @Test
+    @DisplayName("Counts the events which don't fit into the queue when dropping")
+    public final void testDispatch_Drop_Counted() {
+        final RecordingListener         listener;
+        final AsyncProxyEventDispatcher dispatcher;
+
+        listener = new RecordingListener();
+        dispatcher = new AsyncProxyEventDispatcher(listener, 4, 8, OverflowPolicy.DROP);
+
+        for (int i = 0; i < 20; i++) {
+            dispatcher.dispatch(event(i, Direction.REQUEST));
+        }
+
+        dispatcher.start();
+        dispatcher.stop();
+
+        Assertions.assertTrue(dispatcher.getDropped() > 0, "No event was dropped");
+        Assertions.assertEquals(20, listener.events.size() + dispatcher.getDropped());
+    }
+
+    @Test
+    @DisplayName("Keeps delivering after the listener fails")
+    public final void testDispatch_ListenerFails_KeepsDelivering() {
+        final RecordingListener         listener;
+        final AsyncProxyEventDispatcher dispatcher;
+
+        listener = new RecordingListener();
+        listener.failFirst = true;
+        dispatcher = new AsyncProxyEventDispatcher(listener, 64, 4, OverflowPolicy.DROP);
+
+        dispatcher.start();
+        for (int i = 0; i < 5; i++) {
+            dispatcher.dispatch(event(i, Direction.RESPONSE));
+        }
+        dispatcher.stop();
+
+        Assertions.assertEquals(4, listener.events.size());
+    }
+
+    @Test
+    @DisplayName("Rejects batches which are not positive")
+    public final void testNew_NoBatch_Rejected() {
+        final RecordingListener listener;
+
+        listener = new RecordingListener();
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new AsyncProxyEventDispatcher(listener, 4, 0, OverflowPolicy.DROP));
+    }
+
+    /**
+     * Creates an event, using its length to tell it apart.
+     *
+     * @param index
+     *            event index, used as its length
+     * @param direction
+     *            event direction
+     * @return the event
+     */
+    private final ProxyEvent event(final int index, final Direction direction) {
+        return new ProxyEvent("connection", direction, index, new byte[0], 0);
+    }
+
+}
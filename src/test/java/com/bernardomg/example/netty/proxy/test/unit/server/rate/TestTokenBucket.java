@@ -0,0 +1,208 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.rate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.rate.TokenBucket;
+
+@DisplayName("Token bucket")
+public final class TestTokenBucket {
+
+    /**
+     * Default constructor.
+     */
+    public TestTokenBucket() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Takes tokens over the burst as debt, and waits until it is paid")
+    public final void testAcquire_Debt_Wait() {
+        final AtomicLong  clock;
+        final TokenBucket bucket;
+        final long        wait;
+
+        clock = new AtomicLong();
+        bucket = new TokenBucket(1000, 100, clock::get);
+
+        wait = bucket.acquire(300);
+
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(200), wait, "Wait");
+        Assertions.assertEquals(wait, bucket.getWait(), "Wait after acquiring");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(150));
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(50), bucket.getWait(), "Wait after paying part");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        Assertions.assertEquals(0, bucket.getWait(), "Wait after paying");
+    }
+
+    @Test
+    @DisplayName("Is full once all the tokens taken are refilled")
+    public final void testIsFull_Refilled() {
+        final AtomicLong  clock;
+        final TokenBucket bucket;
+
+        clock = new AtomicLong();
+        bucket = new TokenBucket(10, 5, clock::get);
+
+        Assertions.assertTrue(bucket.isFull(), "Full at start");
+
+        bucket.tryAcquire(2);
+        Assertions.assertFalse(bucket.isFull(), "Full after taking");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(199));
+        Assertions.assertFalse(bucket.isFull(), "Full before refilling");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assertions.assertTrue(bucket.isFull(), "Full after refilling");
+    }
+
+    @Test
+    @DisplayName("Takes the whole burst at once, and nothing more")
+    public final void testTryAcquire_Burst() {
+        final AtomicLong  clock;
+        final TokenBucket bucket;
+
+        clock = new AtomicLong();
+        bucket = new TokenBucket(10, 5, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            Assertions.assertTrue(bucket.tryAcquire(1), "Token " + i);
+        }
+        Assertions.assertFalse(bucket.tryAcquire(1), "Token over the burst");
+    }
+
+    @Test
+    @DisplayName("Gives the burst to threads taking tokens at once")
+    public final void testTryAcquire_Concurrent() {
+        final AtomicLong                    clock;
+        final TokenBucket                   bucket;
+        final AtomicInteger                 taken;
+        final List<CompletableFuture<Void>> threads;
+
+        clock = new AtomicLong();
+        bucket = new TokenBucket(1, 1000, clock::get);
+        taken = new AtomicInteger();
+
+        threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(CompletableFuture.runAsync(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    if (bucket.tryAcquire(1)) {
+                        taken.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        CompletableFuture.allOf(threads.toArray(new CompletableFuture[0]))
+            .join();
+
+        Assertions.assertEquals(1000, taken.get());
+    }
+
+    @Test
+    @DisplayName("Doesn't take more tokens than the burst, even when empty")
+    public final void testTryAcquire_OverBurst_Rejected() {
+        final AtomicLong  clock;
+        final TokenBucket bucket;
+
+        clock = new AtomicLong();
+        bucket = new TokenBucket(10, 5, clock::get);
+
+        Assertions.assertFalse(bucket.tryAcquire(6), "Tokens over the burst");
+        Assertions.assertTrue(bucket.tryAcquire(5), "Whole burst");
+    }
+
+    @Test
+    @DisplayName("Works with a clock past the maximum long value")
+    public final void testTryAcquire_Overflow() {
+        final AtomicLong  clock;
+        final TokenBucket bucket;
+
+        clock = new AtomicLong(Long.MAX_VALUE - TimeUnit.MILLISECONDS.toNanos(50));
+        bucket = new TokenBucket(10, 1, clock::get);
+        bucket.tryAcquire(1);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+        Assertions.assertFalse(bucket.tryAcquire(1), "Token before refilling");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assertions.assertTrue(bucket.tryAcquire(1), "Refilled token");
+    }
+
+    @Test
+    @DisplayName("Refills at the rate")
+    public final void testTryAcquire_Refill() {
+        final AtomicLong  clock;
+        final TokenBucket bucket;
+
+        clock = new AtomicLong();
+        bucket = new TokenBucket(10, 5, clock::get);
+        bucket.tryAcquire(5);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(99));
+        Assertions.assertFalse(bucket.tryAcquire(1), "Token before refilling");
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assertions.assertTrue(bucket.tryAcquire(1), "Refilled token");
+        Assertions.assertFalse(bucket.tryAcquire(1), "Token after the refilled one");
+    }
+
+    @Test
+    @DisplayName("Refills no more than the burst, however long it waits")
+    public final void testTryAcquire_RefillCapped() {
+        final AtomicLong  clock;
+        final TokenBucket bucket;
+
+        clock = new AtomicLong();
+        bucket = new TokenBucket(10, 5, clock::get);
+        bucket.tryAcquire(5);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+
+        Assertions.assertTrue(bucket.tryAcquire(5), "Burst");
+        Assertions.assertFalse(bucket.tryAcquire(1), "Token over the burst");
+    }
+
+    @Test
+    @DisplayName("An unlimited bucket never runs out")
+    public final void testTryAcquire_Unlimited() {
+        Assertions.assertTrue(TokenBucket.UNLIMITED.tryAcquire(Long.MAX_VALUE), "Taken");
+        Assertions.assertEquals(0, TokenBucket.UNLIMITED.acquire(Long.MAX_VALUE), "Wait");
+        Assertions.assertTrue(TokenBucket.UNLIMITED.isFull(), "Full");
+    }
+
+}
@@ -0,0 +1,406 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.sni;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.sni.ClientHello;
+import com.bernardomg.example.netty.proxy.server.sni.ClientHelloHandler;
+import com.bernardomg.example.netty.proxy.server.sni.SniSettings;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.concurrent.Future;
+
+@DisplayName("ClientHello handler")
+public final class TestClientHelloHandler {
+
+    /**
+     * Default constructor.
+     */
+    public TestClientHelloHandler() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Reads a hello sent one byte at a time")
+    public final void testRead_ByteByByte() {
+        final EmbeddedChannel channel;
+        final ByteBuf         record;
+
+        channel = install(SniSettings.DEFAULT);
+        record = record(clientHello("example.com", List.of()));
+
+        while (record.readableBytes() > 1) {
+            channel.writeInbound(record.readRetainedSlice(1));
+        }
+
+        Assertions.assertFalse(getParsed(channel).isDone(), "Parsed before the end of the hello");
+
+        channel.writeInbound(record.readRetainedSlice(1));
+        record.release();
+
+        Assertions.assertTrue(getParsed(channel).isSuccess(), "Parsed");
+        Assertions.assertEquals("example.com", getHello(channel).getServerName(), "Server name");
+    }
+
+    @Test
+    @DisplayName("Fails the reading if the connection closes in the middle of a record")
+    public final void testRead_ClosedInRecord_Failed() {
+        final EmbeddedChannel channel;
+        final ByteBuf         record;
+
+        channel = install(SniSettings.DEFAULT);
+        record = record(clientHello("example.com", List.of()));
+
+        channel.writeInbound(record.readRetainedSlice(record.readableBytes() / 2));
+        record.release();
+        channel.close();
+
+        Assertions.assertInstanceOf(ClosedChannelException.class, getParsed(channel).cause(), "Failure");
+        Assertions.assertNull(getHello(channel), "Hello");
+    }
+
+    @Test
+    @DisplayName("Reads a hello split across several handshake records")
+    public final void testRead_FragmentedRecords() {
+        final EmbeddedChannel channel;
+        final ByteBuf         hello;
+        final ByteBuf         first;
+
+        channel = install(SniSettings.DEFAULT);
+        hello = clientHello("example.com", List.of("h2"));
+        first = record(hello.readRetainedSlice(20));
+
+        channel.writeInbound(first);
+
+        Assertions.assertFalse(getParsed(channel).isDone(), "Parsed with the first record");
+
+        channel.writeInbound(record(hello));
+
+        Assertions.assertTrue(getParsed(channel).isSuccess(), "Parsed");
+        Assertions.assertEquals("example.com", getHello(channel).getServerName(), "Server name");
+        Assertions.assertEquals(List.of("h2"), getHello(channel).getProtocols(), "Protocols");
+    }
+
+    @Test
+    @DisplayName("Reads the server name in lower case and the protocols, and passes along the bytes untouched")
+    public final void testRead_Hello() {
+        final EmbeddedChannel channel;
+        final ByteBuf         record;
+        final byte[]          sent;
+
+        channel = install(SniSettings.DEFAULT);
+        record = Unpooled.wrappedBuffer(record(clientHello("WWW.Example.com", List.of("h2", "http/1.1"))),
+            Unpooled.copiedBuffer("data", StandardCharsets.US_ASCII));
+        sent = ByteBufUtil.getBytes(record);
+
+        channel.writeInbound(record);
+
+        Assertions.assertTrue(getParsed(channel).isSuccess(), "Parsed");
+        Assertions.assertEquals("www.example.com", getHello(channel).getServerName(), "Server name");
+        Assertions.assertEquals(List.of("h2", "http/1.1"), getHello(channel).getProtocols(), "Protocols");
+        Assertions.assertArrayEquals(sent, readAll(channel), "Received");
+    }
+
+    @Test
+    @DisplayName("Removes the handler once the hello is read")
+    public final void testRead_Hello_HandlerRemoved() {
+        final EmbeddedChannel channel;
+        final int             handlers;
+
+        channel = new EmbeddedChannel();
+        handlers = channel.pipeline()
+            .names()
+            .size();
+        ClientHelloHandler.install(channel, SniSettings.DEFAULT);
+
+        channel.writeInbound(record(clientHello("example.com", List.of())));
+
+        Assertions.assertEquals(handlers, channel.pipeline()
+            .names()
+            .size(), "Handlers");
+    }
+
+    @Test
+    @DisplayName("Gives an empty hello if the hello fields are truncated")
+    public final void testRead_MalformedHello_Empty() {
+        final EmbeddedChannel channel;
+        final ByteBuf         hello;
+
+        channel = install(SniSettings.DEFAULT);
+        // Handshake header, version and random, and a session id longer than the hello
+        hello = Unpooled.buffer();
+        hello.writeByte(1);
+        hello.writeMedium(2 + 32 + 1);
+        hello.writeShort(0x0303);
+        hello.writeZero(32);
+        hello.writeByte(200);
+
+        channel.writeInbound(record(hello));
+
+        Assertions.assertTrue(getParsed(channel).isSuccess(), "Parsed");
+        Assertions.assertEquals(ClientHello.EMPTY, getHello(channel), "Hello");
+        Assertions.assertTrue(channel.isActive(), "Open");
+    }
+
+    @Test
+    @DisplayName("Gives an empty server name if there is no server name extension")
+    public final void testRead_NoServerName_EmptyName() {
+        final EmbeddedChannel channel;
+
+        channel = install(SniSettings.DEFAULT);
+
+        channel.writeInbound(record(clientHello("", List.of("h2"))));
+
+        Assertions.assertEquals("", getHello(channel).getServerName(), "Server name");
+        Assertions.assertEquals(List.of("h2"), getHello(channel).getProtocols(), "Protocols");
+    }
+
+    @Test
+    @DisplayName("Gives an empty hello if the connection doesn't start with TLS, and passes along the bytes untouched")
+    public final void testRead_NotTls_Empty() {
+        final EmbeddedChannel channel;
+
+        channel = install(SniSettings.DEFAULT);
+
+        channel.writeInbound(Unpooled.copiedBuffer("GET / HTTP/1.1\r\n\r\n", StandardCharsets.US_ASCII));
+
+        Assertions.assertTrue(getParsed(channel).isSuccess(), "Parsed");
+        Assertions.assertEquals(ClientHello.EMPTY, getHello(channel), "Hello");
+        Assertions.assertEquals("GET / HTTP/1.1\r\n\r\n", new String(readAll(channel), StandardCharsets.US_ASCII),
+            "Received");
+    }
+
+    @Test
+    @DisplayName("Closes the connection if the hello is larger than allowed")
+    public final void testRead_Oversized_Closed() {
+        final EmbeddedChannel channel;
+        final SniSettings     settings;
+
+        settings = SniSettings.builder()
+            .helloTimeout(Duration.ofSeconds(10))
+            .maxHelloBytes(64)
+            .build();
+        channel = install(settings);
+
+        receive(channel, record(clientHello("a".repeat(100) + ".example.com", List.of())));
+
+        Assertions.assertFalse(channel.isActive(), "Open");
+        Assertions.assertNotNull(getParsed(channel).cause(), "Failure");
+        Assertions.assertNull(getHello(channel), "Hello");
+    }
+
+    @Test
+    @DisplayName("Closes the connection if the hello doesn't arrive in time")
+    public final void testRead_Timeout_Closed() {
+        final EmbeddedChannel channel;
+        final ByteBuf         record;
+
+        channel = install(SniSettings.DEFAULT);
+        channel.freezeTime();
+        record = record(clientHello("example.com", List.of()));
+
+        channel.writeInbound(record.readRetainedSlice(10));
+        record.release();
+        channel.advanceTimeBy(9, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+
+        Assertions.assertTrue(channel.isActive(), "Closed before the timeout");
+
+        channel.advanceTimeBy(2, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+
+        Assertions.assertFalse(channel.isActive(), "Open");
+        Assertions.assertSame(ReadTimeoutException.INSTANCE, getParsed(channel).cause(), "Failure");
+    }
+
+    /**
+     * Returns a ClientHello handshake message, with the server name and ALPN extensions.
+     *
+     * @param serverName
+     *            server name, if empty there is no server name extension
+     * @param protocols
+     *            application protocols, if empty there is no ALPN extension
+     * @return the handshake message
+     */
+    private final ByteBuf clientHello(final String serverName, final List<String> protocols) {
+        final ByteBuf hello;
+        final ByteBuf extensions;
+        final ByteBuf names;
+
+        extensions = Unpooled.buffer();
+        if (!serverName.isEmpty()) {
+            // Server name list, with a single host name
+            extensions.writeShort(0);
+            extensions.writeShort(2 + 1 + 2 + serverName.length());
+            extensions.writeShort(1 + 2 + serverName.length());
+            extensions.writeByte(0);
+            extensions.writeShort(serverName.length());
+            extensions.writeCharSequence(serverName, StandardCharsets.US_ASCII);
+        }
+        if (!protocols.isEmpty()) {
+            names = Unpooled.buffer();
+            for (final String protocol : protocols) {
+                names.writeByte(protocol.length());
+                names.writeCharSequence(protocol, StandardCharsets.US_ASCII);
+            }
+            extensions.writeShort(16);
+            extensions.writeShort(2 + names.readableBytes());
+            extensions.writeShort(names.readableBytes());
+            extensions.writeBytes(names);
+            names.release();
+        }
+
+        hello = Unpooled.buffer();
+        // Handshake type and length
+        hello.writeByte(1);
+        hello.writeMedium(2 + 32 + 1 + 4 + 2 + 2 + extensions.readableBytes());
+        // Version, random, empty session id, a single cipher suite and no compression
+        hello.writeShort(0x0303);
+        hello.writeZero(32);
+        hello.writeByte(0);
+        hello.writeShort(2);
+        hello.writeShort(0x1301);
+        hello.writeByte(1);
+        hello.writeByte(0);
+        hello.writeShort(extensions.readableBytes());
+        hello.writeBytes(extensions);
+        extensions.release();
+
+        return hello;
+    }
+
+    /**
+     * Returns the hello read by a channel.
+     *
+     * @param channel
+     *            channel reading the hello
+     * @return the hello, or {@code null} if it wasn't read
+     */
+    private final ClientHello getHello(final EmbeddedChannel channel) {
+        return channel.attr(ClientHello.KEY)
+            .get();
+    }
+
+    /**
+     * Returns the hello reading of a channel.
+     *
+     * @param channel
+     *            channel reading the hello
+     * @return the hello reading
+     */
+    private final Future<Void> getParsed(final EmbeddedChannel channel) {
+        return channel.attr(ClientHelloHandler.PARSED)
+            .get();
+    }
+
+    /**
+     * Returns a channel reading the ClientHello.
+     *
+     * @param settings
+     *            limits for reading the hello
+     * @return a channel reading the hello
+     */
+    private final EmbeddedChannel install(final SniSettings settings) {
+        final EmbeddedChannel channel;
+
+        channel = new EmbeddedChannel();
+        ClientHelloHandler.install(channel, settings);
+
+        return channel;
+    }
+
+    /**
+     * Reads all the inbound data of a channel.
+     *
+     * @param channel
+     *            channel to read
+     * @return the inbound data
+     */
+    private final byte[] readAll(final EmbeddedChannel channel) {
+        final ByteBuf received;
+        final byte[]  bytes;
+        ByteBuf       data;
+
+        received = Unpooled.buffer();
+        data = channel.readInbound();
+        while (data != null) {
+            received.writeBytes(data);
+            data.release();
+            data = channel.readInbound();
+        }
+        bytes = ByteBufUtil.getBytes(received);
+        received.release();
+
+        return bytes;
+    }
+
+    /**
+     * Sends data into a channel, without rethrowing the failures which reach the end of its pipeline. The embedded
+     * channel closes at once, so its handlers are removed before the decoding failure reaches them.
+     *
+     * @param channel
+     *            channel receiving the data
+     * @param data
+     *            data to send
+     */
+    private final void receive(final EmbeddedChannel channel, final ByteBuf data) {
+        channel.pipeline()
+            .fireChannelRead(data);
+    }
+
+    /**
+     * Wraps a fragment of a handshake message into a TLS handshake record.
+     *
+     * @param fragment
+     *            record contents, released once copied
+     * @return the record
+     */
+    private final ByteBuf record(final ByteBuf fragment) {
+        final ByteBuf record;
+
+        record = Unpooled.buffer();
+        record.writeByte(22);
+        record.writeShort(0x0301);
+        record.writeShort(fragment.readableBytes());
+        record.writeBytes(fragment);
+        fragment.release();
+
+        return record;
+    }
+
+}
@@ -0,0 +1,172 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.server.sni;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.server.sni.SniRoutingTable;
+
+@DisplayName("SNI routing table")
+public final class TestSniRoutingTable {
+
+    /**
+     * Default constructor.
+     */
+    public TestSniRoutingTable() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Rejects the patterns which are neither a name nor a wildcard")
+    public final void testConstructor_InvalidPattern_Rejected() {
+        for (final String pattern : List.of("", "*", "*.", "*example.com", "www.*.com", "*.*.example.com")) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new SniRoutingTable<>(Map.of(pattern, 1)),
+                pattern);
+        }
+    }
+
+    @Test
+    @DisplayName("Keeps all the values in the order received")
+    public final void testGetValues_Order() {
+        final Map<String, Integer>     routes;
+        final SniRoutingTable<Integer> table;
+
+        routes = new LinkedHashMap<>();
+        routes.put("b.example.com", 1);
+        routes.put("*.example.com", 2);
+        routes.put("a.example.com", 3);
+        table = new SniRoutingTable<>(routes);
+
+        Assertions.assertEquals(List.of(1, 2, 3), table.getValues(), "Values");
+        Assertions.assertFalse(table.isEmpty(), "Empty");
+    }
+
+    @Test
+    @DisplayName("An empty table matches nothing")
+    public final void testLookup_Empty_Null() {
+        final SniRoutingTable<Integer> table;
+
+        table = SniRoutingTable.empty();
+
+        Assertions.assertTrue(table.isEmpty(), "Empty");
+        Assertions.assertNull(table.lookup("example.com"), "Match");
+        Assertions.assertNull(table.lookup(""), "Match for an empty name");
+    }
+
+    @Test
+    @DisplayName("Matches an exact name")
+    public final void testLookup_Exact() {
+        final SniRoutingTable<Integer> table;
+
+        table = new SniRoutingTable<>(Map.of("example.com", 1));
+
+        Assertions.assertEquals(1, table.lookup("example.com"), "Match");
+        Assertions.assertNull(table.lookup("www.example.com"), "Match for a subdomain");
+        Assertions.assertNull(table.lookup("xample.com"), "Match for a shorter name");
+    }
+
+    @Test
+    @DisplayName("An exact name wins over a wildcard")
+    public final void testLookup_ExactAndWildcard_Exact() {
+        final Map<String, Integer>     routes;
+        final SniRoutingTable<Integer> table;
+
+        routes = new LinkedHashMap<>();
+        routes.put("*.example.com", 1);
+        routes.put("www.example.com", 2);
+        table = new SniRoutingTable<>(routes);
+
+        Assertions.assertEquals(2, table.lookup("www.example.com"), "Exact match");
+        Assertions.assertEquals(1, table.lookup("api.example.com"), "Wildcard match");
+    }
+
+    @Test
+    @DisplayName("Finds every name in a large table")
+    public final void testLookup_Many() {
+        final Map<String, Integer>     routes;
+        final SniRoutingTable<Integer> table;
+
+        routes = new LinkedHashMap<>();
+        for (int i = 0; i < 500; i++) {
+            routes.put("host" + i + ".example.com", i);
+            routes.put("*.zone" + i + ".example.com", -i);
+        }
+        table = new SniRoutingTable<>(routes);
+
+        for (int i = 0; i < 500; i++) {
+            Assertions.assertEquals(i, table.lookup("host" + i + ".example.com"), "Exact match " + i);
+            Assertions.assertEquals(-i, table.lookup("www.zone" + i + ".example.com"), "Wildcard match " + i);
+        }
+        Assertions.assertNull(table.lookup("host500.example.com"), "Match for a missing name");
+    }
+
+    @Test
+    @DisplayName("Matches the patterns regardless of their case")
+    public final void testLookup_PatternCase() {
+        final SniRoutingTable<Integer> table;
+
+        table = new SniRoutingTable<>(Map.of("WWW.Example.com", 1, "*.API.example.com", 2));
+
+        Assertions.assertEquals(1, table.lookup("www.example.com"), "Exact match");
+        Assertions.assertEquals(2, table.lookup("v1.api.example.com"), "Wildcard match");
+    }
+
+    @Test
+    @DisplayName("A wildcard matches any subdomain, but not the domain itself")
+    public final void testLookup_Wildcard() {
+        final SniRoutingTable<Integer> table;
+
+        table = new SniRoutingTable<>(Map.of("*.example.com", 1));
+
+        Assertions.assertEquals(1, table.lookup("www.example.com"), "Match");
+        Assertions.assertEquals(1, table.lookup("a.b.example.com"), "Match for a nested subdomain");
+        Assertions.assertNull(table.lookup("example.com"), "Match for the domain");
+        Assertions.assertNull(table.lookup("wwwexample.com"), "Match without the dot");
+        Assertions.assertNull(table.lookup(".example.com"), "Match for an empty label");
+    }
+
+    @Test
+    @DisplayName("A longer wildcard wins over a shorter one")
+    public final void testLookup_Wildcards_Longest() {
+        final Map<String, Integer>     routes;
+        final SniRoutingTable<Integer> table;
+
+        routes = new LinkedHashMap<>();
+        routes.put("*.eu.example.com", 2);
+        routes.put("*.example.com", 1);
+        table = new SniRoutingTable<>(routes);
+
+        Assertions.assertEquals(2, table.lookup("www.eu.example.com"), "Longer match");
+        Assertions.assertEquals(1, table.lookup("www.us.example.com"), "Shorter match");
+        Assertions.assertEquals(1, table.lookup("eu.example.com"), "Match for the longer domain");
+    }
+
+}
@@ -0,0 +1,374 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.transport.proxyprotocol;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ProxyProtocolHandler;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ProxyProtocolWriter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.concurrent.Future;
+
+@DisplayName("PROXY protocol handler")
+public final class TestProxyProtocolHandler {
+
+    /**
+     * Default constructor.
+     */
+    public TestProxyProtocolHandler() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Fails the decoding if the connection closes before the header")
+    public final void testRead_ClosedBeforeHeader_Failed() {
+        final EmbeddedChannel channel;
+
+        channel = install();
+
+        channel.writeInbound(ascii("PROXY TCP4 10.0.0.1"));
+        channel.close();
+
+        Assertions.assertInstanceOf(ClosedChannelException.class, getDecoded(channel).cause(), "Failure");
+    }
+
+    @Test
+    @DisplayName("Reads a v1 header split across several reads")
+    public final void testRead_Fragmented() {
+        final EmbeddedChannel channel;
+
+        channel = install();
+
+        channel.writeInbound(ascii("PROXY TCP4 10.0"));
+        channel.writeInbound(ascii(".0.1 10.0.0.2 12"));
+
+        Assertions.assertFalse(getDecoded(channel).isDone(), "Decoded before the end of the header");
+
+        channel.writeInbound(ascii("34 80\r\nhello"));
+
+        Assertions.assertTrue(getDecoded(channel).isSuccess(), "Decoded");
+        Assertions.assertEquals(new InetSocketAddress("10.0.0.1", 1234), channel.attr(ConnectionAddresses.KEY)
+            .get()
+            .getSource(), "Source");
+        Assertions.assertEquals("hello", readAscii(channel), "Data after the header");
+    }
+
+    @Test
+    @DisplayName("Closes the connection if the v2 signature is wrong")
+    public final void testRead_InvalidSignature_Closed() {
+        final EmbeddedChannel channel;
+        final ByteBuf         header;
+
+        channel = install();
+        header = encode(new ConnectionAddresses(new InetSocketAddress("10.0.0.2", 80),
+            new InetSocketAddress("10.0.0.1", 1234)));
+        // The last signature byte
+        header.setByte(11, 0x0C);
+
+        receive(channel, header);
+
+        assertRejected(channel);
+    }
+
+    @Test
+    @DisplayName("Closes the connection if the v2 header has an unknown version")
+    public final void testRead_InvalidVersion_Closed() {
+        final EmbeddedChannel channel;
+        final ByteBuf         header;
+
+        channel = install();
+        header = encode(new ConnectionAddresses(new InetSocketAddress("10.0.0.2", 80),
+            new InetSocketAddress("10.0.0.1", 1234)));
+        // Version 3, PROXY command
+        header.setByte(12, 0x31);
+
+        receive(channel, header);
+
+        assertRejected(channel);
+    }
+
+    @Test
+    @DisplayName("Keeps the channel addresses for a LOCAL header")
+    public final void testRead_Local_KeepsAddresses() {
+        final EmbeddedChannel channel;
+
+        channel = install();
+
+        channel.writeInbound(encode(new ConnectionAddresses(new LocalAddress("destination"),
+            new LocalAddress("source"))));
+
+        Assertions.assertTrue(getDecoded(channel).isSuccess(), "Decoded");
+        Assertions.assertNull(channel.attr(ConnectionAddresses.KEY)
+            .get(), "Addresses");
+        Assertions.assertTrue(channel.isActive(), "Open");
+    }
+
+    @Test
+    @DisplayName("Closes the connection if the v1 header is malformed")
+    public final void testRead_MalformedV1_Closed() {
+        final EmbeddedChannel channel;
+
+        channel = install();
+
+        receive(channel, ascii("PROXY TCP4 nowhere\r\n"));
+
+        assertRejected(channel);
+    }
+
+    @Test
+    @DisplayName("Closes the connection if it doesn't start with a header")
+    public final void testRead_NoHeader_Closed() {
+        final EmbeddedChannel channel;
+
+        channel = install();
+
+        receive(channel, ascii("GET / HTTP/1.1\r\n\r\n"));
+
+        assertRejected(channel);
+    }
+
+    @Test
+    @DisplayName("Closes the connection if the v1 header is longer than allowed")
+    public final void testRead_OversizedV1_Closed() {
+        final EmbeddedChannel channel;
+
+        channel = install();
+
+        receive(channel, ascii("PROXY TCP4 " + "1".repeat(200)));
+
+        assertRejected(channel);
+    }
+
+    @Test
+    @DisplayName("Closes the connection if the header doesn't arrive in time")
+    public final void testRead_Timeout_Closed() {
+        final EmbeddedChannel channel;
+
+        channel = install();
+        channel.freezeTime();
+
+        channel.writeInbound(ascii("PROXY TCP4"));
+        channel.advanceTimeBy(9, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+
+        Assertions.assertTrue(channel.isActive(), "Closed before the timeout");
+
+        channel.advanceTimeBy(2, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+
+        Assertions.assertFalse(channel.isActive(), "Open");
+        Assertions.assertSame(ReadTimeoutException.INSTANCE, getDecoded(channel).cause(), "Failure");
+    }
+
+    @Test
+    @DisplayName("Reads the addresses from a v1 header, and passes along the data after it")
+    public final void testRead_V1() {
+        final EmbeddedChannel     channel;
+        final ConnectionAddresses addresses;
+
+        channel = install();
+
+        channel.writeInbound(ascii("PROXY TCP4 10.0.0.1 10.0.0.2 1234 80\r\nhello"));
+        addresses = channel.attr(ConnectionAddresses.KEY)
+            .get();
+
+        Assertions.assertTrue(getDecoded(channel).isSuccess(), "Decoded");
+        Assertions.assertEquals(new InetSocketAddress("10.0.0.1", 1234), addresses.getSource(), "Source");
+        Assertions.assertEquals(new InetSocketAddress("10.0.0.2", 80), addresses.getDestination(), "Destination");
+        Assertions.assertEquals("hello", readAscii(channel), "Data after the header");
+    }
+
+    @Test
+    @DisplayName("Removes the handlers once the header is read")
+    public final void testRead_V1_HandlersRemoved() {
+        final EmbeddedChannel channel;
+        final int             handlers;
+
+        channel = new EmbeddedChannel();
+        handlers = channel.pipeline()
+            .names()
+            .size();
+        ProxyProtocolHandler.install(channel);
+
+        channel.writeInbound(ascii("PROXY TCP4 10.0.0.1 10.0.0.2 1234 80\r\n"));
+
+        Assertions.assertEquals(handlers, channel.pipeline()
+            .names()
+            .size(), "Handlers");
+    }
+
+    @Test
+    @DisplayName("Reads back the IPv4 addresses of a v2 header written by the proxy")
+    public final void testRead_V2_RoundTrip() {
+        final EmbeddedChannel     channel;
+        final ConnectionAddresses addresses;
+
+        channel = install();
+        addresses = new ConnectionAddresses(new InetSocketAddress("10.0.0.2", 80),
+            new InetSocketAddress("10.0.0.1", 1234));
+
+        channel.writeInbound(Unpooled.wrappedBuffer(encode(addresses), ascii("hello")));
+
+        Assertions.assertTrue(getDecoded(channel).isSuccess(), "Decoded");
+        Assertions.assertEquals(addresses, channel.attr(ConnectionAddresses.KEY)
+            .get(), "Addresses");
+        Assertions.assertEquals("hello", readAscii(channel), "Data after the header");
+    }
+
+    @Test
+    @DisplayName("Reads back the IPv6 addresses of a v2 header written by the proxy")
+    public final void testRead_V2_RoundTripIpv6() {
+        final EmbeddedChannel     channel;
+        final ConnectionAddresses addresses;
+
+        channel = install();
+        addresses = new ConnectionAddresses(new InetSocketAddress("2001:db8::2", 443),
+            new InetSocketAddress("2001:db8::1", 50000));
+
+        channel.writeInbound(encode(addresses));
+
+        Assertions.assertEquals(addresses, channel.attr(ConnectionAddresses.KEY)
+            .get(), "Addresses");
+    }
+
+    /**
+     * Returns an ASCII buffer.
+     *
+     * @param text
+     *            buffer contents
+     * @return the buffer
+     */
+    private final ByteBuf ascii(final String text) {
+        return Unpooled.copiedBuffer(text, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Checks the header was rejected, closing the connection.
+     *
+     * @param channel
+     *            channel which received the header
+     */
+    private final void assertRejected(final EmbeddedChannel channel) {
+        Assertions.assertFalse(channel.isActive(), "Open");
+        Assertions.assertNotNull(getDecoded(channel).cause(), "Failure");
+        Assertions.assertNull(channel.attr(ConnectionAddresses.KEY)
+            .get(), "Addresses");
+    }
+
+    /**
+     * Returns the v2 header the proxy sends for the received addresses.
+     *
+     * @param addresses
+     *            addresses for the header
+     * @return the header
+     */
+    private final ByteBuf encode(final ConnectionAddresses addresses) {
+        final EmbeddedChannel channel;
+        final ByteBuf         header;
+
+        channel = new EmbeddedChannel();
+        ProxyProtocolWriter.write(channel, addresses);
+        header = channel.readOutbound();
+        channel.finishAndReleaseAll();
+
+        return header;
+    }
+
+    /**
+     * Sends data into a channel, without rethrowing the failures which reach the end of its pipeline. The embedded
+     * channel closes at once, so its handlers are removed before the decoding failure reaches them.
+     *
+     * @param channel
+     *            channel receiving the data
+     * @param data
+     *            data to send
+     */
+    private final void receive(final EmbeddedChannel channel, final ByteBuf data) {
+        channel.pipeline()
+            .fireChannelRead(data);
+    }
+
+    /**
+     * Returns the header decoding of a channel.
+     *
+     * @param channel
+     *            channel reading the header
+     * @return the header decoding
+     */
+    private final Future<Void> getDecoded(final EmbeddedChannel channel) {
+        return channel.attr(ProxyProtocolHandler.DECODED)
+            .get();
+    }
+
+    /**
+     * Returns a channel reading the PROXY protocol header.
+     *
+     * @return a channel reading the header
+     */
+    private final EmbeddedChannel install() {
+        final EmbeddedChannel channel;
+
+        channel = new EmbeddedChannel();
+        ProxyProtocolHandler.install(channel);
+
+        return channel;
+    }
+
+    /**
+     * Reads all the inbound data of a channel, as ASCII.
+     *
+     * @param channel
+     *            channel to read
+     * @return the inbound data
+     */
+    private final String readAscii(final EmbeddedChannel channel) {
+        final StringBuilder text;
+        ByteBuf             data;
+
+        text = new StringBuilder();
+        data = channel.readInbound();
+        while (data != null) {
+            text.append(data.toString(StandardCharsets.US_ASCII));
+            data.release();
+            data = channel.readInbound();
+        }
+
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License (MIT)
+ * <p>
+ * Copyright (c) 2023 the original author or authors.
+ * <p>
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * <p>
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * <p>
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.bernardomg.example.netty.proxy.test.unit.transport.proxyprotocol;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ConnectionAddresses;
+import com.bernardomg.example.netty.proxy.transport.proxyprotocol.ProxyProtocolWriter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.local.LocalAddress;
+
+@DisplayName("PROXY protocol writer")
+public final class TestProxyProtocolWriter {
+
+    /**
+     * Default constructor.
+     */
+    public TestProxyProtocolWriter() {
+        super();
+    }
+
+    @Test
+    @DisplayName("Writes a LOCAL header for addresses which are not IP")
+    public final void testWrite_NotIp_Local() {
+        final EmbeddedChannel channel;
+        final ByteBuf         header;
+
+        channel = new EmbeddedChannel();
+
+        ProxyProtocolWriter.write(channel,
+            new ConnectionAddresses(new LocalAddress("destination"), new LocalAddress("source")));
+        header = channel.readOutbound();
+
+        Assertions.assertEquals(0x20, header.getUnsignedByte(12), "Version and command");
+        Assertions.assertEquals(0x00, header.getUnsignedByte(13), "Family and protocol");
+        Assertions.assertEquals(0, header.getUnsignedShort(14), "Address length");
+
+        header.release();
+    }
+
+    @Test
+    @DisplayName("Passes the messages after the header along unchanged")
+    public final void testWrite_Then_Unchanged() {
+        final EmbeddedChannel channel;
+        final ByteBuf         data;
+
+        channel = new EmbeddedChannel();
+
+        ProxyProtocolWriter.write(channel, new ConnectionAddresses(new InetSocketAddress("10.0.0.2", 80),
+            new InetSocketAddress("10.0.0.1", 1234)));
+        ((ByteBuf) channel.readOutbound()).release();
+        channel.writeOutbound(Unpooled.copiedBuffer("hello", StandardCharsets.US_ASCII));
+        data = channel.readOutbound();
+
+        Assertions.assertEquals("hello", data.toString(StandardCharsets.US_ASCII), "Data");
+
+        data.release();
+    }
+
+    @Test
+    @DisplayName("Writes a v2 PROXY header with the IPv4 addresses")
+    public final void testWrite_V2() {
+        final EmbeddedChannel channel;
+        final ByteBuf         header;
+
+        channel = new EmbeddedChannel();
+
+        ProxyProtocolWriter.write(channel, new ConnectionAddresses(new InetSocketAddress("10.0.0.2", 80),
+            new InetSocketAddress("10.0.0.1", 1234)));
+        header = channel.readOutbound();
+
+        Assertions.assertEquals("0d0a0d0a000d0a515549540a", ByteBufUtil.hexDump(header, 0, 12), "Signature");
+        Assertions.assertEquals(0x21, header.getUnsignedByte(12), "Version and command");
+        Assertions.assertEquals(0x11, header.getUnsignedByte(13), "Family and protocol");
+        Assertions.assertEquals(12, header.getUnsignedShort(14), "Address length");
+        Assertions.assertEquals("0a0000010a00000204d20050", ByteBufUtil.hexDump(header, 16, 12), "Addresses");
+        Assertions.assertEquals(28, header.readableBytes(), "Header length");
+
+        header.release();
+    }
+
+}